@@ -0,0 +1,210 @@
+package lsea.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lsea.LaboratoryApplication;
+import lsea.dto.CreateLogDto;
+import lsea.dto.CreateUserDto;
+import lsea.dto.CreateWebsiteDto;
+import lsea.entity.Log;
+import lsea.entity.TimeOrderedEntity;
+import lsea.entity.User;
+import lsea.entity.Website;
+import lsea.errors.GenericForbiddenError;
+import lsea.repository.LogRepository;
+import lsea.repository.UserRepository;
+import lsea.repository.WebsiteRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Benchmark of the inserts of the logs, users and websites through their
+ * repositories, in the in-memory database of the application.
+ *
+ * The previous path saved entities with a random id that Spring Data took for
+ * stored ones, so every save merged the entity and selected its row before the
+ * insert. It is reproduced by marking the new entities as stored. The current
+ * path persists entities with time-ordered ids, inserted in JDBC batches; a
+ * batch size of 1 disables the batching. The throughput is in rows per
+ * second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EntityInsertBenchmark {
+
+  /**
+   * The number of rows saved by a transaction.
+   */
+  private static final int ROWS = 100;
+
+  /**
+   * The table the rows are inserted in.
+   */
+  @Param({ "logs", "users", "websites" })
+  private String table;
+
+  /**
+   * The JDBC batch size of Hibernate.
+   */
+  @Param({ "1", "50" })
+  private int batchSize;
+
+  /**
+   * The application, started once per trial.
+   */
+  private ConfigurableApplicationContext context;
+
+  /**
+   * The transaction of a group of rows.
+   */
+  private TransactionTemplate transactionTemplate;
+
+  /**
+   * The repository of the table.
+   */
+  private JpaRepository<? extends TimeOrderedEntity, UUID> repository;
+
+  /**
+   * The owner of the logs and websites.
+   */
+  private User owner;
+
+  /**
+   * The number of the next row, keeping the usernames and emails unique.
+   */
+  private final AtomicLong sequence = new AtomicLong();
+
+  /**
+   * Starts the application with the batch size and stores the owner.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    context = new SpringApplicationBuilder(LaboratoryApplication.class)
+        .properties("server.port=0", "lsea.tcp.enabled=false", "lsea.jpa.batch-size=" + batchSize, "logging.level.root=WARN")
+        .run();
+    transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+    UserRepository userRepository = context.getBean(UserRepository.class);
+    owner = userRepository.save(newUser());
+
+    switch (table) {
+      case "logs":
+        repository = context.getBean(LogRepository.class);
+        break;
+      case "users":
+        repository = userRepository;
+        break;
+      case "websites":
+        repository = context.getBean(WebsiteRepository.class);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown table " + table);
+    }
+  }
+
+  /**
+   * Stops the application.
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  /**
+   * The previous path: random ids, every save merges the entity.
+   */
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public void mergeRandomId() {
+    save(true);
+  }
+
+  /**
+   * The current path: time-ordered ids, the entities are persisted and the
+   * inserts batched.
+   */
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public void persistTimeOrderedId() {
+    save(false);
+  }
+
+  /**
+   * Saves a group of new rows in a transaction.
+   *
+   * @param merged - whether the rows are saved the way they were before
+   */
+  @SuppressWarnings("unchecked")
+  private void save(boolean merged) {
+    List<TimeOrderedEntity> entities = new ArrayList<>(ROWS);
+    for (int i = 0; i < ROWS; i++) {
+      TimeOrderedEntity entity = newEntity();
+      if (merged) {
+        entity.setId(UUID.randomUUID());
+        entity.markPersisted();
+      }
+      entities.add(entity);
+    }
+    transactionTemplate.execute(status ->
+        ((JpaRepository<TimeOrderedEntity, UUID>) repository).saveAll(entities));
+  }
+
+  /**
+   * Creates a row of the table.
+   *
+   * @return the new entity
+   */
+  private TimeOrderedEntity newEntity() {
+    switch (table) {
+      case "logs":
+        try {
+          return Log.create(CreateLogDto.builder().data("benchmark log").logType(0).build(), owner);
+        } catch (GenericForbiddenError e) {
+          throw new IllegalStateException(e);
+        }
+      case "users":
+        return newUser();
+      default:
+        return Website.create(CreateWebsiteDto.builder()
+            .displayName("benchmark")
+            .redirectUrl("https://example.com")
+            .build(), owner);
+    }
+  }
+
+  /**
+   * Creates a user with a unique username and email.
+   *
+   * @return the new user
+   */
+  private User newUser() {
+    long n = sequence.incrementAndGet();
+    return User.create(CreateUserDto.builder()
+        .username("benchmark" + n)
+        .email("benchmark" + n + "@example.com")
+        .build(), "not a hash");
+  }
+}
@@ -0,0 +1,80 @@
+package lsea.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+/**
+ * Benchmark of the password verification of a login at every BCrypt cost
+ * factor.
+ *
+ * BCrypt runs on a single core, so the single-threaded score is the number of
+ * logins per second per core, the score with a thread per core is the ceiling
+ * of the whole machine. Every cost step doubles the work.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordHashBenchmark {
+
+  /**
+   * The password of the login.
+   */
+  private static final String PASSWORD = "correct horse battery staple";
+
+  /**
+   * The BCrypt cost factor.
+   */
+  @Param({ "8", "10", "12", "14" })
+  private int cost;
+
+  /**
+   * The stored hash of the password.
+   */
+  private String hash;
+
+  /**
+   * Hashes the password with the benchmarked cost.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    hash = BCrypt.hashpw(PASSWORD, BCrypt.gensalt(cost));
+  }
+
+  /**
+   * Logins per second on a single core.
+   *
+   * @return whether the password matched
+   */
+  @Benchmark
+  @Threads(1)
+  public boolean loginPerCore() {
+    return BCrypt.checkpw(PASSWORD, hash);
+  }
+
+  /**
+   * Logins per second with a thread per core.
+   *
+   * @return whether the password matched
+   */
+  @Benchmark
+  @Threads(Threads.MAX)
+  public boolean loginAllCores() {
+    return BCrypt.checkpw(PASSWORD, hash);
+  }
+}
@@ -0,0 +1,94 @@
+package lsea.benchmark;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import lsea.utils.JwtTokenIssuer;
+import lsea.utils.RandomBase64Generator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the token issuance of a login, the JwtTokenIssuer against the
+ * jjwt builder path it replaced. Run with -prof gc to compare the allocation
+ * rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class TokenIssueBenchmark {
+
+  /**
+   * The base64 encoded secret.
+   */
+  private String secret;
+
+  /**
+   * The issuer under test.
+   */
+  private JwtTokenIssuer issuer;
+
+  /**
+   * The subject of the tokens.
+   */
+  private UUID subject;
+
+  /**
+   * Creates the issuer with a random secret.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    secret = RandomBase64Generator.generateLong();
+    issuer = new JwtTokenIssuer(secret);
+    subject = UUID.randomUUID();
+  }
+
+  /**
+   * The previous path: the secret is looked up, a secure random id is drawn and
+   * the key, header and claims are rebuilt by the jjwt builder.
+   *
+   * @return the token
+   */
+  @Benchmark
+  public String jjwtBuilder() {
+    Date now = new Date();
+    String key = System.getenv("JWT_SECRET");
+    if (key == null) {
+      key = secret;
+    }
+    return Jwts
+        .builder()
+        .setId(UUID.randomUUID().toString())
+        .setSubject(subject.toString())
+        .setIssuedAt(now)
+        .setExpiration(new Date(now.getTime() + JwtTokenIssuer.TOKEN_LIFETIME_MILLIS))
+        .signWith(SignatureAlgorithm.HS256, key)
+        .compact();
+  }
+
+  /**
+   * The JwtTokenIssuer path.
+   *
+   * @return the token
+   */
+  @Benchmark
+  public String issuer() {
+    return issuer.issue(subject);
+  }
+}
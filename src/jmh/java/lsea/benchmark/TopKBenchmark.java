@@ -0,0 +1,276 @@
+package lsea.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import lsea.entity.Log;
+import lsea.service.AnalysisExecutor;
+import lsea.service.ManagementService;
+import lsea.utils.AnalysisMode;
+import lsea.utils.ExecutorBacking;
+import lsea.utils.ListResult;
+import lsea.utils.TopK;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the five longest logs analysis.
+ *
+ * The latch and fork-join modes of ManagementService are compared with three
+ * baselines implemented here: a single-threaded heap, a parallel stream and a
+ * fork-join task splitting the list in halves. Throughput and sampled latency
+ * percentiles are reported, run with -prof gc for the allocation rate.
+ *
+ * The shortest logs analysis is the mirror image of this one and is not
+ * measured separately.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class TopKBenchmark {
+
+  /**
+   * The number of logs returned by the analysis.
+   */
+  private static final int K = 5;
+
+  /**
+   * The number of distinct data strings shared by the synthetic logs, so that
+   * the 10M rows data set fits in memory.
+   */
+  private static final int DATA_POOL_SIZE = 4096;
+
+  /**
+   * The ranking of the longest logs, a log comparing greater is a better one.
+   */
+  private static final Comparator<Log> LONGEST =
+      (a, b) -> Integer.compare(a.getData().length(), b.getData().length());
+
+  /**
+   * The number of synthetic logs.
+   */
+  @Param({ "10000", "100000", "1000000", "10000000" })
+  private int size;
+
+  /**
+   * The number of threads, or of leaf tasks for the fork-join variants.
+   */
+  @Param({ "1", "4", "16" })
+  private int threads;
+
+  /**
+   * The synthetic logs.
+   */
+  private List<Log> logs;
+
+  /**
+   * The service under test, built without repositories since the given list
+   * of logs is ranked without querying the database.
+   */
+  private ManagementService managementService;
+
+  /**
+   * The executor of the latch mode, with a thread per partition.
+   */
+  private AnalysisExecutor analysisExecutor;
+
+  /**
+   * The pool running the parallel stream and the fork-join baselines.
+   */
+  private ForkJoinPool pool;
+
+  /**
+   * Creates the synthetic logs with data of 3 to 512 characters, the range
+   * accepted by the API.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    Random random = new Random(42);
+    String[] dataPool = new String[DATA_POOL_SIZE];
+    for (int i = 0; i < DATA_POOL_SIZE; i++) {
+      int length = 3 + random.nextInt(510);
+      StringBuilder data = new StringBuilder(length);
+      for (int j = 0; j < length; j++) {
+        data.append((char) ('a' + random.nextInt(26)));
+      }
+      dataPool[i] = data.toString();
+    }
+
+    logs = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      String data = dataPool[random.nextInt(DATA_POOL_SIZE)];
+      logs.add(Log.builder().data(data).dataLength(data.length()).build());
+    }
+
+    analysisExecutor = new AnalysisExecutor(ExecutorBacking.BOUNDED, threads, 0, new SimpleMeterRegistry());
+    managementService = new ManagementService(null, null, null, null, analysisExecutor);
+    managementService.setTraceWorkers(false);
+    pool = new ForkJoinPool(threads);
+  }
+
+  /**
+   * Stops the threads started by the trial.
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    managementService.shutdown();
+    analysisExecutor.shutdown();
+    pool.shutdown();
+  }
+
+  /**
+   * The latch mode of ManagementService, a partition per thread merged into a
+   * shared priority queue.
+   *
+   * @return the analysis result
+   * @throws Exception if the analysis fails
+   */
+  @Benchmark
+  public ListResult serviceLatch() throws Exception {
+    return managementService.longestFiveLogs(threads, logs, AnalysisMode.LATCH);
+  }
+
+  /**
+   * The fork-join mode of ManagementService.
+   *
+   * @return the analysis result
+   * @throws Exception if the analysis fails
+   */
+  @Benchmark
+  public ListResult serviceForkJoin() throws Exception {
+    return managementService.longestFiveLogs(threads, logs, AnalysisMode.FORK_JOIN);
+  }
+
+  /**
+   * Baseline ranking the logs on the calling thread, threads is ignored.
+   *
+   * @return the five longest logs
+   */
+  @Benchmark
+  public List<Log> singleThreaded() {
+    PriorityQueue<Log> heap = new PriorityQueue<>(K + 1, LONGEST);
+    for (Log log : logs) {
+      if (heap.size() < K) {
+        heap.add(log);
+      } else if (LONGEST.compare(log, heap.peek()) > 0) {
+        heap.poll();
+        heap.add(log);
+      }
+    }
+    return new ArrayList<>(heap);
+  }
+
+  /**
+   * Baseline collecting a parallel stream into per-split heaps.
+   *
+   * @return the five longest logs
+   * @throws InterruptedException if the benchmark thread is interrupted
+   * @throws ExecutionException   if the ranking fails
+   */
+  @Benchmark
+  public List<Log> parallelStream() throws InterruptedException, ExecutionException {
+    return pool.submit(() -> logs.parallelStream()
+        .collect(() -> new TopK<Log>(K, LONGEST), TopK::offer, (a, b) -> a.merge(b))
+        .drain())
+        .get();
+  }
+
+  /**
+   * Baseline splitting the list in halves down to one range per thread.
+   *
+   * @return the five longest logs
+   */
+  @Benchmark
+  public List<Log> forkJoin() {
+    int threshold = Math.max(1, (size + threads - 1) / threads);
+    return pool.invoke(new RankTask(logs, 0, size, threshold)).drain();
+  }
+
+  /**
+   * Fork-join task of the baseline, ranking the logs in [from, to).
+   */
+  private static final class RankTask extends RecursiveTask<TopK<Log>> {
+
+    /**
+     * The serial version UID.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The list of logs, only read.
+     */
+    private final List<Log> logs;
+
+    /**
+     * The first index of the range, inclusive.
+     */
+    private final int from;
+
+    /**
+     * The last index of the range, exclusive.
+     */
+    private final int to;
+
+    /**
+     * The largest range ranked without splitting.
+     */
+    private final int threshold;
+
+    /**
+     * Creates a task ranking the logs in [from, to).
+     *
+     * @param logs      the list of logs
+     * @param from      the first index of the range, inclusive
+     * @param to        the last index of the range, exclusive
+     * @param threshold the largest range ranked without splitting
+     */
+    RankTask(List<Log> logs, int from, int to, int threshold) {
+      this.logs = logs;
+      this.from = from;
+      this.to = to;
+      this.threshold = threshold;
+    }
+
+    /**
+     * Ranks the range, splitting it in halves while it exceeds the threshold.
+     *
+     * @return the five longest logs of the range
+     */
+    @Override
+    protected TopK<Log> compute() {
+      if (to - from <= threshold) {
+        TopK<Log> result = new TopK<>(K, LONGEST);
+        for (int i = from; i < to; i++) {
+          result.offer(logs.get(i));
+        }
+        return result;
+      }
+      int middle = (from + to) >>> 1;
+      RankTask left = new RankTask(logs, from, middle, threshold);
+      left.fork();
+      TopK<Log> right = new RankTask(logs, middle, to, threshold).compute();
+      return right.merge(left.join());
+    }
+  }
+}
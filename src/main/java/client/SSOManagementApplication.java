@@ -7,10 +7,13 @@ import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import lsea.entity.Log;
+import lsea.utils.LogPage;
 
 /**
  * Application main class for SSO Management Application. (Client)
@@ -49,9 +52,20 @@ public class SSOManagementApplication extends JFrame implements ActionListener {
   private DefaultTableModel tableModel;
 
   /**
-   * Default values for offset in order not to get overflown by the logs
+   * The cursor of the first page on the stack of cursors
    */
-  private int offset = 0;
+  private static final String FIRST_PAGE = "";
+
+  /**
+   * The cursors of the pages retrieved so far, the top one is the cursor of
+   * the displayed page
+   */
+  private final Deque<String> cursors = new ArrayDeque<>();
+
+  /**
+   * The cursor of the page after the displayed one, null if it is the last
+   */
+  private String nextCursor;
 
   /**
    * Default values for limit in order not to get overflown by the logs
@@ -331,34 +345,39 @@ public class SSOManagementApplication extends JFrame implements ActionListener {
         throw new RuntimeException(ex);
       }
     } else if (e.getActionCommand().equals("Retrieve 10 logs")) {
-      List<Log> logs;
-      try {
-        logs = userAPI.retrieveLogs(offset, limit);
-      } catch (IOException ex) {
-        throw new RuntimeException(ex);
-      }
-      setLogs(logs);
+      cursors.clear();
+      cursors.push(FIRST_PAGE);
+      showPage();
     } else if (e.getActionCommand().equals("Next")) {
-      offset += 10;
-      List<Log> logs;
-      try {
-        logs = userAPI.retrieveLogs(offset, limit);
-      } catch (IOException ex) {
-        throw new RuntimeException(ex);
+      if (nextCursor != null) {
+        cursors.push(nextCursor);
       }
-      setLogs(logs);
+      showPage();
     } else if (e.getActionCommand().equals("Previous")) {
-      if (offset >= 10) {
-        offset -= 10;
-      }
-      List<Log> logs;
-      try {
-        logs = userAPI.retrieveLogs(offset, limit);
-      } catch (IOException ex) {
-        throw new RuntimeException(ex);
+      if (cursors.size() > 1) {
+        cursors.pop();
       }
-      setLogs(logs);
+      showPage();
+    }
+  }
+
+  /**
+   * Retrieve and display the page of the cursor on top of the stack
+   */
+  /* Requirement 6.TCP */
+  private void showPage() {
+    if (cursors.isEmpty()) {
+      cursors.push(FIRST_PAGE);
+    }
+    String cursor = cursors.peek();
+    LogPage page;
+    try {
+      page = userAPI.retrieveLogs(cursor.isEmpty() ? null : cursor, limit);
+    } catch (IOException ex) {
+      throw new RuntimeException(ex);
     }
+    nextCursor = page.getNextCursor();
+    setLogs(page.getLogs());
   }
 
   /**
@@ -366,8 +385,14 @@ public class SSOManagementApplication extends JFrame implements ActionListener {
    */
   /* Requirement 6 */
   private void startLiveCapture() {
+    try {
+      userAPI.serverStartLiveCapture();
+    } catch (IOException ex) {
+      throw new RuntimeException(ex);
+    }
     isLiveCapture = true;
     tableModel.setRowCount(0);
+    // The server pushes the new logs, or an empty list every second
     Runnable liveCaptureTask = () -> {
       while (isLiveCapture) {
         List<Log> logs;
@@ -377,11 +402,6 @@ public class SSOManagementApplication extends JFrame implements ActionListener {
         } catch (IOException ex) {
           throw new RuntimeException(ex);
         }
-        try {
-          Thread.sleep(1000);
-        } catch (InterruptedException e) {
-          e.printStackTrace();
-        }
       }
     };
 
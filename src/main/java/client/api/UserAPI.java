@@ -9,6 +9,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import lsea.entity.Log;
+import lsea.utils.LogPage;
 
 /**
  * UserAPI class for the SSO Management Application (Client)
@@ -189,40 +190,72 @@ public class UserAPI {
     }
 
     /**
-     * Retrieve new incoming logs from the server
+     * Retrieve a page of logs from the server, from the newest. Every page
+     * costs the server the same, however deep it is.
      *
-     * @return the new logs list
+     * @param cursor - the cursor of the page, null for the first page
+     * @param limit  - the number of logs to retrieve, from 1 to 100
+     * @return the retrieved logs and the cursor of the next page, null after
+     *         the last page
      * @throws IOException - if the request fails
      */
     /* Requirement 6.TCP */
-    public List<Log> liveCaptureLogs() throws IOException {
+    public LogPage retrieveLogs(String cursor, int limit) throws IOException {
         List<Log> retrievedLogs = new ArrayList<>();
-
-        String request = "live-get-log";
+        String nextCursor = null;
+        OutputStream outputStream = socket.getOutputStream();
+        String request = "get-log-cursor";
+        String params = String.valueOf(limit) + "," + (cursor == null ? "" : cursor);
         outputStream.write(request.getBytes());
         outputStream.flush();
-        int count = objectInputStream.readInt();
-        System.out.println("Number of expected logs: " + count);
-
-        while (count > 0) {
-            try {
-                System.out.println("Receiving logs...");
-                Log log = (Log) objectInputStream.readObject();
+        outputStream.write(params.getBytes());
+        outputStream.flush();
 
-                System.out.println("Received log: " + log);
-                retrievedLogs.add(log);
-            } catch (ClassNotFoundException e) {
-                System.err.println("Error: Invalid object received.");
-            } catch (EOFException e) {
-                System.out.println("All logs received.");
+        try {
+            System.out.println("Receiving logs...");
+            int count = objectInputStream.readInt();
+            System.out.println("Number of expected logs: " + count);
+            while (count > 0) {
+                retrievedLogs.add((Log) objectInputStream.readObject());
+                count--;
             }
-            count--;
+            nextCursor = (String) objectInputStream.readObject();
+        } catch (ClassNotFoundException e) {
+            System.err.println("Error: Invalid object received.");
+        } catch (EOFException e) {
+            System.out.println("All logs received.");
         }
+
+        return LogPage.builder().logs(retrievedLogs).nextCursor(nextCursor).build();
+    }
+
+    /**
+     * Ask the server to push the new incoming logs
+     *
+     * @throws IOException - if the request fails
+     */
+    /* Requirement 6.TCP */
+    public void serverStartLiveCapture() throws IOException {
+        String request = "live-get-log";
+        outputStream.write(request.getBytes());
+        outputStream.flush();
+    }
+
+    /**
+     * Receive the next logs pushed by the server, waiting at most a second
+     *
+     * @return the new logs list, empty if the live capture has ended
+     * @throws IOException - if the request fails
+     */
+    /* Requirement 6.TCP */
+    public List<Log> liveCaptureLogs() throws IOException {
+        List<Log> retrievedLogs = new ArrayList<>();
+        readLiveFrame(retrievedLogs);
         return retrievedLogs;
     }
 
     /**
-     * Start the live capture
+     * Stop the live capture, skipping the logs pushed until the server ends it
      *
      * @throws IOException - if the request fails
      */
@@ -231,6 +264,33 @@ public class UserAPI {
         String request = "live-stop";
         outputStream.write(request.getBytes());
         outputStream.flush();
+        while (readLiveFrame(new ArrayList<>())) {
+            System.out.println("Skipping logs pushed before the live capture ended.");
+        }
+    }
+
+    /**
+     * Read a frame of pushed logs
+     *
+     * @param retrievedLogs - the list the logs are added to
+     * @return false if the frame ends the live capture
+     * @throws IOException - if the frame cannot be read
+     */
+    private boolean readLiveFrame(List<Log> retrievedLogs) throws IOException {
+        int count = objectInputStream.readInt();
+        if (count < 0) {
+            return false;
+        }
+
+        while (count > 0) {
+            try {
+                retrievedLogs.add((Log) objectInputStream.readObject());
+            } catch (ClassNotFoundException e) {
+                System.err.println("Error: Invalid object received.");
+            }
+            count--;
+        }
+        return true;
     }
 
     /**
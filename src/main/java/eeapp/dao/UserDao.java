@@ -9,6 +9,7 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 /**
  * The UserDao class implements a data access object that
@@ -16,6 +17,20 @@ import java.util.UUID;
  */
 public class UserDao {
 
+    /**
+     * The listener notified with the id of every user changed or deleted,
+     * so the caches of the application drop it.
+     */
+    private static volatile Consumer<UUID> changeListener = id -> { };
+
+    /**
+     * Sets the listener notified with the id of every user changed or deleted.
+     * @param listener the listener
+     */
+    public static void setChangeListener(Consumer<UUID> listener) {
+        changeListener = listener == null ? id -> { } : listener;
+    }
+
     /**
      * The findAll method finds all users.
      * @return a list of user
@@ -72,6 +87,8 @@ public class UserDao {
 
         // Close the connection
         connection.close();
+
+        changeListener.accept(UUID.fromString(id));
     }
 
     /**
@@ -90,5 +107,7 @@ public class UserDao {
 
         // Close the connection
         connection.close();
+
+        changeListener.accept(UUID.fromString(id));
     }
 }
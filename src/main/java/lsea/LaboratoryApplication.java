@@ -3,8 +3,6 @@ package lsea;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
-import static lsea.tcp.TCPServerFunctions.startServer;
-
 /* Requirement 2.5 */
 /**
  * Application main class.
@@ -20,8 +18,5 @@ public class LaboratoryApplication {
   public static void main(String[] args) {
     System.setProperty("spring.profiles.active", "dev");
     SpringApplication.run(LaboratoryApplication.class, args);
-
-    // Start the TCP server
-    startServer();
   }
 }
@@ -3,8 +3,6 @@ package lsea;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
-import static lsea.tcp.TCPServerFunctions.startServer;
-
 /* Requirement 2.5 */
 /**
  * Application main class for production environment.
@@ -21,8 +19,5 @@ public class ProductionApplication {
   public static void main(String[] args) {
     System.setProperty("spring.profiles.active", "prod");
     SpringApplication.run(LaboratoryApplication.class, args);
-
-    // Start the TCP server
-    startServer();
   }
 }
@@ -0,0 +1,36 @@
+package lsea.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration class of the JDBC batching of Hibernate.
+ *
+ * The entities have ids assigned before they are saved, so the inserts of a
+ * flush are grouped by table and sent as JDBC batches. A setting given through
+ * spring.jpa.properties takes precedence.
+ */
+@Configuration
+public class JpaBatchingConfig {
+
+        /**
+         * Enables the batching of the inserts and updates.
+         *
+         * @param batchSize the number of statements per JDBC batch, 0 or 1
+         *                  disables the batching
+         * @return the customizer of the Hibernate properties.
+         */
+        @Bean
+        public HibernatePropertiesCustomizer jpaBatchingCustomizer(
+                        @Value("${lsea.jpa.batch-size:50}") int batchSize) {
+                return properties -> {
+                        properties.putIfAbsent(AvailableSettings.STATEMENT_BATCH_SIZE, String.valueOf(batchSize));
+                        properties.putIfAbsent(AvailableSettings.ORDER_INSERTS, "true");
+                        properties.putIfAbsent(AvailableSettings.ORDER_UPDATES, "true");
+                        properties.putIfAbsent(AvailableSettings.BATCH_VERSIONED_DATA, "true");
+                };
+        }
+}
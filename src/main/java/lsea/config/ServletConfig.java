@@ -1,7 +1,9 @@
 package lsea.config;
 
+import eeapp.dao.UserDao;
 import eeapp.servlets.UserServlet;
 import eeapp.servlets.WebsiteServlet;
+import lsea.service.UserCache;
 import org.springframework.boot.web.servlet.ServletRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -14,11 +16,13 @@ import org.springframework.context.annotation.Configuration;
 public class ServletConfig {
 
     /**
-     * Register the UserServlet
+     * Register the UserServlet, the users it changes are dropped from the user cache
+     * @param userCache the near-cache of the users
      * @return ServletRegistrationBean&lt;UserServlet&gt;
      */
     @Bean
-    public ServletRegistrationBean<UserServlet> userServletRegistrationBean() {
+    public ServletRegistrationBean<UserServlet> userServletRegistrationBean(UserCache userCache) {
+        UserDao.setChangeListener(userCache::invalidate);
         ServletRegistrationBean<UserServlet> bean = new ServletRegistrationBean<>(new UserServlet());
         bean.addUrlMappings("/users/*");
         bean.setLoadOnStartup(1);
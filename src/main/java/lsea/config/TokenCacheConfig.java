@@ -0,0 +1,73 @@
+package lsea.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lsea.utils.TokenRevocationList;
+import lsea.utils.VerifiedTokenCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration class of the cache of the verified JWT tokens and of the list
+ * of the revoked ones.
+ */
+@Configuration
+public class TokenCacheConfig {
+
+        /**
+         * Sizes the verified token cache and exports its metrics.
+         *
+         * @param maximumSize      the maximum number of cached tokens, 0 disables
+         *                         the cache
+         * @param jvmMeterRegistry the meter registry the metrics are exported to
+         * @return the verified token cache bean.
+         */
+        @Bean
+        public VerifiedTokenCache verifiedTokenCache(
+                        @Value("${lsea.auth.token-cache-size:10000}") int maximumSize,
+                        MeterRegistry jvmMeterRegistry) {
+                VerifiedTokenCache cache = VerifiedTokenCache.getInstance();
+                cache.setMaximumSize(maximumSize);
+
+                FunctionCounter.builder("auth.token.cache.hits", cache, VerifiedTokenCache::getHits)
+                                .description("The number of tokens found in the verified token cache")
+                                .register(jvmMeterRegistry);
+                FunctionCounter.builder("auth.token.cache.misses", cache, VerifiedTokenCache::getMisses)
+                                .description("The number of tokens verified because they were not cached")
+                                .register(jvmMeterRegistry);
+                FunctionCounter.builder("auth.token.cache.evictions", cache, VerifiedTokenCache::getEvictions)
+                                .description("The number of tokens dropped because the cache was full")
+                                .register(jvmMeterRegistry);
+                Gauge.builder("auth.token.cache.size", cache, VerifiedTokenCache::size)
+                                .description("The number of cached tokens")
+                                .register(jvmMeterRegistry);
+                return cache;
+        }
+
+        /**
+         * Sizes the Bloom filter of the token revocation list and exports its
+         * metrics.
+         *
+         * @param bloomBits        the number of bits of the filter
+         * @param jvmMeterRegistry the meter registry the metrics are exported to
+         * @return the token revocation list bean.
+         */
+        @Bean
+        public TokenRevocationList tokenRevocationList(
+                        @Value("${lsea.auth.revocation-bloom-bits:1048576}") int bloomBits,
+                        MeterRegistry jvmMeterRegistry) {
+                TokenRevocationList revocations = TokenRevocationList.getInstance();
+                revocations.setBloomBits(bloomBits);
+
+                Gauge.builder("auth.token.revocations.size", revocations, TokenRevocationList::size)
+                                .description("The number of token revocations held in memory")
+                                .register(jvmMeterRegistry);
+                FunctionCounter.builder("auth.token.revocations.false.positives", revocations,
+                                TokenRevocationList::getFalsePositives)
+                                .description("The number of tokens the revocation filter checked in vain")
+                                .register(jvmMeterRegistry);
+                return revocations;
+        }
+}
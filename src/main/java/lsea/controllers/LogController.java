@@ -1,18 +1,42 @@
 package lsea.controllers;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.swagger.annotations.Api;
-import javax.servlet.http.HttpServletRequest;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import lsea.dto.CreateLogDto;
 import lsea.errors.GenericForbiddenError;
+import lsea.errors.GenericInternalServerError;
 import lsea.errors.GenericNotFoundError;
+import lsea.errors.GenericServiceUnavailableError;
 import lsea.errors.ValidationError;
+import lsea.middleware.AuthenticatedPrincipal;
 import lsea.service.LogService;
+import lsea.utils.BulkItemResult;
+import lsea.utils.ListResult;
+import lsea.utils.LogPage;
 import lsea.utils.SuccessResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 /**
@@ -34,80 +58,300 @@ public class LogController {
    */
   private final MeterRegistry requestMeterRegistry;
 
+  /**
+   * The user authenticated by the current request.
+   */
+  private final AuthenticatedPrincipal principal;
+
+  /**
+   * The mapper reading the logs of a bulk request.
+   */
+  private final ObjectMapper objectMapper;
+
+  /**
+   * The maximum number of logs of a bulk request.
+   */
+  private final int bulkMaxItems;
+
   /**
    * The LogController constructor.
    *
    * @param logService           LogService
    * @param requestMeterRegistry request MeterRegistry
+   * @param principal            AuthenticatedPrincipal
+   * @param objectMapper         the JSON mapper of the application
+   * @param bulkMaxItems         the maximum number of logs of a bulk request
    */
-  public LogController(LogService logService, MeterRegistry requestMeterRegistry) {
+  public LogController(
+      LogService logService,
+      MeterRegistry requestMeterRegistry,
+      AuthenticatedPrincipal principal,
+      ObjectMapper objectMapper,
+      @Value("${lsea.logs.bulk.max-items:10000}") int bulkMaxItems) {
     this.logService = logService;
     this.requestMeterRegistry = requestMeterRegistry;
+    this.principal = principal;
+    this.objectMapper = objectMapper;
+    this.bulkMaxItems = bulkMaxItems;
   }
 
   /**
-   * The createOne method is used to create a new log.
+   * The createOne method is used to create a new log. The log is queued and
+   * written in the background unless the durable flag is set.
    *
    * @param dto     CreateLogDto
-   * @param request HttpServletRequest containing the token cookie
+   * @param durable whether to respond once the log is committed
    * @return ResponseEntity object containing { status: 200, success: true }
-   * @throws GenericForbiddenError if the cookie is not found or token is not
-   *                               valid
-   * @throws ValidationError       if the request body is invalid or the cookie
-   *                               not contains the token
-   * @throws GenericNotFoundError  if the user is not found
+   *         once written, { status: 202, success: true } once queued
+   * @throws GenericForbiddenError          if the cookie is not found or token
+   *                                        is not valid
+   * @throws ValidationError                if the request body is invalid or
+   *                                        the cookie not contains the token
+   * @throws GenericNotFoundError           if the user is not found
+   * @throws GenericServiceUnavailableError if the ingestion queue is full
+   * @throws GenericInternalServerError     if a durable log could not be
+   *                                        written
    */
   @PostMapping
   public ResponseEntity<SuccessResult> createOne(
       @RequestBody CreateLogDto dto,
-      HttpServletRequest request) throws GenericForbiddenError, GenericNotFoundError, ValidationError {
+      @RequestParam(name = "durable", defaultValue = "false") boolean durable)
+      throws GenericForbiddenError, GenericNotFoundError, ValidationError, GenericServiceUnavailableError,
+      GenericInternalServerError {
     requestMeterRegistry.counter("request.count").increment();
     requestMeterRegistry.counter("request.count", "method", "POST").increment();
     requestMeterRegistry.counter("request.count", "controller", "LogController").increment();
 
     ValidationRouter.validate(dto);
 
-    String token = ValidationRouter.getTokenFromRequest(request);
+    principal.requireToken();
 
-    logService.createOne(dto, token);
+    if (!logService.createOne(dto, durable)) {
+      SuccessResult result = SuccessResult.builder().status(202).build();
+      return ResponseEntity.status(HttpStatus.ACCEPTED).body(result);
+    }
 
     SuccessResult result = SuccessResult.builder().status(200).build();
     return ResponseEntity.ok(result);
   }
 
   /**
-   * Create N test logs into the logs table
+   * The createMany method is used to create many logs in one request. The body
+   * is a JSON array of logs, or one log per line when sent as
+   * application/x-ndjson. Every log is validated on its own, an invalid log is
+   * reported without failing the others.
    *
-   * @param N       number of logs to create
-   * @param request HttpServletRequest containing the token cookie
-   * @return ResponseEntity object containing { status: 200, success: true }
+   * @param body        the request body
+   * @param contentType the content type of the body
+   * @param durable     whether to respond once the logs are committed
+   * @return ListResult object containing the status of every log, and the
+   *         number of accepted and rejected logs in its meta
    * @throws GenericForbiddenError if the cookie is not found or token is not
    *                               valid
-   * @throws ValidationError       the cookie not contains the token
+   * @throws ValidationError       if the body is malformed, has too many logs
+   *                               or the cookie not contains the token
    * @throws GenericNotFoundError  if the user is not found
+   * @throws IOException           if the body cannot be read
+   */
+  @PostMapping(path = "/bulk", consumes = { "application/json", "application/x-ndjson" })
+  public ListResult createMany(
+      InputStream body,
+      @RequestHeader(name = "Content-Type", required = false) String contentType,
+      @RequestParam(name = "durable", defaultValue = "false") boolean durable)
+      throws GenericForbiddenError, ValidationError, GenericNotFoundError, IOException {
+    requestMeterRegistry.counter("request.count").increment();
+    requestMeterRegistry.counter("request.count", "method", "POST").increment();
+    requestMeterRegistry.counter("request.count", "controller", "LogController").increment();
+
+    principal.requireToken();
+
+    List<BulkItemResult> items = new ArrayList<>();
+    List<CreateLogDto> valid = new ArrayList<>();
+    List<BulkItemResult> validItems = new ArrayList<>();
+    boolean ndjson = contentType != null && contentType.startsWith("application/x-ndjson");
+    for (JsonNode node : ndjson ? readLines(body) : readArray(body)) {
+      BulkItemResult item = BulkItemResult.builder().index(items.size()).build();
+      items.add(item);
+      if (node == null || !node.isObject()) {
+        item.setStatus(400);
+        item.setMessage("Malformed log");
+        continue;
+      }
+      try {
+        CreateLogDto dto = objectMapper.treeToValue(node, CreateLogDto.class);
+        ValidationRouter.validate(dto);
+        valid.add(dto);
+        validItems.add(item);
+      } catch (ValidationError e) {
+        item.setStatus(400);
+        item.setMessage(e.e.getMessage());
+      } catch (JsonProcessingException e) {
+        item.setStatus(400);
+        item.setMessage("Malformed log");
+      }
+    }
+
+    int accepted = 0;
+    if (!valid.isEmpty()) {
+      int[] statuses = logService.createMany(valid, durable);
+      for (int i = 0; i < statuses.length; i++) {
+        BulkItemResult item = validItems.get(i);
+        item.setStatus(statuses[i]);
+        if (statuses[i] == 200 || statuses[i] == 202) {
+          accepted++;
+        } else {
+          item.setMessage(statuses[i] == 503 ? "Too many logs, try again later" : "The log could not be written");
+        }
+      }
+    }
+
+    Map<String, Object> meta = new HashMap<>();
+    meta.put("accepted", accepted);
+    meta.put("rejected", items.size() - accepted);
+    return ListResult
+        .builder()
+        .count(items.size())
+        .data(new ArrayList<>(items))
+        .meta(meta)
+        .build();
+  }
+
+  /**
+   * Reads the logs of a JSON array body.
+   *
+   * @param body the request body
+   * @return the logs, in order
+   * @throws ValidationError if the body is not a JSON array or has too many
+   *                         logs
+   * @throws IOException     if the body cannot be read
+   */
+  private List<JsonNode> readArray(InputStream body) throws ValidationError, IOException {
+    List<JsonNode> nodes = new ArrayList<>();
+    try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+      if (parser.nextToken() != JsonToken.START_ARRAY) {
+        throw new ValidationError("Expected a JSON array of logs");
+      }
+      while (parser.nextToken() != JsonToken.END_ARRAY) {
+        checkBulkSize(nodes.size());
+        nodes.add(parser.readValueAsTree());
+      }
+    } catch (JsonProcessingException e) {
+      throw new ValidationError("Malformed JSON body");
+    }
+    return nodes;
+  }
+
+  /**
+   * Reads the logs of an NDJSON body, a malformed line is kept as a null log.
+   *
+   * @param body the request body
+   * @return the logs, in order
+   * @throws ValidationError if the body has too many logs
+   * @throws IOException     if the body cannot be read
+   */
+  private List<JsonNode> readLines(InputStream body) throws ValidationError, IOException {
+    List<JsonNode> nodes = new ArrayList<>();
+    BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+    for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+      if (line.trim().isEmpty()) {
+        continue;
+      }
+      checkBulkSize(nodes.size());
+      try {
+        nodes.add(objectMapper.readTree(line));
+      } catch (JsonProcessingException e) {
+        nodes.add(null);
+      }
+    }
+    return nodes;
+  }
+
+  /**
+   * Rejects a bulk request once it has too many logs.
+   *
+   * @param count the number of logs already read
+   * @throws ValidationError if no more log is accepted
+   */
+  private void checkBulkSize(int count) throws ValidationError {
+    if (count >= bulkMaxItems) {
+      throw new ValidationError("Too many logs, at most " + bulkMaxItems + " per request");
+    }
+  }
+
+  /**
+   * The findPage method returns a page of logs from the newest, following a
+   * cursor instead of an offset so that every page costs the same.
+   *
+   * @param cursor the nextCursor of the previous page, omitted for the first
+   *               page
+   * @param limit  the number of logs, from 1 to 100
+   * @return ListResult object containing the logs, and the cursor of the next
+   *         page in its meta, null after the last page
+   * @throws GenericForbiddenError if the cookie is not found, the token is not
+   *                               valid or the user is banned
+   * @throws ValidationError       if the cursor is malformed, the limit out of
+   *                               range or the cookie not contains the token
+   * @throws GenericNotFoundError  if the user is not found
+   */
+  @GetMapping
+  public ListResult findPage(
+      @RequestParam(name = "cursor", required = false) String cursor,
+      @RequestParam(name = "limit", defaultValue = "20") int limit)
+      throws GenericForbiddenError, ValidationError, GenericNotFoundError {
+    requestMeterRegistry.counter("request.count").increment();
+    requestMeterRegistry.counter("request.count", "method", "GET").increment();
+    requestMeterRegistry.counter("request.count", "controller", "LogController").increment();
+
+    principal.requireToken();
+
+    LogPage page = logService.findLogPageAsUser(cursor, limit);
+    Map<String, Object> meta = new HashMap<>();
+    meta.put("nextCursor", page.getNextCursor());
+    return ListResult
+        .builder()
+        .count(page.getLogs().size())
+        .data(new ArrayList<>(page.getLogs()))
+        .meta(meta)
+        .build();
+  }
+
+  /**
+   * Create N test logs into the logs table, inserted in JDBC batches
+   *
+   * @param N         number of logs to create
+   * @param batchSize number of logs per batch, the configured default if
+   *                  omitted
+   * @param threads   number of writer threads, capped by the configured
+   *                  maximum
+   * @return ResponseEntity object containing { status: 200, success: true,
+   *         data: rows, batch size, threads, duration and rows per second }
+   * @throws GenericForbiddenError if the cookie is not found or token is not
+   *                               valid
+   * @throws ValidationError       the cookie not contains the token, N is
+   *                               negative or the batch size out of range
+   * @throws GenericNotFoundError  if the user is not found
+   * @throws GenericInternalServerError if a batch could not be written
    */
   /* Requirement 4.3 */
   /* Requirement 7.3 */
   @PostMapping("/generate-test-data")
   public ResponseEntity<SuccessResult> generateData(
       @RequestBody int N,
-      HttpServletRequest request) throws GenericForbiddenError, ValidationError, GenericNotFoundError {
+      @RequestParam(defaultValue = "0") int batchSize,
+      @RequestParam(defaultValue = "1") int threads)
+      throws GenericForbiddenError, ValidationError, GenericNotFoundError, GenericInternalServerError {
     requestMeterRegistry.counter("request.count").increment();
     requestMeterRegistry.counter("request.count", "method", "POST").increment();
     requestMeterRegistry.counter("request.count", "controller", "LogController").increment();
 
-    String token = ValidationRouter.getTokenFromRequest(request);
+    principal.requireToken();
 
-    for (int i = 0; i < N; i++) {
-      CreateLogDto dto = CreateLogDto
-          .builder()
-          .data("test" + i)
-          .logType(0)
-          .build();
-      logService.createOne(dto, token);
-    }
+    Map<String, Object> results = logService.generateLogs(N, batchSize, threads);
 
-    SuccessResult result = SuccessResult.builder().status(200).build();
+    SuccessResult result = SuccessResult.builder()
+        .data(results.toString())
+        .status(200)
+        .build();
     return ResponseEntity.ok(result);
   }
 }
@@ -2,20 +2,28 @@ package lsea.controllers;
 
 import io.micrometer.core.instrument.MeterRegistry;
 import io.swagger.annotations.Api;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
-import javax.servlet.http.HttpServletRequest;
+import java.util.UUID;
+import javax.servlet.http.HttpServletResponse;
 import lsea.dto.GenerateReportDto;
+import lsea.errors.GenericConflictError;
 import lsea.errors.GenericForbiddenError;
 import lsea.errors.GenericNotFoundError;
+import lsea.errors.GenericServiceUnavailableError;
 import lsea.errors.ValidationError;
+import lsea.middleware.AuthenticatedPrincipal;
 import lsea.service.LogService;
 import lsea.service.ManagementService;
+import lsea.service.ReportJobService;
+import lsea.utils.LengthOrder;
 import lsea.utils.ListResult;
+import lsea.utils.ReportJobStatus;
+import lsea.utils.ReportStatistics;
 import lsea.utils.SuccessResult;
-import org.apache.poi.ss.usermodel.Workbook;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
@@ -40,27 +48,48 @@ public class ManagementController {
    */
   private final ManagementService managementService;
 
+  /**
+   * The ReportJobService attribute is used to run the reports in the
+   * background.
+   */
+  private final ReportJobService reportJobService;
+
   /**
    * The request meter registry of the application.
    */
   private final MeterRegistry requestMeterRegistry;
 
+  /**
+   * The user authenticated by the current request.
+   */
+  private final AuthenticatedPrincipal principal;
+
   /**
    * The constructor of the ManagementController class.
    *
    * @param managementService    ManagementService
+   * @param reportJobService     ReportJobService
    * @param requestMeterRegistry request MeterRegistry
+   * @param principal            AuthenticatedPrincipal
    */
-  public ManagementController(ManagementService managementService, MeterRegistry requestMeterRegistry) {
+  public ManagementController(
+      ManagementService managementService,
+      ReportJobService reportJobService,
+      MeterRegistry requestMeterRegistry,
+      AuthenticatedPrincipal principal) {
     this.managementService = managementService;
+    this.reportJobService = reportJobService;
     this.requestMeterRegistry = requestMeterRegistry;
+    this.principal = principal;
   }
 
   /**
    * The analysis method is used to get the five longest logs.
    *
-   * @param numThreads int
-   * @param request    HttpServletRequest containing the token cookie
+   * @param numThreads int, kept for compatibility, the stored logs are
+   *                   ranked without worker threads
+   * @param consistent true to query the database instead of the in-memory
+   *                   leaderboard, which only sees committed logs
    * @return ListResult object containing the five longest logs
    * @throws ValidationError       if the dto is not valid
    * @throws GenericForbiddenError if the user does not have the permission
@@ -71,22 +100,24 @@ public class ManagementController {
   @GetMapping("/analysis-longest-five")
   public ListResult analysisLongest(
       @RequestParam int numThreads,
-      HttpServletRequest request)
+      @RequestParam(defaultValue = "false") boolean consistent)
       throws ValidationError, GenericForbiddenError, InterruptedException, GenericNotFoundError {
     requestMeterRegistry.counter("request.count").increment();
     requestMeterRegistry.counter("request.count", "method", "GET").increment();
     requestMeterRegistry.counter("request.count", "controller", "ManagementController").increment();
 
-    String token = ValidationRouter.getTokenFromRequest(request);
+    principal.requireToken();
 
-    return managementService.longestFiveLogs(token, numThreads, null);
+    return managementService.storedLogs(LengthOrder.LONGEST, consistent);
   }
 
   /**
    * The analysis method is used to get the five shortest logs.
    *
-   * @param numThreads int
-   * @param request    HttpServletRequest containing the token cookie
+   * @param numThreads int, kept for compatibility, the stored logs are
+   *                   ranked without worker threads
+   * @param consistent true to query the database instead of the in-memory
+   *                   leaderboard, which only sees committed logs
    * @return ListResult object containing the five shortest logs
    * @throws ValidationError       if the dto is not valid
    * @throws GenericForbiddenError if the user does not have the permission
@@ -97,91 +128,173 @@ public class ManagementController {
   @GetMapping("/analysis-shortest-five")
   public ListResult analysisShortest(
       @RequestParam int numThreads,
-      HttpServletRequest request)
+      @RequestParam(defaultValue = "false") boolean consistent)
       throws ValidationError, GenericForbiddenError, InterruptedException, GenericNotFoundError {
     requestMeterRegistry.counter("request.count").increment();
     requestMeterRegistry.counter("request.count", "method", "GET").increment();
     requestMeterRegistry.counter("request.count", "controller", "ManagementController").increment();
 
-    String token = ValidationRouter.getTokenFromRequest(request);
+    principal.requireToken();
 
-    return managementService.shortestFiveLogs(token, numThreads, null);
+    return managementService.storedLogs(LengthOrder.SHORTEST, consistent);
   }
 
   /**
-   * The generateReport method is used to generate a report.
+   * The generateReport method is used to generate a report. The workbook is
+   * streamed straight to the response, it is never copied in memory.
    *
-   * @param dto     GenerateReportDto
-   * @param request HttpServletRequest containing the token cookie
-   * @return ResponseEntity containing the report
+   * @param dto      GenerateReportDto
+   * @param response HttpServletResponse the report is written to
    * @throws GenericForbiddenError if the user does not have the permission
    * @throws ValidationError       if the dto is not valid
    * @throws InterruptedException  if the thread is interrupted
    * @throws GenericNotFoundError  if the user is not found
-   * @throws IOException           if the file is not found
+   * @throws IOException           if the report cannot be written
+   * @throws GenericServiceUnavailableError if the analysis executor is full
    */
   /* Requirement 4.4 */
   @PostMapping(value = "/report", produces = "application/vnd.ms-excel")
-  public ResponseEntity<byte[]> generateReport(
+  public void generateReport(
       @RequestBody GenerateReportDto dto,
-      HttpServletRequest request)
-      throws GenericForbiddenError, ValidationError, InterruptedException, GenericNotFoundError, IOException {
+      HttpServletResponse response)
+      throws GenericForbiddenError, ValidationError, InterruptedException, GenericNotFoundError, IOException,
+      GenericServiceUnavailableError {
     requestMeterRegistry.counter("request.count").increment();
     requestMeterRegistry.counter("request.count", "method", "POST").increment();
     requestMeterRegistry.counter("request.count", "controller", "ManagementController").increment();
 
     ValidationRouter.validate(dto);
     int iterations = dto.getIterations();
-    String token = ValidationRouter.getTokenFromRequest(request);
+    principal.requireToken();
     int maximumNumberOfThreads = dto.getNumThreads();
 
-    List<Map<Integer, String>> result = managementService.reportCalculator(
+    List<Map<Integer, ReportStatistics>> result = managementService.reportCalculator(
         maximumNumberOfThreads,
         iterations,
-        token);
+        dto.getWarmupIterations(),
+        dto.getMode());
 
-    Map<Integer, String> resultLongest = result.get(0);
-    Map<Integer, String> resultShortest = result.get(1);
+    Map<Integer, ReportStatistics> resultLongest = result.get(0);
+    Map<Integer, ReportStatistics> resultShortest = result.get(1);
 
-    Workbook workbook = managementService.generateReport(
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentDispositionFormData("attachment", "report.xlsx");
+    response.setStatus(HttpStatus.OK.value());
+    response.setContentType("application/vnd.ms-excel");
+    response.setHeader(HttpHeaders.CONTENT_DISPOSITION, headers.getFirst(HttpHeaders.CONTENT_DISPOSITION));
+    response.setHeader(HttpHeaders.CACHE_CONTROL, "must-revalidate, post-check=0, pre-check=0");
+
+    managementService.writeReport(
         dto,
         resultLongest,
         resultShortest,
-        iterations);
+        iterations,
+        response.getOutputStream());
+    response.flushBuffer();
+  }
 
-    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+  /**
+   * The submitReport method is used to measure a report in the background.
+   * The same report of the same logs is measured once, the job already
+   * submitted is returned instead.
+   *
+   * @param dto     GenerateReportDto
+   * @return ResponseEntity containing the status of the job
+   * @throws GenericForbiddenError if the user does not have the permission
+   * @throws ValidationError       if the dto is not valid
+   * @throws GenericNotFoundError  if the user is not found
+   * @throws GenericServiceUnavailableError if too many reports are queued or
+   *                                        running
+   */
+  @PostMapping("/report/jobs")
+  public ResponseEntity<ReportJobStatus> submitReport(
+      @RequestBody GenerateReportDto dto)
+      throws GenericForbiddenError, ValidationError, GenericNotFoundError, GenericServiceUnavailableError {
+    requestMeterRegistry.counter("request.count").increment();
+    requestMeterRegistry.counter("request.count", "method", "POST").increment();
+    requestMeterRegistry.counter("request.count", "controller", "ManagementController").increment();
 
-    workbook.write(bos);
-    workbook.close();
+    ValidationRouter.validate(dto);
+    principal.requireToken();
+
+    ReportJobStatus status = reportJobService.submit(dto);
+    status.setStatus(HttpStatus.ACCEPTED.value());
+
+    return ResponseEntity.status(HttpStatus.ACCEPTED).body(status);
+  }
+
+  /**
+   * The reportStatus method is used to get the progress of a report job.
+   *
+   * @param jobId   the id of the job
+   * @return ResponseEntity containing the status of the job
+   * @throws GenericForbiddenError if the user does not have the permission
+   * @throws ValidationError       if the dto is not valid
+   * @throws GenericNotFoundError  if the user or the job is not found
+   */
+  @GetMapping("/report/jobs/{jobId}")
+  public ResponseEntity<ReportJobStatus> reportStatus(
+      @PathVariable UUID jobId)
+      throws GenericForbiddenError, ValidationError, GenericNotFoundError {
+    requestMeterRegistry.counter("request.count").increment();
+    requestMeterRegistry.counter("request.count", "method", "GET").increment();
+    requestMeterRegistry.counter("request.count", "controller", "ManagementController").increment();
+
+    principal.requireToken();
+
+    return ResponseEntity.ok().body(reportJobService.status(jobId));
+  }
+
+  /**
+   * The downloadReport method is used to download the workbook of a finished
+   * report job.
+   *
+   * @param jobId    the id of the job
+   * @param response HttpServletResponse the report is written to
+   * @throws GenericForbiddenError if the user does not have the permission
+   * @throws ValidationError       if the dto is not valid
+   * @throws GenericNotFoundError  if the user or the job is not found
+   * @throws GenericConflictError  if the report is not finished
+   * @throws IOException           if the report cannot be written
+   */
+  @GetMapping(value = "/report/jobs/{jobId}/download", produces = "application/vnd.ms-excel")
+  public void downloadReport(
+      @PathVariable UUID jobId,
+      HttpServletResponse response)
+      throws GenericForbiddenError, ValidationError, GenericNotFoundError, GenericConflictError, IOException {
+    requestMeterRegistry.counter("request.count").increment();
+    requestMeterRegistry.counter("request.count", "method", "GET").increment();
+    requestMeterRegistry.counter("request.count", "controller", "ManagementController").increment();
+
+    principal.requireToken();
+    Path file = reportJobService.reportFile(jobId);
 
     HttpHeaders headers = new HttpHeaders();
-    headers.setContentType(
-        MediaType.parseMediaType("application/vnd.ms-excel"));
     headers.setContentDispositionFormData("attachment", "report.xlsx");
-    headers.setCacheControl("must-revalidate, post-check=0, pre-check=0");
-    ResponseEntity<byte[]> response = new ResponseEntity<>(
-        bos.toByteArray(),
-        headers,
-        HttpStatus.OK);
-    return response;
+    response.setStatus(HttpStatus.OK.value());
+    response.setContentType("application/vnd.ms-excel");
+    response.setContentLengthLong(Files.size(file));
+    response.setHeader(HttpHeaders.CONTENT_DISPOSITION, headers.getFirst(HttpHeaders.CONTENT_DISPOSITION));
+    response.setHeader(HttpHeaders.CACHE_CONTROL, "must-revalidate, post-check=0, pre-check=0");
+
+    Files.copy(file, response.getOutputStream());
+    response.flushBuffer();
   }
 
   /**
    * The analysis method is used to get the five most frequent logs.
    *
    * @param logsNumber int number of logs to generate
-   * @param request    HttpServletRequest containing the token cookie
    * @return status 200 if the request is successful
    * @throws GenericForbiddenError if the user does not have the permission
    * @throws GenericNotFoundError  if the user is not found
    * @throws ValidationError       if the dto is not valid
    */
   @GetMapping("/perform-test-on-database")
-  public ResponseEntity<SuccessResult> testDatabase(@RequestParam("logsNumber") int logsNumber,
-      HttpServletRequest request) throws GenericForbiddenError, GenericNotFoundError, ValidationError {
-    String token = ValidationRouter.getTokenFromRequest(request);
+  public ResponseEntity<SuccessResult> testDatabase(@RequestParam("logsNumber") int logsNumber) throws GenericForbiddenError, GenericNotFoundError, ValidationError {
+    principal.requireToken();
 
-    Map<String, Object> results = logService.generateTestData(logsNumber, token);
+    Map<String, Object> results = logService.generateTestData(logsNumber);
 
     SuccessResult result = SuccessResult.builder()
         .data(results.toString())
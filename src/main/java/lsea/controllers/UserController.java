@@ -3,15 +3,17 @@ package lsea.controllers;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.swagger.annotations.Api;
 import javax.servlet.http.Cookie;
-import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import lsea.dto.*;
 import lsea.errors.GenericConflictError;
 import lsea.errors.GenericForbiddenError;
 import lsea.errors.GenericNotFoundError;
+import lsea.errors.GenericServiceUnavailableError;
 import lsea.errors.ValidationError;
+import lsea.middleware.AuthenticatedPrincipal;
 import lsea.service.UserService;
+import lsea.utils.SessionTokens;
 import lsea.utils.SuccessResult;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -24,6 +26,11 @@ import org.springframework.web.bind.annotation.*;
 @RequestMapping("/api/v1/users")
 public class UserController {
 
+  /**
+   * The path of the refresh token cookie, only sent to the users endpoints.
+   */
+  private static final String REFRESH_COOKIE_PATH = "/api/v1/users";
+
   /**
    * The user service that handles requests related to users.
    */
@@ -34,15 +41,25 @@ public class UserController {
    */
   private final MeterRegistry requestMeterRegistry;
 
+  /**
+   * The user authenticated by the current request.
+   */
+  private final AuthenticatedPrincipal principal;
+
   /**
    * The UserController constructor.
    *
    * @param userService          UserService
    * @param requestMeterRegistry request MeterRegistry
+   * @param principal            AuthenticatedPrincipal
    */
-  public UserController(UserService userService, MeterRegistry requestMeterRegistry) {
+  public UserController(
+      UserService userService,
+      MeterRegistry requestMeterRegistry,
+      AuthenticatedPrincipal principal) {
     this.userService = userService;
     this.requestMeterRegistry = requestMeterRegistry;
+    this.principal = principal;
   }
 
   /**
@@ -75,10 +92,13 @@ public class UserController {
    * @throws ValidationError      if the request body is invalid or the cookie
    *                              not contains the token.
    * @throws GenericConflictError if the user already exists.
+   * @throws GenericServiceUnavailableError if the password hashing is
+   *                                        overloaded.
    */
   @PostMapping
   public ResponseEntity<SuccessResult> createOne(
-      @RequestBody CreateUserDto dto) throws ValidationError, GenericConflictError {
+      @RequestBody CreateUserDto dto)
+      throws ValidationError, GenericConflictError, GenericServiceUnavailableError {
     requestMeterRegistry.counter("request.count").increment();
     requestMeterRegistry.counter("request.count", "method", "POST").increment();
     requestMeterRegistry.counter("request.count", "controller", "UserController").increment();
@@ -90,46 +110,130 @@ public class UserController {
   }
 
   /**
-   * Returns a JWT token for the user and sets the cookie token in the
-   * response.
+   * Returns a short-lived JWT token for the user and sets the cookie token and
+   * the refresh token cookie in the response.
    *
    * @param dto      AuthorizeUserDto object containing the email and password of
    *                 the
    *                 user.
-   * @param response HttpServletResponse object to set the cookie token.
+   * @param response HttpServletResponse object to set the cookies.
    * @return ResponseEntity object containing { data: "token" } object.
    * @throws GenericForbiddenError if the user is not authorized.
    * @throws ValidationError       if the request body is invalid.
+   * @throws GenericServiceUnavailableError if the password hashing is
+   *                                        overloaded.
    */
   @PostMapping(path = "/authorize", produces = "application/json")
   public ResponseEntity<SuccessResult> authorize(
       @RequestBody AuthorizeUserDto dto,
-      HttpServletResponse response) throws GenericForbiddenError, ValidationError {
+      HttpServletResponse response)
+      throws GenericForbiddenError, ValidationError, GenericServiceUnavailableError {
     requestMeterRegistry.counter("request.count").increment();
     requestMeterRegistry.counter("request.count", "method", "POST").increment();
     requestMeterRegistry.counter("request.count", "controller", "UserController").increment();
 
     ValidationRouter.validate(dto);
-    String token = userService.authorize(dto);
-    SuccessResult result = SuccessResult
-        .builder()
-        .status(200)
-        .data(token)
-        .build();
+    SessionTokens tokens = userService.authorize(dto);
+    return ResponseEntity.ok(sessionResult(tokens, response));
+  }
+
+  /**
+   * Exchanges the refresh token cookie for a new JWT token and a new refresh
+   * token, both set as cookies in the response.
+   *
+   * @param refreshToken the refresh token cookie.
+   * @param response     HttpServletResponse object to set the cookies.
+   * @return ResponseEntity object containing { data: "token" } object.
+   * @throws GenericForbiddenError if the refresh token is missing, invalid or
+   *                               already used, or if the user is banned.
+   */
+  @PostMapping(path = "/refresh", produces = "application/json")
+  public ResponseEntity<SuccessResult> refresh(
+      @CookieValue(name = "refresh_token", required = false) String refreshToken,
+      HttpServletResponse response)
+      throws GenericForbiddenError {
+    requestMeterRegistry.counter("request.count").increment();
+    requestMeterRegistry.counter("request.count", "method", "POST").increment();
+    requestMeterRegistry.counter("request.count", "controller", "UserController").increment();
+
+    if (refreshToken == null) {
+      throw new GenericForbiddenError("No refresh token found in cookies");
+    }
+    SessionTokens tokens = userService.refresh(refreshToken);
+    return ResponseEntity.ok(sessionResult(tokens, response));
+  }
 
-    // Set the token as a cookie in the response
-    Cookie cookie = new Cookie("token", token);
+  /**
+   * Logs out the user: the JWT token and the session of the refresh token are
+   * revoked and both cookies are cleared.
+   *
+   * @param refreshToken the refresh token cookie.
+   * @param response     HttpServletResponse object to clear the cookies.
+   * @return ResponseEntity object containing { status: 200, success: true }
+   *         object.
+   * @throws GenericForbiddenError if the token is missing, invalid or already
+   *                               revoked.
+   * @throws ValidationError       if the cookie not contains the token.
+   */
+  @PostMapping(path = "/logout")
+  public ResponseEntity<SuccessResult> logout(
+      @CookieValue(name = "refresh_token", required = false) String refreshToken,
+      HttpServletResponse response)
+      throws GenericForbiddenError, ValidationError {
+    requestMeterRegistry.counter("request.count").increment();
+    requestMeterRegistry.counter("request.count", "method", "POST").increment();
+    requestMeterRegistry.counter("request.count", "controller", "UserController").increment();
+
+    principal.requireToken();
+
+    userService.logout(refreshToken);
+
+    Cookie cookie = new Cookie("token", "");
     cookie.setHttpOnly(true);
-    cookie.setMaxAge(60 * 60 * 24 * 7); // set the cookie to expire in 1 week
+    cookie.setMaxAge(0);
     response.addCookie(cookie);
+
+    Cookie refreshCookie = new Cookie("refresh_token", "");
+    refreshCookie.setHttpOnly(true);
+    refreshCookie.setPath(REFRESH_COOKIE_PATH);
+    refreshCookie.setMaxAge(0);
+    response.addCookie(refreshCookie);
+
+    SuccessResult result = SuccessResult.builder().status(200).build();
     return ResponseEntity.ok(result);
   }
 
+  /**
+   * Sets the tokens of a session as cookies and returns the JWT token.
+   *
+   * @param tokens   the tokens of the session.
+   * @param response HttpServletResponse object to set the cookies.
+   * @return the result containing the JWT token.
+   */
+  private static SuccessResult sessionResult(SessionTokens tokens, HttpServletResponse response) {
+    // The token cookie lives as long as the token itself
+    Cookie cookie = new Cookie("token", tokens.getAccessToken());
+    cookie.setHttpOnly(true);
+    cookie.setMaxAge(tokens.getAccessTokenMaxAge());
+    response.addCookie(cookie);
+
+    Cookie refreshCookie = new Cookie("refresh_token", tokens.getRefreshToken());
+    refreshCookie.setHttpOnly(true);
+    refreshCookie.setPath(REFRESH_COOKIE_PATH);
+    refreshCookie.setMaxAge(tokens.getRefreshTokenMaxAge());
+    response.addCookie(refreshCookie);
+
+    return SuccessResult
+        .builder()
+        .status(200)
+        .data(tokens.getAccessToken())
+        .build();
+  }
+
   /**
    * The banUser method is used to ban a user.
    *
    * @param dto     BanUserDto object containing the user id.
-   * @param request HttpServletRequest object containing the token.
    * @return ResponseEntity object containing { status: 200, success: true }
    *         object.
    * @throws GenericForbiddenError if the user does not have the required
@@ -139,17 +243,16 @@ public class UserController {
    */
   @PostMapping(path = "/ban")
   public ResponseEntity<SuccessResult> ban(
-      @RequestBody BanUserDto dto,
-      HttpServletRequest request) throws GenericForbiddenError, GenericNotFoundError, ValidationError {
+      @RequestBody BanUserDto dto) throws GenericForbiddenError, GenericNotFoundError, ValidationError {
     requestMeterRegistry.counter("request.count").increment();
     requestMeterRegistry.counter("request.count", "method", "POST").increment();
     requestMeterRegistry.counter("request.count", "controller", "UserController").increment();
 
     ValidationRouter.validate(dto);
 
-    String token = ValidationRouter.getTokenFromRequest(request);
+    principal.requireToken();
 
-    userService.ban(dto, token);
+    userService.ban(dto);
 
     SuccessResult result = SuccessResult.builder().status(200).build();
     return ResponseEntity.ok(result);
@@ -159,7 +262,6 @@ public class UserController {
    * The unBanUser method is used to unban a user.
    *
    * @param dto     UnBanUserDto object containing the user id.
-   * @param request HttpServletRequest object containing the token.
    * @return ResponseEntity object containing { status: 200, success: true }
    *         object.
    * @throws GenericForbiddenError if the user does not have the required
@@ -169,17 +271,16 @@ public class UserController {
    */
   @PostMapping(path = "/unban")
   public ResponseEntity<SuccessResult> unBan(
-      @RequestBody UnBanUserDto dto,
-      HttpServletRequest request) throws GenericForbiddenError, GenericNotFoundError, ValidationError {
+      @RequestBody UnBanUserDto dto) throws GenericForbiddenError, GenericNotFoundError, ValidationError {
     requestMeterRegistry.counter("request.count").increment();
     requestMeterRegistry.counter("request.count", "method", "POST").increment();
     requestMeterRegistry.counter("request.count", "controller", "UserController").increment();
 
     ValidationRouter.validate(dto);
 
-    String token = ValidationRouter.getTokenFromRequest(request);
+    principal.requireToken();
 
-    userService.unBan(dto, token);
+    userService.unBan(dto);
 
     SuccessResult result = SuccessResult.builder().status(200).build();
     return ResponseEntity.ok(result);
@@ -189,7 +290,6 @@ public class UserController {
    * The updateUsername method is used to update the username of a user.
    *
    * @param dto     UpdateUsernameDto object containing the new username.
-   * @param request HttpServletRequest object containing the token.
    * @return ResponseEntity object containing { status: 200, success: true }
    * @throws GenericForbiddenError if the user does not have the required
    *                               permissions.
@@ -200,17 +300,16 @@ public class UserController {
   /* Requirement 7.2 */
   @PutMapping(path = "/")
   public ResponseEntity<SuccessResult> updateUser(
-      @RequestBody UpdateUserDto dto,
-      HttpServletRequest request) throws GenericForbiddenError, GenericNotFoundError, ValidationError {
+      @RequestBody UpdateUserDto dto) throws GenericForbiddenError, GenericNotFoundError, ValidationError {
     requestMeterRegistry.counter("request.count").increment();
     requestMeterRegistry.counter("request.count", "method", "PUT").increment();
     requestMeterRegistry.counter("request.count", "controller", "UserController").increment();
 
     ValidationRouter.validate(dto);
 
-    String token = ValidationRouter.getTokenFromRequest(request);
+    principal.requireToken();
 
-    userService.updateOne(token, dto);
+    userService.updateOne(dto);
 
     SuccessResult result = SuccessResult.builder().status(200).build();
     return ResponseEntity.ok(result);
@@ -3,10 +3,7 @@ package lsea.controllers;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
-import javax.servlet.http.Cookie;
-import javax.servlet.http.HttpServletRequest;
 import javax.validation.*;
-import lsea.errors.GenericForbiddenError;
 import lsea.errors.ValidationError;
 
 /* Requirement 2.10 */
@@ -41,34 +38,4 @@ public abstract class ValidationRouter {
       throw new ValidationError(joined);
     }
   }
-
-  /**
-   * Gets the token from the request's cookies.
-   *
-   * @param request - the request to get the token from
-   * @return the token
-   * @throws ValidationError       if the token is not found in the cookies
-   * @throws GenericForbiddenError if the cookies are not found
-   */
-  protected static String getTokenFromRequest(HttpServletRequest request)
-      throws ValidationError, GenericForbiddenError {
-    Cookie[] cookies = request.getCookies();
-
-    if (cookies == null) {
-      throw new GenericForbiddenError("No cookies found");
-    }
-
-    String token = null;
-    for (Cookie cookie : cookies) {
-      if (cookie.getName().equals("token")) {
-        token = cookie.getValue();
-      }
-    }
-
-    if (token == null) {
-      throw new ValidationError("No token found in cookies");
-    }
-
-    return token;
-  }
 }
@@ -2,12 +2,12 @@ package lsea.controllers;
 
 import io.micrometer.core.instrument.MeterRegistry;
 import io.swagger.annotations.Api;
-import javax.servlet.http.HttpServletRequest;
 import lsea.dto.CreateWebsiteDto;
 import lsea.dto.DeleteWebsiteDto;
 import lsea.errors.GenericForbiddenError;
 import lsea.errors.GenericNotFoundError;
 import lsea.errors.ValidationError;
+import lsea.middleware.AuthenticatedPrincipal;
 import lsea.service.WebsiteService;
 import lsea.utils.SuccessResult;
 import org.springframework.http.ResponseEntity;
@@ -32,22 +32,31 @@ public class WebsiteController {
    */
   private final MeterRegistry requestMeterRegistry;
 
+  /**
+   * The user authenticated by the current request.
+   */
+  private final AuthenticatedPrincipal principal;
+
   /**
    * The WebsiteController constructor.
    * 
    * @param websiteService       WebsiteService
    * @param requestMeterRegistry request MeterRegistry
+   * @param principal            AuthenticatedPrincipal
    */
-  public WebsiteController(WebsiteService websiteService, MeterRegistry requestMeterRegistry) {
+  public WebsiteController(
+      WebsiteService websiteService,
+      MeterRegistry requestMeterRegistry,
+      AuthenticatedPrincipal principal) {
     this.websiteService = websiteService;
     this.requestMeterRegistry = requestMeterRegistry;
+    this.principal = principal;
   }
 
   /**
    * The createOne method is used to create a new website.
    *
    * @param dto     CreateWebsiteDto
-   * @param request HttpServletRequest containing the token cookie
    * @return ResponseEntity object containing { status: 200, success: true }
    * @throws GenericForbiddenError if the cookie is not found or token is not
    *                               valid
@@ -57,15 +66,14 @@ public class WebsiteController {
    */
   @PostMapping
   public ResponseEntity<SuccessResult> createOne(
-      @RequestBody CreateWebsiteDto dto,
-      HttpServletRequest request) throws ValidationError, GenericForbiddenError, GenericNotFoundError {
+      @RequestBody CreateWebsiteDto dto) throws ValidationError, GenericForbiddenError, GenericNotFoundError {
     requestMeterRegistry.counter("request.count").increment();
     requestMeterRegistry.counter("request.count", "method", "POST").increment();
     requestMeterRegistry.counter("request.count", "controller", "WebsiteController").increment();
 
     ValidationRouter.validate(dto);
-    String token = ValidationRouter.getTokenFromRequest(request);
-    websiteService.createOne(dto, token);
+    principal.requireToken();
+    websiteService.createOne(dto);
     SuccessResult result = SuccessResult.builder().status(200).build();
 
     return ResponseEntity.ok(result);
@@ -75,7 +83,6 @@ public class WebsiteController {
    * Delete the website by ID which is chosen by user in his own profile.
    *
    * @param dto     DeleteWebsiteDto
-   * @param request HttpServletRequest containing the token cookie
    * @return ResponseEntity object containing { status: 200, success: true }
    * @throws GenericForbiddenError if the cookie is not found or token is not
    *                               valid
@@ -87,15 +94,14 @@ public class WebsiteController {
   /* Requirement 7.6 */
   @PostMapping("/delete")
   public ResponseEntity<SuccessResult> deleteOne(
-      @RequestBody DeleteWebsiteDto dto,
-      HttpServletRequest request) throws ValidationError, GenericForbiddenError, GenericNotFoundError {
+      @RequestBody DeleteWebsiteDto dto) throws ValidationError, GenericForbiddenError, GenericNotFoundError {
     requestMeterRegistry.counter("request.count").increment();
     requestMeterRegistry.counter("request.count", "method", "PUT").increment();
     requestMeterRegistry.counter("request.count", "controller", "WebsiteController").increment();
 
     ValidationRouter.validate(dto);
-    String token = ValidationRouter.getTokenFromRequest(request);
-    websiteService.deleteOne(dto, token);
+    principal.requireToken();
+    websiteService.deleteOne(dto);
     SuccessResult result = SuccessResult.builder().status(200).build();
 
     return ResponseEntity.ok(result);
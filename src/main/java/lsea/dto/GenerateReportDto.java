@@ -3,6 +3,7 @@ package lsea.dto;
 import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
 import lombok.*;
+import lsea.utils.AnalysisMode;
 
 /**
  * Data transfer object for generating a report.
@@ -30,4 +31,17 @@ public class GenerateReportDto {
   @Min(1)
   @Max(200)
   private int iterations;
+
+  /**
+   * The number of iterations run before the measured ones and left out of the
+   * report, 0 if not provided
+   */
+  @Min(0)
+  @Max(200)
+  private int warmupIterations;
+
+  /**
+   * The way of splitting the analysis between threads, LATCH if not provided
+   */
+  private AnalysisMode mode;
 }
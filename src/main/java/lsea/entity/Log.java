@@ -11,6 +11,7 @@ import lombok.*;
 import lsea.dto.CreateLogDto;
 import lsea.errors.GenericForbiddenError;
 import lsea.utils.LogType;
+import lsea.utils.TimeOrderedUuid;
 
 /* Requirement 7.1 */
 /**
@@ -23,8 +24,11 @@ import lsea.utils.LogType;
 @AllArgsConstructor(access = AccessLevel.PRIVATE)
 @ToString
 @Entity
-@Table(name = "logs")
-public class Log implements Serializable {
+@Table(name = "logs", indexes = {
+    @Index(name = "idx_logs_data_length", columnList = "data_length"),
+    @Index(name = "idx_logs_created_at_id", columnList = "created_at, id")
+})
+public class Log extends TimeOrderedEntity implements Serializable {
 
   /**
    * The serial version UID.
@@ -35,7 +39,6 @@ public class Log implements Serializable {
    * The unique identifier for the log entry.
    */
   @Id
-  @GeneratedValue(strategy = GenerationType.AUTO)
   @SerializedName("id")
   private UUID id;
 
@@ -47,6 +50,14 @@ public class Log implements Serializable {
   @SerializedName("data")
   private String data;
 
+  /**
+   * The length of the data of the log entry.
+   * server generated, indexed for the longest/shortest analysis.
+   */
+  @Column(name = "data_length")
+  @SerializedName("dataLength")
+  private Integer dataLength;
+
   /**
    * The type of the log entry.
    * user provided.
@@ -64,9 +75,11 @@ public class Log implements Serializable {
 
   /**
    * The timestamp of when the log entry was created.
-   * server generated.
+   * server generated, indexed with the id for the live logs and the pages of
+   * logs.
    */
   @Temporal(TemporalType.TIMESTAMP)
+  @Column(name = "created_at")
   @SerializedName("createAt")
   private Date createdAt;
 
@@ -90,7 +103,9 @@ public class Log implements Serializable {
       throws GenericForbiddenError {
     return Log
         .builder()
+        .id(TimeOrderedUuid.next())
         .data(dto.getData())
+        .dataLength(dto.getData() == null ? null : dto.getData().length())
         .logType(LogType.values()[dto.getLogType()])
         .userId(user.getId())
         .createdAt(new Date())
@@ -8,7 +8,7 @@ package lsea.entity;
  * A subclass of PermissionedEntity can use this method to implement its own
  * access control logic based on the entity's permission level.
  */
-public abstract class PermissionedEntity {
+public abstract class PermissionedEntity extends TimeOrderedEntity {
 
   /**
    * The permission level of the entity.
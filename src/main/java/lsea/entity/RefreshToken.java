@@ -0,0 +1,103 @@
+package lsea.entity;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.UUID;
+import javax.persistence.*;
+import lombok.*;
+
+/**
+ * This class represents a refresh token of a session in the database.
+ *
+ * Only the SHA-256 hash of the opaque token is stored. A refresh token is used
+ * once: refreshing a session marks it used and issues the next token of the
+ * same family, a used token presented again revokes the whole family.
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@ToString
+@Entity
+@Table(name = "refresh_tokens", indexes = {
+    @Index(name = "idx_refresh_tokens_family", columnList = "family_id"),
+    @Index(name = "idx_refresh_tokens_user", columnList = "user_id")
+})
+public class RefreshToken implements Serializable {
+
+  /**
+   * The serial version UID.
+   */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * The unique identifier of the refresh token.
+   */
+  @Id
+  private UUID id;
+
+  /**
+   * The hex encoded SHA-256 hash of the opaque token.
+   */
+  @ToString.Exclude
+  @Column(name = "token_hash", length = 64, unique = true, nullable = false)
+  private String tokenHash;
+
+  /**
+   * The ID of the user of the session.
+   */
+  @Column(name = "user_id", nullable = false)
+  private UUID userId;
+
+  /**
+   * The ID shared by all the refresh tokens of a session.
+   */
+  @Column(name = "family_id", nullable = false)
+  private UUID familyId;
+
+  /**
+   * The date the session was opened by a login.
+   */
+  @Temporal(TemporalType.TIMESTAMP)
+  @Column(name = "session_started_at", nullable = false)
+  private Date sessionStartedAt;
+
+  /**
+   * The date the refresh token was issued.
+   */
+  @Temporal(TemporalType.TIMESTAMP)
+  @Column(name = "created_at", nullable = false)
+  private Date createdAt;
+
+  /**
+   * The date the refresh token expires.
+   */
+  @Temporal(TemporalType.TIMESTAMP)
+  @Column(name = "expires_at", nullable = false)
+  private Date expiresAt;
+
+  /**
+   * The date the refresh token was exchanged for the next one.
+   */
+  @Temporal(TemporalType.TIMESTAMP)
+  @Column(name = "used_at")
+  private Date usedAt;
+
+  /**
+   * The date the session was revoked.
+   */
+  @Temporal(TemporalType.TIMESTAMP)
+  @Column(name = "revoked_at")
+  private Date revokedAt;
+
+  /**
+   * Checks if the refresh token can still be exchanged.
+   *
+   * @param now the current date
+   * @return true if the token is neither used, revoked nor expired
+   */
+  public boolean isActive(Date now) {
+    return usedAt == null && revokedAt == null && expiresAt.after(now);
+  }
+}
@@ -0,0 +1,68 @@
+package lsea.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.util.UUID;
+import javax.persistence.MappedSuperclass;
+import javax.persistence.PostLoad;
+import javax.persistence.PostPersist;
+import javax.persistence.PrePersist;
+import javax.persistence.Transient;
+import lsea.utils.TimeOrderedUuid;
+import org.springframework.data.domain.Persistable;
+
+/**
+ * Base class of the entities keyed by a time-ordered UUID assigned by the
+ * application.
+ *
+ * The id is set when the entity is created, so an entity tells Spring Data
+ * whether it is new instead of having its id looked up: saving a new entity
+ * persists it without a select, and Hibernate batches the inserts of a flush.
+ * An entity saved without an id is given one before it is inserted.
+ */
+@MappedSuperclass
+public abstract class TimeOrderedEntity implements Persistable<UUID> {
+
+  /**
+   * Whether the entity is stored, set once it is persisted or loaded.
+   */
+  @Transient
+  private transient boolean persisted;
+
+  /**
+   * Sets the id of the entity.
+   *
+   * @param id - the id
+   */
+  public abstract void setId(UUID id);
+
+  /**
+   * Returns whether the entity is not stored yet.
+   *
+   * @return true if saving the entity inserts it
+   */
+  @Override
+  @JsonIgnore
+  public boolean isNew() {
+    return !persisted;
+  }
+
+  /**
+   * Marks the entity as stored, called once it is persisted or loaded and on
+   * the detached copies of a stored entity.
+   */
+  @PostPersist
+  @PostLoad
+  public void markPersisted() {
+    persisted = true;
+  }
+
+  /**
+   * Assigns a time-ordered id to a new entity that has none.
+   */
+  @PrePersist
+  protected void assignId() {
+    if (getId() == null) {
+      setId(TimeOrderedUuid.next());
+    }
+  }
+}
@@ -0,0 +1,65 @@
+package lsea.entity;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.UUID;
+import javax.persistence.*;
+import lombok.*;
+
+/**
+ * This class represents the revocation of JWT tokens in the database.
+ *
+ * A revocation with a token id revokes that token, a logged out session. A
+ * revocation without one revokes every token issued to the user up to the
+ * revocation date, a ban. It is kept until the revoked tokens have expired and
+ * reloaded into the in-memory revocation list at startup.
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@ToString
+@Entity
+@Table(name = "token_revocations", indexes = {
+    @Index(name = "idx_token_revocations_expires_at", columnList = "expires_at")
+})
+public class TokenRevocation implements Serializable {
+
+  /**
+   * The serial version UID.
+   */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * The unique identifier of the revocation.
+   */
+  @Id
+  private UUID id;
+
+  /**
+   * The id of the revoked token, null if every token of the user is revoked.
+   */
+  @Column(name = "token_id")
+  private UUID tokenId;
+
+  /**
+   * The ID of the user whose tokens are revoked.
+   */
+  @Column(name = "user_id", nullable = false)
+  private UUID userId;
+
+  /**
+   * The date of the revocation.
+   */
+  @Temporal(TemporalType.TIMESTAMP)
+  @Column(name = "revoked_at", nullable = false)
+  private Date revokedAt;
+
+  /**
+   * The date the last revoked token expires.
+   */
+  @Temporal(TemporalType.TIMESTAMP)
+  @Column(name = "expires_at", nullable = false)
+  private Date expiresAt;
+}
@@ -5,7 +5,6 @@ import com.google.gson.GsonBuilder;
 import com.google.gson.annotations.SerializedName;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
 import java.io.Serializable;
 import java.util.Date;
 import java.util.List;
@@ -14,10 +13,13 @@ import javax.persistence.*;
 import lombok.*;
 import lsea.config.CustomGsonExclusionStrategy;
 import lsea.dto.CreateUserDto;
-import lsea.errors.GenericConflictError;
 import lsea.errors.GenericForbiddenError;
 import lsea.utils.GlobalPermissions;
-import lsea.utils.RandomBase64Generator;
+import lsea.utils.JwtTokenIssuer;
+import lsea.utils.TimeOrderedUuid;
+import lsea.utils.TokenRevocationList;
+import lsea.utils.VerifiedToken;
+import lsea.utils.VerifiedTokenCache;
 import org.springframework.security.crypto.bcrypt.BCrypt;
 
 /* Requirement 2.1 */
@@ -36,14 +38,11 @@ import org.springframework.security.crypto.bcrypt.BCrypt;
 @Table(name = "users")
 public class User extends PermissionedEntity implements Serializable {
 
-  private static String temporarySecret = RandomBase64Generator.generateLong();
-
   /* Requirement 2.6 */
   /**
    * Unique identifier for the user.
    */
   @Id
-  @GeneratedValue(strategy = GenerationType.AUTO)
   @SerializedName("id")
   private UUID id;
 
@@ -131,18 +130,17 @@ public class User extends PermissionedEntity implements Serializable {
 
   /* Requirement 2.6 */
   /**
-   * Creates a new User instance based on the provided CreateUserDto.
+   * Creates a new User instance with a password already hashed by the
+   * PasswordHasher, so that every hash has the configured cost factor.
    *
-   * @param dto the CreateUserDto containing the user data
+   * @param dto               the CreateUserDto containing the user data
+   * @param encryptedPassword the BCrypt hash of the password
    * @return a new User instance with the provided data
    */
-  public static User create(CreateUserDto dto) {
-    String encryptedPassword = BCrypt.hashpw(
-        dto.getPassword(),
-        BCrypt.gensalt());
+  public static User create(CreateUserDto dto, String encryptedPassword) {
     return User
         .builder()
-        .id(UUID.randomUUID())
+        .id(TimeOrderedUuid.next())
         .username(dto.getUsername())
         .email(dto.getEmail())
         .password(encryptedPassword)
@@ -182,19 +180,14 @@ public class User extends PermissionedEntity implements Serializable {
   }
 
   /**
-   * Changes the password of the user with the specified ID.
+   * Changes the password of the user. The current password is verified and the
+   * new one hashed by the PasswordHasher, off the request thread and with the
+   * configured cost factor.
    *
-   * @param oldPassword the user's current password
-   * @param newPassword the new password to set
-   * @throws GenericConflictError if the old password is incorrect
+   * @param encryptedPassword the BCrypt hash of the new password
    */
-  public void changePassword(String oldPassword, String newPassword)
-      throws GenericConflictError {
-    if (BCrypt.checkpw(oldPassword, this.getPassword())) {
-      this.setPassword(BCrypt.hashpw(newPassword, BCrypt.gensalt()));
-    } else {
-      throw new GenericConflictError("Incorrect password");
-    }
+  public void changePassword(String encryptedPassword) {
+    this.setPassword(encryptedPassword);
   }
 
   /**
@@ -215,19 +208,7 @@ public class User extends PermissionedEntity implements Serializable {
    * @return The JWT token
    */
   public String getJwtToken() {
-    Date now = new Date();
-    String secret = System.getenv("JWT_SECRET");
-    if (secret == null) {
-      secret = temporarySecret;
-    }
-    return Jwts
-        .builder()
-        .setId(UUID.randomUUID().toString())
-        .setSubject(id.toString())
-        .setIssuedAt(now)
-        .setExpiration(new Date(now.getTime() + 86400000)) // 24 hours
-        .signWith(SignatureAlgorithm.HS256, secret)
-        .compact();
+    return JwtTokenIssuer.getInstance().issue(id);
   }
 
   /**
@@ -244,25 +225,51 @@ public class User extends PermissionedEntity implements Serializable {
 
   /**
    * Verifies a JWT token and returns the user ID encoded in the token.
+   * A token already verified is trusted until it expires, unless revoked.
    *
    * @param token The JWT token to verify
    * @return The user ID encoded in the token
-   * @throws GenericForbiddenError if the token is invalid
+   * @throws GenericForbiddenError if the token is invalid or revoked
    */
   public static UUID verifyToken(String token) throws GenericForbiddenError {
-    String secret = System.getenv("JWT_SECRET");
-    if (secret == null) {
-      secret = temporarySecret;
+    return verify(token).getSubject();
+  }
+
+  /**
+   * Verifies a JWT token and returns its claims. The signature of a token is
+   * checked once, the revocations on every call.
+   *
+   * @param token The JWT token to verify
+   * @return The claims of the token
+   * @throws GenericForbiddenError if the token is invalid or revoked
+   */
+  public static VerifiedToken verify(String token) throws GenericForbiddenError {
+    VerifiedTokenCache cache = VerifiedTokenCache.getInstance();
+    VerifiedToken verified = token == null ? null : cache.lookup(token);
+
+    if (verified == null) {
+      try {
+        Claims claims = Jwts
+            .parser()
+            .setSigningKey(JwtTokenIssuer.getInstance().getSigningKey())
+            .parseClaimsJws(token)
+            .getBody();
+        verified = new VerifiedToken(
+            UUID.fromString(claims.getSubject()),
+            claims.getId() == null ? null : UUID.fromString(claims.getId()),
+            claims.getIssuedAt() == null ? 0 : claims.getIssuedAt().getTime(),
+            claims.getExpiration() == null ? Long.MAX_VALUE : claims.getExpiration().getTime());
+      } catch (Exception e) {
+        throw new GenericForbiddenError("Invalid token");
+      }
+      if (verified.getExpiresAt() != Long.MAX_VALUE) {
+        cache.put(token, verified);
+      }
     }
-    try {
-      Claims claims = Jwts
-          .parser()
-          .setSigningKey(secret)
-          .parseClaimsJws(token)
-          .getBody();
-      return UUID.fromString(claims.getSubject());
-    } catch (Exception e) {
-      throw new GenericForbiddenError("Invalid token");
+
+    if (TokenRevocationList.getInstance().isRevoked(verified)) {
+      throw new GenericForbiddenError("Token revoked");
     }
+    return verified;
   }
 }
@@ -10,6 +10,7 @@ import lombok.*;
 import lsea.dto.CreateUserGroupDto;
 import lsea.errors.GenericForbiddenError;
 import lsea.utils.GlobalPermissions;
+import lsea.utils.TimeOrderedUuid;
 
 /* Requirement 2.1 */
 /* Requirement 7.1 */
@@ -32,7 +33,6 @@ public class UserGroup extends PermissionedEntity implements Serializable {
    * The unique identifier for the user group.
    */
   @Id
-  @GeneratedValue(strategy = GenerationType.AUTO)
   @SerializedName("id")
   private UUID id;
 
@@ -92,7 +92,7 @@ public class UserGroup extends PermissionedEntity implements Serializable {
     }
     return UserGroup
         .builder()
-        .id(UUID.randomUUID())
+        .id(TimeOrderedUuid.next())
         .name(dto.getName())
         .description(dto.getDescription())
         .globalPermission(GlobalPermissions.USER)
@@ -8,6 +8,7 @@ import lombok.*;
 import lsea.dto.AddUserToUserGroupDto;
 import lsea.errors.GenericForbiddenError;
 import lsea.utils.GroupPermissions;
+import lsea.utils.TimeOrderedUuid;
 
 /* Requirement 7.1 */
 /**
@@ -19,16 +20,15 @@ import lsea.utils.GroupPermissions;
 @NoArgsConstructor
 @AllArgsConstructor(access = AccessLevel.PRIVATE)
 @ToString
-@EqualsAndHashCode
+@EqualsAndHashCode(callSuper = false)
 @Entity
 @Table(name = "usergroup_user")
-public class UserGroupUser {
+public class UserGroupUser extends TimeOrderedEntity {
 
   /**
    * The unique identifier for this relationship.
    */
   @Id
-  @GeneratedValue(strategy = GenerationType.AUTO)
   @SerializedName("id")
   private UUID id;
 
@@ -86,7 +86,7 @@ public class UserGroupUser {
 
     return UserGroupUser
         .builder()
-        .id(UUID.randomUUID())
+        .id(TimeOrderedUuid.next())
         .userGroupId(UUID.fromString(dto.getUserGroupId()))
         .userId(UUID.fromString(dto.getUserId()))
         .addedAt(new Date())
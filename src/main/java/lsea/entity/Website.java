@@ -11,6 +11,7 @@ import javax.persistence.Id;
 import lombok.*;
 import lsea.dto.CreateWebsiteDto;
 import lsea.utils.RandomBase64Generator;
+import lsea.utils.TimeOrderedUuid;
 
 /* Requirement 2.1 */
 /* Requirement 7.1 */
@@ -22,16 +23,15 @@ import lsea.utils.RandomBase64Generator;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor(access = AccessLevel.PRIVATE)
-@EqualsAndHashCode
+@EqualsAndHashCode(callSuper = false)
 @Entity
 @Table(name = "websites")
-public class Website implements Serializable, Comparable<Website>, Cloneable {
+public class Website extends TimeOrderedEntity implements Serializable, Comparable<Website>, Cloneable {
 
   /**
    * Unique id (primary key).
    */
   @Id
-  @GeneratedValue(strategy = GenerationType.AUTO)
   @SerializedName("id")
   private UUID id;
 
@@ -94,7 +94,7 @@ public class Website implements Serializable, Comparable<Website>, Cloneable {
   public static Website create(CreateWebsiteDto dto, User creator) {
     Website website = Website
         .builder()
-        .id(UUID.randomUUID())
+        .id(TimeOrderedUuid.next())
         .displayName(dto.getDisplayName())
         .user(creator)
         .createdAt(new Date())
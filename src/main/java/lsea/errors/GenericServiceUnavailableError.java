@@ -0,0 +1,31 @@
+package lsea.errors;
+
+/**
+ * Represents a generic service unavailable error with a status code of 503.
+ * This exception can be thrown when the server is too busy to accept more
+ * work, the request can be retried later.
+ */
+public class GenericServiceUnavailableError extends HttpBaseError {
+
+  /* Requirement 2.7 */
+  /**
+   * Constructs a new instance of the {@code GenericServiceUnavailableError}
+   * class with the specified error message.
+   *
+   * @param message a description of the error
+   */
+  public GenericServiceUnavailableError(String message) {
+    super(503, message);
+  }
+
+  /* Requirement 2.7 */
+  /**
+   * Constructs a new instance of the {@code GenericServiceUnavailableError}
+   * class with the specified exception.
+   *
+   * @param e the exception that caused the error
+   */
+  public GenericServiceUnavailableError(Exception e) {
+    super(503, e);
+  }
+}
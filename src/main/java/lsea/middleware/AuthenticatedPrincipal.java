@@ -0,0 +1,151 @@
+package lsea.middleware;
+
+import java.util.Optional;
+import java.util.UUID;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import lsea.entity.User;
+import lsea.errors.GenericForbiddenError;
+import lsea.errors.GenericNotFoundError;
+import lsea.errors.ValidationError;
+import lsea.service.UserCache;
+import lsea.utils.VerifiedToken;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+/**
+ * The user authenticated by the token cookie of the current request.
+ *
+ * The cookie is read and the token verified once by the AuthenticationFilter,
+ * the user is loaded from the UserCache on first use and shared by every
+ * service of the request.
+ * The errors are deferred until a controller or a service asks for the user,
+ * so the endpoints without authentication are not affected by a bad cookie.
+ */
+@Component
+@RequestScope
+public class AuthenticatedPrincipal {
+
+  /**
+   * The UserCache attribute is used to load the authenticated user.
+   */
+  private final UserCache userCache;
+
+  /**
+   * Whether the request has cookies.
+   */
+  private boolean cookiesFound;
+
+  /**
+   * The token cookie of the request, null if there is none.
+   */
+  private String token;
+
+  /**
+   * The claims of the token, null if the token is missing, invalid or revoked.
+   */
+  private VerifiedToken verifiedToken;
+
+  /**
+   * The error of the token verification, null if the token is valid.
+   */
+  private GenericForbiddenError tokenError;
+
+  /**
+   * The authenticated user, loaded on first use.
+   */
+  private User user;
+
+  /**
+   * Constructor of the AuthenticatedPrincipal class.
+   *
+   * @param userCache - UserCache
+   */
+  public AuthenticatedPrincipal(UserCache userCache) {
+    this.userCache = userCache;
+  }
+
+  /**
+   * Reads the token cookie of the request and verifies the token.
+   *
+   * @param request - the current request
+   */
+  public void resolve(HttpServletRequest request) {
+    Cookie[] cookies = request.getCookies();
+    cookiesFound = cookies != null;
+    token = null;
+    verifiedToken = null;
+    tokenError = null;
+    user = null;
+
+    if (cookies != null) {
+      for (Cookie cookie : cookies) {
+        if (cookie.getName().equals("token")) {
+          token = cookie.getValue();
+        }
+      }
+    }
+
+    try {
+      verifiedToken = User.verify(token);
+    } catch (GenericForbiddenError e) {
+      tokenError = e;
+    }
+  }
+
+  /**
+   * Verifies that the request carries a token cookie.
+   *
+   * @throws GenericForbiddenError if the cookies are not found
+   * @throws ValidationError       if the token is not found in the cookies
+   */
+  public void requireToken() throws GenericForbiddenError, ValidationError {
+    if (!cookiesFound) {
+      throw new GenericForbiddenError("No cookies found");
+    }
+    if (token == null) {
+      throw new ValidationError("No token found in cookies");
+    }
+  }
+
+  /**
+   * Returns the id of the authenticated user without loading it.
+   *
+   * @return the id of the user
+   * @throws GenericForbiddenError if the token is missing or invalid
+   */
+  public UUID getUserId() throws GenericForbiddenError {
+    return getVerifiedToken().getSubject();
+  }
+
+  /**
+   * Returns the claims of the token of the request.
+   *
+   * @return the claims of the token
+   * @throws GenericForbiddenError if the token is missing, invalid or revoked
+   */
+  public VerifiedToken getVerifiedToken() throws GenericForbiddenError {
+    if (tokenError != null) {
+      throw tokenError;
+    }
+    return verifiedToken;
+  }
+
+  /**
+   * Returns the authenticated user, loaded once per request.
+   *
+   * @return the user
+   * @throws GenericForbiddenError if the token is missing or invalid
+   * @throws GenericNotFoundError  if the user is not found
+   */
+  public User getUser() throws GenericForbiddenError, GenericNotFoundError {
+    if (user == null) {
+      Optional<User> userOptional = userCache.findById(getUserId());
+      if (!userOptional.isPresent()) {
+        throw new GenericNotFoundError("User not found");
+      }
+      user = userOptional.get();
+    }
+    return user;
+  }
+}
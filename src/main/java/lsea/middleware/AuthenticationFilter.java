@@ -0,0 +1,60 @@
+package lsea.middleware;
+
+import java.io.IOException;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * This filter resolves the token cookie of every API request into the
+ * request-scoped AuthenticatedPrincipal, before the controllers run.
+ */
+@Component
+public class AuthenticationFilter extends OncePerRequestFilter {
+
+  /**
+   * The principal of the current request.
+   */
+  private final AuthenticatedPrincipal principal;
+
+  /**
+   * Constructor of the AuthenticationFilter class.
+   *
+   * @param principal - the request-scoped AuthenticatedPrincipal
+   */
+  public AuthenticationFilter(AuthenticatedPrincipal principal) {
+    this.principal = principal;
+  }
+
+  /**
+   * Resolves the principal of the request and continues the chain.
+   *
+   * @param request     - the request
+   * @param response    - the response
+   * @param filterChain - the rest of the chain
+   * @throws ServletException if the chain fails
+   * @throws IOException      if the chain fails
+   */
+  @Override
+  protected void doFilterInternal(
+      HttpServletRequest request,
+      HttpServletResponse response,
+      FilterChain filterChain) throws ServletException, IOException {
+    principal.resolve(request);
+    filterChain.doFilter(request, response);
+  }
+
+  /**
+   * Skips the requests outside of the API, they are not authenticated.
+   *
+   * @param request - the request
+   * @return true if the request is not an API request
+   */
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    return !request.getRequestURI().startsWith("/api/");
+  }
+}
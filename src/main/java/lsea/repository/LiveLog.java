@@ -0,0 +1,54 @@
+package lsea.repository;
+
+import java.util.Date;
+import java.util.UUID;
+import lsea.utils.LogType;
+
+/**
+ * Projection of a log entry to the columns shown by the live capture, used to
+ * poll the new logs without reading the state of their users.
+ */
+public interface LiveLog {
+
+  /**
+   * Returns the id of the log entry.
+   *
+   * @return the id of the log entry
+   */
+  UUID getId();
+
+  /**
+   * Returns the data of the log entry.
+   *
+   * @return the data of the log entry
+   */
+  String getData();
+
+  /**
+   * Returns the length of the data of the log entry.
+   *
+   * @return the length of the data, null if it was not computed
+   */
+  Integer getDataLength();
+
+  /**
+   * Returns the type of the log entry.
+   *
+   * @return the type of the log entry
+   */
+  LogType getLogType();
+
+  /**
+   * Returns the id of the user who created the log entry.
+   *
+   * @return the id of the user
+   */
+  UUID getUserId();
+
+  /**
+   * Returns the creation time of the log entry.
+   *
+   * @return the creation time
+   */
+  Date getCreatedAt();
+}
@@ -1,11 +1,13 @@
 package lsea.repository;
 
 import java.sql.Timestamp;
+import java.util.Date;
 import java.util.List;
 import java.util.UUID;
 import lsea.entity.Log;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
@@ -16,22 +18,77 @@ import org.springframework.stereotype.Repository;
 @Repository
 public interface LogRepository extends JpaRepository<Log, UUID> {
   /**
-   * Find all logs for a given user.
+   * Find all logs for a given user. The logs created in the same millisecond
+   * are ordered by their time-ordered id, so the pages are stable.
    *
    * @param pageable - the page
    * @return a list of logs for the user
    */
   /* Requirement 7.4 */
-  @Query("SELECT l FROM Log l ORDER BY l.createdAt DESC")
+  @Query("SELECT l FROM Log l ORDER BY l.createdAt DESC, l.id DESC")
   List<Log> findLogs(Pageable pageable);
 
   /**
-   * Find all logs for a given user that were created after a given timestamp.
+   * Find the logs following a position in the logs ordered from the newest,
+   * the keyset version of findLogs: a page costs the same at any depth.
+   *
+   * @param createdAt - the creation time of the last log of the previous page
+   * @param id        - the id of the last log of the previous page
+   * @param pageable  - the page size, only the first page is meant to be used
+   * @return a list of logs, newest first
+   */
+  @Query("SELECT l FROM Log l WHERE l.createdAt < ?1 OR (l.createdAt = ?1 AND l.id < ?2)"
+      + " ORDER BY l.createdAt DESC, l.id DESC")
+  List<Log> findLogsBefore(Date createdAt, UUID id, Pageable pageable);
+
+  /**
+   * Find all logs that were created after a given timestamp, without the state
+   * of their users, a range scan of the index on the creation time.
    *
    * @param timestamp - the timestamp
-   * @return a list of logs for the user
+   * @return a list of the new logs
    */
   /* Requirement 7.4 */
-  @Query("SELECT l FROM Log l WHERE l.createdAt > ?1 ORDER BY l.createdAt DESC")
-  List<Log> findLiveLogs(Timestamp timestamp);
+  @Query("SELECT l.id AS id, l.data AS data, l.dataLength AS dataLength, l.logType AS logType,"
+      + " l.userId AS userId, l.createdAt AS createdAt"
+      + " FROM Log l WHERE l.createdAt > ?1 ORDER BY l.createdAt DESC, l.id DESC")
+  List<LiveLog> findLiveLogs(Timestamp timestamp);
+
+  /**
+   * Find the logs with the longest data, using the data length index.
+   *
+   * @param pageable - the number of logs, only the first page is meant to be
+   *                 used
+   * @return a list of logs, longest first
+   */
+  @Query("SELECT l FROM Log l WHERE l.dataLength IS NOT NULL ORDER BY l.dataLength DESC")
+  List<Log> findLongest(Pageable pageable);
+
+  /**
+   * Find the logs with the shortest data, using the data length index.
+   *
+   * @param pageable - the number of logs, only the first page is meant to be
+   *                 used
+   * @return a list of logs, shortest first
+   */
+  @Query("SELECT l FROM Log l WHERE l.dataLength IS NOT NULL ORDER BY l.dataLength ASC")
+  List<Log> findShortest(Pageable pageable);
+
+  /**
+   * Fills the data length of the logs stored before the column existed.
+   *
+   * @return the number of updated logs
+   */
+  @Modifying
+  @Query("UPDATE Log l SET l.dataLength = LENGTH(l.data) WHERE l.dataLength IS NULL AND l.data IS NOT NULL")
+  int backfillDataLengths();
+
+  /**
+   * Find the creation timestamp of the latest log, used with the number of
+   * logs as the version of the logs table.
+   *
+   * @return the creation timestamp of the latest log, null if there is none
+   */
+  @Query("SELECT MAX(l.createdAt) FROM Log l")
+  Date findLatestCreatedAt();
 }
@@ -0,0 +1,60 @@
+package lsea.repository;
+
+import java.util.Date;
+import java.util.Optional;
+import java.util.UUID;
+import lsea.entity.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+/**
+ * The RefreshTokenRepository interface provides methods for interacting with
+ * the refresh tokens of the sessions.
+ */
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, UUID> {
+
+  /**
+   * Finds the refresh token with the given hash.
+   *
+   * @param tokenHash The hex encoded SHA-256 hash of the token.
+   * @return An Optional containing the refresh token, or empty if not found.
+   */
+  Optional<RefreshToken> findByTokenHash(String tokenHash);
+
+  /**
+   * Marks a refresh token as used unless it was already used or revoked, the
+   * row lock taken by the update lets a single exchange of the token win.
+   *
+   * @param id  The ID of the refresh token.
+   * @param now The date of use.
+   * @return 1 if the token was claimed, 0 if it was already used or revoked.
+   */
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("UPDATE RefreshToken t SET t.usedAt = ?2 WHERE t.id = ?1 AND t.usedAt IS NULL AND t.revokedAt IS NULL")
+  int claim(UUID id, Date now);
+
+  /**
+   * Revokes all the refresh tokens of a session.
+   *
+   * @param familyId The ID of the session.
+   * @param now      The revocation date.
+   * @return The number of revoked tokens.
+   */
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("UPDATE RefreshToken t SET t.revokedAt = ?2 WHERE t.familyId = ?1 AND t.revokedAt IS NULL")
+  int revokeFamily(UUID familyId, Date now);
+
+  /**
+   * Revokes all the refresh tokens of a user.
+   *
+   * @param userId The ID of the user.
+   * @param now    The revocation date.
+   * @return The number of revoked tokens.
+   */
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("UPDATE RefreshToken t SET t.revokedAt = ?2 WHERE t.userId = ?1 AND t.revokedAt IS NULL")
+  int revokeUser(UUID userId, Date now);
+}
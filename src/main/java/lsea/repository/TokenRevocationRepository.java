@@ -0,0 +1,36 @@
+package lsea.repository;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import lsea.entity.TokenRevocation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+/**
+ * The TokenRevocationRepository interface provides methods for interacting
+ * with the revocations of the JWT tokens.
+ */
+@Repository
+public interface TokenRevocationRepository extends JpaRepository<TokenRevocation, UUID> {
+
+  /**
+   * Finds the revocations whose tokens have not all expired.
+   *
+   * @param now The current date.
+   * @return The active revocations.
+   */
+  List<TokenRevocation> findByExpiresAtAfter(Date now);
+
+  /**
+   * Deletes the revocations whose tokens have all expired.
+   *
+   * @param now The current date.
+   * @return The number of deleted revocations.
+   */
+  @Modifying
+  @Query("DELETE FROM TokenRevocation r WHERE r.expiresAt <= ?1")
+  int deleteExpired(Date now);
+}
@@ -4,7 +4,10 @@ import java.util.Optional;
 import java.util.UUID;
 import lsea.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * The UserRepository interface provides methods for interacting with user data
@@ -44,4 +47,17 @@ public interface UserRepository
    * query like: "where x.email = ?1"
    */
   Optional<User> findByEmail(String email);
+
+  /**
+   * Replaces the password hash of a user, unless it changed since it was read.
+   *
+   * @param id      The id of the user.
+   * @param oldHash The hash that was read.
+   * @param newHash The new hash.
+   * @return The number of updated users, 0 if the hash changed meanwhile.
+   */
+  @Transactional
+  @Modifying
+  @Query("UPDATE User u SET u.password = ?3 WHERE u.id = ?1 AND u.password = ?2")
+  int replacePassword(UUID id, String oldHash, String newHash);
 }
@@ -0,0 +1,241 @@
+package lsea.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PreDestroy;
+import lsea.errors.GenericServiceUnavailableError;
+import lsea.utils.ExecutorBacking;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Executor running the worker tasks of the log analysis.
+ *
+ * At most threads + queue capacity tasks are admitted at the same time, a
+ * batch of tasks is admitted as a whole or rejected with a 503 so that a
+ * caller never waits for a task that was not queued. The tasks run on bounded
+ * platform threads, a fork-join pool or virtual threads, and their queue
+ * depth, active workers and latency are exported to the jvm meter registry.
+ */
+@Component
+public class AnalysisExecutor {
+
+  /**
+   * The kind of threads running the tasks, BOUNDED when virtual threads are
+   * requested but not supported.
+   */
+  private final ExecutorBacking backing;
+
+  /**
+   * The maximum number of tasks admitted at the same time.
+   */
+  private final int capacity;
+
+  /**
+   * The permits of the admitted tasks.
+   */
+  private final Semaphore permits;
+
+  /**
+   * The executor running the tasks.
+   */
+  private final ExecutorService executor;
+
+  /**
+   * The time spent by the tasks waiting for a thread.
+   */
+  private final Timer waitTimer;
+
+  /**
+   * The time spent by the tasks running.
+   */
+  private final Timer runTimer;
+
+  /**
+   * The number of rejected tasks.
+   */
+  private final Counter rejected;
+
+  /**
+   * Constructor of the AnalysisExecutor class.
+   *
+   * @param backing          - the kind of threads: bounded, fork-join or
+   *                         virtual
+   * @param threads          - the number of platform threads
+   * @param queueCapacity    - the number of tasks waiting for a thread
+   * @param jvmMeterRegistry - the meter registry the metrics are exported to
+   */
+  @Autowired
+  public AnalysisExecutor(
+      @Value("${lsea.analysis.executor.backing:bounded}") String backing,
+      @Value("${lsea.analysis.executor.threads:40}") int threads,
+      @Value("${lsea.analysis.executor.queue-capacity:400}") int queueCapacity,
+      MeterRegistry jvmMeterRegistry) {
+    this(ExecutorBacking.parse(backing), threads, queueCapacity, jvmMeterRegistry);
+  }
+
+  /**
+   * Constructor of the AnalysisExecutor class.
+   *
+   * @param backing          - the kind of threads
+   * @param threads          - the number of platform threads
+   * @param queueCapacity    - the number of tasks waiting for a thread
+   * @param jvmMeterRegistry - the meter registry the metrics are exported to
+   */
+  public AnalysisExecutor(
+      ExecutorBacking backing,
+      int threads,
+      int queueCapacity,
+      MeterRegistry jvmMeterRegistry) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("lsea.analysis.executor.threads must be at least 1");
+    }
+    if (queueCapacity < 0) {
+      throw new IllegalArgumentException("lsea.analysis.executor.queue-capacity must not be negative");
+    }
+    this.capacity = threads + queueCapacity;
+    this.permits = new Semaphore(capacity);
+
+    ExecutorService virtual = backing == ExecutorBacking.VIRTUAL ? newVirtualThreadExecutor() : null;
+    if (virtual != null) {
+      this.backing = ExecutorBacking.VIRTUAL;
+      this.executor = virtual;
+    } else if (backing == ExecutorBacking.FORK_JOIN) {
+      this.backing = ExecutorBacking.FORK_JOIN;
+      this.executor = new ForkJoinPool(threads);
+    } else {
+      if (backing == ExecutorBacking.VIRTUAL) {
+        System.out.println("Virtual threads are not supported by this runtime, using bounded threads");
+      }
+      this.backing = ExecutorBacking.BOUNDED;
+      AtomicInteger threadNumber = new AtomicInteger();
+      ThreadPoolExecutor pool = new ThreadPoolExecutor(
+          threads,
+          threads,
+          60L,
+          TimeUnit.SECONDS,
+          // the semaphore bounds the queue, an idle worker may not have polled
+          // it yet so it is sized for every admitted task
+          new ArrayBlockingQueue<>(capacity),
+          runnable -> {
+            Thread thread = new Thread(runnable, "analysis-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+          },
+          new ThreadPoolExecutor.AbortPolicy());
+      pool.allowCoreThreadTimeOut(true);
+      this.executor = pool;
+    }
+
+    new ExecutorServiceMetrics(executor, "analysis", Tags.of("backing", this.backing.name()))
+        .bindTo(jvmMeterRegistry);
+    Gauge.builder("analysis.tasks.admitted", permits, p -> capacity - p.availablePermits())
+        .description("The number of analysis tasks queued or running")
+        .register(jvmMeterRegistry);
+    this.waitTimer = Timer.builder("analysis.task.wait")
+        .description("The time spent by the analysis tasks waiting for a thread")
+        .register(jvmMeterRegistry);
+    this.runTimer = Timer.builder("analysis.task.duration")
+        .description("The time spent by the analysis tasks running")
+        .register(jvmMeterRegistry);
+    this.rejected = Counter.builder("analysis.tasks.rejected")
+        .description("The number of analysis tasks rejected because the executor was full")
+        .register(jvmMeterRegistry);
+  }
+
+  /**
+   * Admits and runs a batch of tasks, either all of them are queued or none.
+   *
+   * @param tasks - the tasks
+   * @throws GenericServiceUnavailableError if the executor cannot admit the
+   *                                        whole batch
+   */
+  public void executeAll(List<Runnable> tasks) throws GenericServiceUnavailableError {
+    int count = tasks.size();
+    if (count > capacity || !permits.tryAcquire(count)) {
+      rejected.increment(count);
+      throw new GenericServiceUnavailableError("The analysis is overloaded, try again later");
+    }
+
+    int submitted = 0;
+    try {
+      for (Runnable task : tasks) {
+        long queuedAt = System.nanoTime();
+        executor.execute(() -> {
+          long startedAt = System.nanoTime();
+          waitTimer.record(startedAt - queuedAt, TimeUnit.NANOSECONDS);
+          try {
+            task.run();
+          } finally {
+            runTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+            permits.release();
+          }
+        });
+        submitted++;
+      }
+    } catch (RejectedExecutionException e) {
+      // only happens once the executor is shut down
+      permits.release(count - submitted);
+      rejected.increment(count - submitted);
+      throw new GenericServiceUnavailableError(e);
+    }
+  }
+
+  /**
+   * Returns the kind of threads running the tasks.
+   *
+   * @return the backing actually used
+   */
+  public ExecutorBacking getBacking() {
+    return backing;
+  }
+
+  /**
+   * Returns the maximum number of tasks admitted at the same time.
+   *
+   * @return the number of threads plus the queue capacity
+   */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Stops the threads once the executor is discarded, the admitted tasks are
+   * completed.
+   */
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdown();
+  }
+
+  /**
+   * Creates an executor starting a virtual thread per task, looked up by
+   * reflection since the application targets runtimes without them.
+   *
+   * @return the executor, null if the runtime does not support virtual threads
+   */
+  private static ExecutorService newVirtualThreadExecutor() {
+    try {
+      return (ExecutorService) Executors.class
+          .getMethod("newVirtualThreadPerTaskExecutor")
+          .invoke(null);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,108 @@
+package lsea.service;
+
+import java.nio.ByteBuffer;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+import java.util.UUID;
+import lsea.entity.Log;
+import lsea.utils.TimeOrderedUuid;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Inserts logs with JDBC batches, bypassing the persistence context.
+ *
+ * The insert takes part in the transaction of the caller if there is one, the
+ * written logs are not managed by JPA.
+ */
+@Component
+public class LogBatchWriter {
+
+  /**
+   * The insert of a log, the columns of the Log entity.
+   */
+  private static final String INSERT_LOG = "INSERT INTO logs "
+      + "(id, created_at, data, data_length, log_type, user_current_state, user_id) "
+      + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+  /**
+   * The JdbcTemplate attribute is used to run the batches.
+   */
+  private final JdbcTemplate jdbcTemplate;
+
+  /**
+   * Constructor of the LogBatchWriter class.
+   *
+   * @param jdbcTemplate - JdbcTemplate
+   */
+  public LogBatchWriter(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  /**
+   * Inserts logs with a single JDBC batch. A log without an id is given one.
+   *
+   * @param logs - the new logs
+   */
+  public void insert(List<Log> logs) {
+    for (Log log : logs) {
+      if (log.getId() == null) {
+        log.setId(TimeOrderedUuid.next());
+      }
+    }
+    jdbcTemplate.batchUpdate(INSERT_LOG, new BatchPreparedStatementSetter() {
+      @Override
+      public void setValues(PreparedStatement statement, int i) throws SQLException {
+        bind(statement, logs.get(i));
+      }
+
+      @Override
+      public int getBatchSize() {
+        return logs.size();
+      }
+    });
+  }
+
+  /**
+   * Binds the columns of a log to the insert.
+   *
+   * @param statement - the insert
+   * @param log       - the log
+   * @throws SQLException if a value cannot be bound
+   */
+  private static void bind(PreparedStatement statement, Log log) throws SQLException {
+    statement.setBytes(1, toBytes(log.getId()));
+    statement.setTimestamp(2, log.getCreatedAt() == null ? null : new Timestamp(log.getCreatedAt().getTime()));
+    statement.setString(3, log.getData());
+    if (log.getDataLength() == null) {
+      statement.setNull(4, Types.INTEGER);
+    } else {
+      statement.setInt(4, log.getDataLength());
+    }
+    if (log.getLogType() == null) {
+      statement.setNull(5, Types.INTEGER);
+    } else {
+      statement.setInt(5, log.getLogType().ordinal());
+    }
+    statement.setString(6, log.getUserCurrentState());
+    statement.setBytes(7, log.getUserId() == null ? null : toBytes(log.getUserId()));
+  }
+
+  /**
+   * Encodes a UUID the way Hibernate stores it in a binary column.
+   *
+   * @param id - the UUID
+   * @return the 16 bytes of the UUID
+   */
+  private static byte[] toBytes(UUID id) {
+    return ByteBuffer
+        .allocate(16)
+        .putLong(id.getMostSignificantBits())
+        .putLong(id.getLeastSignificantBits())
+        .array();
+  }
+}
@@ -0,0 +1,204 @@
+package lsea.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import lsea.entity.Log;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * In-process publish/subscribe bus of the committed logs, feeding the live
+ * capture.
+ *
+ * The logs are kept in one bounded ring shared by all the subscribers, each
+ * subscriber only remembers the position of the next log it reads. A
+ * subscriber reads every log published after it subscribed, in the commit
+ * order, unless it falls behind by more than the capacity of the ring: the
+ * logs overwritten meanwhile are then counted as missed.
+ */
+@Component
+public class LogBus {
+
+  /**
+   * The last published logs, the log of position p at p modulo the length,
+   * guarded by this.
+   */
+  private final Log[] ring;
+
+  /**
+   * The number of logs ever published, the position of the next one, guarded
+   * by this.
+   */
+  private long published = 0;
+
+  /**
+   * The callbacks run after every publication.
+   */
+  private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+  /**
+   * Constructor of the LogBus class.
+   *
+   * @param capacity - the number of logs kept for the subscribers
+   */
+  public LogBus(@Value("${lsea.logs.bus.capacity:4096}") int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("lsea.logs.bus.capacity must be at least 1");
+    }
+    this.ring = new Log[capacity];
+  }
+
+  /**
+   * Publishes a log once the current transaction commits, or immediately when
+   * no transaction is active. Rolled back logs are never published.
+   *
+   * @param log - the persisted log
+   */
+  public void publishAfterCommit(Log log) {
+    publishAllAfterCommit(Collections.singletonList(log));
+  }
+
+  /**
+   * Publishes logs once the current transaction commits, or immediately when
+   * no transaction is active. Rolled back logs are never published.
+   *
+   * @param logs - the persisted logs
+   */
+  public void publishAllAfterCommit(List<Log> logs) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      publishAll(logs);
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        publishAll(logs);
+      }
+    });
+  }
+
+  /**
+   * Publishes committed logs, wakes up the waiting subscribers and runs the
+   * listeners.
+   *
+   * @param logs - the committed logs, in their commit order
+   */
+  public void publishAll(List<Log> logs) {
+    if (logs.isEmpty()) {
+      return;
+    }
+    synchronized (this) {
+      for (Log log : logs) {
+        ring[(int) (published % ring.length)] = log;
+        published++;
+      }
+      notifyAll();
+    }
+    listeners.forEach(Runnable::run);
+  }
+
+  /**
+   * Adds a callback run by the publishing thread after every publication,
+   * for the subscribers that poll without waiting. It must not block.
+   *
+   * @param listener - the callback
+   */
+  public void addListener(Runnable listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * Removes a callback added with addListener.
+   *
+   * @param listener - the callback
+   */
+  public void removeListener(Runnable listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Subscribes to the logs published from now on.
+   *
+   * @return the subscription, read by a single thread
+   */
+  public synchronized Subscription subscribe() {
+    return new Subscription(published);
+  }
+
+  /**
+   * The position of a subscriber in the bus.
+   */
+  public final class Subscription {
+
+    /**
+     * The position of the next log to read, guarded by the bus.
+     */
+    private long next;
+
+    /**
+     * The number of logs overwritten before they were read, guarded by the bus.
+     */
+    private long missed = 0;
+
+    /**
+     * Creates a subscription reading from a position.
+     *
+     * @param next - the position of the first log to read
+     */
+    private Subscription(long next) {
+      this.next = next;
+    }
+
+    /**
+     * Reads the next logs, waiting until at least one is published or the
+     * timeout elapses.
+     *
+     * @param max     - the largest number of logs returned
+     * @param timeout - the longest wait in milliseconds
+     * @return the next logs in their commit order, empty if none was published
+     *         in time
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public List<Log> poll(int max, long timeout) throws InterruptedException {
+      synchronized (LogBus.this) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        while (next == published) {
+          long remaining = deadline - System.nanoTime();
+          if (remaining <= 0) {
+            return Collections.emptyList();
+          }
+          TimeUnit.NANOSECONDS.timedWait(LogBus.this, remaining);
+        }
+
+        long oldest = published - ring.length;
+        if (next < oldest) {
+          missed += oldest - next;
+          next = oldest;
+        }
+        int count = (int) Math.min(max, published - next);
+        List<Log> logs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+          logs.add(ring[(int) (next % ring.length)]);
+          next++;
+        }
+        return logs;
+      }
+    }
+
+    /**
+     * Returns the number of logs overwritten before this subscriber read them.
+     *
+     * @return the number of missed logs
+     */
+    public long getMissed() {
+      synchronized (LogBus.this) {
+        return missed;
+      }
+    }
+  }
+}
@@ -0,0 +1,487 @@
+package lsea.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import javax.annotation.PreDestroy;
+import lsea.entity.Log;
+import lsea.errors.GenericInternalServerError;
+import lsea.errors.GenericServiceUnavailableError;
+import lsea.utils.TimeOrderedUuid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Pipeline writing the new logs in batches, off the request threads.
+ *
+ * A request enqueues its log into a bounded queue and returns, a writer thread
+ * drains the queue and inserts the logs with one JDBC batch per transaction.
+ * A full queue rejects the log with a 503, and a request may wait until its
+ * log is committed. A failing batch is retried with a growing backoff, then
+ * written log by log so that only the logs that fail are lost. A caller already running in a transaction writes its log
+ * in that transaction instead, so the log commits or rolls back with it.
+ */
+@Component
+public class LogIngestionPipeline {
+
+  /**
+   * The longest wait before a failed batch is retried.
+   */
+  private static final long MAX_RETRY_BACKOFF_MILLIS = 2000;
+
+  /**
+   * The LogBatchWriter attribute is used to insert the batches.
+   */
+  private final LogBatchWriter logBatchWriter;
+
+  /**
+   * The transaction of a batch.
+   */
+  private final TransactionTemplate transactionTemplate;
+
+  /**
+   * The leaderboard offered the written logs.
+   */
+  private final LogLeaderboard logLeaderboard;
+
+  /**
+   * The bus the written logs are published to.
+   */
+  private final LogBus logBus;
+
+  /**
+   * Whether the logs are written by the pipeline.
+   */
+  private final boolean enabled;
+
+  /**
+   * The maximum number of logs inserted by a batch.
+   */
+  private final int batchSize;
+
+  /**
+   * The time a durable request waits for its log to be committed.
+   */
+  private final long durableTimeoutMillis;
+
+  /**
+   * The number of times a batch is tried before its logs are written one by
+   * one.
+   */
+  private final int retryAttempts;
+
+  /**
+   * The wait before the first retry of a failed batch, doubled by every retry.
+   */
+  private final long retryBackoffMillis;
+
+  /**
+   * The logs waiting to be written.
+   */
+  private final BlockingQueue<PendingLog> queue;
+
+  /**
+   * The thread writing the batches.
+   */
+  private final Thread writer;
+
+  /**
+   * Whether the pipeline accepts logs.
+   */
+  private volatile boolean running = true;
+
+  /**
+   * The number of logs written.
+   */
+  private final Counter written;
+
+  /**
+   * The number of logs rejected because the queue was full.
+   */
+  private final Counter rejected;
+
+  /**
+   * The number of logs that could not be written.
+   */
+  private final Counter failed;
+
+  /**
+   * The time spent writing a batch.
+   */
+  private final Timer batchTimer;
+
+  /**
+   * Constructor of the LogIngestionPipeline class.
+   *
+   * @param logBatchWriter       - LogBatchWriter
+   * @param transactionManager   - the transaction manager of the batches
+   * @param logLeaderboard       - LogLeaderboard
+   * @param logBus               - LogBus
+   * @param enabled              - whether the logs are written by the
+   *                             pipeline, false to write them synchronously
+   * @param queueCapacity        - the number of logs waiting to be written
+   * @param batchSize            - the maximum number of logs per batch
+   * @param durableTimeoutMillis - the time a durable request waits for its log
+   * @param retryAttempts        - the number of times a batch is tried before
+   *                             its logs are written one by one
+   * @param retryBackoffMillis   - the wait before the first retry of a batch
+   * @param jvmMeterRegistry     - the meter registry the metrics are exported
+   *                             to
+   */
+  @Autowired
+  public LogIngestionPipeline(
+      LogBatchWriter logBatchWriter,
+      PlatformTransactionManager transactionManager,
+      LogLeaderboard logLeaderboard,
+      LogBus logBus,
+      @Value("${lsea.logs.ingestion.enabled:true}") boolean enabled,
+      @Value("${lsea.logs.ingestion.queue-capacity:10000}") int queueCapacity,
+      @Value("${lsea.logs.ingestion.batch-size:500}") int batchSize,
+      @Value("${lsea.logs.ingestion.durable-timeout-ms:5000}") long durableTimeoutMillis,
+      @Value("${lsea.logs.ingestion.retry-attempts:3}") int retryAttempts,
+      @Value("${lsea.logs.ingestion.retry-backoff-ms:100}") long retryBackoffMillis,
+      MeterRegistry jvmMeterRegistry) {
+    if (queueCapacity < 1) {
+      throw new IllegalArgumentException("lsea.logs.ingestion.queue-capacity must be at least 1");
+    }
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("lsea.logs.ingestion.batch-size must be at least 1");
+    }
+    if (retryAttempts < 1) {
+      throw new IllegalArgumentException("lsea.logs.ingestion.retry-attempts must be at least 1");
+    }
+    if (retryBackoffMillis < 0) {
+      throw new IllegalArgumentException("lsea.logs.ingestion.retry-backoff-ms must not be negative");
+    }
+    this.logBatchWriter = logBatchWriter;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.logLeaderboard = logLeaderboard;
+    this.logBus = logBus;
+    this.enabled = enabled;
+    this.batchSize = batchSize;
+    this.durableTimeoutMillis = durableTimeoutMillis;
+    this.retryAttempts = retryAttempts;
+    this.retryBackoffMillis = retryBackoffMillis;
+    this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+    Gauge.builder("logs.ingestion.queue.size", queue, BlockingQueue::size)
+        .description("The number of logs waiting to be written")
+        .register(jvmMeterRegistry);
+    this.written = Counter.builder("logs.ingestion.written")
+        .description("The number of logs written by the ingestion pipeline")
+        .register(jvmMeterRegistry);
+    this.rejected = Counter.builder("logs.ingestion.rejected")
+        .description("The number of logs rejected because the ingestion queue was full")
+        .register(jvmMeterRegistry);
+    this.failed = Counter.builder("logs.ingestion.failed")
+        .description("The number of logs that could not be written")
+        .register(jvmMeterRegistry);
+    this.batchTimer = Timer.builder("logs.ingestion.batch")
+        .description("The time spent writing a batch of logs")
+        .register(jvmMeterRegistry);
+
+    this.writer = new Thread(this::drain, "log-ingestion-writer");
+    writer.setDaemon(true);
+    if (enabled) {
+      writer.start();
+    }
+  }
+
+  /**
+   * Checks whether a log created now would go through the pipeline.
+   *
+   * @return false if the pipeline is disabled or the caller already runs in a
+   *         transaction
+   */
+  public boolean isAsynchronous() {
+    return enabled && running && !TransactionSynchronizationManager.isActualTransactionActive();
+  }
+
+  /**
+   * Enqueues a log to be written.
+   *
+   * @param log     - the new log
+   * @param durable - whether to wait until the log is committed
+   * @return true if the log is committed, false if it is only queued
+   * @throws GenericServiceUnavailableError if the queue is full or the log was
+   *                                        not committed in time
+   * @throws GenericInternalServerError     if the batch of the log failed
+   */
+  public boolean submit(Log log, boolean durable)
+      throws GenericServiceUnavailableError, GenericInternalServerError {
+    PendingLog pending = enqueue(log, durable);
+    if (pending == null) {
+      throw new GenericServiceUnavailableError("Too many logs, try again later");
+    }
+    if (!durable) {
+      return false;
+    }
+
+    try {
+      pending.committed.get(durableTimeoutMillis, TimeUnit.MILLISECONDS);
+      return true;
+    } catch (TimeoutException e) {
+      throw new GenericServiceUnavailableError("The log is queued but was not written in time");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new GenericServiceUnavailableError(e);
+    } catch (ExecutionException e) {
+      throw new GenericInternalServerError("The log could not be written");
+    }
+  }
+
+  /**
+   * Enqueues logs to be written, each log is accepted or rejected on its own.
+   *
+   * @param logs    - the new logs
+   * @param durable - whether to wait until the queued logs are committed
+   * @return the status of every log: 200 once committed, 202 once queued, 503
+   *         if the queue was full and 500 if the log itself could not be
+   *         written, the logs batched with it are not failed
+   */
+  public int[] submitAll(List<Log> logs, boolean durable) {
+    int[] statuses = new int[logs.size()];
+    PendingLog[] pending = new PendingLog[logs.size()];
+    for (int i = 0; i < logs.size(); i++) {
+      pending[i] = enqueue(logs.get(i), durable);
+      statuses[i] = pending[i] == null ? 503 : 202;
+    }
+    if (!durable) {
+      return statuses;
+    }
+
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(durableTimeoutMillis);
+    for (int i = 0; i < pending.length; i++) {
+      if (pending[i] == null) {
+        continue;
+      }
+      try {
+        pending[i].committed.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        statuses[i] = 200;
+      } catch (TimeoutException e) {
+        // still queued, reported as accepted
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      } catch (ExecutionException e) {
+        statuses[i] = 500;
+      }
+    }
+    return statuses;
+  }
+
+  /**
+   * Returns the number of logs waiting to be written.
+   *
+   * @return the size of the queue
+   */
+  public int pending() {
+    return queue.size();
+  }
+
+  /**
+   * Stops accepting logs and writes the queued ones before the pipeline is
+   * discarded.
+   */
+  @PreDestroy
+  public void shutdown() {
+    running = false;
+    writer.interrupt();
+    try {
+      writer.join(TimeUnit.SECONDS.toMillis(10));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Puts a log in the queue.
+   *
+   * @param log     - the new log, given an id if it has none
+   * @param durable - whether a request waits until the log is committed
+   * @return the queued log, null if the queue is full
+   */
+  private PendingLog enqueue(Log log, boolean durable) {
+    if (log.getId() == null) {
+      log.setId(TimeOrderedUuid.next());
+    }
+    PendingLog pending = new PendingLog(log, durable ? new CompletableFuture<>() : null);
+    if (!running || !queue.offer(pending)) {
+      rejected.increment();
+      return null;
+    }
+    return pending;
+  }
+
+  /**
+   * Writes the queued logs until the pipeline is stopped and the queue empty.
+   */
+  private void drain() {
+    List<PendingLog> batch = new ArrayList<>(batchSize);
+    while (running || !queue.isEmpty()) {
+      try {
+        PendingLog first = queue.poll(1, TimeUnit.SECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+      } catch (InterruptedException e) {
+        // stopping, the queue is drained without waiting
+        if (queue.isEmpty()) {
+          break;
+        }
+      }
+      queue.drainTo(batch, batchSize - batch.size());
+      if (!batch.isEmpty()) {
+        write(batch);
+        batch.clear();
+      }
+    }
+  }
+
+  /**
+   * Inserts a batch of logs in a transaction and notifies their requests. A
+   * batch still failing once retried is written log by log, every log is then
+   * committed or failed on its own.
+   *
+   * @param batch - the logs
+   */
+  private void write(List<PendingLog> batch) {
+    long start = System.nanoTime();
+    List<Log> logs = new ArrayList<>(batch.size());
+    for (PendingLog pending : batch) {
+      logs.add(pending.log);
+    }
+    boolean inserted;
+    try {
+      inserted = insertWithRetries(logs);
+    } finally {
+      batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+    if (inserted) {
+      committed(batch);
+      return;
+    }
+
+    List<PendingLog> committed = new ArrayList<>(batch.size());
+    for (PendingLog pending : batch) {
+      try {
+        insert(Collections.singletonList(pending.log));
+        committed.add(pending);
+      } catch (RuntimeException e) {
+        failed.increment();
+        System.out.println("Could not write the log " + pending.log.getId() + ": " + e.getMessage());
+        if (pending.committed != null) {
+          pending.committed.completeExceptionally(e);
+        }
+      }
+    }
+    committed(committed);
+  }
+
+  /**
+   * Inserts a batch, retried with a doubling backoff until the attempts run
+   * out. The pipeline being stopped ends the retries.
+   *
+   * @param logs - the logs
+   * @return true if the batch is committed
+   */
+  private boolean insertWithRetries(List<Log> logs) {
+    long backoff = retryBackoffMillis;
+    for (int attempt = 1;; attempt++) {
+      try {
+        insert(logs);
+        return true;
+      } catch (RuntimeException e) {
+        System.out.println("Could not write a batch of " + logs.size() + " logs, attempt " + attempt + ": "
+            + e.getMessage());
+      }
+      if (attempt >= retryAttempts || !running) {
+        return false;
+      }
+      try {
+        Thread.sleep(backoff);
+      } catch (InterruptedException e) {
+        // stopping, the logs are written one by one without waiting
+        return false;
+      }
+      backoff = Math.min(backoff * 2, MAX_RETRY_BACKOFF_MILLIS);
+    }
+  }
+
+  /**
+   * Inserts logs in a transaction of their own.
+   *
+   * @param logs - the logs
+   */
+  private void insert(List<Log> logs) {
+    transactionTemplate.execute(status -> {
+      logBatchWriter.insert(logs);
+      return null;
+    });
+  }
+
+  /**
+   * Publishes the committed logs and notifies their requests.
+   *
+   * @param committed - the committed logs
+   */
+  private void committed(List<PendingLog> committed) {
+    if (committed.isEmpty()) {
+      return;
+    }
+    List<Log> logs = new ArrayList<>(committed.size());
+    for (PendingLog pending : committed) {
+      logs.add(pending.log);
+    }
+    written.increment(committed.size());
+    logBus.publishAll(logs);
+    for (PendingLog pending : committed) {
+      logLeaderboard.offer(pending.log);
+      if (pending.committed != null) {
+        pending.committed.complete(null);
+      }
+    }
+  }
+
+  /**
+   * A log waiting to be written.
+   */
+  private static final class PendingLog {
+
+    /**
+     * The log.
+     */
+    private final Log log;
+
+    /**
+     * Completed once the log is committed, null if no request waits for it.
+     */
+    private final CompletableFuture<Void> committed;
+
+    /**
+     * Creates a pending log.
+     *
+     * @param log       the log
+     * @param committed the completion of the log, null if nobody waits
+     */
+    private PendingLog(Log log, CompletableFuture<Void> committed) {
+      this.log = log;
+      this.committed = committed;
+    }
+  }
+}
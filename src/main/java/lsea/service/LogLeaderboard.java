@@ -0,0 +1,248 @@
+package lsea.service;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import lsea.entity.Log;
+import lsea.utils.LengthOrder;
+import lsea.utils.TopK;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * In-memory leaderboard of the longest and the shortest logs.
+ *
+ * It is rebuilt from the database at startup and then updated incrementally
+ * with every committed log, so the analysis endpoints are served without any
+ * query. Reads return an immutable snapshot, writes take a lock only when the
+ * log can enter one of the boards.
+ */
+@Component
+public class LogLeaderboard {
+
+  /**
+   * The engine used to rebuild the boards from the database.
+   */
+  private final LogTopKEngine logTopKEngine;
+
+  /**
+   * The number of logs kept on each board.
+   */
+  private final int capacity;
+
+  /**
+   * The longest logs board, guarded by this.
+   */
+  private final TopK<Log> longest;
+
+  /**
+   * The shortest logs board, guarded by this.
+   */
+  private final TopK<Log> shortest;
+
+  /**
+   * The longest logs, weakest first, published after every change.
+   */
+  private volatile List<Log> longestSnapshot = Collections.emptyList();
+
+  /**
+   * The shortest logs, weakest first, published after every change.
+   */
+  private volatile List<Log> shortestSnapshot = Collections.emptyList();
+
+  /**
+   * The length a log must exceed to enter the longest board, -1 while the
+   * board is not full.
+   */
+  private volatile int longestThreshold = -1;
+
+  /**
+   * The length a log must stay under to enter the shortest board,
+   * Integer.MAX_VALUE while the board is not full.
+   */
+  private volatile int shortestThreshold = Integer.MAX_VALUE;
+
+  /**
+   * Whether the boards have been rebuilt from the database.
+   */
+  private volatile boolean ready = false;
+
+  /**
+   * Constructor of the LogLeaderboard class.
+   *
+   * @param logTopKEngine - LogTopKEngine
+   * @param capacity      - the number of logs kept on each board
+   */
+  public LogLeaderboard(
+      LogTopKEngine logTopKEngine,
+      @Value("${lsea.analysis.leaderboard-size:5}") int capacity) {
+    this.logTopKEngine = logTopKEngine;
+    this.capacity = capacity;
+    this.longest = new TopK<>(capacity, comparator(LengthOrder.LONGEST));
+    this.shortest = new TopK<>(capacity, comparator(LengthOrder.SHORTEST));
+  }
+
+  /**
+   * Rebuilds the boards from the database through the data length index, once
+   * the data lengths are backfilled. Logs offered meanwhile are kept, a log
+   * both offered and found in the database is counted once.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void rebuild() {
+    List<Log> storedLongest = logTopKEngine.lookup(capacity, LengthOrder.LONGEST);
+    List<Log> storedShortest = logTopKEngine.lookup(capacity, LengthOrder.SHORTEST);
+
+    synchronized (this) {
+      storedLongest.forEach(this::offerLongest);
+      storedShortest.forEach(this::offerShortest);
+      publish();
+      ready = true;
+    }
+  }
+
+  /**
+   * Offers a log once the current transaction commits, or immediately when no
+   * transaction is active. Rolled back logs never enter the boards.
+   *
+   * @param log - the persisted log
+   */
+  public void offerAfterCommit(Log log) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      offer(log);
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        offer(log);
+      }
+    });
+  }
+
+  /**
+   * Offers a persisted log to both boards.
+   *
+   * @param log - the persisted log
+   */
+  public void offer(Log log) {
+    int length = lengthOf(log);
+    if (length <= longestThreshold && length >= shortestThreshold) {
+      return;
+    }
+    synchronized (this) {
+      boolean changed = offerLongest(log);
+      changed |= offerShortest(log);
+      if (changed) {
+        publish();
+      }
+    }
+  }
+
+  /**
+   * Returns the K best ranked logs.
+   *
+   * @param k     - the number of logs
+   * @param order - the ranking of the logs
+   * @return the K best ranked logs, from the weakest to the best one
+   */
+  public List<Log> top(int k, LengthOrder order) {
+    List<Log> board = order == LengthOrder.LONGEST ? longestSnapshot : shortestSnapshot;
+    return board.size() <= k ? board : board.subList(board.size() - k, board.size());
+  }
+
+  /**
+   * Returns whether the leaderboard can answer a top-K query, which requires it
+   * to be rebuilt and K not to exceed its capacity.
+   *
+   * @param k - the number of logs
+   * @return true if the leaderboard can answer
+   */
+  public boolean canServe(int k) {
+    return ready && k <= capacity;
+  }
+
+  /**
+   * Offers a log to the longest board, must hold the lock.
+   *
+   * @param log - the log
+   * @return true if the board changed
+   */
+  private boolean offerLongest(Log log) {
+    if (contains(longestSnapshot, log.getId())) {
+      return false;
+    }
+    int size = longest.size();
+    Log weakest = size == 0 ? null : longestSnapshot.get(0);
+    longest.offer(log);
+    longestSnapshot = longest.toList();
+    return longest.size() != size || longestSnapshot.get(0) != weakest;
+  }
+
+  /**
+   * Offers a log to the shortest board, must hold the lock.
+   *
+   * @param log - the log
+   * @return true if the board changed
+   */
+  private boolean offerShortest(Log log) {
+    if (contains(shortestSnapshot, log.getId())) {
+      return false;
+    }
+    int size = shortest.size();
+    Log weakest = size == 0 ? null : shortestSnapshot.get(0);
+    shortest.offer(log);
+    shortestSnapshot = shortest.toList();
+    return shortest.size() != size || shortestSnapshot.get(0) != weakest;
+  }
+
+  /**
+   * Publishes the entry thresholds of both boards, must hold the lock.
+   */
+  private void publish() {
+    longestThreshold = longest.size() < capacity ? -1 : lengthOf(longestSnapshot.get(0));
+    shortestThreshold = shortest.size() < capacity
+        ? Integer.MAX_VALUE
+        : lengthOf(shortestSnapshot.get(0));
+  }
+
+  /**
+   * Returns whether a board contains the log with the given id.
+   *
+   * @param board - the board
+   * @param id    - the id of the log
+   * @return true if the board contains it
+   */
+  private static boolean contains(List<Log> board, UUID id) {
+    for (Log log : board) {
+      if (log.getId() != null && log.getId().equals(id)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the comparator of the logs for the given ranking.
+   *
+   * @param order - the ranking of the logs
+   * @return the comparator, a log comparing greater is a better one
+   */
+  private static Comparator<Log> comparator(LengthOrder order) {
+    return (a, b) -> order.compare(lengthOf(a), lengthOf(b));
+  }
+
+  /**
+   * Returns the data length of a log, a log without data counts as empty.
+   *
+   * @param log - the log
+   * @return the data length
+   */
+  private static int lengthOf(Log log) {
+    return log.getData() == null ? 0 : log.getData().length();
+  }
+}
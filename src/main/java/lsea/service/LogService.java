@@ -2,19 +2,25 @@ package lsea.service;
 
 import java.sql.Timestamp;
 import java.util.*;
-import javax.transaction.Transactional;
 
 import lsea.dto.CreateLogDto;
 import lsea.entity.Log;
 import lsea.entity.User;
 import lsea.errors.GenericForbiddenError;
+import lsea.errors.GenericInternalServerError;
 import lsea.errors.GenericNotFoundError;
+import lsea.errors.GenericServiceUnavailableError;
+import lsea.errors.ValidationError;
+import lsea.middleware.AuthenticatedPrincipal;
+import lsea.repository.LiveLog;
 import lsea.repository.LogRepository;
-import lsea.repository.UserRepository;
 import lsea.utils.GlobalPermissions;
+import lsea.utils.LogCursor;
+import lsea.utils.LogPage;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 /**
  * Service layer for all business actions regarding Log entity.
@@ -22,58 +28,177 @@ import org.springframework.stereotype.Service;
 @Service
 public class LogService {
 
+  /**
+   * The largest number of logs of a page read with a cursor.
+   */
+  public static final int MAX_PAGE_SIZE = 100;
+
   /**
    * The log repository.
    */
   private final LogRepository logRepository;
 
   /**
-   * The user repository.
+   * The leaderboard of the longest and shortest logs.
+   */
+  private final LogLeaderboard logLeaderboard;
+
+  /**
+   * The user authenticated by the current request.
+   */
+  private final AuthenticatedPrincipal principal;
+
+  /**
+   * The pipeline writing the new logs in batches.
    */
-  private final UserRepository userRepository;
+  private final LogIngestionPipeline logIngestion;
+
+  /**
+   * The generator of the synthetic logs.
+   */
+  private final TestDataGenerator testDataGenerator;
+
+  /**
+   * The bus the new logs are published to.
+   */
+  private final LogBus logBus;
 
   /**
    * Constructor of the LogService class.
    *
-   * @param logRepository  - LogRepository
-   * @param userRepository - UserRepository
+   * @param logRepository     - LogRepository
+   * @param logLeaderboard    - LogLeaderboard
+   * @param principal         - the request-scoped AuthenticatedPrincipal
+   * @param logIngestion      - LogIngestionPipeline
+   * @param testDataGenerator - TestDataGenerator
+   * @param logBus            - LogBus
    */
   public LogService(
       LogRepository logRepository,
-      UserRepository userRepository) {
+      LogLeaderboard logLeaderboard,
+      AuthenticatedPrincipal principal,
+      LogIngestionPipeline logIngestion,
+      TestDataGenerator testDataGenerator,
+      LogBus logBus) {
     this.logRepository = logRepository;
-    this.userRepository = userRepository;
+    this.logLeaderboard = logLeaderboard;
+    this.principal = principal;
+    this.logIngestion = logIngestion;
+    this.testDataGenerator = testDataGenerator;
+    this.logBus = logBus;
+  }
+
+  /**
+   * Creates a new log on behalf of the authenticated user. The log is queued
+   * for the ingestion pipeline, or written at once when the caller already
+   * runs in a transaction or the pipeline is disabled.
+   *
+   * @param dto     options from user input
+   * @param durable whether to wait until a queued log is committed
+   * @return true if the log is written, false if it is only queued
+   * @throws GenericNotFoundError           when user is not found
+   * @throws GenericForbiddenError          when user is not authorized
+   * @throws GenericServiceUnavailableError when the ingestion queue is full
+   * @throws GenericInternalServerError     when a durable log could not be
+   *                                        written
+   */
+  /* Requirement 7.2 */
+  public boolean createOne(CreateLogDto dto, boolean durable)
+      throws GenericNotFoundError, GenericForbiddenError, GenericServiceUnavailableError,
+      GenericInternalServerError {
+    User user = principal.getUser();
+
+    if (user.isBanned()) {
+      throw new GenericForbiddenError("User " + user.getEmail() + " is banned");
+    }
+
+    Log log = Log.create(dto, user);
+    if (logIngestion.isAsynchronous()) {
+      return logIngestion.submit(log, durable);
+    }
+    Log saved = logRepository.save(log);
+    logLeaderboard.offerAfterCommit(saved);
+    logBus.publishAfterCommit(saved);
+    return true;
   }
 
   /**
-   * Creates a new log.
+   * Creates new logs on behalf of the authenticated user, who is loaded once.
+   * The logs are queued for the ingestion pipeline, written in the transaction
+   * of the caller when it runs in one, or else committed one by one when the
+   * pipeline is disabled. A log that cannot be written never fails the others
+   * outside of a transaction of the caller.
    *
-   * @param dto   options from user input
-   * @param token to validate the authorization of the user
-   * @return the created log
+   * @param dtos    the validated logs
+   * @param durable whether to wait until the queued logs are committed
+   * @return the status of every log: 200 once written, 202 once queued, 503 if
+   *         the ingestion queue was full and 500 if it could not be written
    * @throws GenericNotFoundError  when user is not found
    * @throws GenericForbiddenError when user is not authorized
    */
-  /* Requirement 7.2 */
-  @Transactional
-  public Log createOne(CreateLogDto dto, String token)
+  public int[] createMany(List<CreateLogDto> dtos, boolean durable)
       throws GenericNotFoundError, GenericForbiddenError {
-    UUID userId = User.verifyToken(token);
+    User user = principal.getUser();
 
-    Optional<User> userOptional = userRepository.findById(userId);
+    if (user.isBanned()) {
+      throw new GenericForbiddenError("User " + user.getEmail() + " is banned");
+    }
 
-    if (!userOptional.isPresent()) {
-      throw new GenericNotFoundError("User not found");
+    List<Log> logs = new ArrayList<>(dtos.size());
+    for (CreateLogDto dto : dtos) {
+      logs.add(Log.create(dto, user));
     }
+    if (logIngestion.isAsynchronous()) {
+      return logIngestion.submitAll(logs, durable);
+    }
+    int[] statuses = new int[logs.size()];
+    if (TransactionSynchronizationManager.isActualTransactionActive()) {
+      // the logs commit or roll back with the transaction of the caller
+      List<Log> saved = logRepository.saveAll(logs);
+      saved.forEach(logLeaderboard::offerAfterCommit);
+      logBus.publishAllAfterCommit(saved);
+      Arrays.fill(statuses, 200);
+      return statuses;
+    }
+    for (int i = 0; i < logs.size(); i++) {
+      try {
+        Log saved = logRepository.save(logs.get(i));
+        logLeaderboard.offerAfterCommit(saved);
+        logBus.publishAfterCommit(saved);
+        statuses[i] = 200;
+      } catch (RuntimeException e) {
+        System.out.println("Could not write the log " + logs.get(i).getId() + ": " + e.getMessage());
+        statuses[i] = 500;
+      }
+    }
+    return statuses;
+  }
 
-    User user = userOptional.get();
+  /**
+   * Generates synthetic logs "test0" to "test{rows - 1}" on behalf of the
+   * authenticated user, who is loaded once. The logs are inserted in JDBC
+   * batches, bypassing the ingestion pipeline.
+   *
+   * @param rows      the number of logs
+   * @param batchSize the number of logs per batch, 0 for the default
+   * @param threads   the number of writer threads
+   * @return the number of rows, the batch size, the number of threads, the
+   *         duration in milliseconds and the rows written per second
+   * @throws GenericNotFoundError       when user is not found
+   * @throws GenericForbiddenError      when user is not authorized
+   * @throws GenericInternalServerError when a batch could not be written
+   * @throws ValidationError            when the number of logs is negative or
+   *                                    the batch size out of range
+   */
+  public Map<String, Object> generateLogs(int rows, int batchSize, int threads)
+      throws GenericNotFoundError, GenericForbiddenError, GenericInternalServerError, ValidationError {
+    User user = principal.getUser();
 
     if (user.isBanned()) {
       throw new GenericForbiddenError("User " + user.getEmail() + " is banned");
     }
 
-    Log log = Log.create(dto, user);
-    return logRepository.save(log);
+    return testDataGenerator.generate(user, rows, batchSize, threads);
   }
 
   /**
@@ -89,40 +214,106 @@ public class LogService {
   }
 
   /**
-   * Returns a list of logs that were created after a given timestamp.
+   * Returns a page of logs from the newest on behalf of the authenticated
+   * user, following a cursor.
+   *
+   * @param cursor - the cursor returned with the previous page, null for the
+   *               first page
+   * @param limit  - the number of logs of the page
+   * @return the logs and the cursor of the next page
+   * @throws GenericForbiddenError when the token is invalid or the user is
+   *                               banned
+   * @throws GenericNotFoundError  when user is not found
+   * @throws ValidationError       when the cursor is malformed or the limit out
+   *                               of range
+   */
+  public LogPage findLogPageAsUser(String cursor, int limit)
+      throws GenericForbiddenError, GenericNotFoundError, ValidationError {
+    User user = principal.getUser();
+
+    if (user.isBanned()) {
+      throw new GenericForbiddenError("User " + user.getEmail() + " is banned");
+    }
+
+    return findLogPage(cursor, limit);
+  }
+
+  /**
+   * Returns a page of logs from the newest, following a cursor, for a caller
+   * that has authenticated its client. A page is read with one more log than
+   * asked to tell whether another page follows.
+   *
+   * @param cursor - the cursor returned with the previous page, null for the
+   *               first page
+   * @param limit  - the number of logs of the page
+   * @return the logs and the cursor of the next page
+   * @throws ValidationError when the cursor is malformed or the limit out of
+   *                         range
+   */
+  public LogPage findLogPage(String cursor, int limit) throws ValidationError {
+    if (limit < 1 || limit > MAX_PAGE_SIZE) {
+      throw new ValidationError("The limit must be between 1 and " + MAX_PAGE_SIZE);
+    }
+    Pageable pageable = PageRequest.of(0, limit + 1);
+    List<Log> logs;
+    if (cursor == null || cursor.isEmpty()) {
+      logs = logRepository.findLogs(pageable);
+    } else {
+      LogCursor position = LogCursor.decode(cursor);
+      logs = logRepository.findLogsBefore(position.getCreatedAt(), position.getId(), pageable);
+    }
+
+    String nextCursor = null;
+    if (logs.size() > limit) {
+      logs = new ArrayList<>(logs.subList(0, limit));
+      Log last = logs.get(limit - 1);
+      nextCursor = new LogCursor(last.getCreatedAt(), last.getId()).encode();
+    }
+    return LogPage.builder().logs(logs).nextCursor(nextCursor).build();
+  }
+
+  /**
+   * Returns a list of logs that were created after a given timestamp. The
+   * state of their users is not read, it is left null.
    *
    * @param timestamp - Timestamp
    * @return a list of logs
    */
   public List<Log> findLiveLogs(Timestamp timestamp) {
-    return logRepository.findLiveLogs(timestamp);
+    List<LiveLog> rows = logRepository.findLiveLogs(timestamp);
+    List<Log> logs = new ArrayList<>(rows.size());
+    for (LiveLog row : rows) {
+      logs.add(Log.builder()
+          .id(row.getId())
+          .data(row.getData())
+          .dataLength(row.getDataLength())
+          .logType(row.getLogType())
+          .userId(row.getUserId())
+          .createdAt(row.getCreatedAt())
+          .build());
+    }
+    return logs;
   }
 
   /* Requirement 7.7 */
   /**
-   * Returns the map with the database performance tests results.
+   * Returns the map with the database performance tests results. The logs are
+   * written in batches, so the write median and standard deviation are those
+   * of the batches and reported under their own keys, the read statistics are
+   * measured per row.
    *
    * @param logsNumber - the number of logs to be generated
-   * @param token      - the token of the user
    * @return the map with the database performance tests results
    * @throws GenericForbiddenError when user is not authorized
    * @throws GenericNotFoundError  when user is not found
    */
-  public Map<String, Object> generateTestData(int logsNumber, String token)
+  public Map<String, Object> generateTestData(int logsNumber)
       throws GenericForbiddenError, GenericNotFoundError {
     List<Long> durationsWrite = new ArrayList<>();
     List<Long> durationsRead = new ArrayList<>();
     List<Log> logs = new ArrayList<>();
 
-    UUID userId = User.verifyToken(token);
-
-    Optional<User> userOptional = userRepository.findById(userId);
-
-    if (!userOptional.isPresent()) {
-      throw new GenericNotFoundError("User not found");
-    }
-
-    User user = userOptional.get();
+    User user = principal.getUser();
 
     if (user.getGlobalPermission() < GlobalPermissions.ADMIN) {
       throw new GenericForbiddenError("Permission denied");
@@ -130,77 +321,89 @@ public class LogService {
 
     long memoryBeforeWriteTest = getUsedMemory();
 
-    for (int i = 0; i < logsNumber; i++) {
-      CreateLogDto dto = CreateLogDto.builder()
-          .data("test" + i)
-          .logType(0)
-          .build();
-
-      Log log = Log.create(dto, user);
-      logs.add(log);
-
-      long startTime = System.currentTimeMillis();
-      logRepository.save(log);
-      long endTime = System.currentTimeMillis();
-      long duration = endTime - startTime;
-      durationsWrite.add(duration);
+    // the logs are inserted in batches, only the time of a whole batch is measured
+    int batchSize = testDataGenerator.getDefaultBatchSize();
+    String userState = user.toJson();
+    for (int first = 0; first < logsNumber; first += batchSize) {
+      List<Log> batch = testDataGenerator.build(user, userState, first,
+          Math.min(logsNumber, first + batchSize));
+
+      long startTime = System.nanoTime();
+      testDataGenerator.insert(batch);
+      durationsWrite.add(System.nanoTime() - startTime);
+      logs.addAll(batch);
     }
 
     long memoryAfterWriteTest = getUsedMemory();
     float writeMemoryUsage = (float) (memoryAfterWriteTest - memoryBeforeWriteTest) / 1024;
 
     for (Log log : logs) {
-      long startTime = System.currentTimeMillis();
+      long startTime = System.nanoTime();
       logRepository.findById(log.getId());
-      long endTime = System.currentTimeMillis();
-      long duration = endTime - startTime;
+      long duration = System.nanoTime() - startTime;
       durationsRead.add(duration);
     }
 
-    long totalDurationWrite = durationsWrite.stream().mapToLong(Long::longValue).sum();
-    float averageDurationWrite = (float) totalDurationWrite / logsNumber;
+    // the durations are measured in nanoseconds and reported in milliseconds
+    double totalDurationWrite = toMillis(durationsWrite.stream().mapToLong(Long::longValue).sum());
+    float averageDurationWrite = (float) (totalDurationWrite / logsNumber);
 
-    long totalDurationRead = durationsRead.stream().mapToLong(Long::longValue).sum();
-    float averageDurationRead = (float) totalDurationRead / logsNumber;
+    double totalDurationRead = toMillis(durationsRead.stream().mapToLong(Long::longValue).sum());
+    float averageDurationRead = (float) (totalDurationRead / logsNumber);
 
     List<Long> sortedDurationsWrite = new ArrayList<>(durationsWrite);
     List<Long> sortedDurationsRead = new ArrayList<>(durationsRead);
     Collections.sort(sortedDurationsWrite);
     Collections.sort(sortedDurationsRead);
 
-    long medianDurationWrite = sortedDurationsWrite.get(logsNumber / 2);
-    long medianDurationRead = sortedDurationsRead.get(logsNumber / 2);
+    double medianDurationWriteBatch = toMillis(sortedDurationsWrite.get(durationsWrite.size() / 2));
+    double medianDurationRead = toMillis(sortedDurationsRead.get(logsNumber / 2));
 
     double sumOfSquaredDeviationsWrite = 0;
     double sumOfSquaredDeviationsRead = 0;
 
+    double averageDurationWriteBatch = totalDurationWrite / durationsWrite.size();
     for (long duration : durationsWrite) {
-      double deviation = duration - averageDurationWrite;
+      double deviation = toMillis(duration) - averageDurationWriteBatch;
       sumOfSquaredDeviationsWrite += deviation * deviation;
     }
 
     for (long duration : durationsRead) {
-      double deviation = duration - averageDurationRead;
+      double deviation = toMillis(duration) - averageDurationRead;
       sumOfSquaredDeviationsRead += deviation * deviation;
     }
 
-    double standardDeviationWrite = Math.sqrt(sumOfSquaredDeviationsWrite / logsNumber);
+    double standardDeviationWriteBatch = Math.sqrt(sumOfSquaredDeviationsWrite / durationsWrite.size());
     double standardDeviationRead = Math.sqrt(sumOfSquaredDeviationsRead / logsNumber);
+    long rowsPerSecondWrite = totalDurationWrite == 0 ? 0 : (long) (logsNumber * 1000 / totalDurationWrite);
 
     Map<String, Object> results = new HashMap<>();
     results.put("totalDurationWrite", totalDurationWrite);
     results.put("totalDurationRead", totalDurationRead);
     results.put("averageDurationWrite", averageDurationWrite);
     results.put("averageDurationRead", averageDurationRead);
-    results.put("medianDurationWrite", medianDurationWrite);
+    results.put("batchSizeWrite", batchSize);
+    results.put("batchesWrite", durationsWrite.size());
+    results.put("medianDurationWriteBatch", medianDurationWriteBatch);
     results.put("medianDurationRead", medianDurationRead);
-    results.put("standardDeviationWrite", standardDeviationWrite);
+    results.put("standardDeviationWriteBatch", standardDeviationWriteBatch);
     results.put("standardDeviationRead", standardDeviationRead);
     results.put("writeMemoryUsage (KB)", writeMemoryUsage);
+    results.put("rowsPerSecondWrite", rowsPerSecondWrite);
 
     return results;
   }
 
+  /**
+   * Converts a duration to milliseconds.
+   *
+   * @param nanos - the duration in nanoseconds
+   * @return the duration in milliseconds
+   */
+  private static double toMillis(long nanos) {
+    return nanos / 1e6;
+  }
+
   /**
    * Returns the used memory.
    *
@@ -0,0 +1,72 @@
+package lsea.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import lsea.entity.Log;
+import lsea.repository.LogRepository;
+import lsea.utils.LengthOrder;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Top-K engine ranking the logs by the length of their data.
+ *
+ * The lookup reads the K first rows of the data length index, so only the K
+ * winning logs are loaded whatever the size of the table.
+ */
+@Service
+public class LogTopKEngine {
+
+  /**
+   * The log repository.
+   */
+  private final LogRepository logRepository;
+
+  /**
+   * Constructor of the LogTopKEngine class.
+   *
+   * @param logRepository - LogRepository
+   */
+  public LogTopKEngine(LogRepository logRepository) {
+    this.logRepository = logRepository;
+  }
+
+  /**
+   * Fills the data length of the logs stored before the column existed, so
+   * that the lookup sees them. Runs before the leaderboard is rebuilt.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  @Order(Ordered.HIGHEST_PRECEDENCE)
+  @Transactional
+  public void backfillDataLengths() {
+    int updated = logRepository.backfillDataLengths();
+    if (updated > 0) {
+      System.out.println("Filled the data length of " + updated + " logs");
+    }
+  }
+
+  /**
+   * Returns the K best ranked logs using the data length index.
+   *
+   * @param k     - the number of logs to return, at least 1
+   * @param order - the ranking of the logs
+   * @return the K best ranked logs, from the weakest to the best one
+   */
+  public List<Log> lookup(int k, LengthOrder order) {
+    Pageable page = PageRequest.of(0, k);
+    List<Log> logs = order == LengthOrder.LONGEST
+        ? logRepository.findLongest(page)
+        : logRepository.findShortest(page);
+    List<Log> result = new ArrayList<>(logs);
+    Collections.reverse(result);
+    return result;
+  }
+}
@@ -0,0 +1,96 @@
+package lsea.service;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+import lsea.entity.Log;
+import lsea.utils.TopK;
+
+/**
+ * Fork-join task ranking a contiguous index range of a list of logs.
+ *
+ * The range is split in two until one leaf is left per requested worker; every
+ * leaf ranks its own range into a private heap and the heaps are combined while
+ * the task tree unwinds, so no lock is shared and no log is copied.
+ */
+class LogTopKTask extends RecursiveTask<TopK<Log>> {
+
+  /**
+   * The serial version UID.
+   */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * The list of logs, shared by all the tasks and only read.
+   */
+  private final List<Log> logs;
+
+  /**
+   * The first index of the range, inclusive.
+   */
+  private final int from;
+
+  /**
+   * The last index of the range, exclusive.
+   */
+  private final int to;
+
+  /**
+   * The number of leaves this range is split into.
+   */
+  private final int leaves;
+
+  /**
+   * The number of logs to keep.
+   */
+  private final int k;
+
+  /**
+   * The ranking, a log comparing greater is a better one.
+   */
+  private final Comparator<Log> order;
+
+  /**
+   * Creates a task ranking the logs in [from, to).
+   *
+   * @param logs   the list of logs
+   * @param from   the first index of the range, inclusive
+   * @param to     the last index of the range, exclusive
+   * @param leaves the number of leaves the range is split into
+   * @param k      the number of logs to keep
+   * @param order  the ranking, a log comparing greater is a better one
+   */
+  LogTopKTask(List<Log> logs, int from, int to, int leaves, int k, Comparator<Log> order) {
+    this.logs = logs;
+    this.from = from;
+    this.to = to;
+    this.leaves = leaves;
+    this.k = k;
+    this.order = order;
+  }
+
+  /**
+   * Ranks the range, splitting it first if more than one leaf is left.
+   *
+   * @return the K best logs of the range
+   */
+  @Override
+  protected TopK<Log> compute() {
+    if (leaves <= 1 || to - from <= 1) {
+      TopK<Log> result = new TopK<>(k, order);
+      for (int i = from; i < to; i++) {
+        result.offer(logs.get(i));
+      }
+      return result;
+    }
+
+    int leftLeaves = leaves / 2;
+    int middle = from + (int) ((long) (to - from) * leftLeaves / leaves);
+    LogTopKTask left = new LogTopKTask(logs, from, middle, leftLeaves, k, order);
+    LogTopKTask right = new LogTopKTask(logs, middle, to, leaves - leftLeaves, k, order);
+
+    left.fork();
+    TopK<Log> result = right.compute();
+    return result.merge(left.join());
+  }
+}
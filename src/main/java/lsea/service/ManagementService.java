@@ -1,23 +1,35 @@
 package lsea.service;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.*;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import javax.annotation.PreDestroy;
 
 import lsea.dto.GenerateReportDto;
 import lsea.entity.Log;
-import lsea.entity.User;
 import lsea.errors.GenericForbiddenError;
 import lsea.errors.GenericNotFoundError;
+import lsea.errors.GenericServiceUnavailableError;
+import lsea.errors.ValidationError;
+import lsea.middleware.AuthenticatedPrincipal;
 import lsea.repository.LogRepository;
-import lsea.repository.UserRepository;
+import lsea.utils.AnalysisMode;
 import lsea.utils.GlobalPermissions;
+import lsea.utils.LengthOrder;
 import lsea.utils.ListResult;
+import lsea.utils.ReportStatistics;
+import lsea.utils.TopK;
+import org.HdrHistogram.Histogram;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.ss.util.CellRangeAddress;
 import org.apache.poi.xddf.usermodel.chart.*;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.*;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 /**
@@ -33,63 +45,257 @@ public class ManagementService {
   private final LogRepository logRepository;
 
   /**
-   * The UserRepository attribute is used to access the UserRepository methods.
+   * The AuthenticatedPrincipal attribute is used to verify the permission of
+   * the user of the current request.
    */
-  private final UserRepository userRepository;
+  private final AuthenticatedPrincipal principal;
 
   /**
-   * The poolSize attribute is used to set the number of threads to use.
+   * The LogTopKEngine attribute is used to rank the logs stored in the
+   * database without loading the whole table.
    */
-  private final int poolSize = 40;
+  private final LogTopKEngine logTopKEngine;
 
   /**
-   * The executor attribute is used to create a thread pool.
+   * The LogLeaderboard attribute is used to serve the analysis of the logs
+   * stored in the database from memory.
    */
-  private final ExecutorService executor = Executors.newFixedThreadPool(poolSize);
+  private final LogLeaderboard logLeaderboard;
+
+  /**
+   * The AnalysisExecutor attribute is used to run the worker threads of the
+   * latch analysis mode.
+   */
+  private final AnalysisExecutor analysisExecutor;
+
+  /**
+   * The forkJoinPool attribute is used to run the fork-join analysis mode.
+   */
+  private final ForkJoinPool forkJoinPool = new ForkJoinPool(
+      Runtime.getRuntime().availableProcessors());
+
+  /**
+   * The traceWorkers attribute is used to print the progress of every worker
+   * thread of the latch analysis mode.
+   */
+  private volatile boolean traceWorkers = false;
+
+  /**
+   * The reportRowWindow attribute is used to set the number of rows of every
+   * report sheet kept in memory.
+   */
+  private int reportRowWindow = 100;
 
   /**
    * The constructor of the ManagementService class.
    *
-   * @param logRepository  LogRepository
-   * @param userRepository UserRepository
+   * @param logRepository    LogRepository
+   * @param principal        AuthenticatedPrincipal
+   * @param logTopKEngine    LogTopKEngine
+   * @param logLeaderboard   LogLeaderboard
+   * @param analysisExecutor AnalysisExecutor
    */
   public ManagementService(
       LogRepository logRepository,
-      UserRepository userRepository) {
+      AuthenticatedPrincipal principal,
+      LogTopKEngine logTopKEngine,
+      LogLeaderboard logLeaderboard,
+      AnalysisExecutor analysisExecutor) {
     this.logRepository = logRepository;
-    this.userRepository = userRepository;
+    this.principal = principal;
+    this.logTopKEngine = logTopKEngine;
+    this.logLeaderboard = logLeaderboard;
+    this.analysisExecutor = analysisExecutor;
+  }
+
+  /**
+   * Sets the number of rows of every report sheet kept in memory, the older
+   * rows are flushed to a temporary file.
+   *
+   * @param reportRowWindow the number of rows kept in memory, at least 1
+   */
+  @Value("${lsea.report.row-window:100}")
+  public void setReportRowWindow(int reportRowWindow) {
+    if (reportRowWindow < 1) {
+      throw new IllegalArgumentException("lsea.report.row-window must be at least 1");
+    }
+    this.reportRowWindow = reportRowWindow;
+  }
+
+  /**
+   * Sets whether the worker threads of the latch analysis mode print their
+   * progress, off by default as the output slows the analysis down.
+   *
+   * @param traceWorkers true to print the progress of the worker threads
+   */
+  @Value("${lsea.analysis.trace-workers:false}")
+  public void setTraceWorkers(boolean traceWorkers) {
+    this.traceWorkers = traceWorkers;
+  }
+
+  /**
+   * Stops the threads of the fork-join analysis mode once the service is
+   * discarded.
+   */
+  @PreDestroy
+  public void shutdown() {
+    forkJoinPool.shutdown();
+  }
+
+  /**
+   * Verifies that a number of threads fits the capacity of the analysis
+   * executor, before any work is started.
+   *
+   * @param numThreads the number of threads, the largest one of a report
+   * @throws ValidationError if numThreads is not between 1 and the capacity
+   */
+  public void validateNumThreads(int numThreads) throws ValidationError {
+    if (numThreads < 1 || numThreads > analysisExecutor.getCapacity()) {
+      throw new ValidationError(
+          "numThreads must be between 1 and the analysis capacity of " + analysisExecutor.getCapacity());
+    }
+  }
+
+  /**
+   * Verifies that the authenticated user is allowed to run the analysis.
+   *
+   * @throws GenericForbiddenError if the user does not have the permission
+   * @throws GenericNotFoundError  if the user is not found
+   */
+  public void verifyPermission() throws GenericForbiddenError, GenericNotFoundError {
+    /* Requirement 4.3 */
+    if (principal.getUser().getGlobalPermission() <= GlobalPermissions.MODERATOR) {
+      throw new GenericForbiddenError("Permission denied");
+    }
+  }
+
+  /**
+   * The storedLogs method is used to get the five best ranked logs stored in
+   * the database. They are served from the in-memory leaderboard, unless a
+   * consistent answer is requested or the leaderboard is not rebuilt yet, then
+   * the database is queried with an indexed lookup of the data length.
+   *
+   * @param order      the ranking of the logs
+   * @param consistent true to bypass the leaderboard and query the database
+   * @return ListResult object containing the five best ranked logs, from the
+   *         weakest to the best one
+   * @throws GenericForbiddenError if the user does not have the permission
+   * @throws GenericNotFoundError  if the user is not found
+   */
+  public ListResult storedLogs(LengthOrder order, boolean consistent)
+      throws GenericForbiddenError, GenericNotFoundError {
+    verifyPermission();
+
+    int resultNum = 5;
+    boolean fromLeaderboard = !consistent && logLeaderboard.canServe(resultNum);
+
+    long start = System.currentTimeMillis();
+    long startNanos = System.nanoTime();
+    List<Log> logs = fromLeaderboard
+        ? logLeaderboard.top(resultNum, order)
+        : logTopKEngine.lookup(resultNum, order);
+    long durationNanos = System.nanoTime() - startNanos;
+    long end = System.currentTimeMillis();
+
+    ListResult response = new ListResult();
+    response.setCount(logs.size());
+    response.setData(new ArrayList<>(logs));
+    response.setMeta(
+        new HashMap<String, Object>() {
+          {
+            put("startTime", start);
+            put("duration", end - start);
+            put("durationNanos", durationNanos);
+            put("endTime", end);
+            put("source", fromLeaderboard ? "leaderboard" : "database");
+          }
+        });
+    return response;
+  }
+
+  /**
+   * Ranks the given logs with fork-join tasks, every task ranking a contiguous
+   * index range of the list and the partial results being tree merged.
+   *
+   * @param logs       List of logs
+   * @param numThreads number of leaf tasks to split the list into
+   * @param order      the ranking of the logs
+   * @return ListResult object containing the five best ranked logs, from the
+   *         weakest to the best one
+   */
+  private ListResult forkJoinLogs(List<Log> logs, int numThreads, LengthOrder order) {
+    int resultNum = 5;
+    Comparator<Log> comparator = (a, b) -> order.compare(a.getData().length(), b.getData().length());
+
+    long start = System.currentTimeMillis();
+    long startNanos = System.nanoTime();
+    TopK<Log> topK = forkJoinPool.invoke(
+        new LogTopKTask(logs, 0, logs.size(), Math.max(1, numThreads), resultNum, comparator));
+    List<Log> result = topK.drain();
+    long durationNanos = System.nanoTime() - startNanos;
+    long end = System.currentTimeMillis();
+
+    ListResult response = new ListResult();
+    response.setCount(result.size());
+    response.setData(new ArrayList<>(result));
+    response.setMeta(
+        new HashMap<String, Object>() {
+          {
+            put("startTime", start);
+            put("duration", end - start);
+            put("durationNanos", durationNanos);
+            put("endTime", end);
+          }
+        });
+    return response;
   }
 
   /**
    * The analysis method is used to get the five longest logs.
    *
    * @param numThreads number of threads to use
-   * @param token      String containing the token
-   * @param logs       List of logs, if null will get all logs from the database
+   * @param logs       List of logs, if null the logs stored in the database are
+   *                   ranked by storedLogs, numThreads is then ignored
    * @return ListResult object containing the five longest logs
    * @throws GenericForbiddenError if the user does not have the permission
    * @throws InterruptedException  if the thread is interrupted
    * @throws GenericNotFoundError  if the user is not found
+   * @throws GenericServiceUnavailableError if the analysis executor is full
+   * @throws ValidationError       if numThreads exceeds the analysis capacity
    */
   /* Requirement 4.1 */
   /* Requirement 4.2 */
-  public ListResult longestFiveLogs(String token, int numThreads, List<Log> logs)
-      throws InterruptedException, GenericNotFoundError, GenericForbiddenError {
-    if (logs == null) {
-      UUID userId = User.verifyToken(token);
-
-      /* Requirement 4.3 */
-      Optional<User> user = userRepository.findById(userId);
-
-      if (!user.isPresent()) {
-        throw new GenericNotFoundError("User not found");
-      }
+  public ListResult longestFiveLogs(int numThreads, List<Log> logs)
+      throws InterruptedException, GenericNotFoundError, GenericForbiddenError, GenericServiceUnavailableError,
+      ValidationError {
+    return longestFiveLogs(numThreads, logs, AnalysisMode.LATCH);
+  }
 
-      if (user.get().getGlobalPermission() <= GlobalPermissions.MODERATOR) {
-        throw new GenericForbiddenError("Permission denied");
-      }
+  /**
+   * The longestFiveLogs method is used to get the five longest logs with the given
+   * way of splitting the work between threads.
+   *
+   * @param numThreads number of threads to use
+   * @param logs       List of logs, if null the logs stored in the database are
+   *                   ranked by storedLogs, numThreads and mode are
+   *                   then ignored
+   * @param mode       the way of splitting the work between threads
+   * @return ListResult object containing the five longest logs
+   * @throws InterruptedException  if the thread is interrupted
+   * @throws GenericNotFoundError  if the user is not found
+   * @throws GenericForbiddenError if the user does not have the permission
+   * @throws GenericServiceUnavailableError if the analysis executor is full
+   * @throws ValidationError       if numThreads exceeds the analysis capacity
+   */
+  public ListResult longestFiveLogs(int numThreads, List<Log> logs, AnalysisMode mode)
+      throws InterruptedException, GenericNotFoundError, GenericForbiddenError, GenericServiceUnavailableError,
+      ValidationError {
+    if (logs == null) {
+      return storedLogs(LengthOrder.LONGEST, false);
+    }
 
-      logs = logRepository.findAll();
+    if (mode == AnalysisMode.FORK_JOIN) {
+      return forkJoinLogs(logs, numThreads, LengthOrder.LONGEST);
     }
 
     int resultNum = 5;
@@ -103,12 +309,15 @@ public class ManagementService {
             {
               put("startTime", System.currentTimeMillis());
               put("duration", 0);
+              put("durationNanos", 0L);
               put("endTime", System.currentTimeMillis());
             }
           });
       return response;
     }
 
+    validateNumThreads(numThreads);
+
     response.setCount(resultNum);
     List<List<Log>> subLogs = new ArrayList<>();
     for (int i = 0; i < numThreads; i++) {
@@ -126,12 +335,16 @@ public class ManagementService {
     /* Requirement 4.1.2 */
     CountDownLatch latch = new CountDownLatch(numThreads);
     long start = System.currentTimeMillis();
+    long startNanos = System.nanoTime();
+    List<Runnable> tasks = new ArrayList<>(numThreads);
     for (int i = 0; i < numThreads; i++) {
       int finalI = i;
       List<List<Log>> finalSubLogs = subLogs;
-      executor.execute(() -> subLongestFiveLogs(finalSubLogs.get(finalI), pqLogs, resultNum, latch));
+      tasks.add(() -> subLongestFiveLogs(finalSubLogs.get(finalI), pqLogs, resultNum, latch));
     }
+    analysisExecutor.executeAll(tasks);
     latch.await();
+    long durationNanos = System.nanoTime() - startNanos;
     long end = System.currentTimeMillis();
     long duration = end - start;
     /* Requirement 4.1.2 */
@@ -140,6 +353,7 @@ public class ManagementService {
           {
             put("startTime", start);
             put("duration", duration);
+            put("durationNanos", durationNanos);
             put("endTime", end);
           }
         });
@@ -159,31 +373,47 @@ public class ManagementService {
   /**
    * The shortestFiveLogs method is used to get the five shortest logs.
    *
-   * @param token      to authenticate the user
    * @param numThreads int
-   * @param logs       List of logs, if null will get all logs from the database
+   * @param logs       List of logs, if null the logs stored in the database are
+   *                   ranked by storedLogs, numThreads is then ignored
    * @return ListResult object containing the five shortest logs
    * @throws InterruptedException  if the thread is interrupted
    * @throws GenericNotFoundError  if the user is not found
    * @throws GenericForbiddenError if the user does not have the permission
+   * @throws GenericServiceUnavailableError if the analysis executor is full
+   * @throws ValidationError       if numThreads exceeds the analysis capacity
    */
-  public ListResult shortestFiveLogs(String token, int numThreads, List<Log> logs)
-      throws InterruptedException, GenericNotFoundError, GenericForbiddenError {
-    if (logs == null) {
-      UUID userId = User.verifyToken(token);
-
-      /* Requirement 4.3 */
-      Optional<User> user = userRepository.findById(userId);
-
-      if (!user.isPresent()) {
-        throw new GenericNotFoundError("User not found");
-      }
+  public ListResult shortestFiveLogs(int numThreads, List<Log> logs)
+      throws InterruptedException, GenericNotFoundError, GenericForbiddenError, GenericServiceUnavailableError,
+      ValidationError {
+    return shortestFiveLogs(numThreads, logs, AnalysisMode.LATCH);
+  }
 
-      if (user.get().getGlobalPermission() <= GlobalPermissions.MODERATOR) {
-        throw new GenericForbiddenError("Permission denied");
-      }
+  /**
+   * The shortestFiveLogs method is used to get the five shortest logs with the given
+   * way of splitting the work between threads.
+   *
+   * @param numThreads number of threads to use
+   * @param logs       List of logs, if null the logs stored in the database are
+   *                   ranked by storedLogs, numThreads and mode are
+   *                   then ignored
+   * @param mode       the way of splitting the work between threads
+   * @return ListResult object containing the five shortest logs
+   * @throws InterruptedException  if the thread is interrupted
+   * @throws GenericNotFoundError  if the user is not found
+   * @throws GenericForbiddenError if the user does not have the permission
+   * @throws GenericServiceUnavailableError if the analysis executor is full
+   * @throws ValidationError       if numThreads exceeds the analysis capacity
+   */
+  public ListResult shortestFiveLogs(int numThreads, List<Log> logs, AnalysisMode mode)
+      throws InterruptedException, GenericNotFoundError, GenericForbiddenError, GenericServiceUnavailableError,
+      ValidationError {
+    if (logs == null) {
+      return storedLogs(LengthOrder.SHORTEST, false);
+    }
 
-      logs = logRepository.findAll();
+    if (mode == AnalysisMode.FORK_JOIN) {
+      return forkJoinLogs(logs, numThreads, LengthOrder.SHORTEST);
     }
 
     int resultNum = 5;
@@ -197,12 +427,15 @@ public class ManagementService {
             {
               put("startTime", System.currentTimeMillis());
               put("duration", 0);
+              put("durationNanos", 0L);
               put("endTime", System.currentTimeMillis());
             }
           });
       return response;
     }
 
+    validateNumThreads(numThreads);
+
     response.setCount(resultNum);
     List<List<Log>> subLogs = new ArrayList<>();
     for (int i = 0; i < numThreads; i++) {
@@ -220,12 +453,16 @@ public class ManagementService {
     /* Requirement 4.1.2 */
     CountDownLatch latch = new CountDownLatch(numThreads);
     long start = System.currentTimeMillis();
+    long startNanos = System.nanoTime();
+    List<Runnable> tasks = new ArrayList<>(numThreads);
     for (int i = 0; i < numThreads; i++) {
       int finalI = i;
       List<List<Log>> finalSubLogs = subLogs;
-      executor.execute(() -> subShortestFiveLogs(finalSubLogs.get(finalI), pqLogs, resultNum, latch));
+      tasks.add(() -> subShortestFiveLogs(finalSubLogs.get(finalI), pqLogs, resultNum, latch));
     }
+    analysisExecutor.executeAll(tasks);
     latch.await();
+    long durationNanos = System.nanoTime() - startNanos;
     long end = System.currentTimeMillis();
     long duration = end - start;
     /* Requirement 4.1.2 */
@@ -234,6 +471,7 @@ public class ManagementService {
           {
             put("startTime", start);
             put("duration", duration);
+            put("durationNanos", durationNanos);
             put("endTime", end);
           }
         });
@@ -252,10 +490,13 @@ public class ManagementService {
 
   /**
    * The subLongestFiveLogs method is used to get the five longest logs.
+   * The latch is always counted down, also when the partition is empty or the
+   * ranking fails, otherwise the caller would wait forever.
    *
    * @param logs      List<Log> - the list of logs
    * @param response  PriorityQueue<Log> - the priority queue of logs
    * @param resultNum int
+   * @param latch     CountDownLatch - counted down when the thread is done
    */
   /* Requirement 4.1 */
   /* Requirement 4.2 */
@@ -264,292 +505,368 @@ public class ManagementService {
       PriorityQueue<Log> response,
       int resultNum,
       CountDownLatch latch) {
-    /* Requirement 4.1.1 */
-    System.out.println(
-        "Thread " +
-            Thread.currentThread().getId() +
-            " is running for " +
-            logs.size() +
-            " logs");
-    if (logs.size() == 0) {
-      return;
-    }
-    PriorityQueue<Log> pq = new PriorityQueue<>(
-        resultNum,
-        (a, b) -> a.getData().length() - b.getData().length());
-    for (Log log : logs) {
-      if (pq.size() < resultNum) {
-        pq.add(log);
-      } else {
-        if (log.getData().length() > pq.peek().getData().length()) {
-          pq.poll();
+    try {
+      /* Requirement 4.1.1 */
+      if (traceWorkers) {
+        System.out.println(
+            "Thread " +
+                Thread.currentThread().getId() +
+                " is running for " +
+                logs.size() +
+                " logs");
+      }
+      if (logs.size() == 0) {
+        return;
+      }
+      PriorityQueue<Log> pq = new PriorityQueue<>(
+          resultNum,
+          (a, b) -> a.getData().length() - b.getData().length());
+      for (Log log : logs) {
+        if (pq.size() < resultNum) {
           pq.add(log);
+        } else {
+          if (log.getData().length() > pq.peek().getData().length()) {
+            pq.poll();
+            pq.add(log);
+          }
         }
       }
-    }
 
-    /* Requirement 4.2 */
-    synchronized (response) {
-      /* Requirement 4.1.1 */
-      System.out.println(
-          "Thread " +
-              Thread.currentThread().getId() +
-              " is trying to access the public asset - final PQ for 5 longest logs");
-      while (!pq.isEmpty()) {
-        response.add(pq.poll());
-        if (response.size() > resultNum) {
-          response.poll();
+      /* Requirement 4.2 */
+      synchronized (response) {
+        /* Requirement 4.1.1 */
+        if (traceWorkers) {
+          System.out.println(
+              "Thread " +
+                  Thread.currentThread().getId() +
+                  " is trying to access the public asset - final PQ for 5 longest logs");
+        }
+        while (!pq.isEmpty()) {
+          response.add(pq.poll());
+          if (response.size() > resultNum) {
+            response.poll();
+          }
         }
       }
+    } finally {
       latch.countDown();
     }
   }
 
   /**
    * The subShortestFiveLogs method is used to get the five shortest logs.
+   * The latch is always counted down, also when the partition is empty or the
+   * ranking fails, otherwise the caller would wait forever.
    *
    * @param logs      List of logs
    * @param response  PriorityQueue of logs
    * @param resultNum number of results
+   * @param latch     CountDownLatch counted down when the thread is done
    */
   private void subShortestFiveLogs(
       List<Log> logs,
       PriorityQueue<Log> response,
       int resultNum,
       CountDownLatch latch) {
-    /* Requirement 4.1.1 */
-    System.out.println(
-        "Thread " +
-            Thread.currentThread().getId() +
-            " is running for " +
-            logs.size() +
-            " logs");
-    if (logs.size() == 0) {
-      return;
-    }
-    PriorityQueue<Log> pq = new PriorityQueue<>(
-        resultNum,
-        (a, b) -> b.getData().length() - a.getData().length());
-    for (Log log : logs) {
-      if (pq.size() < resultNum) {
-        pq.add(log);
-      } else {
-        if (log.getData().length() < pq.peek().getData().length()) {
-          pq.poll();
+    try {
+      /* Requirement 4.1.1 */
+      if (traceWorkers) {
+        System.out.println(
+            "Thread " +
+                Thread.currentThread().getId() +
+                " is running for " +
+                logs.size() +
+                " logs");
+      }
+      if (logs.size() == 0) {
+        return;
+      }
+      PriorityQueue<Log> pq = new PriorityQueue<>(
+          resultNum,
+          (a, b) -> b.getData().length() - a.getData().length());
+      for (Log log : logs) {
+        if (pq.size() < resultNum) {
           pq.add(log);
+        } else {
+          if (log.getData().length() < pq.peek().getData().length()) {
+            pq.poll();
+            pq.add(log);
+          }
         }
       }
-    }
 
-    /* Requirement 4.2 */
-    synchronized (response) {
-      /* Requirement 4.1.1 */
-      System.out.println(
-          "Thread " +
-              Thread.currentThread().getId() +
-              " is trying to access the public asset - final PQ for 5 shortest logs");
-      while (!pq.isEmpty()) {
-        response.add(pq.poll());
-        if (response.size() > resultNum) {
-          response.poll();
+      /* Requirement 4.2 */
+      synchronized (response) {
+        /* Requirement 4.1.1 */
+        if (traceWorkers) {
+          System.out.println(
+              "Thread " +
+                  Thread.currentThread().getId() +
+                  " is trying to access the public asset - final PQ for 5 shortest logs");
+        }
+        while (!pq.isEmpty()) {
+          response.add(pq.poll());
+          if (response.size() > resultNum) {
+            response.poll();
+          }
         }
       }
+    } finally {
+      latch.countDown();
     }
-    latch.countDown();
   }
 
   /**
-   * The reportCalculator method is used to calculate the average time of the
-   * longestFiveLogs method or the shortestFiveLogs method.
+   * The reportCalculator method is used to measure the durations of the
+   * longestFiveLogs method and the shortestFiveLogs method for every number of
+   * threads, once the permission of the user is verified.
    *
    * @param maximumNumberOfThreads the maximum number of threads
-   * @param iterations             the number of iterations
-   * @param token                  the token of the user
-   * @return a list contains two maps of the average time of
+   * @param iterations             the number of measured iterations
+   * @param warmupIterations       the number of iterations run before the
+   *                               measured ones
+   * @param mode                   the way of splitting the work between
+   *                               threads, LATCH if null
+   * @return a list contains two maps of the duration statistics of
    *         the longestFiveLogs method and the shortestFiveLogs method
    * @throws GenericForbiddenError if the token is invalid
-   * @throws GenericNotFoundError  if the token is not found
+   * @throws GenericNotFoundError  if the user is not found
    * @throws InterruptedException  if the thread is interrupted
+   * @throws GenericServiceUnavailableError if the analysis executor is full
+   * @throws ValidationError       if the maximum number of threads exceeds the
+   *                               analysis capacity
    */
-  public List<Map<Integer, String>> reportCalculator(int maximumNumberOfThreads, int iterations, String token)
-      throws GenericForbiddenError, GenericNotFoundError, InterruptedException {
-    UUID userId = User.verifyToken(token);
-
-    /* Requirement 4.3 */
-    Optional<User> user = userRepository.findById(userId);
-
-    if (!user.isPresent()) {
-      throw new GenericNotFoundError("User not found");
-    }
+  public List<Map<Integer, ReportStatistics>> reportCalculator(
+      int maximumNumberOfThreads,
+      int iterations,
+      int warmupIterations,
+      AnalysisMode mode)
+      throws GenericForbiddenError, GenericNotFoundError, InterruptedException, GenericServiceUnavailableError,
+      ValidationError {
+    verifyPermission();
+    validateNumThreads(maximumNumberOfThreads);
+
+    return measureReport(maximumNumberOfThreads, iterations, warmupIterations, mode, done -> {
+    });
+  }
 
-    if (user.get().getGlobalPermission() <= GlobalPermissions.MODERATOR) {
-      throw new GenericForbiddenError("Permission denied");
+  /**
+   * The measureReport method is used to measure the durations of the
+   * longestFiveLogs method and the shortestFiveLogs method for every number of
+   * threads. Every run is timed in nanoseconds and recorded in a histogram, the
+   * warm-up runs are executed first and left out. The permission of the user
+   * and the maximum number of threads must have been verified by the caller.
+   *
+   * @param maximumNumberOfThreads the maximum number of threads
+   * @param iterations             the number of measured iterations
+   * @param warmupIterations       the number of iterations run before the
+   *                               measured ones
+   * @param mode                   the way of splitting the work between
+   *                               threads, LATCH if null
+   * @param progress               called with the number of threads numbers
+   *                               measured so far
+   * @return a list contains two maps of the duration statistics of
+   *         the longestFiveLogs method and the shortestFiveLogs method
+   * @throws InterruptedException            if the thread is interrupted
+   * @throws GenericServiceUnavailableError if the analysis executor is full
+   * @throws ValidationError                 if the maximum number of threads
+   *                                         exceeds the analysis capacity
+   */
+  public List<Map<Integer, ReportStatistics>> measureReport(
+      int maximumNumberOfThreads,
+      int iterations,
+      int warmupIterations,
+      AnalysisMode mode,
+      IntConsumer progress)
+      throws InterruptedException, GenericServiceUnavailableError, ValidationError {
+    if (mode == null) {
+      mode = AnalysisMode.LATCH;
     }
 
     List<Log> logs = logRepository.findAll();
 
-    List<Map<Integer, String>> result = new ArrayList<>();
+    List<Map<Integer, ReportStatistics>> result = new ArrayList<>();
     result.add(new HashMap<>());
     result.add(new HashMap<>());
 
-    ListResult listResult;
+    try {
+      for (int numThreads = 1; numThreads <= maximumNumberOfThreads; numThreads++) {
+        for (int i = 0; i < warmupIterations; i++) {
+          longestFiveLogs(numThreads, logs, mode);
+          shortestFiveLogs(numThreads, logs, mode);
+        }
+
+        Histogram durationsLongest = new Histogram(3);
+        Histogram durationsShortest = new Histogram(3);
+        for (int i = 0; i < iterations; i++) {
+          ListResult listResult = longestFiveLogs(numThreads, logs, mode);
+          durationsLongest.recordValue((long) listResult.getMeta().get("durationNanos"));
 
-    for (int numThreads = 1; numThreads <= maximumNumberOfThreads; numThreads++) {
-      int sumOfDurationsLongest = 0;
-      int sumOfDurationsShortest = 0;
-      for (int i = 0; i < iterations; i++) {
-        listResult = longestFiveLogs(token, numThreads, logs);
-        String duration = listResult.getMeta().get("duration").toString();
-        sumOfDurationsLongest += Integer.parseInt(duration);
+          listResult = shortestFiveLogs(numThreads, logs, mode);
+          durationsShortest.recordValue((long) listResult.getMeta().get("durationNanos"));
+        }
 
-        listResult = shortestFiveLogs(token, numThreads, logs);
-        duration = listResult.getMeta().get("duration").toString();
-        sumOfDurationsShortest += Integer.parseInt(duration);
+        result.get(0).put(numThreads, ReportStatistics.of(durationsLongest));
+        result.get(1).put(numThreads, ReportStatistics.of(durationsShortest));
+        progress.accept(numThreads);
       }
-
-      int average = sumOfDurationsLongest / iterations;
-      result.get(0).put(numThreads, String.valueOf(average));
-      average = sumOfDurationsShortest / iterations;
-      result.get(1).put(numThreads, String.valueOf(average));
+    } catch (GenericForbiddenError | GenericNotFoundError e) {
+      // the given logs are ranked without any permission check
+      throw new IllegalStateException(e);
     }
     return result;
   }
 
   /**
-   * The generateReport method is used to generate a report.
+   * The generateReport method is used to generate a report. The workbook is
+   * streamed: only the last rows of every sheet are kept in memory, the older
+   * ones are flushed to a temporary file until the workbook is written.
    *
    * @param dto            GenerateReportDto
-   * @param resultLongest  Number of a thread to the time it takes to run
-   * @param resultShortest Result Number of a thread to the time it takes to run
+   * @param resultLongest  Number of a thread to the durations of its runs
+   * @param resultShortest Number of a thread to the durations of its runs
    * @param iterations     Number of iterations per thread
-   * @return an excel file with all necessary information
+   * @return an excel file with all necessary information, to be disposed once
+   *         written
    */
   /* Requirement 4.4 */
-  public Workbook generateReport(
+  public SXSSFWorkbook generateReport(
       GenerateReportDto dto,
-      Map<Integer, String> resultLongest,
-      Map<Integer, String> resultShortest,
+      Map<Integer, ReportStatistics> resultLongest,
+      Map<Integer, ReportStatistics> resultShortest,
       int iterations) {
-    int numThreads = dto.getNumThreads();
-    XSSFWorkbook workbook = new XSSFWorkbook();
-    XSSFSheet longestSpreadsheet = workbook.createSheet(
-        "Analysis - Longest Logs");
+    SXSSFWorkbook workbook = new SXSSFWorkbook(reportRowWindow);
+    workbook.setCompressTempFiles(true);
+    createAnalysisSheet(
+        workbook,
+        "Analysis - Longest Logs",
+        "Analysis of threads number performance (longest)",
+        dto,
+        resultLongest,
+        iterations);
+    createAnalysisSheet(
+        workbook,
+        " Analysis - Shortest Logs ",
+        "Analysis of threads number performance (shortest)",
+        dto,
+        resultShortest,
+        iterations);
+    return workbook;
+  }
 
-    Row rowLongest = longestSpreadsheet.createRow((short) 0);
-    Cell cellLongest = rowLongest.createCell((short) 0);
-    cellLongest.setCellValue("Threads number");
-    cellLongest = rowLongest.createCell((short) 1);
-    cellLongest.setCellValue("Time(ms) - Average, measured for: " + iterations + " iterations");
+  /**
+   * The writeReport method is used to generate a report and write it to the
+   * given stream, the temporary files of the workbook are removed afterwards.
+   *
+   * @param dto            GenerateReportDto
+   * @param resultLongest  Number of a thread to the durations of its runs
+   * @param resultShortest Number of a thread to the durations of its runs
+   * @param iterations     Number of iterations per thread
+   * @param out            the stream to write the excel file to, left open
+   * @throws IOException if the stream cannot be written
+   */
+  public void writeReport(
+      GenerateReportDto dto,
+      Map<Integer, ReportStatistics> resultLongest,
+      Map<Integer, ReportStatistics> resultShortest,
+      int iterations,
+      OutputStream out) throws IOException {
+    SXSSFWorkbook workbook = generateReport(dto, resultLongest, resultShortest, iterations);
+    try {
+      workbook.write(out);
+    } finally {
+      workbook.dispose();
+      workbook.close();
+    }
+  }
+
+  /**
+   * Creates a sheet with a row of duration statistics per number of threads and
+   * a line chart with a series per statistic. The chart is drawn on the sheet
+   * backing the streamed one and reads its values from arrays, since the
+   * flushed rows cannot be read back.
+   *
+   * @param workbook   the workbook to add the sheet to
+   * @param sheetName  the name of the sheet
+   * @param chartTitle the title of the chart
+   * @param dto        GenerateReportDto
+   * @param statistics Number of a thread to the durations of its runs
+   * @param iterations Number of iterations per thread
+   */
+  private void createAnalysisSheet(
+      SXSSFWorkbook workbook,
+      String sheetName,
+      String chartTitle,
+      GenerateReportDto dto,
+      Map<Integer, ReportStatistics> statistics,
+      int iterations) {
+    int numThreads = dto.getNumThreads();
+    String[] columns = { "Mean", "p50", "p90", "p99", "Max" };
+    SXSSFSheet spreadsheet = workbook.createSheet(sheetName);
+
+    Row row = spreadsheet.createRow(0);
+    Cell cell = row.createCell(0);
+    cell.setCellValue("Threads number");
+    for (int column = 0; column < columns.length; column++) {
+      cell = row.createCell(column + 1);
+      cell.setCellValue(columns[column] + " time(\u00b5s)");
+    }
+    cell = row.createCell(columns.length + 1);
+    cell.setCellValue("Measured for: " + iterations + " iterations, after "
+        + dto.getWarmupIterations() + " warm-up iterations");
 
+    String[] threads = new String[numThreads];
+    Double[][] times = new Double[columns.length][numThreads];
     for (int i = 1; i <= numThreads; i++) {
-      rowLongest = longestSpreadsheet.createRow((short) i);
-      cellLongest = rowLongest.createCell((short) 0);
-      cellLongest.setCellValue(i);
-      cellLongest = rowLongest.createCell((short) 1);
-      cellLongest.setCellValue(Integer.parseInt(resultLongest.get(i)));
+      ReportStatistics result = statistics.get(i);
+      double[] values = {
+          result.getMean(), result.getP50(), result.getP90(), result.getP99(), result.getMax()
+      };
+      row = spreadsheet.createRow(i);
+      row.createCell(0).setCellValue(i);
+      threads[i - 1] = String.valueOf(i);
+      for (int column = 0; column < columns.length; column++) {
+        row.createCell(column + 1).setCellValue(values[column]);
+        times[column][i - 1] = values[column];
+      }
     }
 
-    XSSFDrawing drawingLongest = longestSpreadsheet.createDrawingPatriarch();
-    XSSFClientAnchor anchorLongest = drawingLongest.createAnchor(0, 0, 0, 0, 4, 0, 18, 25);
+    XSSFDrawing drawing = workbook.getXSSFWorkbook().getSheet(sheetName).createDrawingPatriarch();
+    XSSFClientAnchor anchor = drawing.createAnchor(0, 0, 0, 0, 8, 0, 22, 25);
 
-    XSSFChart chartLongest = drawingLongest.createChart(anchorLongest);
-    chartLongest.setTitleText("Analysis of threads number performance (longest)");
-    chartLongest.setTitleOverlay(false);
+    XSSFChart chart = drawing.createChart(anchor);
+    chart.setTitleText(chartTitle);
+    chart.setTitleOverlay(false);
 
-    XDDFChartLegend legend = chartLongest.getOrAddLegend();
+    XDDFChartLegend legend = chart.getOrAddLegend();
     legend.setPosition(LegendPosition.TOP_RIGHT);
 
-    XDDFCategoryAxis bottomAxisLongest = chartLongest.createCategoryAxis(AxisPosition.BOTTOM);
-    bottomAxisLongest.setTitle("Threads number");
-    XDDFValueAxis leftAxisLongest = chartLongest.createValueAxis(AxisPosition.LEFT);
-    leftAxisLongest.setTitle("Duration time(ms) - average");
-
-    XDDFDataSource<String> threadsLongest = XDDFDataSourcesFactory.fromStringCellRange(
-        longestSpreadsheet,
-        new CellRangeAddress(1, numThreads, 0, 0));
+    XDDFCategoryAxis bottomAxis = chart.createCategoryAxis(AxisPosition.BOTTOM);
+    bottomAxis.setTitle("Threads number");
+    XDDFValueAxis leftAxis = chart.createValueAxis(AxisPosition.LEFT);
+    leftAxis.setTitle("Duration time(\u00b5s)");
 
-    XDDFNumericalDataSource<Double> timeLongest = XDDFDataSourcesFactory.fromNumericCellRange(
-        longestSpreadsheet,
-        new CellRangeAddress(1, numThreads, 1, 1));
+    XDDFDataSource<String> threadsSource = XDDFDataSourcesFactory.fromArray(
+        threads,
+        new CellRangeAddress(1, numThreads, 0, 0).formatAsString(sheetName, true));
 
-    XDDFLineChartData data = (XDDFLineChartData) chartLongest.createData(
+    XDDFLineChartData data = (XDDFLineChartData) chart.createData(
         ChartTypes.LINE,
-        bottomAxisLongest,
-        leftAxisLongest);
-
-    XDDFLineChartData.Series series1Longest = (XDDFLineChartData.Series) data.addSeries(
-        threadsLongest,
-        timeLongest);
-    series1Longest.setTitle("Duration", null);
-    series1Longest.setSmooth(false);
-    series1Longest.setMarkerStyle(MarkerStyle.STAR);
-
-    chartLongest.plot(data);
-
-    XSSFSheet shortestSpreadsheet = workbook.createSheet(
-        " Analysis - Shortest Logs ");
-
-    Row rowShortest = shortestSpreadsheet.createRow((short) 0);
-    Cell cellShortest = rowShortest.createCell((short) 0);
-    cellShortest.setCellValue("Threads number");
-    cellShortest = rowShortest.createCell((short) 1);
-    cellShortest.setCellValue("Time(ms) - Average, measured for: " + iterations + " iterations");
-    for (int i = 1; i <= numThreads; i++) {
-      rowShortest = shortestSpreadsheet.createRow((short) i);
-      cellShortest = rowShortest.createCell((short) 0);
-      cellShortest.setCellValue(i);
-      cellShortest = rowShortest.createCell((short) 1);
-      cellShortest.setCellValue(Integer.parseInt(resultShortest.get(i)));
+        bottomAxis,
+        leftAxis);
+
+    for (int column = 0; column < columns.length; column++) {
+      XDDFNumericalDataSource<Double> timesSource = XDDFDataSourcesFactory.fromArray(
+          times[column],
+          new CellRangeAddress(1, numThreads, column + 1, column + 1).formatAsString(sheetName, true));
+      XDDFLineChartData.Series series = (XDDFLineChartData.Series) data.addSeries(
+          threadsSource,
+          timesSource);
+      series.setTitle(columns[column], null);
+      series.setSmooth(false);
+      series.setMarkerStyle(MarkerStyle.STAR);
     }
 
-    XSSFDrawing drawingShortest = shortestSpreadsheet.createDrawingPatriarch();
-    XSSFClientAnchor anchorShortest = drawingShortest.createAnchor(
-        0,
-        0,
-        0,
-        0,
-        4,
-        0,
-        18,
-        25);
-
-    XSSFChart chartShortest = drawingShortest.createChart(anchorShortest);
-    chartShortest.setTitleText(
-        "Analysis of threads number performance (shortest)");
-    chartShortest.setTitleOverlay(false);
-
-    XDDFChartLegend legendShortest = chartShortest.getOrAddLegend();
-    legendShortest.setPosition(LegendPosition.TOP_RIGHT);
-
-    XDDFCategoryAxis bottomAxisShortest = chartShortest.createCategoryAxis(
-        AxisPosition.BOTTOM);
-    bottomAxisShortest.setTitle("Threads number");
-    XDDFValueAxis leftAxisShortest = chartShortest.createValueAxis(
-        AxisPosition.LEFT);
-    leftAxisShortest.setTitle("Duration time(ms) - average");
-
-    XDDFDataSource<String> threadsShortest = XDDFDataSourcesFactory.fromStringCellRange(
-        shortestSpreadsheet,
-        new CellRangeAddress(1, numThreads, 0, 0));
-
-    XDDFNumericalDataSource<Double> timeShortest = XDDFDataSourcesFactory.fromNumericCellRange(
-        shortestSpreadsheet,
-        new CellRangeAddress(1, numThreads, 1, 1));
-
-    XDDFLineChartData dataShortest = (XDDFLineChartData) chartShortest.createData(
-        ChartTypes.LINE,
-        bottomAxisShortest,
-        leftAxisShortest);
-
-    XDDFLineChartData.Series series1Shortest = (XDDFLineChartData.Series) dataShortest.addSeries(
-        threadsShortest,
-        timeShortest);
-    series1Shortest.setTitle("Duration", null);
-    series1Shortest.setSmooth(false);
-    series1Shortest.setMarkerStyle(MarkerStyle.STAR);
-
-    chartShortest.plot(dataShortest);
-
-    return workbook;
+    chart.plot(data);
   }
 }
@@ -0,0 +1,265 @@
+package lsea.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import javax.annotation.PreDestroy;
+import lsea.errors.GenericServiceUnavailableError;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hashes and verifies the passwords with BCrypt on a dedicated executor.
+ *
+ * BCrypt is CPU bound, so the executor has about a thread per core and a
+ * bounded queue: a burst of logins is queued instead of oversubscribing the
+ * request threads, and rejected with a 503 once the queue is full. The cost
+ * factor is configurable, a hash made with another cost is rehashed in the
+ * background after a successful login.
+ */
+@Component
+public class PasswordHasher {
+
+  /**
+   * The smallest cost factor accepted by BCrypt.
+   */
+  private static final int MINIMUM_COST = 4;
+
+  /**
+   * The largest cost factor accepted by BCrypt.
+   */
+  private static final int MAXIMUM_COST = 31;
+
+  /**
+   * The cost factor of the new hashes.
+   */
+  private final int cost;
+
+  /**
+   * The executor running the hashing.
+   */
+  private final ThreadPoolExecutor executor;
+
+  /**
+   * The time spent hashing or verifying a password.
+   */
+  private final Timer hashTimer;
+
+  /**
+   * The number of hashes rejected because the executor was full.
+   */
+  private final Counter rejected;
+
+  /**
+   * The number of hashes upgraded to the current cost factor.
+   */
+  private final Counter rehashed;
+
+  /**
+   * Constructor of the PasswordHasher class.
+   *
+   * @param cost             - the BCrypt cost factor, from 4 to 31
+   * @param threads          - the number of hashing threads, 0 for one per
+   *                         core
+   * @param queueCapacity    - the number of hashes waiting for a thread
+   * @param jvmMeterRegistry - the meter registry the metrics are exported to
+   */
+  @Autowired
+  public PasswordHasher(
+      @Value("${lsea.auth.bcrypt-cost:10}") int cost,
+      @Value("${lsea.auth.hash-threads:0}") int threads,
+      @Value("${lsea.auth.hash-queue-capacity:64}") int queueCapacity,
+      MeterRegistry jvmMeterRegistry) {
+    if (cost < MINIMUM_COST || cost > MAXIMUM_COST) {
+      throw new IllegalArgumentException("lsea.auth.bcrypt-cost must be between 4 and 31");
+    }
+    if (threads < 0) {
+      throw new IllegalArgumentException("lsea.auth.hash-threads must not be negative");
+    }
+    if (queueCapacity < 1) {
+      throw new IllegalArgumentException("lsea.auth.hash-queue-capacity must be at least 1");
+    }
+    this.cost = cost;
+    int poolSize = threads == 0 ? Runtime.getRuntime().availableProcessors() : threads;
+
+    AtomicInteger threadNumber = new AtomicInteger();
+    this.executor = new ThreadPoolExecutor(
+        poolSize,
+        poolSize,
+        60L,
+        TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(queueCapacity),
+        runnable -> {
+          Thread thread = new Thread(runnable, "password-hash-" + threadNumber.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        },
+        new ThreadPoolExecutor.AbortPolicy());
+    executor.allowCoreThreadTimeOut(true);
+
+    new ExecutorServiceMetrics(executor, "password.hashing", Tags.empty()).bindTo(jvmMeterRegistry);
+    this.hashTimer = Timer.builder("auth.password.hash")
+        .description("The time spent hashing or verifying a password")
+        .tag("cost", String.valueOf(cost))
+        .register(jvmMeterRegistry);
+    this.rejected = Counter.builder("auth.password.rejected")
+        .description("The number of password hashes rejected because the executor was full")
+        .register(jvmMeterRegistry);
+    this.rehashed = Counter.builder("auth.password.rehashed")
+        .description("The number of password hashes upgraded to the current cost factor")
+        .register(jvmMeterRegistry);
+  }
+
+  /**
+   * Hashes a password with the current cost factor.
+   *
+   * @param password - the plain password
+   * @return the BCrypt hash
+   * @throws GenericServiceUnavailableError if the executor is full
+   */
+  public String hash(String password) throws GenericServiceUnavailableError {
+    return call(() -> BCrypt.hashpw(password, BCrypt.gensalt(cost)));
+  }
+
+  /**
+   * Verifies a password against a hash.
+   *
+   * @param password - the plain password
+   * @param hash     - the BCrypt hash
+   * @return true if the password matches
+   * @throws GenericServiceUnavailableError if the executor is full
+   */
+  public boolean verify(String password, String hash) throws GenericServiceUnavailableError {
+    return call(() -> BCrypt.checkpw(password, hash));
+  }
+
+  /**
+   * Returns whether a hash was made with another cost factor than the current
+   * one.
+   *
+   * @param hash - the BCrypt hash
+   * @return true if the hash should be replaced
+   */
+  public boolean needsRehash(String hash) {
+    return costOf(hash) != cost;
+  }
+
+  /**
+   * Hashes a password with the current cost factor in the background. The
+   * rehash is skipped when the executor is full, it is attempted again on the
+   * next login.
+   *
+   * @param password - the plain password, already verified
+   * @param onHashed - called on the hashing thread with the new hash
+   */
+  public void rehashLater(String password, Consumer<String> onHashed) {
+    try {
+      executor.execute(() -> {
+        String hash = timed(() -> BCrypt.hashpw(password, BCrypt.gensalt(cost)));
+        onHashed.accept(hash);
+        rehashed.increment();
+      });
+    } catch (RejectedExecutionException e) {
+      rejected.increment();
+    }
+  }
+
+  /**
+   * Returns the cost factor of the new hashes.
+   *
+   * @return the cost factor
+   */
+  public int getCost() {
+    return cost;
+  }
+
+  /**
+   * Stops the hashing threads once the hasher is discarded.
+   */
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdown();
+  }
+
+  /**
+   * Returns the cost factor of a hash.
+   *
+   * @param hash - the BCrypt hash, "$2a$10$..."
+   * @return the cost factor, -1 if the hash is malformed
+   */
+  static int costOf(String hash) {
+    if (hash == null || hash.length() < 7 || hash.charAt(0) != '$' || hash.charAt(6) != '$') {
+      return -1;
+    }
+    try {
+      return Integer.parseInt(hash.substring(4, 6));
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Runs a hashing task on the executor and waits for its result.
+   *
+   * @param <T>  - the type of the result
+   * @param task - the task
+   * @return the result of the task
+   * @throws GenericServiceUnavailableError if the executor is full
+   */
+  private <T> T call(Callable<T> task) throws GenericServiceUnavailableError {
+    Future<T> future;
+    try {
+      future = executor.submit(() -> timed(task));
+    } catch (RejectedExecutionException e) {
+      rejected.increment();
+      throw new GenericServiceUnavailableError("Too many logins, try again later");
+    }
+
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      future.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new GenericServiceUnavailableError(e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IllegalStateException(cause);
+    }
+  }
+
+  /**
+   * Runs a hashing task and records its duration.
+   *
+   * @param <T>  - the type of the result
+   * @param task - the task
+   * @return the result of the task
+   */
+  private <T> T timed(Callable<T> task) {
+    long start = System.nanoTime();
+    try {
+      return task.call();
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    } finally {
+      hashTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+}
@@ -0,0 +1,470 @@
+package lsea.service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PreDestroy;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import lsea.dto.GenerateReportDto;
+import lsea.errors.GenericConflictError;
+import lsea.errors.GenericForbiddenError;
+import lsea.errors.GenericNotFoundError;
+import lsea.errors.GenericServiceUnavailableError;
+import lsea.errors.ValidationError;
+import lsea.repository.LogRepository;
+import lsea.utils.AnalysisMode;
+import lsea.utils.ReportJobState;
+import lsea.utils.ReportJobStatus;
+import lsea.utils.ReportStatistics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Service layer running the analysis reports in the background.
+ *
+ * A submitted report is measured by a report worker and written to a temporary
+ * file, its job id is used to poll the progress and download the workbook.
+ * The finished jobs are kept in a bounded LRU cache keyed by the report
+ * parameters and the version of the logs table, so the same report of the same
+ * logs is measured once.
+ */
+@Service
+public class ReportJobService {
+
+  /**
+   * The ManagementService attribute is used to verify the permission and to
+   * measure and write the reports.
+   */
+  private final ManagementService managementService;
+
+  /**
+   * The LogRepository attribute is used to read the version of the logs table.
+   */
+  private final LogRepository logRepository;
+
+  /**
+   * The number of finished jobs kept, the least recently used one is evicted
+   * and its report deleted.
+   */
+  private final int cacheSize;
+
+  /**
+   * The number of jobs queued or running at the same time, a new one is
+   * rejected beyond it.
+   */
+  private final int maxPendingJobs;
+
+  /**
+   * The number of jobs queued or running, guarded by this.
+   */
+  private int pendingJobs = 0;
+
+  /**
+   * The executor running the report jobs.
+   */
+  private final ExecutorService executor;
+
+  /**
+   * The jobs by id, in access order, guarded by this.
+   */
+  private final LinkedHashMap<UUID, ReportJob> jobs;
+
+  /**
+   * The id of the latest job of every report key, guarded by this.
+   */
+  private final Map<ReportKey, UUID> jobsByKey = new HashMap<>();
+
+  /**
+   * Constructor of the ReportJobService class.
+   *
+   * @param managementService - ManagementService
+   * @param logRepository     - LogRepository
+   * @param workers           - the number of reports measured at the same time
+   * @param cacheSize         - the number of finished jobs kept
+   * @param maxPendingJobs    - the number of jobs queued or running at the
+   *                          same time
+   */
+  public ReportJobService(
+      ManagementService managementService,
+      LogRepository logRepository,
+      @Value("${lsea.report.job-workers:1}") int workers,
+      @Value("${lsea.report.cache-size:8}") int cacheSize,
+      @Value("${lsea.report.max-pending-jobs:16}") int maxPendingJobs) {
+    if (workers < 1) {
+      throw new IllegalArgumentException("lsea.report.job-workers must be at least 1");
+    }
+    if (cacheSize < 1) {
+      throw new IllegalArgumentException("lsea.report.cache-size must be at least 1");
+    }
+    if (maxPendingJobs < 1) {
+      throw new IllegalArgumentException("lsea.report.max-pending-jobs must be at least 1");
+    }
+    this.managementService = managementService;
+    this.logRepository = logRepository;
+    this.cacheSize = cacheSize;
+    this.maxPendingJobs = maxPendingJobs;
+
+    AtomicInteger threadNumber = new AtomicInteger();
+    this.executor = new ThreadPoolExecutor(
+        workers,
+        workers,
+        0L,
+        TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<>(maxPendingJobs),
+        runnable -> {
+          Thread thread = new Thread(runnable, "report-job-" + threadNumber.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+
+    this.jobs = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  /**
+   * Submits a report, the permission is verified before anything is queued.
+   * A report already submitted with the same parameters for the same logs is
+   * reused unless it failed.
+   *
+   * @param dto - GenerateReportDto
+   * @return the status of the job
+   * @throws GenericForbiddenError           if the user does not have the
+   *                                         permission
+   * @throws GenericNotFoundError            if the user is not found
+   * @throws GenericServiceUnavailableError  if too many jobs are queued or
+   *                                         running
+   * @throws ValidationError                 if the number of threads exceeds
+   *                                         the analysis capacity
+   */
+  public ReportJobStatus submit(GenerateReportDto dto)
+      throws GenericForbiddenError, GenericNotFoundError, GenericServiceUnavailableError, ValidationError {
+    managementService.verifyPermission();
+    managementService.validateNumThreads(dto.getNumThreads());
+
+    ReportKey key = new ReportKey(
+        dto.getNumThreads(),
+        dto.getIterations(),
+        dto.getWarmupIterations(),
+        dto.getMode() == null ? AnalysisMode.LATCH : dto.getMode(),
+        logRepository.count(),
+        logRepository.findLatestCreatedAt());
+
+    ReportJob job;
+    synchronized (this) {
+      UUID existingId = jobsByKey.get(key);
+      ReportJob existing = existingId == null ? null : jobs.get(existingId);
+      if (existing != null && existing.state != ReportJobState.FAILED) {
+        return existing.toStatus(true);
+      }
+      if (pendingJobs >= maxPendingJobs) {
+        throw new GenericServiceUnavailableError("The report workers are overloaded, try again later");
+      }
+
+      job = new ReportJob(UUID.randomUUID(), key);
+      jobs.put(job.id, job);
+      jobsByKey.put(key, job.id);
+      pendingJobs++;
+    }
+
+    ReportJob submitted = job;
+    try {
+      executor.execute(() -> run(submitted, dto));
+    } catch (RejectedExecutionException e) {
+      synchronized (this) {
+        jobs.remove(submitted.id);
+        jobsByKey.remove(key, submitted.id);
+        pendingJobs--;
+      }
+      throw new GenericServiceUnavailableError("The report workers are overloaded, try again later");
+    }
+    return submitted.toStatus(false);
+  }
+
+  /**
+   * Returns the status of a job.
+   *
+   * @param jobId - the id of the job
+   * @return the status of the job
+   * @throws GenericForbiddenError if the user does not have the permission
+   * @throws GenericNotFoundError  if the user or the job is not found
+   */
+  public ReportJobStatus status(UUID jobId)
+      throws GenericForbiddenError, GenericNotFoundError {
+    managementService.verifyPermission();
+
+    return findJob(jobId).toStatus(false);
+  }
+
+  /**
+   * Returns the workbook of a finished job.
+   *
+   * @param jobId - the id of the job
+   * @return the temporary file of the workbook, deleted once the job is
+   *         evicted
+   * @throws GenericForbiddenError if the user does not have the permission
+   * @throws GenericNotFoundError  if the user or the job is not found
+   * @throws GenericConflictError  if the report is not finished
+   */
+  public Path reportFile(UUID jobId)
+      throws GenericForbiddenError, GenericNotFoundError, GenericConflictError {
+    managementService.verifyPermission();
+
+    ReportJob job = findJob(jobId);
+    if (job.state != ReportJobState.DONE) {
+      throw new GenericConflictError("Report is not ready");
+    }
+    return job.file;
+  }
+
+  /**
+   * Returns the job with the given id.
+   *
+   * @param jobId - the id of the job
+   * @return the job
+   * @throws GenericNotFoundError if the job is not found or was evicted
+   */
+  private synchronized ReportJob findJob(UUID jobId) throws GenericNotFoundError {
+    ReportJob job = jobs.get(jobId);
+    if (job == null) {
+      throw new GenericNotFoundError("Report job not found");
+    }
+    return job;
+  }
+
+  /**
+   * Measures the report of a job and writes it to a temporary file. The job
+   * is finished under the lock, so it is never evicted before its final state
+   * is set.
+   *
+   * @param job - the job
+   * @param dto - GenerateReportDto
+   */
+  private void run(ReportJob job, GenerateReportDto dto) {
+    job.state = ReportJobState.RUNNING;
+    Path file = null;
+    String error = null;
+    try {
+      List<Map<Integer, ReportStatistics>> result = managementService.measureReport(
+          dto.getNumThreads(),
+          dto.getIterations(),
+          dto.getWarmupIterations(),
+          dto.getMode(),
+          done -> job.progress = (double) done / dto.getNumThreads());
+
+      file = Files.createTempFile("report-", ".xlsx");
+      try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+        managementService.writeReport(dto, result.get(0), result.get(1), dto.getIterations(), out);
+      }
+    } catch (Exception e) {
+      if (e instanceof InterruptedException) {
+        Thread.currentThread().interrupt();
+      }
+      deleteQuietly(file);
+      file = null;
+      error = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+    }
+
+    synchronized (this) {
+      pendingJobs--;
+      if (!jobs.containsKey(job.id)) {
+        // discarded by shutdown
+        deleteQuietly(file);
+        return;
+      }
+      if (error == null) {
+        job.file = file;
+        job.progress = 1;
+        job.state = ReportJobState.DONE;
+      } else {
+        job.error = error;
+        job.state = ReportJobState.FAILED;
+      }
+      jobs.put(job.id, jobs.remove(job.id));
+      evictFinished();
+    }
+  }
+
+  /**
+   * Evicts the least recently used finished jobs beyond the cache size, the
+   * queued and running jobs are skipped wherever they are. Must hold the lock.
+   */
+  private void evictFinished() {
+    int finished = 0;
+    for (ReportJob job : jobs.values()) {
+      if (job.isFinished()) {
+        finished++;
+      }
+    }
+    Iterator<ReportJob> iterator = jobs.values().iterator();
+    while (finished > cacheSize && iterator.hasNext()) {
+      ReportJob job = iterator.next();
+      if (job.isFinished()) {
+        iterator.remove();
+        evict(job);
+        finished--;
+      }
+    }
+  }
+
+  /**
+   * Removes an evicted job from the key index and deletes its report, must
+   * hold the lock.
+   *
+   * @param job - the evicted job
+   */
+  private void evict(ReportJob job) {
+    jobsByKey.remove(job.key, job.id);
+    deleteQuietly(job.file);
+  }
+
+  /**
+   * Stops the report workers and deletes the reports once the service is
+   * discarded.
+   */
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+    synchronized (this) {
+      jobs.values().forEach(job -> deleteQuietly(job.file));
+      jobs.clear();
+      jobsByKey.clear();
+    }
+  }
+
+  /**
+   * Deletes a report file, ignoring a missing one.
+   *
+   * @param file - the report file, may be null
+   */
+  private static void deleteQuietly(Path file) {
+    if (file == null) {
+      return;
+    }
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      System.out.println("Could not delete the report " + file + ": " + e.getMessage());
+    }
+  }
+
+  /**
+   * The parameters of a report and the version of the logs it was measured on.
+   */
+  @EqualsAndHashCode
+  @RequiredArgsConstructor
+  private static final class ReportKey {
+
+    /**
+     * The maximum number of threads.
+     */
+    private final int numThreads;
+
+    /**
+     * The number of measured iterations.
+     */
+    private final int iterations;
+
+    /**
+     * The number of warm-up iterations.
+     */
+    private final int warmupIterations;
+
+    /**
+     * The way of splitting the analysis between threads.
+     */
+    private final AnalysisMode mode;
+
+    /**
+     * The number of logs.
+     */
+    private final long logCount;
+
+    /**
+     * The creation timestamp of the latest log, null if there is none.
+     */
+    private final Date latestCreatedAt;
+  }
+
+  /**
+   * A submitted report.
+   */
+  private static final class ReportJob {
+
+    /**
+     * The id of the job.
+     */
+    private final UUID id;
+
+    /**
+     * The key of the report.
+     */
+    private final ReportKey key;
+
+    /**
+     * The state of the job.
+     */
+    private volatile ReportJobState state = ReportJobState.QUEUED;
+
+    /**
+     * The share of the threads numbers already measured, from 0 to 1.
+     */
+    private volatile double progress;
+
+    /**
+     * The workbook of a finished job.
+     */
+    private volatile Path file;
+
+    /**
+     * The error message of a failed job.
+     */
+    private volatile String error;
+
+    /**
+     * Creates a queued job.
+     *
+     * @param id  - the id of the job
+     * @param key - the key of the report
+     */
+    private ReportJob(UUID id, ReportKey key) {
+      this.id = id;
+      this.key = key;
+    }
+
+    /**
+     * Returns whether the job is done or failed.
+     *
+     * @return true if the job is finished
+     */
+    private boolean isFinished() {
+      return state == ReportJobState.DONE || state == ReportJobState.FAILED;
+    }
+
+    /**
+     * Returns the status of the job.
+     *
+     * @param cached - whether the job was reused for a new submission
+     * @return the status of the job
+     */
+    private ReportJobStatus toStatus(boolean cached) {
+      return ReportJobStatus
+          .builder()
+          .jobId(id)
+          .state(state)
+          .progress(progress)
+          .cached(cached)
+          .error(error)
+          .status(200)
+          .build();
+    }
+  }
+}
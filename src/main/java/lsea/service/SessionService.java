@@ -0,0 +1,252 @@
+package lsea.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import lsea.entity.RefreshToken;
+import lsea.entity.User;
+import lsea.errors.GenericForbiddenError;
+import lsea.repository.RefreshTokenRepository;
+import lsea.repository.UserRepository;
+import lsea.utils.JwtTokenIssuer;
+import lsea.utils.SessionTokens;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Service layer for the sessions of the users.
+ *
+ * A login opens a session made of a short-lived JWT access token and an opaque
+ * refresh token. The access token is trusted as is until it expires, the
+ * refresh token is exchanged once for the next pair, which is when the user is
+ * read from the database and a ban ends the session. A refresh token presented
+ * twice is taken as stolen and revokes the whole session. Every refresh slides
+ * the expiration of the session, up to its maximum age.
+ */
+@Service
+public class SessionService extends BaseService {
+
+  /**
+   * The number of random bytes of a refresh token.
+   */
+  private static final int REFRESH_TOKEN_BYTES = 32;
+
+  /**
+   * The hexadecimal digits.
+   */
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  /**
+   * The source of the refresh tokens.
+   */
+  private final SecureRandom random = new SecureRandom();
+
+  /**
+   * Repository of the refresh tokens.
+   */
+  private final RefreshTokenRepository refreshTokenRepository;
+
+  /**
+   * Repository of the users, read directly so a ban is never missed.
+   */
+  private final UserRepository userRepository;
+
+  /**
+   * The lifetime of an access token, in seconds.
+   */
+  private final int accessTokenTtlSeconds;
+
+  /**
+   * The lifetime of a refresh token, in seconds.
+   */
+  private final int refreshTokenTtlSeconds;
+
+  /**
+   * The maximum age of a session, in milliseconds.
+   */
+  private final long sessionMaxAgeMillis;
+
+  /**
+   * Constructor of the SessionService class.
+   *
+   * @param refreshTokenRepository - RefreshTokenRepository
+   * @param userRepository         - UserRepository
+   * @param accessTokenTtlSeconds  - the lifetime of an access token
+   * @param refreshTokenTtlSeconds - the lifetime of a refresh token, extended
+   *                               by every refresh
+   * @param sessionMaxAgeSeconds   - the maximum age of a session, a new login
+   *                               is required after it
+   */
+  @Autowired
+  public SessionService(
+      RefreshTokenRepository refreshTokenRepository,
+      UserRepository userRepository,
+      @Value("${lsea.auth.access-token-ttl-seconds:900}") int accessTokenTtlSeconds,
+      @Value("${lsea.auth.refresh-token-ttl-seconds:604800}") int refreshTokenTtlSeconds,
+      @Value("${lsea.auth.session-max-age-seconds:2592000}") long sessionMaxAgeSeconds) {
+    if (accessTokenTtlSeconds < 1) {
+      throw new IllegalArgumentException("lsea.auth.access-token-ttl-seconds must be at least 1");
+    }
+    if (refreshTokenTtlSeconds < accessTokenTtlSeconds) {
+      throw new IllegalArgumentException(
+          "lsea.auth.refresh-token-ttl-seconds must not be less than the access token lifetime");
+    }
+    if (sessionMaxAgeSeconds < refreshTokenTtlSeconds) {
+      throw new IllegalArgumentException(
+          "lsea.auth.session-max-age-seconds must not be less than the refresh token lifetime");
+    }
+    this.refreshTokenRepository = refreshTokenRepository;
+    this.userRepository = userRepository;
+    this.accessTokenTtlSeconds = accessTokenTtlSeconds;
+    this.refreshTokenTtlSeconds = refreshTokenTtlSeconds;
+    this.sessionMaxAgeMillis = TimeUnit.SECONDS.toMillis(sessionMaxAgeSeconds);
+  }
+
+  /**
+   * Opens a session for a user whose credentials were verified.
+   *
+   * @param user - the user
+   * @return the tokens of the new session
+   */
+  @Transactional
+  public SessionTokens open(User user) {
+    Date now = new Date();
+    return issue(user.getId(), UUID.randomUUID(), now, now);
+  }
+
+  /**
+   * Exchanges a refresh token for the next tokens of its session. The token is
+   * claimed by a conditional update, so of two concurrent exchanges only one
+   * succeeds and the other is taken as a reuse.
+   *
+   * @param refreshToken - the opaque refresh token
+   * @return the new tokens
+   * @throws GenericForbiddenError if the token is unknown, expired, revoked or
+   *                               already used, or if the user is banned
+   */
+  @Transactional
+  public SessionTokens refresh(String refreshToken) throws GenericForbiddenError {
+    Optional<RefreshToken> stored = refreshTokenRepository.findByTokenHash(hash(refreshToken));
+    if (!stored.isPresent()) {
+      throw new GenericForbiddenError("Invalid refresh token");
+    }
+
+    RefreshToken current = stored.get();
+    Date now = new Date();
+    if (current.getUsedAt() != null && current.getRevokedAt() == null) {
+      // a used token is back, the session may be stolen: end it
+      refreshTokenRepository.revokeFamily(current.getFamilyId(), now);
+      throw new GenericForbiddenError("Invalid refresh token");
+    }
+    if (!current.isActive(now)) {
+      throw new GenericForbiddenError("Invalid refresh token");
+    }
+
+    Optional<User> user = userRepository.findById(current.getUserId());
+    if (!user.isPresent()) {
+      refreshTokenRepository.revokeFamily(current.getFamilyId(), now);
+      throw new GenericForbiddenError("Invalid refresh token");
+    }
+    if (user.get().isBanned()) {
+      refreshTokenRepository.revokeFamily(current.getFamilyId(), now);
+      throw new GenericForbiddenError("User " + user.get().getEmail() + " is banned");
+    }
+
+    if (refreshTokenRepository.claim(current.getId(), now) == 0) {
+      // exchanged concurrently, the token was presented twice: end the session
+      refreshTokenRepository.revokeFamily(current.getFamilyId(), now);
+      throw new GenericForbiddenError("Invalid refresh token");
+    }
+    return issue(current.getUserId(), current.getFamilyId(), current.getSessionStartedAt(), now);
+  }
+
+  /**
+   * Ends the session of a refresh token, when the user logs out. An unknown
+   * token is ignored.
+   *
+   * @param refreshToken - the opaque refresh token
+   */
+  @Transactional
+  public void close(String refreshToken) {
+    refreshTokenRepository
+        .findByTokenHash(hash(refreshToken))
+        .ifPresent(token -> refreshTokenRepository.revokeFamily(token.getFamilyId(), new Date()));
+  }
+
+  /**
+   * Revokes all the sessions of a user. The access tokens already issued stay
+   * valid until they expire.
+   *
+   * @param userId - the id of the user
+   */
+  @Transactional
+  public void revokeAll(UUID userId) {
+    refreshTokenRepository.revokeUser(userId, new Date());
+  }
+
+  /**
+   * Issues an access token and stores the next refresh token of a session.
+   *
+   * @param userId           - the id of the user
+   * @param familyId         - the id of the session
+   * @param sessionStartedAt - the date the session was opened
+   * @param now              - the current date
+   * @return the new tokens
+   */
+  private SessionTokens issue(UUID userId, UUID familyId, Date sessionStartedAt, Date now) {
+    byte[] bytes = new byte[REFRESH_TOKEN_BYTES];
+    random.nextBytes(bytes);
+    String refreshToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+    long sessionEnd = sessionStartedAt.getTime() + sessionMaxAgeMillis;
+    long expiresAt = Math.min(now.getTime() + TimeUnit.SECONDS.toMillis(refreshTokenTtlSeconds), sessionEnd);
+
+    refreshTokenRepository.save(RefreshToken
+        .builder()
+        .id(UUID.randomUUID())
+        .tokenHash(hash(refreshToken))
+        .userId(userId)
+        .familyId(familyId)
+        .sessionStartedAt(sessionStartedAt)
+        .createdAt(now)
+        .expiresAt(new Date(expiresAt))
+        .build());
+
+    return SessionTokens
+        .builder()
+        .accessToken(JwtTokenIssuer.getInstance().issue(userId, TimeUnit.SECONDS.toMillis(accessTokenTtlSeconds)))
+        .accessTokenMaxAge(accessTokenTtlSeconds)
+        .refreshToken(refreshToken)
+        .refreshTokenMaxAge((int) TimeUnit.MILLISECONDS.toSeconds(expiresAt - now.getTime()))
+        .build();
+  }
+
+  /**
+   * Hashes a refresh token, only the hash is stored.
+   *
+   * @param refreshToken - the opaque refresh token
+   * @return the hex encoded SHA-256 hash
+   */
+  private static String hash(String refreshToken) {
+    byte[] digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256").digest(refreshToken.getBytes(StandardCharsets.US_ASCII));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+    char[] hex = new char[digest.length * 2];
+    for (int i = 0; i < digest.length; i++) {
+      hex[2 * i] = HEX[(digest[i] >> 4) & 0xF];
+      hex[2 * i + 1] = HEX[digest[i] & 0xF];
+    }
+    return new String(hex);
+  }
+}
@@ -0,0 +1,239 @@
+package lsea.service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lsea.entity.Log;
+import lsea.entity.User;
+import lsea.errors.GenericInternalServerError;
+import lsea.errors.ValidationError;
+import lsea.utils.LogType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Generator of synthetic logs for load testing.
+ *
+ * The logs are built in batches sharing the serialized state of their user and
+ * inserted with JDBC batches, one transaction per batch, by one or more writer
+ * threads. A caller already running in a transaction has its logs written on
+ * its own thread in that transaction, so they commit or roll back with it. The
+ * synthetic logs are not pushed to the live clients, a seed of millions of rows
+ * would overrun the log bus and make them miss the real logs.
+ */
+@Component
+public class TestDataGenerator {
+
+  /**
+   * The LogBatchWriter attribute is used to insert the batches.
+   */
+  private final LogBatchWriter logBatchWriter;
+
+  /**
+   * The transaction of a batch written by a writer thread.
+   */
+  private final TransactionTemplate transactionTemplate;
+
+  /**
+   * The leaderboard offered the generated logs.
+   */
+  private final LogLeaderboard logLeaderboard;
+
+  /**
+   * The number of logs per batch when the request does not choose.
+   */
+  private final int defaultBatchSize;
+
+  /**
+   * The largest number of logs per batch a request may choose.
+   */
+  private final int maximumBatchSize;
+
+  /**
+   * The largest number of writer threads of a request.
+   */
+  private final int maximumThreads;
+
+  /**
+   * Constructor of the TestDataGenerator class.
+   *
+   * @param logBatchWriter     - LogBatchWriter
+   * @param transactionManager - the transaction manager of the batches
+   * @param logLeaderboard     - LogLeaderboard
+   * @param defaultBatchSize   - the number of logs per batch by default
+   * @param maximumBatchSize   - the largest number of logs per batch
+   * @param maximumThreads     - the largest number of writer threads
+   */
+  @Autowired
+  public TestDataGenerator(
+      LogBatchWriter logBatchWriter,
+      PlatformTransactionManager transactionManager,
+      LogLeaderboard logLeaderboard,
+      @Value("${lsea.logs.generator.batch-size:1000}") int defaultBatchSize,
+      @Value("${lsea.logs.generator.max-batch-size:10000}") int maximumBatchSize,
+      @Value("${lsea.logs.generator.max-threads:4}") int maximumThreads) {
+    if (defaultBatchSize < 1) {
+      throw new IllegalArgumentException("lsea.logs.generator.batch-size must be at least 1");
+    }
+    if (maximumBatchSize < defaultBatchSize) {
+      throw new IllegalArgumentException("lsea.logs.generator.max-batch-size must not be less than the batch size");
+    }
+    if (maximumThreads < 1) {
+      throw new IllegalArgumentException("lsea.logs.generator.max-threads must be at least 1");
+    }
+    this.logBatchWriter = logBatchWriter;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.logLeaderboard = logLeaderboard;
+    this.defaultBatchSize = defaultBatchSize;
+    this.maximumBatchSize = maximumBatchSize;
+    this.maximumThreads = maximumThreads;
+  }
+
+  /**
+   * Generates synthetic logs of a user, "test0" to "test{rows - 1}".
+   *
+   * @param user      - the author of the logs
+   * @param rows      - the number of logs
+   * @param batchSize - the number of logs per batch, 0 for the default
+   * @param threads   - the number of writer threads, capped by the maximum
+   * @return the number of rows, the batch size, the number of threads, the
+   *         duration in milliseconds and the rows written per second
+   * @throws ValidationError            if the number of logs is negative or
+   *                                    the batch size out of range
+   * @throws GenericInternalServerError if a batch could not be written
+   */
+  public Map<String, Object> generate(User user, int rows, int batchSize, int threads)
+      throws ValidationError, GenericInternalServerError {
+    if (rows < 0) {
+      throw new ValidationError("The number of logs must not be negative");
+    }
+    if (batchSize < 0 || batchSize > maximumBatchSize) {
+      throw new ValidationError("The batch size must be between 1 and " + maximumBatchSize);
+    }
+    int size = batchSize > 0 ? batchSize : defaultBatchSize;
+    boolean inTransaction = TransactionSynchronizationManager.isActualTransactionActive();
+    int writers = inTransaction ? 1 : Math.max(1, Math.min(threads, maximumThreads));
+    String userState = user.toJson();
+    AtomicLong nextRow = new AtomicLong();
+
+    long start = System.nanoTime();
+    if (inTransaction) {
+      write(user, userState, rows, size, nextRow);
+    } else {
+      ExecutorService executor = Executors.newFixedThreadPool(writers, runnable -> {
+        Thread thread = new Thread(runnable, "test-data-writer");
+        thread.setDaemon(true);
+        return thread;
+      });
+      try {
+        List<Future<?>> futures = new ArrayList<>(writers);
+        for (int i = 0; i < writers; i++) {
+          futures.add(executor.submit(() -> write(user, userState, rows, size, nextRow)));
+        }
+        for (Future<?> future : futures) {
+          future.get();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new GenericInternalServerError(e);
+      } catch (ExecutionException e) {
+        throw new GenericInternalServerError("The test data could not be written");
+      } finally {
+        executor.shutdownNow();
+      }
+    }
+    long durationNanos = System.nanoTime() - start;
+
+    Map<String, Object> results = new HashMap<>();
+    results.put("rows", rows);
+    results.put("batchSize", size);
+    results.put("threads", writers);
+    results.put("durationMillis", TimeUnit.NANOSECONDS.toMillis(durationNanos));
+    results.put("rowsPerSecond", durationNanos == 0 ? 0 : (long) (rows * 1e9 / durationNanos));
+    return results;
+  }
+
+  /**
+   * Writes batches of logs until every row is claimed. The claims are counted
+   * in a long, so the writers claiming past the last row never overflow.
+   *
+   * @param user      - the author of the logs
+   * @param userState - the serialized state of the user
+   * @param rows      - the number of logs
+   * @param batchSize - the number of logs per batch
+   * @param nextRow   - the next row to claim, shared by the writers
+   */
+  private void write(User user, String userState, int rows, int batchSize, AtomicLong nextRow) {
+    for (long first = nextRow.getAndAdd(batchSize); first < rows; first = nextRow.getAndAdd(batchSize)) {
+      insert(build(user, userState, (int) first, (int) Math.min(rows, first + batchSize)));
+    }
+  }
+
+  /**
+   * Builds the synthetic logs "test{first}" to "test{last - 1}" of a user.
+   *
+   * @param user      - the author of the logs
+   * @param userState - the serialized state of the user, shared by the logs
+   * @param first     - the first row
+   * @param last      - the row after the last one
+   * @return the logs
+   */
+  public List<Log> build(User user, String userState, int first, int last) {
+    List<Log> batch = new ArrayList<>(last - first);
+    Date createdAt = new Date();
+    for (int row = first; row < last; row++) {
+      String data = "test" + row;
+      batch.add(Log
+          .builder()
+          .data(data)
+          .dataLength(data.length())
+          .logType(LogType.values()[0])
+          .userId(user.getId())
+          .createdAt(createdAt)
+          .userCurrentState(userState)
+          .build());
+    }
+    return batch;
+  }
+
+  /**
+   * Inserts a batch of logs and offers them to the leaderboard once
+   * committed.
+   * The batch joins the transaction of the caller, or runs in its own.
+   *
+   * @param batch - the logs, given an id if they have none
+   */
+  public void insert(List<Log> batch) {
+    if (TransactionSynchronizationManager.isActualTransactionActive()) {
+      logBatchWriter.insert(batch);
+      batch.forEach(logLeaderboard::offerAfterCommit);
+      return;
+    }
+    transactionTemplate.execute(status -> {
+      logBatchWriter.insert(batch);
+      return null;
+    });
+    batch.forEach(logLeaderboard::offer);
+  }
+
+  /**
+   * Returns the number of logs per batch when the request does not choose.
+   *
+   * @return the default batch size
+   */
+  public int getDefaultBatchSize() {
+    return defaultBatchSize;
+  }
+}
@@ -0,0 +1,141 @@
+package lsea.service;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import lsea.entity.TokenRevocation;
+import lsea.repository.TokenRevocationRepository;
+import lsea.utils.JwtTokenIssuer;
+import lsea.utils.TokenRevocationList;
+import lsea.utils.VerifiedToken;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Service layer for the revocation of the JWT tokens.
+ *
+ * A revocation is stored in the database and applied at once to the
+ * TokenRevocationList consulted by the token verification, it is cancelled
+ * there if the transaction rolls back. The list is rebuilt from the database
+ * at startup.
+ */
+@Service
+public class TokenRevocationService extends BaseService {
+
+  /**
+   * Repository of the revocations.
+   */
+  private final TokenRevocationRepository tokenRevocationRepository;
+
+  /**
+   * The in-memory list of the revocations.
+   */
+  private final TokenRevocationList revocationList = TokenRevocationList.getInstance();
+
+  /**
+   * Constructor of the TokenRevocationService class.
+   *
+   * @param tokenRevocationRepository - TokenRevocationRepository
+   */
+  @Autowired
+  public TokenRevocationService(TokenRevocationRepository tokenRevocationRepository) {
+    this.tokenRevocationRepository = tokenRevocationRepository;
+  }
+
+  /**
+   * Drops the expired revocations and loads the others into the revocation
+   * list.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  @Transactional
+  public void load() {
+    Date now = new Date();
+    tokenRevocationRepository.deleteExpired(now);
+    List<TokenRevocation> revocations = tokenRevocationRepository.findByExpiresAtAfter(now);
+    for (TokenRevocation revocation : revocations) {
+      if (revocation.getTokenId() != null) {
+        revocationList.revokeToken(revocation.getTokenId(), revocation.getExpiresAt().getTime());
+      } else {
+        revocationList.revokeUser(
+            revocation.getUserId(),
+            revocation.getRevokedAt().getTime(),
+            revocation.getExpiresAt().getTime());
+      }
+    }
+    if (!revocations.isEmpty()) {
+      System.out.println("Loaded " + revocations.size() + " token revocations");
+    }
+  }
+
+  /**
+   * Revokes a token until it expires, when its session is logged out.
+   *
+   * @param token - the claims of the token
+   */
+  @Transactional
+  public void revokeToken(VerifiedToken token) {
+    UUID tokenId = token.getId();
+    if (tokenId == null) {
+      // without an id only the whole user could be revoked
+      return;
+    }
+    tokenRevocationRepository.save(TokenRevocation
+        .builder()
+        .id(UUID.randomUUID())
+        .tokenId(tokenId)
+        .userId(token.getSubject())
+        .revokedAt(new Date())
+        .expiresAt(new Date(token.getExpiresAt()))
+        .build());
+
+    if (revocationList.revokeToken(tokenId, token.getExpiresAt())) {
+      onRollback(() -> revocationList.cancelToken(tokenId));
+    }
+  }
+
+  /**
+   * Revokes every token issued to a user so far, when the user is banned.
+   *
+   * @param userId - the id of the user
+   */
+  @Transactional
+  public void revokeUser(UUID userId) {
+    long now = System.currentTimeMillis();
+    long expiresAt = now + JwtTokenIssuer.TOKEN_LIFETIME_MILLIS;
+    tokenRevocationRepository.save(TokenRevocation
+        .builder()
+        .id(UUID.randomUUID())
+        .userId(userId)
+        .revokedAt(new Date(now))
+        .expiresAt(new Date(expiresAt))
+        .build());
+
+    if (revocationList.revokeUser(userId, now, expiresAt)) {
+      onRollback(() -> revocationList.cancelUser(userId, now));
+    }
+  }
+
+  /**
+   * Runs an action if the current transaction rolls back.
+   *
+   * @param action - the action
+   */
+  private static void onRollback(Runnable action) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCompletion(int status) {
+        if (status != STATUS_COMMITTED) {
+          action.run();
+        }
+      }
+    });
+  }
+}
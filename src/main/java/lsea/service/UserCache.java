@@ -0,0 +1,360 @@
+package lsea.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lsea.entity.User;
+import lsea.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Near-cache of the users in front of the UserRepository, indexed by id and by
+ * email.
+ *
+ * A user is cached for a bounded time, once full the expired users are dropped
+ * first, then arbitrary ones. A cached user is handed out as a detached copy,
+ * so a service may modify and save it without affecting the other requests. A
+ * user read inside a transaction is cached only once the transaction commits,
+ * and a modified user is dropped both at once and after the commit, so a rolled
+ * back or concurrent change is never served from the cache.
+ */
+@Component
+public class UserCache {
+
+  /**
+   * The UserRepository attribute is used to load the users not cached.
+   */
+  private final UserRepository userRepository;
+
+  /**
+   * The time a user is cached, in nanoseconds.
+   */
+  private final long ttlNanos;
+
+  /**
+   * The maximum number of cached users, 0 disables the cache.
+   */
+  private final int maximumSize;
+
+  /**
+   * The cached users by id.
+   */
+  private final Map<UUID, Entry> byId = new ConcurrentHashMap<>();
+
+  /**
+   * The ids of the cached users by email.
+   */
+  private final Map<String, UUID> byEmail = new ConcurrentHashMap<>();
+
+  /**
+   * The number of lookups answered by the cache.
+   */
+  private final AtomicLong hits = new AtomicLong();
+
+  /**
+   * The number of lookups answered by the database.
+   */
+  private final AtomicLong misses = new AtomicLong();
+
+  /**
+   * The number of users dropped because the cache was full.
+   */
+  private final Counter sizeEvictions;
+
+  /**
+   * The number of users dropped because they expired.
+   */
+  private final Counter expirations;
+
+  /**
+   * Constructor of the UserCache class.
+   *
+   * @param userRepository   - UserRepository
+   * @param ttlSeconds       - the time a user is cached
+   * @param maximumSize      - the maximum number of cached users, 0 disables
+   *                         the cache
+   * @param jvmMeterRegistry - the meter registry the metrics are exported to
+   */
+  @Autowired
+  public UserCache(
+      UserRepository userRepository,
+      @Value("${lsea.auth.user-cache-ttl-seconds:60}") long ttlSeconds,
+      @Value("${lsea.auth.user-cache-size:10000}") int maximumSize,
+      MeterRegistry jvmMeterRegistry) {
+    if (ttlSeconds < 0) {
+      throw new IllegalArgumentException("lsea.auth.user-cache-ttl-seconds must not be negative");
+    }
+    if (maximumSize < 0) {
+      throw new IllegalArgumentException("lsea.auth.user-cache-size must not be negative");
+    }
+    this.userRepository = userRepository;
+    this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+    this.maximumSize = ttlSeconds == 0 ? 0 : maximumSize;
+
+    FunctionCounter.builder("users.cache.hits", hits, AtomicLong::get)
+        .description("The number of users found in the user cache")
+        .register(jvmMeterRegistry);
+    FunctionCounter.builder("users.cache.misses", misses, AtomicLong::get)
+        .description("The number of users loaded from the database")
+        .register(jvmMeterRegistry);
+    Gauge.builder("users.cache.hit.ratio", this, UserCache::hitRatio)
+        .description("The share of the user lookups answered by the cache")
+        .register(jvmMeterRegistry);
+    Gauge.builder("users.cache.size", byId, Map::size)
+        .description("The number of cached users")
+        .register(jvmMeterRegistry);
+    this.sizeEvictions = Counter.builder("users.cache.evictions")
+        .tag("cause", "size")
+        .description("The number of users dropped from the user cache")
+        .register(jvmMeterRegistry);
+    this.expirations = Counter.builder("users.cache.evictions")
+        .tag("cause", "expired")
+        .description("The number of users dropped from the user cache")
+        .register(jvmMeterRegistry);
+  }
+
+  /**
+   * Returns the user with the given id.
+   *
+   * @param id - the id of the user
+   * @return the user, a detached copy if it was cached, empty if the user does
+   *         not exist
+   */
+  public Optional<User> findById(UUID id) {
+    User cached = lookup(id, null);
+    if (cached != null) {
+      return Optional.of(cached);
+    }
+    Optional<User> user = userRepository.findById(id);
+    user.ifPresent(this::cache);
+    return user;
+  }
+
+  /**
+   * Returns the user with the given email.
+   *
+   * @param email - the email of the user
+   * @return the user, a detached copy if it was cached, empty if the user does
+   *         not exist
+   */
+  public Optional<User> findByEmail(String email) {
+    UUID id = byEmail.get(email);
+    User cached = id == null ? null : lookup(id, email);
+    if (cached != null) {
+      return Optional.of(cached);
+    }
+    if (id == null) {
+      misses.incrementAndGet();
+    }
+    Optional<User> user = userRepository.findByEmail(email);
+    user.ifPresent(this::cache);
+    return user;
+  }
+
+  /**
+   * Drops a user from the cache, at once and again after the current
+   * transaction commits.
+   *
+   * @param id - the id of the user
+   */
+  public void invalidate(UUID id) {
+    if (id == null) {
+      return;
+    }
+    remove(id);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          remove(id);
+        }
+      });
+    }
+  }
+
+  /**
+   * Drops all the cached users.
+   */
+  public void clear() {
+    byId.clear();
+    byEmail.clear();
+  }
+
+  /**
+   * Returns the share of the lookups answered by the cache.
+   *
+   * @return the hit ratio, from 0 to 1
+   */
+  public double hitRatio() {
+    long hitCount = hits.get();
+    long total = hitCount + misses.get();
+    return total == 0 ? 0 : (double) hitCount / total;
+  }
+
+  /**
+   * Returns a copy of a cached user, counting a hit or a miss.
+   *
+   * @param id    - the id of the user
+   * @param email - the expected email of the user, null to accept any
+   * @return the copy, null if the user is not cached, has expired or changed
+   *         its email
+   */
+  private User lookup(UUID id, String email) {
+    Entry entry = byId.get(id);
+    if (entry != null && entry.expiresAt - System.nanoTime() <= 0) {
+      if (byId.remove(id, entry)) {
+        byEmail.remove(entry.user.getEmail(), id);
+        expirations.increment();
+      }
+      entry = null;
+    }
+    if (entry == null || (email != null && !email.equals(entry.user.getEmail()))) {
+      misses.incrementAndGet();
+      return null;
+    }
+    hits.incrementAndGet();
+    return copy(entry.user);
+  }
+
+  /**
+   * Caches a user loaded from the database, once the current transaction
+   * commits if there is one.
+   *
+   * @param user - the loaded user
+   */
+  private void cache(User user) {
+    if (maximumSize == 0) {
+      return;
+    }
+    User snapshot = copy(user);
+    if (!TransactionSynchronizationManager.isActualTransactionActive()
+        || !TransactionSynchronizationManager.isSynchronizationActive()) {
+      put(snapshot);
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        put(snapshot);
+      }
+    });
+  }
+
+  /**
+   * Stores a snapshot of a user, making room first if the cache is full.
+   *
+   * @param snapshot - the copy of the user
+   */
+  private void put(User snapshot) {
+    if (byId.size() >= maximumSize && !byId.containsKey(snapshot.getId())) {
+      evict();
+    }
+    Entry previous = byId.put(snapshot.getId(), new Entry(snapshot, System.nanoTime() + ttlNanos));
+    if (previous != null && !previous.user.getEmail().equals(snapshot.getEmail())) {
+      byEmail.remove(previous.user.getEmail(), snapshot.getId());
+    }
+    byEmail.put(snapshot.getEmail(), snapshot.getId());
+  }
+
+  /**
+   * Drops a user from both indexes.
+   *
+   * @param id - the id of the user
+   */
+  private void remove(UUID id) {
+    Entry entry = byId.remove(id);
+    if (entry != null) {
+      byEmail.remove(entry.user.getEmail(), id);
+    }
+  }
+
+  /**
+   * Makes room for a user, dropping the expired users first and then
+   * arbitrary ones until a tenth of the cache is free.
+   */
+  private void evict() {
+    long now = System.nanoTime();
+    int target = maximumSize - Math.max(1, maximumSize / 10);
+    Iterator<Map.Entry<UUID, Entry>> iterator = byId.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<UUID, Entry> entry = iterator.next();
+      if (entry.getValue().expiresAt - now <= 0) {
+        iterator.remove();
+        byEmail.remove(entry.getValue().user.getEmail(), entry.getKey());
+        expirations.increment();
+      }
+    }
+    iterator = byId.entrySet().iterator();
+    while (byId.size() > target && iterator.hasNext()) {
+      Map.Entry<UUID, Entry> entry = iterator.next();
+      iterator.remove();
+      byEmail.remove(entry.getValue().user.getEmail(), entry.getKey());
+      sizeEvictions.increment();
+    }
+  }
+
+  /**
+   * Copies the persistent fields of a user, the websites are left out.
+   *
+   * @param user - the user
+   * @return a detached copy
+   */
+  private static User copy(User user) {
+    User copy = User
+        .builder()
+        .id(user.getId())
+        .username(user.getUsername())
+        .password(user.getPassword())
+        .createdAt(user.getCreatedAt())
+        .updatedAt(user.getUpdatedAt())
+        .email(user.getEmail())
+        .confirmationCode(user.getConfirmationCode())
+        .confirmedAt(user.getConfirmedAt())
+        .globalPermission(user.getGlobalPermission())
+        .bannedAt(user.getBannedAt())
+        .banReason(user.getBanReason())
+        .bannedById(user.getBannedById())
+        .build();
+    copy.markPersisted();
+    return copy;
+  }
+
+  /**
+   * A cached user.
+   */
+  private static final class Entry {
+
+    /**
+     * The snapshot of the user, never handed out.
+     */
+    private final User user;
+
+    /**
+     * The expiration of the entry, in System.nanoTime() units.
+     */
+    private final long expiresAt;
+
+    /**
+     * Creates an entry.
+     *
+     * @param user      the snapshot of the user
+     * @param expiresAt the expiration of the entry
+     */
+    private Entry(User user, long expiresAt) {
+      this.user = user;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
@@ -7,8 +7,12 @@ import lsea.entity.User;
 import lsea.errors.GenericConflictError;
 import lsea.errors.GenericForbiddenError;
 import lsea.errors.GenericNotFoundError;
+import lsea.errors.GenericServiceUnavailableError;
+import lsea.middleware.AuthenticatedPrincipal;
 import lsea.repository.UserRepository;
 import lsea.utils.GlobalPermissions;
+import lsea.utils.SessionTokens;
+import lsea.utils.VerifiedTokenCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -24,15 +28,56 @@ public class UserService extends BaseService {
    */
   private UserRepository userRepository;
 
+  /**
+   * The user authenticated by the current request.
+   */
+  private AuthenticatedPrincipal principal;
+
+  /**
+   * Near-cache of the users, invalidated by every change of a user.
+   */
+  private UserCache userCache;
+
+  /**
+   * Hashes and verifies the passwords on a dedicated executor.
+   */
+  private PasswordHasher passwordHasher;
+
+  /**
+   * Opens, refreshes and revokes the sessions of the users.
+   */
+  private SessionService sessionService;
+
+  /**
+   * Revokes the JWT tokens of the banned users and logged out sessions.
+   */
+  private TokenRevocationService tokenRevocationService;
+
   /**
    * Constructs a new instance of UserService class with UserRepositoryInterface
    * dependency injection.
    *
    * @param userRepository an instance of UserRepositoryInterface
+   * @param principal      the request-scoped authenticated principal
+   * @param userCache      the near-cache of the users
+   * @param passwordHasher the hasher of the passwords
+   * @param sessionService the service of the sessions
+   * @param tokenRevocationService the service revoking the tokens
    */
   @Autowired
-  public UserService(UserRepository userRepository) {
+  public UserService(
+      UserRepository userRepository,
+      AuthenticatedPrincipal principal,
+      UserCache userCache,
+      PasswordHasher passwordHasher,
+      SessionService sessionService,
+      TokenRevocationService tokenRevocationService) {
     this.userRepository = userRepository;
+    this.principal = principal;
+    this.userCache = userCache;
+    this.passwordHasher = passwordHasher;
+    this.sessionService = sessionService;
+    this.tokenRevocationService = tokenRevocationService;
   }
 
   /* Requirement 2.8 */
@@ -47,29 +92,35 @@ public class UserService extends BaseService {
    * Saves a new User to the UserRepository.
    *
    * @param dto a new User instance
-   * @throws GenericConflictError if a user with the same email already exists
+   * @throws GenericConflictError           if a user with the same email
+   *                                        already exists
+   * @throws GenericServiceUnavailableError if the password hashing is
+   *                                        overloaded
    */
   @Transactional
   /* Requirement 7.2 */
-  public void createOne(CreateUserDto dto) throws GenericConflictError {
+  public void createOne(CreateUserDto dto) throws GenericConflictError, GenericServiceUnavailableError {
     Optional<User> existingUser = userRepository.findByEmail(dto.getEmail());
     if (existingUser.isPresent()) {
       throw new GenericConflictError(
           "User with email " + dto.getEmail() + " already exists.");
     }
-    final User user = User.create(dto);
+    final User user = User.create(dto, passwordHasher.hash(dto.getPassword()));
     userRepository.save(user);
   }
 
   /**
-   * Logs in a user and returns a JWT token.
+   * Logs in a user and opens a session. A password hashed with another cost
+   * factor than the current one is rehashed in the background.
    *
    * @param dto the user credentials
-   * @return a JWT token
-   * @throws GenericForbiddenError if the user credentials are invalid
+   * @return the access and refresh tokens of the session
+   * @throws GenericForbiddenError          if the user credentials are invalid
+   * @throws GenericServiceUnavailableError if the password hashing is
+   *                                        overloaded
    */
-  public String authorize(AuthorizeUserDto dto) throws GenericForbiddenError {
-    Optional<User> userOptional = userRepository.findByEmail(dto.getEmail());
+  public SessionTokens authorize(AuthorizeUserDto dto) throws GenericForbiddenError, GenericServiceUnavailableError {
+    Optional<User> userOptional = userCache.findByEmail(dto.getEmail());
     if (!userOptional.isPresent()) {
       throw new GenericForbiddenError("Invalid e-mail or password");
     }
@@ -80,8 +131,48 @@ public class UserService extends BaseService {
       throw new GenericForbiddenError("User " + user.getEmail() + " is banned");
     }
 
-    user.verifyPassword(dto.getPassword());
-    return user.getJwtToken();
+    String hash = user.getPassword();
+    if (!passwordHasher.verify(dto.getPassword(), hash)) {
+      throw new GenericForbiddenError("Invalid e-mail or password");
+    }
+
+    if (passwordHasher.needsRehash(hash)) {
+      UUID userId = user.getId();
+      passwordHasher.rehashLater(dto.getPassword(), newHash -> {
+        if (userRepository.replacePassword(userId, hash, newHash) > 0) {
+          userCache.invalidate(userId);
+        }
+      });
+    }
+
+    return sessionService.open(user);
+  }
+
+  /**
+   * Exchanges a refresh token for the next tokens of its session.
+   *
+   * @param refreshToken the opaque refresh token
+   * @return the new access and refresh tokens
+   * @throws GenericForbiddenError if the refresh token is invalid or the user
+   *                               is banned
+   */
+  public SessionTokens refresh(String refreshToken) throws GenericForbiddenError {
+    return sessionService.refresh(refreshToken);
+  }
+
+  /**
+   * Logs out the authenticated user: the token of the request is revoked and
+   * the session of the refresh token is ended.
+   *
+   * @param refreshToken the opaque refresh token, null if there is none
+   * @throws GenericForbiddenError if the token is missing, invalid or revoked
+   */
+  @Transactional
+  public void logout(String refreshToken) throws GenericForbiddenError {
+    tokenRevocationService.revokeToken(principal.getVerifiedToken());
+    if (refreshToken != null) {
+      sessionService.close(refreshToken);
+    }
   }
 
   /**
@@ -96,47 +187,34 @@ public class UserService extends BaseService {
   }
 
   /**
-   * Update username of a user by id.
+   * Update username of the authenticated user.
    *
-   * @param token the token of the User instance to be updated
-   * @param dto   the dto containing the new username and email
+   * @param dto the dto containing the new username and email
    * @throws GenericForbiddenError when user is not authorized
    * @throws GenericNotFoundError  when user is not found
    */
   /* Requirement 7.2 */
   /* Requirement 7.5 */
   @Transactional
-  public void updateOne(String token, UpdateUserDto dto) throws GenericForbiddenError, GenericNotFoundError {
-    UUID userId = User.verifyToken(token);
-    Optional<User> userOptional = userRepository.findById(userId);
-    if (!userOptional.isPresent()) {
-      throw new GenericNotFoundError("User not found");
-    }
-    User user = userOptional.get();
+  public void updateOne(UpdateUserDto dto) throws GenericForbiddenError, GenericNotFoundError {
+    User user = principal.getUser();
     user.setUsername(dto.getUsername());
     user.setEmail(dto.getEmail());
     userRepository.save(user);
+    userCache.invalidate(user.getId());
   }
 
   /**
-   * Retrieves a User instance by token.
+   * Retrieves the authenticated user if it has the given permission.
    *
-   * @param token the token of the User instance to be retrieved
+   * @param globalPermissions the required global permission
    * @return admin instance
    * @throws GenericForbiddenError when user is not authorized
    * @throws GenericNotFoundError  when user is not found
    */
-  private User verifyWithPermissions(String token, int globalPermissions)
+  private User verifyWithPermissions(int globalPermissions)
       throws GenericForbiddenError, GenericNotFoundError {
-    UUID userId = User.verifyToken(token);
-
-    Optional<User> userOptional = userRepository.findById(userId);
-
-    if (!userOptional.isPresent()) {
-      throw new GenericNotFoundError("User not found");
-    }
-
-    User user = userOptional.get();
+    User user = principal.getUser();
 
     if (user.getGlobalPermission() < globalPermissions) {
       throw new GenericForbiddenError("Permission denied");
@@ -146,17 +224,17 @@ public class UserService extends BaseService {
   }
 
   /**
-   * Banning the user by his email address.
+   * Banning the user by his email address. The sessions and the tokens
+   * already issued to the user are revoked.
    *
-   * @param dto   of the user to ban
-   * @param token to validate the authorization of the user
+   * @param dto of the user to ban
    * @throws GenericNotFoundError  when user is not found
    * @throws GenericForbiddenError when user is not authorized
    */
   /* Requirement 7.2 */
   @Transactional
-  public void ban(BanUserDto dto, String token) throws GenericNotFoundError, GenericForbiddenError {
-    User user = verifyWithPermissions(token, GlobalPermissions.ADMIN);
+  public void ban(BanUserDto dto) throws GenericNotFoundError, GenericForbiddenError {
+    User user = verifyWithPermissions(GlobalPermissions.ADMIN);
 
     Optional<User> userToBanOptional = userRepository.findByEmail(dto.getEmailAddress());
     if (!userToBanOptional.isPresent()) {
@@ -165,26 +243,30 @@ public class UserService extends BaseService {
 
     User userToBan = userToBanOptional.get();
 
-    if (user.equals(userToBan)) {
+    // the principal may come from another persistence context, compare the ids
+    if (user.getId().equals(userToBan.getId())) {
       throw new GenericForbiddenError("You cannot ban yourself! Ask another admin to do it.");
     }
 
     userToBan.ban(user.getId(), dto.getBanReason());
     userRepository.save(userToBan);
+    userCache.invalidate(userToBan.getId());
+    VerifiedTokenCache.getInstance().invalidateUser(userToBan.getId());
+    tokenRevocationService.revokeUser(userToBan.getId());
+    sessionService.revokeAll(userToBan.getId());
   }
 
   /**
    * Unbanning the user by his email address.
    *
-   * @param dto   of the user to unban
-   * @param token to validate the authorization of the user
+   * @param dto of the user to unban
    * @throws GenericNotFoundError  when user is not found
    * @throws GenericForbiddenError when user is not authorized
    */
   /* Requirement 7.2 */
   @Transactional
-  public void unBan(UnBanUserDto dto, String token) throws GenericNotFoundError, GenericForbiddenError {
-    verifyWithPermissions(token, GlobalPermissions.ADMIN);
+  public void unBan(UnBanUserDto dto) throws GenericNotFoundError, GenericForbiddenError {
+    verifyWithPermissions(GlobalPermissions.ADMIN);
 
     Optional<User> userToUnBanOptional = userRepository.findByEmail(dto.getEmailAddress());
     if (!userToUnBanOptional.isPresent()) {
@@ -195,5 +277,6 @@ public class UserService extends BaseService {
 
     user.unBan();
     userRepository.save(user);
+    userCache.invalidate(user.getId());
   }
 }
@@ -8,6 +8,7 @@ import lsea.entity.User;
 import lsea.entity.Website;
 import lsea.errors.GenericForbiddenError;
 import lsea.errors.GenericNotFoundError;
+import lsea.middleware.AuthenticatedPrincipal;
 import lsea.repository.UserRepository;
 import lsea.repository.WebsiteRepository;
 import lsea.utils.GlobalPermissions;
@@ -30,43 +31,47 @@ public class WebsiteService {
    */
   private final UserRepository userRepository;
 
+  /**
+   * The user authenticated by the current request.
+   */
+  private final AuthenticatedPrincipal principal;
+
   /**
    * Instantiates a new Website service.
    *
    * @param websiteRepository the website repository
    * @param userRepository    the user repository
+   * @param principal         the request-scoped authenticated principal
    */
   @Autowired
   public WebsiteService(
       WebsiteRepository websiteRepository,
-      UserRepository userRepository) {
+      UserRepository userRepository,
+      AuthenticatedPrincipal principal) {
     this.websiteRepository = websiteRepository;
     this.userRepository = userRepository;
+    this.principal = principal;
   }
 
   /**
-   * Create one.
+   * Create one on behalf of the authenticated user.
    *
-   * @param dto   the dto
-   * @param token the token
+   * @param dto the dto
    * @throws GenericNotFoundError  the generic not found error
    * @throws GenericForbiddenError the generic forbidden error
    */
   /* Requirement 7.2 */
   @Transactional
-  public void createOne(CreateWebsiteDto dto, String token)
+  public void createOne(CreateWebsiteDto dto)
       throws GenericNotFoundError, GenericForbiddenError {
-    UUID userId = User.verifyToken(token);
-    Optional<User> user = userRepository.findById(userId);
+    User user = principal.getUser();
 
-    if (!user.isPresent()) {
-      throw new GenericNotFoundError("User not found");
-    } else if (user.get().hasGlobalAccess(GlobalPermissions.MODERATOR)) {
+    if (user.hasGlobalAccess(GlobalPermissions.MODERATOR)) {
       throw new GenericForbiddenError(
           "User has no permission to create a website");
     }
 
-    final Website website = Website.create(dto, user.get());
+    final Website website = Website.create(dto, user);
     websiteRepository.save(website);
   }
 
@@ -195,16 +200,14 @@ public class WebsiteService {
   /**
    * Delete by id, but only the owner of the website can delete it
    *
-   * @param dto   the dto
-   * @param token the token
+   * @param dto the dto
    * @throws GenericNotFoundError  the generic not found error
    * @throws GenericForbiddenError the generic forbidden error
    */
   /* Requirement 7.6 */
-  public void deleteOne(DeleteWebsiteDto dto, String token)
+  public void deleteOne(DeleteWebsiteDto dto)
       throws GenericNotFoundError, GenericForbiddenError {
-    UUID userId = User.verifyToken(token);
-    User user = userRepository.findById(userId).orElse(null);
+    User user = principal.getUser();
     List<Website> websites = websiteRepository.findByUser(user);
     Website website = websiteRepository.findById(UUID.fromString(dto.getWebsiteId())).orElse(null);
     if (website == null) {
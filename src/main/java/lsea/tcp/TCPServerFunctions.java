@@ -1,166 +1,331 @@
 package lsea.tcp;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.ObjectOutputStream;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.sql.*;
-import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import lsea.entity.Log;
 import lsea.entity.User;
 import lsea.errors.GenericForbiddenError;
+import lsea.errors.ValidationError;
+import lsea.service.LogBus;
 import lsea.service.LogService;
+import lsea.utils.LogPage;
 import org.springframework.stereotype.Component;
 
 /**
- * This class contains all the functions used by the TCP server.
+ * This class contains all the functions used by the TCP server, the protocol
+ * run for every client.
+ *
+ * A client sends its token, then commands answered with serialized logs. The
+ * messages are handled by the event loop of the client; the token checks and
+ * the queries run on the workers.
  */
 @Component
 /* Requirement 6.TCP */
 public class TCPServerFunctions {
 
+  /**
+   * The commands of the clients, a command before any command it starts with.
+   */
+  private static final List<String> COMMANDS = Arrays.asList(
+      "get-log-cursor", "get-log", "live-get-log", "live-stop");
+
+  /**
+   * The largest number of logs pushed to a live client in one frame.
+   */
+  private static final int LIVE_FRAME_SIZE = 100;
+
+  /**
+   * The time after which an empty frame is pushed to a live client.
+   */
+  private static final long LIVE_HEARTBEAT_MILLIS = 1000;
+
   /**
    * The log service.
    */
-  private static LogService logService;
+  private final LogService logService;
+
+  /**
+   * The bus of the committed logs pushed to the live clients.
+   */
+  private final LogBus logBus;
 
   /**
    * Constructor of the TCPServerFunctions class.
    *
    * @param logService - LogService
+   * @param logBus     - LogBus
    */
-  public TCPServerFunctions(LogService logService) {
-    TCPServerFunctions.logService = logService;
+  public TCPServerFunctions(LogService logService, LogBus logBus) {
+    this.logService = logService;
+    this.logBus = logBus;
   }
 
   /**
-   * Handles the communication with a client.
+   * Handles the messages read from a client, until its input is empty or work
+   * of the client runs on the workers.
    *
-   * @param clientSocket the client socket
-   * @throws IOException          if an I/O error occurs when creating the input
-   *                              stream, the socket is closed, the
-   * @throws InterruptedException if the current thread is interrupted by another
-   *                              thread while it is waiting
-   */
-  public static void handleClient(Socket clientSocket)
-      throws IOException, InterruptedException {
-    // Get the input stream from the client socket
-    InputStream inputStream = clientSocket.getInputStream();
-    ObjectOutputStream outputStream = new ObjectOutputStream(
-        clientSocket.getOutputStream());
-
-    // Create a byte array to store the incoming data
-    byte[] buffer = new byte[1024];
-    int bytesRead;
-
-    // Read the first message from the client and verify the token
-    if ((bytesRead = inputStream.read(buffer)) != -1) {
-      String clientMessage = new String(buffer, 0, bytesRead);
+   * @param connection the client
+   * @throws IOException if a response cannot be sent
+   */
+  void onInput(TcpConnection connection) throws IOException {
+    while (!connection.isClosed() && !connection.isBusy() && connection.getInput().length() > 0) {
+      String message = connection.takeMessage(messageLength(connection.getState(), connection.getInput()));
+      onMessage(connection, message);
+    }
+  }
 
-      try {
-        User.verifyToken(clientMessage);
-      } catch (GenericForbiddenError e) {
-        clientSocket.close();
-        System.out.println(
-            "Invalid token. Client disconnected: " +
-                clientSocket.getInetAddress().getHostAddress());
+  /**
+   * Returns the length of the first message of an input. The clients send a
+   * message per write but several may be read at once: a command is
+   * recognized at the start of the input, any other message ends where a
+   * command starts.
+   *
+   * @param state the step of the protocol of the client
+   * @param input the input
+   * @return the length of the first message
+   */
+  static int messageLength(TcpConnection.State state, CharSequence input) {
+    String text = input.toString();
+    if (state == TcpConnection.State.COMMAND || state == TcpConnection.State.LIVE) {
+      for (String command : COMMANDS) {
+        if (text.startsWith(command)) {
+          return command.length();
+        }
+      }
+    }
+    int length = text.length();
+    for (String command : COMMANDS) {
+      int start = text.indexOf(command, 1);
+      if (start > 0 && start < length) {
+        length = start;
       }
     }
+    return length;
+  }
 
-    // Read data from the client until the input stream is closed
-    while ((bytesRead = inputStream.read(buffer)) != -1) {
-      // Convert the received bytes to a string
-      String clientMessage = new String(buffer, 0, bytesRead);
-      System.out.println("Received message from client: " + clientMessage);
-
-      int limit = 0;
-      int offset = 0;
-
-      if (clientMessage.equals("get-log")) {
-        if ((bytesRead = inputStream.read(buffer)) != -1) {
-          String paramsString = new String(buffer, 0, bytesRead);
-          String[] parsedData = paramsString.split(",");
-          offset = Integer.parseInt(parsedData[0]);
-          limit = Integer.parseInt(parsedData[1]);
+  /**
+   * Handles a message of a client.
+   *
+   * @param connection the client
+   * @param message    the message
+   * @throws IOException if the response cannot be sent
+   */
+  private void onMessage(TcpConnection connection, String message) throws IOException {
+    switch (connection.getState()) {
+      case TOKEN:
+        verifyToken(connection, message);
+        break;
+      case COMMAND:
+        onCommand(connection, message);
+        break;
+      case LOG_PARAMS:
+        sendLogs(connection, message);
+        break;
+      case CURSOR_PARAMS:
+        sendLogPage(connection, message);
+        break;
+      case LIVE:
+        if (message.equals("live-stop")) {
+          stopLiveLogs(connection);
         }
+        break;
+      default:
+        break;
+    }
+  }
 
-        // Get the logs from the database
-        List<Log> logs;
-        logs = logService.findLogs(offset, limit);
-        System.out.println("Logs: " + logs.size());
-        outputStream.writeInt(logs.size());
+  /**
+   * Pushes the next logs to a live client, or an empty frame when it got none
+   * for a heartbeat. Every frame is the number of logs followed by the
+   * serialized logs.
+   *
+   * @param connection the live client
+   * @param now        the current time in nanoseconds
+   * @return true if the frame is full, more logs may be waiting
+   * @throws IOException if the frame cannot be sent
+   */
+  boolean pushLiveFrame(TcpConnection connection, long now) throws IOException {
+    List<Log> logs;
+    try {
+      logs = connection.getSubscription().poll(LIVE_FRAME_SIZE, 0);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+    if (logs.isEmpty() && now - connection.getLastFrame() < TimeUnit.MILLISECONDS.toNanos(LIVE_HEARTBEAT_MILLIS)) {
+      return false;
+    }
+    writeLogs(connection.output(), logs);
+    connection.send();
+    connection.setLastFrame(now);
+    return logs.size() == LIVE_FRAME_SIZE;
+  }
 
-        // Send the serialized logs
-        for (Log log : logs) {
-          outputStream.writeObject(log);
-        }
-        outputStream.flush();
+  /**
+   * Verifies the token sent first by a client, the connection is closed if it
+   * is invalid.
+   *
+   * @param connection the client
+   * @param token      the token
+   */
+  private void verifyToken(TcpConnection connection, String token) {
+    connection.offload(() -> {
+      try {
+        User.verifyToken(token);
+        return true;
+      } catch (GenericForbiddenError e) {
+        return false;
       }
-
-      if (clientMessage.equals("live-get-log")) {
-        Timestamp instant = Timestamp.from(Instant.now());
-        boolean liveCapture = true;
-        while (liveCapture) {
-          List<Log> logs;
-          logs = logService.findLiveLogs(instant);
-          System.out.println(logs.size());
-          outputStream.writeInt(logs.size());
-
-          for (Log log : logs) {
-            outputStream.writeObject(log);
-          }
-          outputStream.flush();
-
-          instant = Timestamp.from(Instant.now());
-          // Wait for 1 second before checking for new logs again
-          Thread.sleep(1000);
-
-          if ((bytesRead = inputStream.read(buffer)) != -1) {
-            String msg = new String(buffer, 0, bytesRead);
-            System.out.println(msg);
-            if (msg.equals("live-stop")) {
-              liveCapture = false;
-            }
-          }
-        }
+    }, valid -> {
+      if (valid) {
+        connection.setState(TcpConnection.State.COMMAND);
+      } else {
+        System.out.println("Invalid token. Client disconnected: " + connection.getRemoteAddress());
+        connection.close();
       }
-    }
-
-    clientSocket.close();
-    System.out.println(
-        "Client disconnected: " + clientSocket.getInetAddress().getHostAddress());
+    });
   }
 
   /**
-   * Starts the server
+   * Handles a command of a client.
+   *
+   * @param connection the client
+   * @param command    the command
+   * @throws IOException if the first live frame cannot be sent
    */
-  public static void startServer() {
-    int port = 3000;
-    try (ServerSocket serverSocket = new ServerSocket(port)) {
-      System.out.println("Server listening on port " + port);
+  private void onCommand(TcpConnection connection, String command) throws IOException {
+    System.out.println("Received message from client: " + command);
+    switch (command) {
+      case "get-log":
+        connection.setState(TcpConnection.State.LOG_PARAMS);
+        break;
+      case "get-log-cursor":
+        connection.setState(TcpConnection.State.CURSOR_PARAMS);
+        break;
+      case "live-get-log":
+        startLiveLogs(connection);
+        break;
+      default:
+        break;
+    }
+  }
 
-      while (true) {
-        // Accept incoming connections
-        Socket clientSocket = serverSocket.accept();
-        System.out.println(
-            "Client connected: " + clientSocket.getInetAddress().getHostAddress());
+  /**
+   * Sends a page of logs read with an offset.
+   *
+   * @param connection the client
+   * @param params     "offset,limit"
+   */
+  private void sendLogs(TcpConnection connection, String params) {
+    connection.setState(TcpConnection.State.COMMAND);
+    String[] parsedData = params.split(",");
+    int offset;
+    int limit;
+    try {
+      offset = Integer.parseInt(parsedData[0]);
+      limit = Integer.parseInt(parsedData[1]);
+    } catch (RuntimeException e) {
+      System.out.println("Invalid page request: " + params);
+      offset = 0;
+      limit = 0;
+    }
+    int pageOffset = offset;
+    int pageLimit = limit;
 
-        // Handle the client connection in a separate thread
-        Thread clientThread = new Thread(() -> {
+    connection.offload(
+        () -> pageLimit < 1 ? Collections.<Log>emptyList() : logService.findLogs(pageOffset, pageLimit),
+        logs -> {
           try {
-            handleClient(clientSocket);
+            // Send the serialized logs
+            writeLogs(connection.output(), logs);
+            connection.send();
           } catch (IOException e) {
-            throw new RuntimeException(e);
-          } catch (InterruptedException e) {
-            throw new RuntimeException(e);
+            connection.close();
           }
         });
-        clientThread.start();
+  }
+
+  /**
+   * Sends a page of logs read with a cursor.
+   *
+   * @param connection the client
+   * @param params     "limit,cursor", the cursor is left empty for the first
+   *                   page
+   */
+  private void sendLogPage(TcpConnection connection, String params) {
+    connection.setState(TcpConnection.State.COMMAND);
+    String[] parsedData = params.split(",", 2);
+    String cursor = parsedData.length > 1 ? parsedData[1] : null;
+
+    connection.offload(() -> {
+      try {
+        return logService.findLogPage(cursor, Integer.parseInt(parsedData[0]));
+      } catch (ValidationError e) {
+        System.out.println("Invalid page request: " + e.e.getMessage());
+      } catch (NumberFormatException e) {
+        System.out.println("Invalid page request: " + params);
+      }
+      return LogPage.builder().logs(Collections.emptyList()).build();
+    }, page -> {
+      try {
+        // Send the serialized logs followed by the cursor of the next page
+        ObjectOutputStream outputStream = connection.output();
+        writeLogs(outputStream, page.getLogs());
+        outputStream.writeObject(page.getNextCursor());
+        connection.send();
+      } catch (IOException e) {
+        connection.close();
       }
-    } catch (IOException e) {
-      e.printStackTrace();
+    });
+  }
+
+  /**
+   * Subscribes a client to the logs committed from now on and sends it a
+   * first empty frame.
+   *
+   * @param connection the client
+   * @throws IOException if the frame cannot be sent
+   */
+  private void startLiveLogs(TcpConnection connection) throws IOException {
+    connection.setSubscription(logBus.subscribe());
+    connection.setState(TcpConnection.State.LIVE);
+    connection.setLastFrame(System.nanoTime());
+    writeLogs(connection.output(), Collections.emptyList());
+    connection.send();
+  }
+
+  /**
+   * Ends the live capture of a client with a count of -1.
+   *
+   * @param connection the live client
+   * @throws IOException if the end of the stream cannot be sent
+   */
+  private void stopLiveLogs(TcpConnection connection) throws IOException {
+    LogBus.Subscription subscription = connection.getSubscription();
+    if (subscription.getMissed() > 0) {
+      System.out.println("Live capture fell behind, missed logs: " + subscription.getMissed());
+    }
+    connection.setSubscription(null);
+    connection.setState(TcpConnection.State.COMMAND);
+    connection.output().writeInt(-1);
+    connection.send();
+  }
+
+  /**
+   * Serializes the number of logs followed by the logs.
+   *
+   * @param outputStream the stream of the client
+   * @param logs         the logs
+   * @throws IOException if a log cannot be serialized
+   */
+  private static void writeLogs(ObjectOutputStream outputStream, List<Log> logs) throws IOException {
+    outputStream.writeInt(logs.size());
+    for (Log log : logs) {
+      outputStream.writeObject(log);
     }
   }
 }
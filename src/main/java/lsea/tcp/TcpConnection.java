@@ -0,0 +1,410 @@
+package lsea.tcp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import lsea.service.LogBus;
+
+/**
+ * A client of the TCP server, owned by the event loop it was registered with.
+ *
+ * Every method is called by the thread of that event loop, except the work
+ * handed to the workers by offload. The responses are serialized in memory
+ * and written as the socket accepts them, so a slow client never blocks the
+ * loop.
+ */
+final class TcpConnection {
+
+  /**
+   * The step of the protocol a connection is at.
+   */
+  enum State {
+    /**
+     * Waiting for the token of the client.
+     */
+    TOKEN,
+
+    /**
+     * Waiting for a command.
+     */
+    COMMAND,
+
+    /**
+     * Waiting for the "offset,limit" parameters of get-log.
+     */
+    LOG_PARAMS,
+
+    /**
+     * Waiting for the "limit,cursor" parameters of get-log-cursor.
+     */
+    CURSOR_PARAMS,
+
+    /**
+     * Pushing the new logs until live-stop.
+     */
+    LIVE
+  }
+
+  /**
+   * The channel of the client.
+   */
+  private final SocketChannel channel;
+
+  /**
+   * The registration of the channel with the selector of the loop.
+   */
+  private final SelectionKey key;
+
+  /**
+   * The event loop owning the connection.
+   */
+  private final TcpEventLoop loop;
+
+  /**
+   * The serialized responses not moved to the pending buffers yet.
+   */
+  private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+  /**
+   * The stream the responses are serialized with, kept for the whole
+   * connection like the stream read by the client.
+   */
+  private final ObjectOutputStream objects;
+
+  /**
+   * The bytes waiting for the socket to accept them.
+   */
+  private final Deque<ByteBuffer> pending = new ArrayDeque<>();
+
+  /**
+   * The text read and not handled yet.
+   */
+  private final StringBuilder input = new StringBuilder();
+
+  /**
+   * The step of the protocol.
+   */
+  private State state = State.TOKEN;
+
+  /**
+   * The position of a live client in the bus of the logs.
+   */
+  private LogBus.Subscription subscription;
+
+  /**
+   * When the last live frame was sent, in nanoseconds.
+   */
+  private long lastFrame;
+
+  /**
+   * When a byte was last read from or written to the client, in nanoseconds.
+   */
+  private long lastActivity;
+
+  /**
+   * When the connection was accepted, in nanoseconds.
+   */
+  private final long connectedAt;
+
+  /**
+   * Whether work of the connection runs on the workers.
+   */
+  private boolean busy = false;
+
+  /**
+   * Whether the connection is closed.
+   */
+  private boolean closed = false;
+
+  /**
+   * Creates a connection and queues the header of its object stream.
+   *
+   * @param channel - the channel of the client
+   * @param key     - the registration of the channel
+   * @param loop    - the event loop owning the connection
+   * @throws IOException if the header cannot be serialized
+   */
+  TcpConnection(SocketChannel channel, SelectionKey key, TcpEventLoop loop) throws IOException {
+    this.channel = channel;
+    this.key = key;
+    this.loop = loop;
+    this.objects = new ObjectOutputStream(bytes);
+    this.connectedAt = System.nanoTime();
+    this.lastActivity = connectedAt;
+    send();
+  }
+
+  /**
+   * Reads what the client sent into the input.
+   *
+   * @param buffer - the buffer of the loop, cleared before the read
+   * @return true if something was read
+   * @throws IOException if the client closed the connection or the read failed
+   */
+  boolean read(ByteBuffer buffer) throws IOException {
+    buffer.clear();
+    int read = channel.read(buffer);
+    if (read == -1) {
+      throw new IOException("Connection closed by the client");
+    }
+    if (read == 0) {
+      return false;
+    }
+    lastActivity = System.nanoTime();
+    input.append(new String(buffer.array(), 0, read, StandardCharsets.UTF_8));
+    return true;
+  }
+
+  /**
+   * Returns the text read and not handled yet.
+   *
+   * @return the input
+   */
+  CharSequence getInput() {
+    return input;
+  }
+
+  /**
+   * Removes a message from the start of the input.
+   *
+   * @param length - the length of the message
+   * @return the message
+   */
+  String takeMessage(int length) {
+    String message = input.substring(0, length);
+    input.delete(0, length);
+    return message;
+  }
+
+  /**
+   * Returns the stream the next response is serialized with, sent by send.
+   *
+   * @return the object stream
+   */
+  ObjectOutputStream output() {
+    return objects;
+  }
+
+  /**
+   * Sends what was serialized since the last call. The stream forgets the
+   * written objects, so it keeps none of them.
+   *
+   * @throws IOException if the stream cannot be flushed or the write failed
+   */
+  void send() throws IOException {
+    objects.flush();
+    objects.reset();
+    if (bytes.size() == 0) {
+      return;
+    }
+    pending.add(ByteBuffer.wrap(bytes.toByteArray()));
+    bytes.reset();
+    write();
+  }
+
+  /**
+   * Writes the pending bytes the socket accepts and waits to be writable for
+   * the others.
+   *
+   * @throws IOException if the write failed
+   */
+  void write() throws IOException {
+    while (!pending.isEmpty()) {
+      ByteBuffer buffer = pending.peek();
+      if (channel.write(buffer) > 0) {
+        lastActivity = System.nanoTime();
+      }
+      if (buffer.hasRemaining()) {
+        break;
+      }
+      pending.poll();
+    }
+    if (!closed) {
+      int ops = key.interestOps();
+      key.interestOps(pending.isEmpty() ? ops & ~SelectionKey.OP_WRITE : ops | SelectionKey.OP_WRITE);
+    }
+  }
+
+  /**
+   * Returns whether bytes are still waiting for the socket.
+   *
+   * @return true if a response is not fully written
+   */
+  boolean isWriting() {
+    return !pending.isEmpty();
+  }
+
+  /**
+   * Runs work that may block on the workers, then hands its result to the
+   * loop. The client is not read meanwhile, so its next messages wait in the
+   * input and the socket. The connection is closed if the work fails.
+   *
+   * @param <T>  the type of the result
+   * @param work - the work, run by a worker
+   * @param then - the continuation, run by the loop
+   */
+  <T> void offload(Callable<T> work, Consumer<T> then) {
+    busy = true;
+    key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+    try {
+      loop.getWorkers().execute(() -> {
+        try {
+          T result = work.call();
+          loop.execute(() -> {
+            if (closed) {
+              return;
+            }
+            busy = false;
+            then.accept(result);
+            loop.resume(this);
+          });
+        } catch (Exception e) {
+          System.out.println("TCP request failed: " + e.getMessage());
+          loop.execute(this::close);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      System.out.println("TCP workers are overloaded, closing " + getRemoteAddress());
+      close();
+    }
+  }
+
+  /**
+   * Closes the channel, once.
+   */
+  void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    key.cancel();
+    try {
+      channel.close();
+    } catch (IOException e) {
+      // already closed
+    }
+    loop.closed(this);
+  }
+
+  /**
+   * Returns the address of the client, for the server logs.
+   *
+   * @return the address, or "unknown" once closed
+   */
+  String getRemoteAddress() {
+    try {
+      return String.valueOf(channel.getRemoteAddress());
+    } catch (IOException e) {
+      return "unknown";
+    }
+  }
+
+  /**
+   * Returns whether work of the connection runs on the workers.
+   *
+   * @return true until the continuation of the work has run
+   */
+  boolean isBusy() {
+    return busy;
+  }
+
+  /**
+   * Reads the client again once the work of the workers is done.
+   */
+  void resumeReads() {
+    key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+  }
+
+  /**
+   * Returns whether the connection is closed.
+   *
+   * @return true once closed
+   */
+  boolean isClosed() {
+    return closed;
+  }
+
+  /**
+   * Returns the step of the protocol.
+   *
+   * @return the state
+   */
+  State getState() {
+    return state;
+  }
+
+  /**
+   * Sets the step of the protocol, counting the live clients of the loop.
+   *
+   * @param state - the state
+   */
+  void setState(State state) {
+    if ((this.state == State.LIVE) != (state == State.LIVE)) {
+      loop.liveChanged(state == State.LIVE);
+    }
+    this.state = state;
+  }
+
+  /**
+   * Returns the position of a live client in the bus of the logs.
+   *
+   * @return the subscription, null unless live
+   */
+  LogBus.Subscription getSubscription() {
+    return subscription;
+  }
+
+  /**
+   * Sets the position of a live client in the bus of the logs.
+   *
+   * @param subscription - the subscription, null when the capture stops
+   */
+  void setSubscription(LogBus.Subscription subscription) {
+    this.subscription = subscription;
+  }
+
+  /**
+   * Returns when the last live frame was sent.
+   *
+   * @return the time in nanoseconds
+   */
+  long getLastFrame() {
+    return lastFrame;
+  }
+
+  /**
+   * Sets when the last live frame was sent.
+   *
+   * @param lastFrame - the time in nanoseconds
+   */
+  void setLastFrame(long lastFrame) {
+    this.lastFrame = lastFrame;
+  }
+
+  /**
+   * Returns when a byte was last read from or written to the client.
+   *
+   * @return the time in nanoseconds
+   */
+  long getLastActivity() {
+    return lastActivity;
+  }
+
+  /**
+   * Returns when the connection was accepted.
+   *
+   * @return the time in nanoseconds
+   */
+  long getConnectedAt() {
+    return connectedAt;
+  }
+}
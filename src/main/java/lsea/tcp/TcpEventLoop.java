@@ -0,0 +1,362 @@
+package lsea.tcp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A thread multiplexing the connections registered with it on a selector.
+ *
+ * The loop reads the messages, writes the responses as the sockets accept
+ * them, pushes the new logs to its live clients and closes the idle
+ * connections. It never blocks on anything but the selector: the work that
+ * may block runs on the workers and comes back as a task.
+ */
+final class TcpEventLoop implements Runnable {
+
+  /**
+   * The size of the buffer the messages are read in.
+   */
+  private static final int READ_BUFFER_SIZE = 4096;
+
+  /**
+   * The longest wait for the selector, the period of the heartbeats and of the
+   * idle checks.
+   */
+  private static final long TICK_MILLIS = 250;
+
+  /**
+   * The selector of the connections.
+   */
+  private final Selector selector;
+
+  /**
+   * The server the loop belongs to.
+   */
+  private final TcpLogServer server;
+
+  /**
+   * The protocol run for every connection.
+   */
+  private final TCPServerFunctions functions;
+
+  /**
+   * The tasks handed to the loop by the other threads.
+   */
+  private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+  /**
+   * The open connections, used by the loop thread only.
+   */
+  private final Set<TcpConnection> connections = new HashSet<>();
+
+  /**
+   * The buffer the messages are read in, used by the loop thread only.
+   */
+  private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+
+  /**
+   * Whether logs were published since the live clients were last served.
+   */
+  private final AtomicBoolean logsPublished = new AtomicBoolean();
+
+  /**
+   * The thread of the loop.
+   */
+  private final Thread thread;
+
+  /**
+   * Whether the loop keeps running.
+   */
+  private volatile boolean running = true;
+
+  /**
+   * The number of live clients of the loop.
+   */
+  private volatile int liveConnections = 0;
+
+  /**
+   * Creates a loop, started by start.
+   *
+   * @param server    - the server
+   * @param functions - the protocol
+   * @param name      - the name of the thread
+   * @throws IOException if the selector cannot be opened
+   */
+  TcpEventLoop(TcpLogServer server, TCPServerFunctions functions, String name) throws IOException {
+    this.server = server;
+    this.functions = functions;
+    this.selector = Selector.open();
+    this.thread = new Thread(this, name);
+    thread.setDaemon(true);
+  }
+
+  /**
+   * Starts the thread of the loop.
+   */
+  void start() {
+    thread.start();
+  }
+
+  /**
+   * Stops the loop, closing its connections, and waits for its thread.
+   *
+   * @param timeoutMillis - the longest wait
+   */
+  void stop(long timeoutMillis) {
+    running = false;
+    selector.wakeup();
+    try {
+      thread.join(timeoutMillis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Runs a task on the loop thread.
+   *
+   * @param task - the task
+   */
+  void execute(Runnable task) {
+    tasks.add(task);
+    selector.wakeup();
+  }
+
+  /**
+   * Hands an accepted channel to the loop.
+   *
+   * @param channel - the channel of the new client
+   */
+  void register(SocketChannel channel) {
+    execute(() -> {
+      try {
+        channel.configureBlocking(false);
+        SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+        TcpConnection connection = new TcpConnection(channel, key, this);
+        key.attach(connection);
+        connections.add(connection);
+        System.out.println("Client connected: " + connection.getRemoteAddress());
+      } catch (IOException e) {
+        System.out.println("Could not register a client: " + e.getMessage());
+        server.released();
+        closeQuietly(channel);
+      }
+    });
+  }
+
+  /**
+   * Wakes the loop up to push the published logs, if it has live clients.
+   * Called by the publishing threads.
+   */
+  void logsPublished() {
+    if (liveConnections > 0 && logsPublished.compareAndSet(false, true)) {
+      selector.wakeup();
+    }
+  }
+
+  /**
+   * Counts a client turning live or leaving the live capture.
+   *
+   * @param live - whether the client turned live
+   */
+  void liveChanged(boolean live) {
+    liveConnections += live ? 1 : -1;
+  }
+
+  /**
+   * Forgets a closed connection.
+   *
+   * @param connection - the connection
+   */
+  void closed(TcpConnection connection) {
+    if (connections.remove(connection)) {
+      if (connection.getState() == TcpConnection.State.LIVE) {
+        liveChanged(false);
+      }
+      server.released();
+      System.out.println("Client disconnected: " + connection.getRemoteAddress());
+    }
+  }
+
+  /**
+   * Handles the input left while the work of a connection ran on the workers,
+   * then reads the client again unless more work was started.
+   *
+   * @param connection - the connection
+   */
+  void resume(TcpConnection connection) {
+    try {
+      functions.onInput(connection);
+    } catch (IOException e) {
+      connection.close();
+    }
+    if (!connection.isClosed() && !connection.isBusy()) {
+      connection.resumeReads();
+    }
+  }
+
+  /**
+   * Returns the workers the blocking work runs on.
+   *
+   * @return the workers
+   */
+  ExecutorService getWorkers() {
+    return server.getWorkers();
+  }
+
+  /**
+   * Serves the connections until the loop is stopped.
+   */
+  @Override
+  public void run() {
+    long lastTick = System.nanoTime();
+    while (running) {
+      try {
+        if (logsPublished.get()) {
+          selector.selectNow();
+        } else {
+          selector.select(TICK_MILLIS);
+        }
+      } catch (IOException e) {
+        System.out.println("TCP selector failed: " + e.getMessage());
+        break;
+      }
+
+      Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+      while (selected.hasNext()) {
+        SelectionKey key = selected.next();
+        selected.remove();
+        handle(key);
+      }
+
+      Runnable task;
+      while ((task = tasks.poll()) != null) {
+        task.run();
+      }
+
+      long now = System.nanoTime();
+      boolean tick = now - lastTick >= TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS);
+      if (logsPublished.getAndSet(false) || tick) {
+        pushLiveLogs(now);
+      }
+      if (tick) {
+        closeIdleConnections(now);
+        lastTick = now;
+      }
+    }
+
+    Runnable task;
+    while ((task = tasks.poll()) != null) {
+      task.run();
+    }
+    for (TcpConnection connection : new ArrayList<>(connections)) {
+      connection.close();
+    }
+    try {
+      selector.close();
+    } catch (IOException e) {
+      // nothing left to release
+    }
+  }
+
+  /**
+   * Handles a ready channel.
+   *
+   * @param key - the key of the channel
+   */
+  private void handle(SelectionKey key) {
+    TcpConnection connection = (TcpConnection) key.attachment();
+    try {
+      if (key.isValid() && key.isWritable()) {
+        connection.write();
+      }
+      if (key.isValid() && key.isReadable() && connection.read(readBuffer)) {
+        functions.onInput(connection);
+      }
+    } catch (IOException e) {
+      connection.close();
+    }
+  }
+
+  /**
+   * Pushes the published logs to the live clients that are not still writing
+   * a previous frame, and an empty frame to the ones that got none for a
+   * heartbeat. A client left behind catches up from the bus.
+   *
+   * @param now - the current time in nanoseconds
+   */
+  private void pushLiveLogs(long now) {
+    if (liveConnections == 0) {
+      return;
+    }
+    List<TcpConnection> live = new ArrayList<>();
+    for (TcpConnection connection : connections) {
+      if (connection.getState() == TcpConnection.State.LIVE && !connection.isWriting()) {
+        live.add(connection);
+      }
+    }
+    for (TcpConnection connection : live) {
+      try {
+        if (functions.pushLiveFrame(connection, now)) {
+          // the frame was full, more logs may be waiting
+          logsPublished.set(true);
+        }
+      } catch (IOException e) {
+        connection.close();
+      }
+    }
+  }
+
+  /**
+   * Closes the connections without any byte read or written for the idle
+   * timeout, and the connections still waiting for their token for the
+   * handshake timeout since they were accepted, unless the token is being
+   * verified.
+   *
+   * @param now - the current time in nanoseconds
+   */
+  private void closeIdleConnections(long now) {
+    long timeout = TimeUnit.MILLISECONDS.toNanos(server.getIdleTimeoutMillis());
+    long handshakeTimeout = TimeUnit.MILLISECONDS.toNanos(server.getHandshakeTimeoutMillis());
+    List<TcpConnection> idle = new ArrayList<>();
+    for (TcpConnection connection : connections) {
+      if (now - connection.getLastActivity() > timeout) {
+        idle.add(connection);
+      } else if (connection.getState() == TcpConnection.State.TOKEN
+          && !connection.isBusy()
+          && now - connection.getConnectedAt() > handshakeTimeout) {
+        idle.add(connection);
+      }
+    }
+    for (TcpConnection connection : idle) {
+      System.out.println("Closing idle client: " + connection.getRemoteAddress());
+      connection.close();
+    }
+  }
+
+  /**
+   * Closes a channel that is not registered.
+   *
+   * @param channel - the channel
+   */
+  static void closeQuietly(SocketChannel channel) {
+    try {
+      channel.close();
+    } catch (IOException e) {
+      // already closed
+    }
+  }
+}
@@ -0,0 +1,402 @@
+package lsea.tcp;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lsea.service.LogBus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+/**
+ * The TCP server of the desktop clients, started and stopped with the
+ * application context.
+ *
+ * An acceptor thread hands the new connections to a small pool of event loops
+ * in turn, each multiplexing its connections on a selector, so the number of
+ * threads does not grow with the number of clients. The token checks and the
+ * queries run on a bounded pool of workers. The connections above the limit
+ * are closed as soon as they are accepted, and the connections idle for the
+ * timeout, or not sending their token in time, are closed by their loop.
+ */
+@Component
+/* Requirement 6.TCP */
+public class TcpLogServer implements SmartLifecycle {
+
+  /**
+   * The number of tasks waiting for a worker per worker thread.
+   */
+  private static final int WORKER_QUEUE_PER_THREAD = 64;
+
+  /**
+   * The longest wait for the threads of the server when it stops.
+   */
+  private static final long STOP_TIMEOUT_MILLIS = 5000;
+
+  /**
+   * The protocol run for every connection.
+   */
+  private final TCPServerFunctions functions;
+
+  /**
+   * The bus of the logs pushed to the live clients.
+   */
+  private final LogBus logBus;
+
+  /**
+   * Whether the server is started with the application.
+   */
+  private final boolean enabled;
+
+  /**
+   * The address the server listens on.
+   */
+  private final String bindAddress;
+
+  /**
+   * The port the server listens on, 0 for any free port.
+   */
+  private final int port;
+
+  /**
+   * The number of event loops.
+   */
+  private final int ioThreads;
+
+  /**
+   * The number of workers.
+   */
+  private final int workerThreads;
+
+  /**
+   * The largest number of open connections.
+   */
+  private final int maxConnections;
+
+  /**
+   * The time after which a connection without any traffic is closed.
+   */
+  private final long idleTimeoutMillis;
+
+  /**
+   * The time after which a connection that has not sent its token is closed.
+   */
+  private final long handshakeTimeoutMillis;
+
+  /**
+   * The number of open connections.
+   */
+  private final AtomicInteger connections = new AtomicInteger();
+
+  /**
+   * The number of connections closed because of the limit.
+   */
+  private final Counter rejected;
+
+  /**
+   * The callback waking up the loops when logs are published.
+   */
+  private final Runnable publishListener = this::logsPublished;
+
+  /**
+   * The event loops, while running.
+   */
+  private volatile List<TcpEventLoop> loops = new ArrayList<>();
+
+  /**
+   * The workers, while running.
+   */
+  private volatile ExecutorService workers;
+
+  /**
+   * The listening channel, while running.
+   */
+  private volatile ServerSocketChannel serverChannel;
+
+  /**
+   * The thread accepting the connections, while running.
+   */
+  private Thread acceptor;
+
+  /**
+   * Whether the server is running.
+   */
+  private volatile boolean running = false;
+
+  /**
+   * Constructor of the TcpLogServer class.
+   *
+   * @param functions         - TCPServerFunctions
+   * @param logBus            - LogBus
+   * @param enabled           - whether the server is started with the
+   *                          application
+   * @param bindAddress       - the address the server listens on
+   * @param port              - the port the server listens on, 0 for any
+   *                          free port
+   * @param ioThreads         - the number of event loops
+   * @param workerThreads     - the number of workers
+   * @param maxConnections    - the largest number of open connections
+   * @param idleTimeoutMillis - the time after which an idle connection is
+   *                          closed
+   * @param handshakeTimeoutMillis - the time after which a connection that
+   *                          has not sent its token is closed
+   * @param jvmMeterRegistry  - the meter registry the metrics are exported to
+   */
+  @Autowired
+  public TcpLogServer(
+      TCPServerFunctions functions,
+      LogBus logBus,
+      @Value("${lsea.tcp.enabled:true}") boolean enabled,
+      @Value("${lsea.tcp.bind-address:0.0.0.0}") String bindAddress,
+      @Value("${lsea.tcp.port:3000}") int port,
+      @Value("${lsea.tcp.io-threads:2}") int ioThreads,
+      @Value("${lsea.tcp.worker-threads:4}") int workerThreads,
+      @Value("${lsea.tcp.max-connections:1000}") int maxConnections,
+      @Value("${lsea.tcp.idle-timeout-ms:600000}") long idleTimeoutMillis,
+      @Value("${lsea.tcp.handshake-timeout-ms:10000}") long handshakeTimeoutMillis,
+      MeterRegistry jvmMeterRegistry) {
+    if (ioThreads < 1) {
+      throw new IllegalArgumentException("lsea.tcp.io-threads must be at least 1");
+    }
+    if (workerThreads < 1) {
+      throw new IllegalArgumentException("lsea.tcp.worker-threads must be at least 1");
+    }
+    if (maxConnections < 1) {
+      throw new IllegalArgumentException("lsea.tcp.max-connections must be at least 1");
+    }
+    if (idleTimeoutMillis < 1) {
+      throw new IllegalArgumentException("lsea.tcp.idle-timeout-ms must be at least 1");
+    }
+    if (handshakeTimeoutMillis < 1) {
+      throw new IllegalArgumentException("lsea.tcp.handshake-timeout-ms must be at least 1");
+    }
+    this.functions = functions;
+    this.logBus = logBus;
+    this.enabled = enabled;
+    this.bindAddress = bindAddress;
+    this.port = port;
+    this.ioThreads = ioThreads;
+    this.workerThreads = workerThreads;
+    this.maxConnections = maxConnections;
+    this.idleTimeoutMillis = idleTimeoutMillis;
+    this.handshakeTimeoutMillis = handshakeTimeoutMillis;
+
+    Gauge.builder("tcp.connections", connections, AtomicInteger::get)
+        .description("The number of open TCP connections")
+        .register(jvmMeterRegistry);
+    this.rejected = Counter.builder("tcp.connections.rejected")
+        .description("The number of TCP connections closed because of the connection limit")
+        .register(jvmMeterRegistry);
+  }
+
+  /**
+   * Binds the server and starts its threads, unless it is disabled.
+   */
+  @Override
+  public synchronized void start() {
+    if (running || !enabled) {
+      return;
+    }
+    AtomicInteger threadNumber = new AtomicInteger();
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(
+        workerThreads,
+        workerThreads,
+        60L,
+        TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(workerThreads * WORKER_QUEUE_PER_THREAD),
+        runnable -> {
+          Thread thread = new Thread(runnable, "tcp-worker-" + threadNumber.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        },
+        new ThreadPoolExecutor.AbortPolicy());
+    pool.allowCoreThreadTimeOut(true);
+
+    List<TcpEventLoop> started = new ArrayList<>(ioThreads);
+    try {
+      workers = pool;
+      for (int i = 0; i < ioThreads; i++) {
+        started.add(new TcpEventLoop(this, functions, "tcp-loop-" + (i + 1)));
+      }
+      serverChannel = ServerSocketChannel.open();
+      serverChannel.bind(new InetSocketAddress(bindAddress, port));
+    } catch (IOException e) {
+      pool.shutdownNow();
+      closeServerChannel();
+      throw new IllegalStateException("Could not start the TCP server on " + bindAddress + ":" + port, e);
+    }
+
+    loops = started;
+    started.forEach(TcpEventLoop::start);
+    logBus.addListener(publishListener);
+    acceptor = new Thread(this::accept, "tcp-acceptor");
+    acceptor.setDaemon(true);
+    running = true;
+    acceptor.start();
+    System.out.println("Server listening on port " + getPort());
+  }
+
+  /**
+   * Stops accepting connections, closes the open ones and stops the threads.
+   */
+  @Override
+  public synchronized void stop() {
+    if (!running) {
+      return;
+    }
+    running = false;
+    logBus.removeListener(publishListener);
+    closeServerChannel();
+    try {
+      acceptor.join(STOP_TIMEOUT_MILLIS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    loops.forEach(loop -> loop.stop(STOP_TIMEOUT_MILLIS));
+    workers.shutdownNow();
+    System.out.println("Server stopped");
+  }
+
+  /**
+   * Returns whether the server is running.
+   *
+   * @return true once started and until stopped
+   */
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  /**
+   * Returns the port the server listens on.
+   *
+   * @return the bound port, -1 if the server is not running
+   */
+  public int getPort() {
+    ServerSocketChannel channel = serverChannel;
+    if (channel == null || !channel.isOpen()) {
+      return -1;
+    }
+    try {
+      return ((InetSocketAddress) channel.getLocalAddress()).getPort();
+    } catch (IOException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Returns the number of open connections.
+   *
+   * @return the number of connections
+   */
+  public int getConnectionCount() {
+    return connections.get();
+  }
+
+  /**
+   * Returns the workers the blocking work runs on.
+   *
+   * @return the workers
+   */
+  ExecutorService getWorkers() {
+    return workers;
+  }
+
+  /**
+   * Returns the time after which an idle connection is closed.
+   *
+   * @return the timeout in milliseconds
+   */
+  long getIdleTimeoutMillis() {
+    return idleTimeoutMillis;
+  }
+
+  /**
+   * Returns the time after which a connection that has not sent its token is
+   * closed.
+   *
+   * @return the timeout in milliseconds
+   */
+  long getHandshakeTimeoutMillis() {
+    return handshakeTimeoutMillis;
+  }
+
+  /**
+   * Counts a connection closed by its loop.
+   */
+  void released() {
+    connections.decrementAndGet();
+  }
+
+  /**
+   * Accepts the connections until the listening channel is closed, handing
+   * them to the loops in turn.
+   */
+  private void accept() {
+    int next = 0;
+    while (running) {
+      SocketChannel channel;
+      try {
+        channel = serverChannel.accept();
+      } catch (IOException e) {
+        if (!running) {
+          return;
+        }
+        System.out.println("Could not accept a client: " + e.getMessage());
+        // out of file descriptors, give the loops time to close connections
+        try {
+          Thread.sleep(100);
+        } catch (InterruptedException interrupted) {
+          return;
+        }
+        continue;
+      }
+
+      if (connections.incrementAndGet() > maxConnections) {
+        connections.decrementAndGet();
+        rejected.increment();
+        TcpEventLoop.closeQuietly(channel);
+        continue;
+      }
+      List<TcpEventLoop> current = loops;
+      current.get(next).register(channel);
+      next = (next + 1) % current.size();
+    }
+  }
+
+  /**
+   * Wakes up the loops with live clients when logs are published.
+   */
+  private void logsPublished() {
+    for (TcpEventLoop loop : loops) {
+      loop.logsPublished();
+    }
+  }
+
+  /**
+   * Closes the listening channel, which ends the acceptor.
+   */
+  private void closeServerChannel() {
+    ServerSocketChannel channel = serverChannel;
+    if (channel == null) {
+      return;
+    }
+    try {
+      channel.close();
+    } catch (IOException e) {
+      // already closed
+    }
+  }
+}
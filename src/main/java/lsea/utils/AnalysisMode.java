@@ -0,0 +1,20 @@
+package lsea.utils;
+
+/**
+ * Utility enum class representing the possible ways of splitting the log
+ * analysis between threads.
+ */
+public enum AnalysisMode {
+  /**
+   * LATCH: the logs are copied round-robin into one list per thread, every
+   * thread merges its result into a shared priority queue and a latch waits
+   * for all of them.
+   */
+  LATCH,
+
+  /**
+   * FORK_JOIN: every task ranks a contiguous index range of the logs without
+   * copying them and the partial results are combined with a tree merge.
+   */
+  FORK_JOIN,
+}
@@ -0,0 +1,33 @@
+package lsea.utils;
+
+import javax.annotation.Nullable;
+import lombok.*;
+
+/**
+ * Represents the outcome of one log of a bulk ingestion request.
+ */
+@Builder
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString
+public class BulkItemResult {
+
+  /**
+   * The position of the log in the request, from 0.
+   */
+  private int index;
+
+  /**
+   * The status of the log: 200 written, 202 queued, 400 invalid, 500 not
+   * written, 503 rejected because the server is busy.
+   */
+  private int status;
+
+  /**
+   * The reason of a failed log.
+   */
+  @Nullable
+  private String message;
+}
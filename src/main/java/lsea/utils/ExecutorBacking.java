@@ -0,0 +1,33 @@
+package lsea.utils;
+
+/**
+ * Utility enum class representing the kinds of threads running the analysis
+ * tasks.
+ */
+public enum ExecutorBacking {
+  /**
+   * BOUNDED: a fixed number of platform threads with a bounded queue.
+   */
+  BOUNDED,
+
+  /**
+   * FORK_JOIN: a work-stealing pool of platform threads.
+   */
+  FORK_JOIN,
+
+  /**
+   * VIRTUAL: a virtual thread per task, on a runtime supporting them.
+   */
+  VIRTUAL;
+
+  /**
+   * Parses a backing name, ignoring the case and accepting dashes.
+   *
+   * @param name the name of the backing, for example fork-join
+   * @return the backing
+   * @throws IllegalArgumentException if the name is unknown
+   */
+  public static ExecutorBacking parse(String name) {
+    return valueOf(name.trim().toUpperCase().replace('-', '_'));
+  }
+}
@@ -0,0 +1,29 @@
+package lsea.utils;
+
+/**
+ * Utility enum class representing the possible orderings of the log analysis
+ * by the length of the log data.
+ */
+public enum LengthOrder {
+  /**
+   * LONGEST: the longer the data, the better it ranks.
+   */
+  LONGEST,
+
+  /**
+   * SHORTEST: the shorter the data, the better it ranks.
+   */
+  SHORTEST;
+
+  /**
+   * Compares two data lengths according to this ordering.
+   *
+   * @param a the first length
+   * @param b the second length
+   * @return a positive number if a ranks better than b, a negative number if
+   *         it ranks worse and 0 if both rank the same
+   */
+  public int compare(int a, int b) {
+    return this == LONGEST ? Integer.compare(a, b) : Integer.compare(b, a);
+  }
+}
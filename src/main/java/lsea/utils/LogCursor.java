@@ -0,0 +1,96 @@
+package lsea.utils;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.Date;
+import java.util.UUID;
+import lsea.errors.ValidationError;
+
+/**
+ * The position of a log in the logs ordered from the newest, the creation time
+ * and the id of the last log of a page.
+ *
+ * The next page starts right after that log, so it is a range scan whatever
+ * its depth. The position is handed to the clients as an opaque base64url
+ * string.
+ */
+public final class LogCursor {
+
+  /**
+   * The length of an encoded position, the time and the two halves of the id.
+   */
+  private static final int LENGTH = 3 * Long.BYTES;
+
+  /**
+   * The creation time of the log.
+   */
+  private final Date createdAt;
+
+  /**
+   * The id of the log.
+   */
+  private final UUID id;
+
+  /**
+   * Creates the position of a log.
+   *
+   * @param createdAt the creation time of the log
+   * @param id        the id of the log
+   */
+  public LogCursor(Date createdAt, UUID id) {
+    this.createdAt = createdAt;
+    this.id = id;
+  }
+
+  /**
+   * Decodes a cursor handed out by encode.
+   *
+   * @param cursor the opaque cursor
+   * @return the position of the log
+   * @throws ValidationError if the cursor is malformed
+   */
+  public static LogCursor decode(String cursor) throws ValidationError {
+    byte[] bytes;
+    try {
+      bytes = Base64.getUrlDecoder().decode(cursor);
+    } catch (IllegalArgumentException e) {
+      throw new ValidationError("Invalid cursor");
+    }
+    if (bytes.length != LENGTH) {
+      throw new ValidationError("Invalid cursor");
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    return new LogCursor(new Date(buffer.getLong()), new UUID(buffer.getLong(), buffer.getLong()));
+  }
+
+  /**
+   * Encodes the position as an opaque cursor.
+   *
+   * @return the cursor
+   */
+  public String encode() {
+    ByteBuffer buffer = ByteBuffer.allocate(LENGTH)
+        .putLong(createdAt.getTime())
+        .putLong(id.getMostSignificantBits())
+        .putLong(id.getLeastSignificantBits());
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+  }
+
+  /**
+   * Returns the creation time of the log.
+   *
+   * @return the creation time
+   */
+  public Date getCreatedAt() {
+    return createdAt;
+  }
+
+  /**
+   * Returns the id of the log.
+   *
+   * @return the id
+   */
+  public UUID getId() {
+    return id;
+  }
+}
@@ -0,0 +1,28 @@
+package lsea.utils;
+
+import java.util.List;
+import javax.annotation.Nullable;
+import lombok.*;
+import lsea.entity.Log;
+
+/**
+ * Represents a page of logs read with a cursor, from the newest.
+ */
+@Builder
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString
+public class LogPage {
+
+  /**
+   * The logs of the page.
+   */
+  private List<Log> logs;
+
+  /**
+   * The cursor of the next page, null if this page is the last one.
+   */
+  @Nullable
+  private String nextCursor;
+}
@@ -0,0 +1,26 @@
+package lsea.utils;
+
+/**
+ * Utility enum class representing the states of an asynchronous report job.
+ */
+public enum ReportJobState {
+  /**
+   * QUEUED: the job waits for a free report worker.
+   */
+  QUEUED,
+
+  /**
+   * RUNNING: the analysis is being measured.
+   */
+  RUNNING,
+
+  /**
+   * DONE: the workbook is ready to be downloaded.
+   */
+  DONE,
+
+  /**
+   * FAILED: the job stopped with an error, it can be submitted again.
+   */
+  FAILED,
+}
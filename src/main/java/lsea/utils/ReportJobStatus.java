@@ -0,0 +1,49 @@
+package lsea.utils;
+
+import java.util.UUID;
+import javax.annotation.Nullable;
+import lombok.*;
+
+/**
+ * Represents the status of an asynchronous report job.
+ */
+@Builder
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString
+public class ReportJobStatus {
+
+  /**
+   * The identifier of the job, used to poll it and download its report.
+   */
+  private UUID jobId;
+
+  /**
+   * The state of the job.
+   */
+  private ReportJobState state;
+
+  /**
+   * The share of the threads numbers already measured, from 0 to 1.
+   */
+  private double progress;
+
+  /**
+   * Whether the job was found among the reports already submitted with the
+   * same parameters and the same logs.
+   */
+  private boolean cached;
+
+  /**
+   * The error message of a failed job.
+   */
+  @Nullable
+  private String error;
+
+  /**
+   * The HTTP status code of the response.
+   */
+  private int status;
+}
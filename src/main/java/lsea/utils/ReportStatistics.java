@@ -0,0 +1,66 @@
+package lsea.utils;
+
+import lombok.*;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Summary of the durations measured by the report for one number of threads.
+ * All the durations are in microseconds.
+ */
+@Getter
+@Builder
+@ToString
+@AllArgsConstructor
+public class ReportStatistics {
+
+  /**
+   * The number of measured runs.
+   */
+  private final long samples;
+
+  /**
+   * The mean duration.
+   */
+  private final double mean;
+
+  /**
+   * The median duration.
+   */
+  private final double p50;
+
+  /**
+   * The 90th percentile of the durations.
+   */
+  private final double p90;
+
+  /**
+   * The 99th percentile of the durations.
+   */
+  private final double p99;
+
+  /**
+   * The longest duration.
+   */
+  private final double max;
+
+  /**
+   * Summarizes a histogram of durations recorded in nanoseconds.
+   *
+   * @param histogram the histogram, in nanoseconds
+   * @return the statistics, in microseconds
+   */
+  public static ReportStatistics of(Histogram histogram) {
+    if (histogram.getTotalCount() == 0) {
+      return ReportStatistics.builder().build();
+    }
+    return ReportStatistics
+        .builder()
+        .samples(histogram.getTotalCount())
+        .mean(histogram.getMean() / 1000.0)
+        .p50(histogram.getValueAtPercentile(50) / 1000.0)
+        .p90(histogram.getValueAtPercentile(90) / 1000.0)
+        .p99(histogram.getValueAtPercentile(99) / 1000.0)
+        .max(histogram.getMaxValue() / 1000.0)
+        .build();
+  }
+}
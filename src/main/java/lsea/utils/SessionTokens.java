@@ -0,0 +1,33 @@
+package lsea.utils;
+
+import lombok.*;
+
+/**
+ * Represents the tokens of a session, returned by a login or a refresh.
+ */
+@Builder
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class SessionTokens {
+
+  /**
+   * The short-lived JWT access token.
+   */
+  private String accessToken;
+
+  /**
+   * The lifetime of the access token, in seconds.
+   */
+  private int accessTokenMaxAge;
+
+  /**
+   * The opaque refresh token, exchanged once for the next tokens.
+   */
+  private String refreshToken;
+
+  /**
+   * The lifetime of the refresh token, in seconds.
+   */
+  private int refreshTokenMaxAge;
+}
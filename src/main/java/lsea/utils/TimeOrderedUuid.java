@@ -0,0 +1,74 @@
+package lsea.utils;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates version 7 UUIDs, time-ordered identifiers whose 48 most
+ * significant bits are the creation time in milliseconds since the epoch.
+ *
+ * The 12 bits following the version are a counter, so the identifiers created
+ * by this process are strictly increasing even within a millisecond; a counter
+ * overflow borrows the next millisecond. The 62 remaining bits are random. New
+ * rows keyed by these identifiers are appended at the end of the primary key
+ * index instead of being scattered over it.
+ */
+public final class TimeOrderedUuid {
+
+  /**
+   * The last timestamp handed out, the milliseconds shifted left by 12 bits
+   * plus the counter.
+   */
+  private static final AtomicLong LAST = new AtomicLong();
+
+  /**
+   * The version bits of the most significant half.
+   */
+  private static final long VERSION = 0x7000L;
+
+  /**
+   * The IETF variant bits of the least significant half.
+   */
+  private static final long VARIANT = 0x8000000000000000L;
+
+  /**
+   * The bits of the least significant half left to the random part.
+   */
+  private static final long RANDOM_MASK = 0x3FFFFFFFFFFFFFFFL;
+
+  /**
+   * Static class, not instantiable.
+   */
+  private TimeOrderedUuid() {
+  }
+
+  /**
+   * Returns a new identifier, greater than every identifier returned before.
+   *
+   * @return the identifier
+   */
+  public static UUID next() {
+    long now = System.currentTimeMillis() << 12;
+    long last;
+    long stamp;
+    do {
+      last = LAST.get();
+      stamp = Math.max(now, last + 1);
+    } while (!LAST.compareAndSet(last, stamp));
+
+    long msb = (stamp >>> 12) << 16 | VERSION | (stamp & 0xFFF);
+    long lsb = ThreadLocalRandom.current().nextLong() & RANDOM_MASK | VARIANT;
+    return new UUID(msb, lsb);
+  }
+
+  /**
+   * Returns the creation time of a version 7 identifier.
+   *
+   * @param id - the identifier
+   * @return the time in milliseconds since the epoch
+   */
+  public static long timestampOf(UUID id) {
+    return id.getMostSignificantBits() >>> 16;
+  }
+}
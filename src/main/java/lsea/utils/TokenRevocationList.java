@@ -0,0 +1,403 @@
+package lsea.utils;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-memory list of the revoked JWT tokens, consulted by every token
+ * verification.
+ *
+ * A token is revoked by its id, when its session is logged out, or through its
+ * user, when every token issued to the user up to a date is revoked by a ban.
+ * The revocations are kept in exact maps fronted by a Bloom filter, so the
+ * verification of a token that was never revoked, the common case, only reads
+ * a few bits. A revocation is dropped once every token it covers has expired,
+ * the filter is then rebuilt from the remaining revocations.
+ */
+public final class TokenRevocationList {
+
+  /**
+   * The number of bits of the shared filter, 128 KiB.
+   */
+  private static final int DEFAULT_BLOOM_BITS = 1 << 20;
+
+  /**
+   * The number of bits set per revocation.
+   */
+  private static final int HASHES = 4;
+
+  /**
+   * The seed of the token ids in the filter.
+   */
+  private static final long TOKEN_SEED = 0x9E3779B97F4A7C15L;
+
+  /**
+   * The seed of the user ids in the filter.
+   */
+  private static final long USER_SEED = 0xC2B2AE3D27D4EB4FL;
+
+  /**
+   * The minimum time between two purges of the expired revocations.
+   */
+  private static final long PURGE_INTERVAL_MILLIS = 60000L;
+
+  /**
+   * The list shared by the token verification.
+   */
+  private static final TokenRevocationList INSTANCE = new TokenRevocationList(DEFAULT_BLOOM_BITS);
+
+  /**
+   * The expiration of the revoked tokens, by token id.
+   */
+  private final Map<UUID, Long> revokedTokens = new ConcurrentHashMap<>();
+
+  /**
+   * The revocations of the users, by user id.
+   */
+  private final Map<UUID, UserRevocation> revokedUsers = new ConcurrentHashMap<>();
+
+  /**
+   * The number of lookups the filter passed on to the maps in vain.
+   */
+  private final AtomicLong falsePositives = new AtomicLong();
+
+  /**
+   * The Bloom filter of the token and user ids, replaced when rebuilt.
+   */
+  private volatile AtomicLongArray bloom;
+
+  /**
+   * The next time the expired revocations are purged.
+   */
+  private long nextPurge;
+
+  /**
+   * Creates an empty list.
+   *
+   * @param bloomBits the number of bits of the filter, rounded up to a multiple
+   *                  of 64
+   */
+  public TokenRevocationList(int bloomBits) {
+    this.bloom = newBloom(bloomBits);
+    this.nextPurge = System.currentTimeMillis() + PURGE_INTERVAL_MILLIS;
+  }
+
+  /**
+   * Returns the list shared by the token verification.
+   *
+   * @return the shared list
+   */
+  public static TokenRevocationList getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Checks whether a verified token was revoked.
+   *
+   * @param token the claims of the token
+   * @return true if the token or every token of its user up to its issue time
+   *         was revoked
+   */
+  public boolean isRevoked(VerifiedToken token) {
+    AtomicLongArray bits = bloom;
+    UUID id = token.getId();
+    if (id != null && mightContain(bits, TOKEN_SEED, id)) {
+      if (revokedTokens.containsKey(id)) {
+        return true;
+      }
+      falsePositives.incrementAndGet();
+    }
+    UUID subject = token.getSubject();
+    if (mightContain(bits, USER_SEED, subject)) {
+      UserRevocation revocation = revokedUsers.get(subject);
+      if (revocation == null) {
+        falsePositives.incrementAndGet();
+      } else if (token.getIssuedAt() <= revocation.revokedAt) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Revokes a token until it expires.
+   *
+   * @param id        the id of the token
+   * @param expiresAt the expiration of the token, in milliseconds since the
+   *                  epoch
+   * @return true if the token was not revoked yet
+   */
+  public synchronized boolean revokeToken(UUID id, long expiresAt) {
+    purgeIfDue();
+    if (expiresAt <= System.currentTimeMillis()) {
+      return false;
+    }
+    boolean added = revokedTokens.put(id, expiresAt) == null;
+    add(bloom, TOKEN_SEED, id);
+    return added;
+  }
+
+  /**
+   * Revokes every token issued to a user up to a date, until the last of them
+   * expires. A later revocation of the same user replaces an earlier one, which
+   * is kept until it expires to be restored if the later one is cancelled.
+   *
+   * @param userId    the id of the user
+   * @param revokedAt the revocation date, in milliseconds since the epoch
+   * @param expiresAt the latest expiration of the revoked tokens
+   * @return true if the revocation was recorded
+   */
+  public synchronized boolean revokeUser(UUID userId, long revokedAt, long expiresAt) {
+    purgeIfDue();
+    if (expiresAt <= System.currentTimeMillis()) {
+      return false;
+    }
+    UserRevocation previous = revokedUsers.get(userId);
+    if (previous != null && previous.revokedAt >= revokedAt) {
+      return false;
+    }
+    revokedUsers.put(userId, new UserRevocation(revokedAt, expiresAt, unexpired(previous)));
+    add(bloom, USER_SEED, userId);
+    return true;
+  }
+
+  /**
+   * Cancels the revocation of a token, when the revocation was not committed.
+   *
+   * @param id the id of the token
+   */
+  public synchronized void cancelToken(UUID id) {
+    revokedTokens.remove(id);
+  }
+
+  /**
+   * Cancels the revocation of a user made at the given date, when the
+   * revocation was not committed. The revocation it replaced is enforced
+   * again, and a later revocation that replaced it will not restore it.
+   *
+   * @param userId    the id of the user
+   * @param revokedAt the date of the revocation
+   */
+  public synchronized void cancelUser(UUID userId, long revokedAt) {
+    UserRevocation revocation = revokedUsers.get(userId);
+    if (revocation == null) {
+      return;
+    }
+    if (revocation.revokedAt == revokedAt) {
+      UserRevocation previous = unexpired(revocation.previous);
+      if (previous == null) {
+        revokedUsers.remove(userId);
+      } else {
+        revokedUsers.put(userId, previous);
+      }
+      return;
+    }
+    for (UserRevocation later = revocation; later.previous != null; later = later.previous) {
+      if (later.previous.revokedAt == revokedAt) {
+        later.previous = later.previous.previous;
+        return;
+      }
+    }
+  }
+
+  /**
+   * Returns the latest unexpired revocation of a chain of replaced ones,
+   * dropping the expired ones from the chain. Must hold the lock.
+   *
+   * @param revocation the latest revocation, may be null
+   * @return the latest unexpired revocation, null if there is none
+   */
+  private static UserRevocation unexpired(UserRevocation revocation) {
+    long now = System.currentTimeMillis();
+    while (revocation != null && revocation.expiresAt <= now) {
+      revocation = revocation.previous;
+    }
+    for (UserRevocation later = revocation; later != null; later = later.previous) {
+      while (later.previous != null && later.previous.expiresAt <= now) {
+        later.previous = later.previous.previous;
+      }
+    }
+    return revocation;
+  }
+
+  /**
+   * Drops the revocations whose tokens have all expired and rebuilds the
+   * filter from the remaining ones.
+   */
+  public synchronized void purge() {
+    long now = System.currentTimeMillis();
+    revokedTokens.values().removeIf(expiresAt -> expiresAt <= now);
+    revokedUsers.values().removeIf(revocation -> revocation.expiresAt <= now);
+    rebuild(bloom.length() * 64);
+    nextPurge = now + PURGE_INTERVAL_MILLIS;
+  }
+
+  /**
+   * Resizes the filter, rebuilding it from the current revocations.
+   *
+   * @param bloomBits the number of bits of the filter
+   */
+  public synchronized void setBloomBits(int bloomBits) {
+    rebuild(bloomBits);
+  }
+
+  /**
+   * Drops all the revocations.
+   */
+  public synchronized void clear() {
+    revokedTokens.clear();
+    revokedUsers.clear();
+    rebuild(bloom.length() * 64);
+  }
+
+  /**
+   * Returns the number of revocations held in memory.
+   *
+   * @return the number of revoked tokens and users
+   */
+  public int size() {
+    return revokedTokens.size() + revokedUsers.size();
+  }
+
+  /**
+   * Returns the number of lookups the filter passed on to the maps in vain.
+   *
+   * @return the number of false positives
+   */
+  public long getFalsePositives() {
+    return falsePositives.get();
+  }
+
+  /**
+   * Purges the expired revocations if the last purge is old enough.
+   */
+  private void purgeIfDue() {
+    if (System.currentTimeMillis() >= nextPurge) {
+      purge();
+    }
+  }
+
+  /**
+   * Replaces the filter by one holding the current revocations.
+   *
+   * @param bloomBits the number of bits of the new filter
+   */
+  private void rebuild(int bloomBits) {
+    AtomicLongArray bits = newBloom(bloomBits);
+    for (UUID id : revokedTokens.keySet()) {
+      add(bits, TOKEN_SEED, id);
+    }
+    for (UUID id : revokedUsers.keySet()) {
+      add(bits, USER_SEED, id);
+    }
+    bloom = bits;
+  }
+
+  /**
+   * Creates an empty filter.
+   *
+   * @param bloomBits the number of bits, rounded up to a multiple of 64
+   * @return the filter
+   */
+  private static AtomicLongArray newBloom(int bloomBits) {
+    if (bloomBits < 64) {
+      throw new IllegalArgumentException("The filter must have at least 64 bits");
+    }
+    return new AtomicLongArray((bloomBits + 63) / 64);
+  }
+
+  /**
+   * Sets the bits of an id in a filter.
+   *
+   * @param bits the filter
+   * @param seed the seed of the kind of id
+   * @param id   the id
+   */
+  private static void add(AtomicLongArray bits, long seed, UUID id) {
+    long size = bits.length() * 64L;
+    long h1 = mix(id.getMostSignificantBits() ^ seed);
+    long h2 = mix(id.getLeastSignificantBits() + seed) | 1;
+    for (int i = 0; i < HASHES; i++) {
+      long bit = Math.floorMod(h1 + i * h2, size);
+      int word = (int) (bit >>> 6);
+      long mask = 1L << bit;
+      long current;
+      do {
+        current = bits.get(word);
+      } while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask));
+    }
+  }
+
+  /**
+   * Checks whether the bits of an id are all set in a filter.
+   *
+   * @param bits the filter
+   * @param seed the seed of the kind of id
+   * @param id   the id
+   * @return false if the id was never added
+   */
+  private static boolean mightContain(AtomicLongArray bits, long seed, UUID id) {
+    long size = bits.length() * 64L;
+    long h1 = mix(id.getMostSignificantBits() ^ seed);
+    long h2 = mix(id.getLeastSignificantBits() + seed) | 1;
+    for (int i = 0; i < HASHES; i++) {
+      long bit = Math.floorMod(h1 + i * h2, size);
+      if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Scrambles the bits of a number, the finalizer of MurmurHash3.
+   *
+   * @param value the number
+   * @return the scrambled number
+   */
+  private static long mix(long value) {
+    value ^= value >>> 33;
+    value *= 0xFF51AFD7ED558CCDL;
+    value ^= value >>> 33;
+    value *= 0xC4CEB9FE1A85EC53L;
+    return value ^ (value >>> 33);
+  }
+
+  /**
+   * The revocation of the tokens of a user.
+   */
+  private static final class UserRevocation {
+
+    /**
+     * The revocation date, the tokens issued up to it are revoked.
+     */
+    private final long revokedAt;
+
+    /**
+     * The latest expiration of the revoked tokens.
+     */
+    private final long expiresAt;
+
+    /**
+     * The earlier revocation replaced by this one, restored if this one is
+     * cancelled, guarded by the list.
+     */
+    private UserRevocation previous;
+
+    /**
+     * Creates a revocation.
+     *
+     * @param revokedAt the revocation date
+     * @param expiresAt the latest expiration of the revoked tokens
+     * @param previous  the earlier revocation replaced, may be null
+     */
+    private UserRevocation(long revokedAt, long expiresAt, UserRevocation previous) {
+      this.revokedAt = revokedAt;
+      this.expiresAt = expiresAt;
+      this.previous = previous;
+    }
+  }
+}
@@ -0,0 +1,121 @@
+package lsea.utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Bounded collection which keeps only the K best elements offered to it.
+ * The head of the internal heap is always the weakest element kept, so every
+ * offer costs O(log K) and the memory never exceeds K elements.
+ *
+ * @param <T> the type of the ranked elements
+ */
+public class TopK<T> {
+
+  /**
+   * The maximum number of elements kept.
+   */
+  private final int k;
+
+  /**
+   * The ranking, an element comparing greater is a better one.
+   */
+  private final Comparator<? super T> order;
+
+  /**
+   * The heap with the weakest kept element at its head.
+   */
+  private final PriorityQueue<T> heap;
+
+  /**
+   * Creates an empty TopK.
+   *
+   * @param k     the maximum number of elements kept, at least 1
+   * @param order the ranking, an element comparing greater is a better one
+   */
+  public TopK(int k, Comparator<? super T> order) {
+    if (k < 1) {
+      throw new IllegalArgumentException("k must be at least 1");
+    }
+    this.k = k;
+    this.order = order;
+    this.heap = new PriorityQueue<>(k + 1, order);
+  }
+
+  /**
+   * Offers an element, it is kept only if it ranks among the K best so far.
+   *
+   * @param element the element to offer
+   */
+  public void offer(T element) {
+    if (heap.size() < k) {
+      heap.add(element);
+    } else if (order.compare(element, heap.peek()) > 0) {
+      heap.poll();
+      heap.add(element);
+    }
+  }
+
+  /**
+   * Merges the elements kept by another TopK into this one.
+   *
+   * @param other the TopK to merge, left untouched
+   * @return this TopK
+   */
+  public TopK<T> merge(TopK<? extends T> other) {
+    for (T element : other.heap) {
+      offer(element);
+    }
+    return this;
+  }
+
+  /**
+   * Returns the number of elements kept.
+   *
+   * @return the number of elements kept
+   */
+  public int size() {
+    return heap.size();
+  }
+
+  /**
+   * Returns the maximum number of elements kept.
+   *
+   * @return the maximum number of elements kept
+   */
+  public int capacity() {
+    return k;
+  }
+
+  /**
+   * Returns the kept elements from the weakest to the best one, without
+   * removing them.
+   *
+   * @return a copy of the kept elements, weakest first
+   */
+  public List<T> toList() {
+    PriorityQueue<T> copy = new PriorityQueue<>(heap);
+    List<T> result = new ArrayList<>(copy.size());
+    while (!copy.isEmpty()) {
+      result.add(copy.poll());
+    }
+    return result;
+  }
+
+  /**
+   * Removes all the kept elements and returns them from the weakest to the
+   * best one.
+   *
+   * @return the kept elements, weakest first
+   */
+  public List<T> drain() {
+    List<T> result = new ArrayList<>(heap.size());
+    // heap.toArray() does not guarantee the order, polling does
+    while (!heap.isEmpty()) {
+      result.add(heap.poll());
+    }
+    return result;
+  }
+}
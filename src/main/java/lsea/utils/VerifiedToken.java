@@ -0,0 +1,80 @@
+package lsea.utils;
+
+import java.util.UUID;
+
+/**
+ * The claims of a JWT token whose signature was verified.
+ */
+public final class VerifiedToken {
+
+  /**
+   * The id of the user, the subject of the token.
+   */
+  private final UUID subject;
+
+  /**
+   * The id of the token, null if the token has none.
+   */
+  private final UUID id;
+
+  /**
+   * The issue time of the token, in milliseconds since the epoch, 0 if unknown.
+   */
+  private final long issuedAt;
+
+  /**
+   * The expiration of the token, in milliseconds since the epoch.
+   */
+  private final long expiresAt;
+
+  /**
+   * Creates the claims of a verified token.
+   *
+   * @param subject   the id of the user
+   * @param id        the id of the token, null if the token has none
+   * @param issuedAt  the issue time, 0 if unknown
+   * @param expiresAt the expiration of the token
+   */
+  public VerifiedToken(UUID subject, UUID id, long issuedAt, long expiresAt) {
+    this.subject = subject;
+    this.id = id;
+    this.issuedAt = issuedAt;
+    this.expiresAt = expiresAt;
+  }
+
+  /**
+   * Returns the id of the user.
+   *
+   * @return the subject of the token
+   */
+  public UUID getSubject() {
+    return subject;
+  }
+
+  /**
+   * Returns the id of the token.
+   *
+   * @return the jti claim, null if the token has none
+   */
+  public UUID getId() {
+    return id;
+  }
+
+  /**
+   * Returns the issue time of the token.
+   *
+   * @return the issue time in milliseconds since the epoch, 0 if unknown
+   */
+  public long getIssuedAt() {
+    return issuedAt;
+  }
+
+  /**
+   * Returns the expiration of the token.
+   *
+   * @return the expiration in milliseconds since the epoch
+   */
+  public long getExpiresAt() {
+    return expiresAt;
+  }
+}
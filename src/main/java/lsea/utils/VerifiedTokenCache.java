@@ -0,0 +1,214 @@
+package lsea.utils;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of the JWT tokens whose signature was already verified.
+ *
+ * A cached token is trusted until its expiration without being parsed nor
+ * verified again. The cache is bounded: once full, the expired tokens are
+ * dropped first, then arbitrary ones. The tokens of a user are dropped as soon
+ * as the user is banned.
+ */
+public final class VerifiedTokenCache {
+
+  /**
+   * The cache shared by the token verification.
+   */
+  private static final VerifiedTokenCache INSTANCE = new VerifiedTokenCache(10000);
+
+  /**
+   * The verified tokens.
+   */
+  private final Map<String, VerifiedToken> entries = new ConcurrentHashMap<>();
+
+  /**
+   * The maximum number of cached tokens.
+   */
+  private volatile int maximumSize;
+
+  /**
+   * The number of lookups answered by the cache.
+   */
+  private final AtomicLong hits = new AtomicLong();
+
+  /**
+   * The number of lookups not answered by the cache.
+   */
+  private final AtomicLong misses = new AtomicLong();
+
+  /**
+   * The number of tokens dropped because the cache was full.
+   */
+  private final AtomicLong evictions = new AtomicLong();
+
+  /**
+   * Creates an empty cache.
+   *
+   * @param maximumSize the maximum number of cached tokens, 0 disables the
+   *                    cache
+   */
+  public VerifiedTokenCache(int maximumSize) {
+    setMaximumSize(maximumSize);
+  }
+
+  /**
+   * Returns the cache shared by the token verification.
+   *
+   * @return the shared cache
+   */
+  public static VerifiedTokenCache getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Sets the maximum number of cached tokens, 0 disables the cache.
+   *
+   * @param maximumSize the maximum number of cached tokens
+   */
+  public void setMaximumSize(int maximumSize) {
+    if (maximumSize < 0) {
+      throw new IllegalArgumentException("The maximum size must not be negative");
+    }
+    this.maximumSize = maximumSize;
+    if (maximumSize == 0) {
+      entries.clear();
+    }
+  }
+
+  /**
+   * Returns the subject of a verified token.
+   *
+   * @param token the token
+   * @return the subject, null if the token is not cached or has expired
+   */
+  public UUID get(String token) {
+    VerifiedToken entry = lookup(token);
+    return entry == null ? null : entry.getSubject();
+  }
+
+  /**
+   * Returns the claims of a verified token.
+   *
+   * @param token the token
+   * @return the claims, null if the token is not cached or has expired
+   */
+  public VerifiedToken lookup(String token) {
+    VerifiedToken entry = entries.get(token);
+    if (entry == null) {
+      misses.incrementAndGet();
+      return null;
+    }
+    if (entry.getExpiresAt() <= System.currentTimeMillis()) {
+      entries.remove(token, entry);
+      misses.incrementAndGet();
+      return null;
+    }
+    hits.incrementAndGet();
+    return entry;
+  }
+
+  /**
+   * Caches a verified token until its expiration.
+   *
+   * @param token     the token
+   * @param subject   the subject of the token
+   * @param expiresAt the expiration of the token, in milliseconds since the
+   *                  epoch
+   */
+  public void put(String token, UUID subject, long expiresAt) {
+    put(token, new VerifiedToken(subject, null, 0, expiresAt));
+  }
+
+  /**
+   * Caches a verified token until its expiration.
+   *
+   * @param token    the token
+   * @param verified the claims of the token
+   */
+  public void put(String token, VerifiedToken verified) {
+    int limit = maximumSize;
+    if (limit == 0 || verified.getExpiresAt() <= System.currentTimeMillis()) {
+      return;
+    }
+    if (entries.size() >= limit) {
+      evict(limit);
+    }
+    entries.put(token, verified);
+  }
+
+  /**
+   * Drops all the cached tokens of a user, so that they are verified again.
+   *
+   * @param subject the id of the user
+   */
+  public void invalidateUser(UUID subject) {
+    entries.values().removeIf(entry -> entry.getSubject().equals(subject));
+  }
+
+  /**
+   * Drops all the cached tokens.
+   */
+  public void clear() {
+    entries.clear();
+  }
+
+  /**
+   * Returns the number of cached tokens.
+   *
+   * @return the number of cached tokens
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Returns the number of lookups answered by the cache.
+   *
+   * @return the number of hits
+   */
+  public long getHits() {
+    return hits.get();
+  }
+
+  /**
+   * Returns the number of lookups not answered by the cache.
+   *
+   * @return the number of misses
+   */
+  public long getMisses() {
+    return misses.get();
+  }
+
+  /**
+   * Returns the number of tokens dropped because the cache was full.
+   *
+   * @return the number of evictions
+   */
+  public long getEvictions() {
+    return evictions.get();
+  }
+
+  /**
+   * Makes room for a token, dropping the expired tokens first and then
+   * arbitrary ones until a tenth of the cache is free.
+   *
+   * @param limit the maximum number of cached tokens
+   */
+  private void evict(int limit) {
+    long now = System.currentTimeMillis();
+    entries.values().removeIf(entry -> entry.getExpiresAt() <= now);
+
+    int target = limit - Math.max(1, limit / 10);
+    Iterator<String> iterator = entries.keySet().iterator();
+    while (entries.size() > target && iterator.hasNext()) {
+      iterator.next();
+      iterator.remove();
+      evictions.incrementAndGet();
+    }
+  }
+}
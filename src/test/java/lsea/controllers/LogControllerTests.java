@@ -1,9 +1,15 @@
 package lsea.controllers;
 
+import java.util.List;
+import java.util.UUID;
 import javax.annotation.Resource;
 import javax.servlet.http.Cookie;
 
+import com.jayway.jsonpath.JsonPath;
+
 import lsea.LaboratoryApplication;
+import lsea.utils.JwtTokenIssuer;
+import org.junit.Assert;
 import org.junit.Test;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.runner.RunWith;
@@ -378,4 +384,198 @@ public class LogControllerTests {
                                 .andDo(MockMvcResultHandlers.print())
                                 .andReturn();
         }
+
+        /**
+         * This test method sends a JSON array to the "/api/v1/logs/bulk" endpoint,
+         * the invalid log is reported without failing the others.
+         *
+         * @throws Exception if the test fails
+         */
+        @Test
+        @DisplayName("Test of LogController createMany method with a JSON array")
+        @Rollback
+        public void testCreateManyArray() throws Exception {
+                // Arrange
+                Cookie cookie = getUserCookieHelper();
+                String logsRequest = "[{\"data\": \"first log\", \"logType\": 0},"
+                                + " {\"data\": \"x\", \"logType\": 1},"
+                                + " {\"data\": \"third log\", \"logType\": 2}]";
+
+                // Act
+                mockMvc.perform(MockMvcRequestBuilders
+                                .post("/api/v1/logs/bulk")
+                                .cookie(cookie)
+                                .contentType("application/json;charset=UTF-8")
+                                .content(logsRequest))
+                                // Assert
+                                .andExpect(MockMvcResultMatchers.status().isOk())
+                                .andExpect(MockMvcResultMatchers.jsonPath("$.count").value(3))
+                                .andExpect(MockMvcResultMatchers.jsonPath("$.meta.accepted").value(2))
+                                .andExpect(MockMvcResultMatchers.jsonPath("$.data[0].status").value(200))
+                                .andExpect(MockMvcResultMatchers.jsonPath("$.data[1].status").value(400))
+                                .andExpect(MockMvcResultMatchers.jsonPath("$.data[2].status").value(200));
+        }
+
+        /**
+         * This test method sends an NDJSON stream to the "/api/v1/logs/bulk"
+         * endpoint, the malformed line is reported without failing the others.
+         *
+         * @throws Exception if the test fails
+         */
+        @Test
+        @DisplayName("Test of LogController createMany method with an NDJSON stream")
+        @Rollback
+        public void testCreateManyNdjson() throws Exception {
+                // Arrange
+                Cookie cookie = getUserCookieHelper();
+                String logsRequest = "{\"data\": \"first log\", \"logType\": 0}\n"
+                                + "{\"data\": \"broken\n"
+                                + "{\"data\": \"third log\", \"logType\": 3}\n";
+
+                // Act
+                mockMvc.perform(MockMvcRequestBuilders
+                                .post("/api/v1/logs/bulk")
+                                .cookie(cookie)
+                                .contentType("application/x-ndjson")
+                                .content(logsRequest))
+                                // Assert
+                                .andExpect(MockMvcResultMatchers.status().isOk())
+                                .andExpect(MockMvcResultMatchers.jsonPath("$.count").value(3))
+                                .andExpect(MockMvcResultMatchers.jsonPath("$.meta.rejected").value(1))
+                                .andExpect(MockMvcResultMatchers.jsonPath("$.data[1].message").value("Malformed log"));
+        }
+
+        /**
+         * This test method generates logs in several batches through the
+         * "/api/v1/logs/generate-test-data" endpoint and reads the throughput.
+         *
+         * @throws Exception if the test fails
+         */
+        @Test
+        @DisplayName("Test of generateData method in LogController with batches")
+        @Rollback
+        public void testGenerateDataInBatches() throws Exception {
+                // Arrange
+                Cookie cookie = getUserCookieHelper();
+
+                // Act
+                MvcResult result = mockMvc.perform(MockMvcRequestBuilders
+                                .post("/api/v1/logs/generate-test-data")
+                                .cookie(cookie)
+                                .param("batchSize", "100")
+                                .contentType("application/json;charset=UTF-8")
+                                .content("250"))
+                                // Assert
+                                .andExpect(MockMvcResultMatchers.status().isOk())
+                                .andReturn();
+
+                String content = result.getResponse().getContentAsString();
+                Assert.assertTrue(content.contains("rows=250"));
+                Assert.assertTrue(content.contains("batchSize=100"));
+                Assert.assertTrue(content.contains("rowsPerSecond"));
+        }
+
+        /**
+         * This test method reads the logs page by page from the "/api/v1/logs"
+         * endpoint, following the cursor of every page.
+         *
+         * @throws Exception if the test fails
+         */
+        @Test
+        @DisplayName("Test of LogController findPage method with a cursor")
+        @Rollback
+        public void testFindPageWithCursor() throws Exception {
+                // Arrange
+                Cookie cookie = getUserCookieHelper();
+                mockMvc.perform(MockMvcRequestBuilders
+                                .post("/api/v1/logs/bulk")
+                                .cookie(cookie)
+                                .contentType("application/json;charset=UTF-8")
+                                .content("[{\"data\": \"first log\", \"logType\": 0},"
+                                                + " {\"data\": \"second log\", \"logType\": 0},"
+                                                + " {\"data\": \"third log\", \"logType\": 0}]"))
+                                .andExpect(MockMvcResultMatchers.status().isOk());
+
+                // Act
+                MvcResult first = mockMvc.perform(MockMvcRequestBuilders
+                                .get("/api/v1/logs")
+                                .cookie(cookie)
+                                .param("limit", "2"))
+                                .andExpect(MockMvcResultMatchers.status().isOk())
+                                .andExpect(MockMvcResultMatchers.jsonPath("$.count").value(2))
+                                .andReturn();
+                String content = first.getResponse().getContentAsString();
+                String cursor = JsonPath.read(content, "$.meta.nextCursor");
+                List<String> firstIds = JsonPath.read(content, "$.data[*].id");
+
+                MvcResult second = mockMvc.perform(MockMvcRequestBuilders
+                                .get("/api/v1/logs")
+                                .cookie(cookie)
+                                .param("cursor", cursor)
+                                .param("limit", "2"))
+                                .andExpect(MockMvcResultMatchers.status().isOk())
+                                .andReturn();
+
+                // Assert
+                List<String> secondIds = JsonPath.read(second.getResponse().getContentAsString(), "$.data[*].id");
+                Assert.assertFalse(secondIds.isEmpty());
+                Assert.assertFalse(firstIds.contains(secondIds.get(0)));
+
+                mockMvc.perform(MockMvcRequestBuilders
+                                .get("/api/v1/logs")
+                                .cookie(cookie)
+                                .param("cursor", "not a cursor"))
+                                .andExpect(MockMvcResultMatchers.status().isForbidden())
+                                .andExpect(MockMvcResultMatchers.jsonPath("$.message")
+                                                .value("A validation error occured: Invalid cursor"));
+        }
+
+        /**
+         * This test method sends Get requests to the "/api/v1/logs" endpoint with a
+         * forged and an expired token.
+         *
+         * @throws Exception if the test fails
+         */
+        @Test
+        @DisplayName("Test of LogController findPage method with an invalid token")
+        @Rollback
+        public void testFindPageWithInvalidToken() throws Exception {
+                // Arrange
+                String expired = JwtTokenIssuer.getInstance().issue(UUID.randomUUID(), -60000);
+
+                // Act
+                mockMvc.perform(MockMvcRequestBuilders
+                                .get("/api/v1/logs")
+                                .cookie(new Cookie("token", "x")))
+                                // Assert
+                                .andExpect(MockMvcResultMatchers.status().isForbidden());
+
+                mockMvc.perform(MockMvcRequestBuilders
+                                .get("/api/v1/logs")
+                                .cookie(new Cookie("token", expired)))
+                                .andExpect(MockMvcResultMatchers.status().isForbidden());
+        }
+
+        /**
+         * Creates a user and returns its token cookie.
+         *
+         * @return Cookie the token cookie of the user
+         * @throws Exception if the performed requests failed
+         */
+        private Cookie getUserCookieHelper() throws Exception {
+                mockMvc.perform(MockMvcRequestBuilders
+                                .post("/api/v1/users")
+                                .contentType("application/json;charset=UTF-8")
+                                .content("{\"username\": \"bulk\", \"password\": \"12345678\", \"email\": \"bulk@11.com\"}"))
+                                .andExpect(MockMvcResultMatchers.status().isOk());
+
+                MvcResult result = mockMvc.perform(MockMvcRequestBuilders
+                                .post("/api/v1/users/authorize")
+                                .contentType("application/json;charset=UTF-8")
+                                .content("{\"password\": \"12345678\", \"email\": \"bulk@11.com\"}"))
+                                .andExpect(MockMvcResultMatchers.status().isOk())
+                                .andReturn();
+
+                return result.getResponse().getCookie("token");
+        }
 }
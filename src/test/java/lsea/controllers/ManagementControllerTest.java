@@ -1,9 +1,14 @@
 package lsea.controllers;
 
+import com.jayway.jsonpath.JsonPath;
+import java.io.ByteArrayInputStream;
+import java.util.UUID;
 import javax.annotation.Resource;
 import javax.servlet.http.Cookie;
 
 import lsea.LaboratoryApplication;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.jupiter.api.DisplayName;
@@ -65,6 +70,8 @@ public class ManagementControllerTest {
                 MockHttpServletRequestBuilder requestBuilder = MockMvcRequestBuilders
                                 .get("/api/v1/management/analysis-longest-five")
                                 .param("numThreads", "5")
+                                // the logs of this test are never committed
+                                .param("consistent", "true")
                                 .cookie(cookie)
                                 .contentType("application/json;charset=UTF-8");
 
@@ -222,6 +229,8 @@ public class ManagementControllerTest {
                 MockHttpServletRequestBuilder requestBuilder = MockMvcRequestBuilders
                                 .get("/api/v1/management/analysis-shortest-five")
                                 .param("numThreads", "5")
+                                // the logs of this test are never committed
+                                .param("consistent", "true")
                                 .cookie(cookie)
                                 .contentType("application/json;charset=UTF-8");
 
@@ -368,7 +377,8 @@ public class ManagementControllerTest {
 
                 String request = "{\n" +
                                 "    \"numThreads\": 5,\n" +
-                                "    \"iterations\": 1\n" +
+                                "    \"iterations\": 3,\n" +
+                                "    \"warmupIterations\": 1\n" +
                                 "}";
 
                 MockHttpServletRequestBuilder requestBuilder = MockMvcRequestBuilders
@@ -391,6 +401,175 @@ public class ManagementControllerTest {
                 Assert.assertEquals(content[1], (byte) 0x4B);
                 Assert.assertEquals(content[2], (byte) 0x03);
                 Assert.assertEquals(content[3], (byte) 0x04);
+                try (XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(content))) {
+                        Row header = workbook.getSheetAt(0).getRow(0);
+                        Assert.assertTrue(header.getCell(4).getStringCellValue().startsWith("p99"));
+                        Assert.assertEquals(5, workbook.getSheetAt(0).getLastRowNum());
+                        Assert.assertEquals(5, workbook.getSheetAt(0).getDrawingPatriarch().getCharts()
+                                        .get(0).getChartSeries().get(0).getSeriesCount());
+                }
+        }
+
+        /**
+         * This test method submits a report job to
+         * "/api/v1/management/report/jobs", polls it until it is done, submits it
+         * again and downloads the report
+         *
+         * @throws Exception if the test fails
+         */
+        @Test
+        @DisplayName("Test of ManagementController report job - isOK")
+        @Rollback
+        public void testReportJobIsOK() throws Exception {
+                // Arrange
+                String userAuthRequest = "{\n" +
+                                "    \"password\": \"test_admin\",\n" +
+                                "    \"email\": \"test_admin@example.com\"\n" +
+                                "}";
+
+                MvcResult result = mockMvc.perform(
+                                MockMvcRequestBuilders
+                                                .post("/api/v1/users/authorize")
+                                                .contentType("application/json;charset=UTF-8")
+                                                .content(userAuthRequest))
+                                .andReturn();
+
+                Cookie cookie = result.getResponse().getCookie("token");
+
+                String request = "{\n" +
+                                "    \"numThreads\": 3,\n" +
+                                "    \"iterations\": 2,\n" +
+                                "    \"warmupIterations\": 1\n" +
+                                "}";
+
+                // Act
+                result = mockMvc.perform(MockMvcRequestBuilders
+                                .post("/api/v1/management/report/jobs")
+                                .cookie(cookie)
+                                .contentType("application/json;charset=UTF-8")
+                                .content(request))
+                                .andExpect(MockMvcResultMatchers.status().isAccepted())
+                                .andReturn();
+                String jobId = JsonPath.read(result.getResponse().getContentAsString(), "$.jobId");
+
+                String state = null;
+                for (int i = 0; i < 100 && !"DONE".equals(state); i++) {
+                        Thread.sleep(100);
+                        result = mockMvc.perform(MockMvcRequestBuilders
+                                        .get("/api/v1/management/report/jobs/" + jobId)
+                                        .cookie(cookie))
+                                        .andExpect(MockMvcResultMatchers.status().isOk())
+                                        .andReturn();
+                        state = JsonPath.read(result.getResponse().getContentAsString(), "$.state");
+                }
+
+                // Assert
+                Assert.assertEquals("DONE", state);
+
+                mockMvc.perform(MockMvcRequestBuilders
+                                .post("/api/v1/management/report/jobs")
+                                .cookie(cookie)
+                                .contentType("application/json;charset=UTF-8")
+                                .content(request))
+                                .andExpect(MockMvcResultMatchers.status().isAccepted())
+                                .andExpect(MockMvcResultMatchers.jsonPath("$.jobId").value(jobId))
+                                .andExpect(MockMvcResultMatchers.jsonPath("$.cached").value(true))
+                                .andExpect(MockMvcResultMatchers.jsonPath("$.progress").value(1.0));
+
+                result = mockMvc.perform(MockMvcRequestBuilders
+                                .get("/api/v1/management/report/jobs/" + jobId + "/download")
+                                .cookie(cookie))
+                                .andExpect(MockMvcResultMatchers.status().isOk())
+                                .andReturn();
+                byte[] content = result.getResponse().getContentAsByteArray();
+                Assert.assertEquals(content[0], (byte) 0x50);
+                Assert.assertEquals(content[1], (byte) 0x4B);
+        }
+
+        /**
+         * This test method polls a report job that does not exist
+         *
+         * @throws Exception if the test fails
+         */
+        @Test
+        @DisplayName("Test of ManagementController report job - not found")
+        @Rollback
+        public void testReportJobNotFound() throws Exception {
+                // Arrange
+                String userAuthRequest = "{\n" +
+                                "    \"password\": \"test_admin\",\n" +
+                                "    \"email\": \"test_admin@example.com\"\n" +
+                                "}";
+
+                MvcResult result = mockMvc.perform(
+                                MockMvcRequestBuilders
+                                                .post("/api/v1/users/authorize")
+                                                .contentType("application/json;charset=UTF-8")
+                                                .content(userAuthRequest))
+                                .andReturn();
+
+                Cookie cookie = result.getResponse().getCookie("token");
+
+                // Act
+                mockMvc.perform(MockMvcRequestBuilders
+                                .get("/api/v1/management/report/jobs/" + UUID.randomUUID())
+                                .cookie(cookie))
+                                .andExpect(MockMvcResultMatchers.status().isNotFound())
+                                .andExpect(MockMvcResultMatchers.jsonPath("$.message")
+                                                .value("Report job not found"));
+        }
+
+        /**
+         * This test method test successfully send a post request to the
+         * "/api/v1/management/report" with the fork-join analysis mode
+         *
+         * @throws Exception if the test fails
+         */
+        @Test
+        @DisplayName("Test of ManagementController report with fork-join mode - isOK")
+        @Rollback
+        public void testGenerateReportForkJoinIsOK() throws Exception {
+                // Arrange
+                generateTestData();
+
+                String userAuthRequest = "{\n" +
+                                "    \"password\": \"test_admin\",\n" +
+                                "    \"email\": \"test_admin@example.com\"\n" +
+                                "}";
+
+                MvcResult result = mockMvc.perform(
+                                MockMvcRequestBuilders
+                                                .post("/api/v1/users/authorize")
+                                                .contentType("application/json;charset=UTF-8")
+                                                .content(userAuthRequest))
+                                .andReturn();
+
+                Cookie cookie = result.getResponse().getCookie("token");
+
+                String request = "{\n" +
+                                "    \"numThreads\": 12,\n" +
+                                "    \"iterations\": 1,\n" +
+                                "    \"mode\": \"FORK_JOIN\"\n" +
+                                "}";
+
+                MockHttpServletRequestBuilder requestBuilder = MockMvcRequestBuilders
+                                .post("/api/v1/management/report")
+                                .cookie(cookie)
+                                .contentType("application/json;charset=UTF-8")
+                                .content(request);
+
+                // Act
+                result = mockMvc.perform(requestBuilder)
+                                .andReturn();
+
+                int status = result.getResponse().getStatus();
+                byte[] content = result.getResponse().getContentAsByteArray();
+
+                // Assert
+                Assert.assertEquals(status, 200);
+                // xlsx file
+                Assert.assertEquals(content[0], (byte) 0x50);
+                Assert.assertEquals(content[1], (byte) 0x4B);
         }
 
         @Test
@@ -455,9 +634,9 @@ public class ManagementControllerTest {
                 Assert.assertTrue(result.getResponse().getContentAsString().contains("totalDurationRead"));
                 Assert.assertTrue(result.getResponse().getContentAsString().contains("averageDurationWrite"));
                 Assert.assertTrue(result.getResponse().getContentAsString().contains("averageDurationRead"));
-                Assert.assertTrue(result.getResponse().getContentAsString().contains("medianDurationWrite"));
+                Assert.assertTrue(result.getResponse().getContentAsString().contains("medianDurationWriteBatch"));
                 Assert.assertTrue(result.getResponse().getContentAsString().contains("medianDurationRead"));
-                Assert.assertTrue(result.getResponse().getContentAsString().contains("standardDeviationWrite"));
+                Assert.assertTrue(result.getResponse().getContentAsString().contains("standardDeviationWriteBatch"));
                 Assert.assertTrue(result.getResponse().getContentAsString().contains("standardDeviationRead"));
                 Assert.assertTrue(result.getResponse().getContentAsString().contains("writeMemoryUsage"));
         }
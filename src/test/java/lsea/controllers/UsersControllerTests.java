@@ -688,6 +688,117 @@ public class UsersControllerTests {
                                 .andExpect(MockMvcResultMatchers.jsonPath("$.message").value("No cookies found"));
         }
 
+        /**
+         * Following test verifies that a refresh token is exchanged once for new
+         * tokens and rejected when presented again.
+         *
+         * @throws Exception if the test fails
+         */
+        @Test
+        @DisplayName("Test of refresh endpoint rotating the refresh token")
+        @Rollback
+        public void testRefreshRotatesToken() throws Exception {
+                // Arrange
+                MvcResult login = mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/users/authorize")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{ \"email\": \"admin@example.com\", \"password\": \"adminadmin\" }"))
+                                .andExpect(MockMvcResultMatchers.status().isOk())
+                                .andExpect(MockMvcResultMatchers.cookie().exists("refresh_token"))
+                                .andExpect(MockMvcResultMatchers.cookie().httpOnly("refresh_token", true))
+                                .andReturn();
+                Cookie refreshCookie = login.getResponse().getCookie("refresh_token");
+
+                // Act
+                MvcResult refreshed = mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/users/refresh")
+                                .cookie(refreshCookie))
+                                // Assert
+                                .andExpect(MockMvcResultMatchers.status().isOk())
+                                .andExpect(MockMvcResultMatchers.cookie().exists("token"))
+                                .andReturn();
+                Cookie nextRefreshCookie = refreshed.getResponse().getCookie("refresh_token");
+                assertThat(nextRefreshCookie.getValue()).isNotEqualTo(refreshCookie.getValue());
+
+                // the used token is rejected and ends the session
+                mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/users/refresh")
+                                .cookie(refreshCookie))
+                                .andExpect(MockMvcResultMatchers.status().isForbidden())
+                                .andExpect(MockMvcResultMatchers.jsonPath("$.message").value("Invalid refresh token"));
+                mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/users/refresh")
+                                .cookie(nextRefreshCookie))
+                                .andExpect(MockMvcResultMatchers.status().isForbidden());
+        }
+
+        /**
+         * Following test verifies that a banned user cannot refresh its session.
+         *
+         * @throws Exception if the test fails
+         */
+        @Test
+        @DisplayName("Test of refresh endpoint with a banned user")
+        @Rollback
+        public void testRefreshBannedUser() throws Exception {
+                // Arrange
+                String password = RandomBase64Generator.generateShort();
+                mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/users")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{ \"username\": \"test_refresh\", \"password\": \"" + password
+                                                + "\", \"email\": \"test_refresh@example.com\" }"))
+                                .andExpect(MockMvcResultMatchers.status().isOk());
+                MvcResult login = mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/users/authorize")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{ \"email\": \"test_refresh@example.com\", \"password\": \"" + password
+                                                + "\" }"))
+                                .andExpect(MockMvcResultMatchers.status().isOk())
+                                .andReturn();
+                Cookie refreshCookie = login.getResponse().getCookie("refresh_token");
+
+                mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/users/ban")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{ \"emailAddress\": \"test_refresh@example.com\" }")
+                                .cookie(getAdminCookieHelper()))
+                                .andExpect(MockMvcResultMatchers.status().isOk());
+
+                // Act
+                mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/users/refresh")
+                                .cookie(refreshCookie))
+                                // Assert
+                                .andExpect(MockMvcResultMatchers.status().isForbidden());
+        }
+
+        /**
+         * Following test verifies that a token is rejected once its session is
+         * logged out.
+         *
+         * @throws Exception if the test fails
+         */
+        @Test
+        @DisplayName("Test of logout endpoint revoking the token")
+        @Rollback
+        public void testLogoutRevokesToken() throws Exception {
+                // Arrange
+                Cookie cookieSetAdmin = getAdminCookieHelper();
+                String requestBodyUpdate = "{ \"username\": \"admin\", \"email\": \"admin@example.com\" }";
+                mockMvc.perform(MockMvcRequestBuilders.put("/api/v1/users/")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(requestBodyUpdate)
+                                .cookie(cookieSetAdmin))
+                                .andExpect(MockMvcResultMatchers.status().isOk());
+
+                // Act
+                mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/users/logout")
+                                .cookie(cookieSetAdmin))
+                                // Assert
+                                .andExpect(MockMvcResultMatchers.status().isOk())
+                                .andExpect(MockMvcResultMatchers.cookie().maxAge("token", 0));
+
+                mockMvc.perform(MockMvcRequestBuilders.put("/api/v1/users/")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(requestBodyUpdate)
+                                .cookie(cookieSetAdmin))
+                                .andExpect(MockMvcResultMatchers.status().isForbidden())
+                                .andExpect(MockMvcResultMatchers.jsonPath("$.message").value("Token revoked"));
+        }
+
         /**
          * Used to return admin cookie
          *
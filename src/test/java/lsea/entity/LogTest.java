@@ -37,7 +37,7 @@ public class LogTest {
                 .username("testUser")
                 .email("test@example.com")
                 .password("password")
-                .build());
+                .build(), "not a hash");
     }
 
     /**
@@ -56,6 +56,7 @@ public class LogTest {
         Log log = Log.create(createLogDto, user);
 
         assertEquals(createLogDto.getData(), log.getData());
+        assertEquals(createLogDto.getData().length(), log.getDataLength());
         assertEquals(LogType.Success, log.getLogType());
         assertEquals(user.getId(), log.getUserId());
         assertNotNull(log.getCreatedAt());
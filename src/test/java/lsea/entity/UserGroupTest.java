@@ -34,7 +34,7 @@ public class UserGroupTest {
                 .username("testUser")
                 .email("test@example.com")
                 .password("password")
-                .build());
+                .build(), "not a hash");
         creator.setGlobalPermission(GlobalPermissions.MODERATOR);
 
         // Act
@@ -42,6 +42,7 @@ public class UserGroupTest {
 
         // Assert
         Assertions.assertNotNull(userGroup.getId());
+        Assertions.assertEquals(7, userGroup.getId().version());
         Assertions.assertEquals(dto.getName(), userGroup.getName());
         Assertions.assertEquals(dto.getDescription(), userGroup.getDescription());
         Assertions.assertEquals(GlobalPermissions.USER, userGroup.getGlobalPermission());
@@ -60,7 +61,7 @@ public class UserGroupTest {
                 .username("testUser")
                 .email("test@example.com")
                 .password("password")
-                .build());
+                .build(), "not a hash");
         creator.setGlobalPermission(GlobalPermissions.USER);
 
         // Assert
@@ -82,7 +83,7 @@ public class UserGroupTest {
                 .username("testUser")
                 .email("test@example.com")
                 .password("password")
-                .build());
+                .build(), "not a hash");
         user.setGlobalPermission(GlobalPermissions.MODERATOR);
         UserGroup userGroup = UserGroup.create(CreateUserGroupDto.builder().build(), user);
         userGroup.setId(UUID.randomUUID());
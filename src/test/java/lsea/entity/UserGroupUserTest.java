@@ -54,6 +54,7 @@ class UserGroupUserTest {
 
         Assertions.assertNotNull(userGroupUser);
         Assertions.assertNotNull(userGroupUser.getId());
+        Assertions.assertEquals(7, userGroupUser.getId().version());
         Assertions.assertEquals(UUID.fromString(userGroupId), userGroupUser.getUserGroupId());
         Assertions.assertEquals(UUID.fromString(userId), userGroupUser.getUserId());
         Assertions.assertEquals(GroupPermissions.REGULAR, userGroupUser.getGroupPermission());
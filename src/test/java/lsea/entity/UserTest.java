@@ -35,7 +35,7 @@ public class UserTest {
                 .username("testUser")
                 .email("test@example.com")
                 .password("password")
-                .build());
+                .build(), BCrypt.hashpw("password", BCrypt.gensalt(4)));
     }
 
     /**
@@ -50,7 +50,7 @@ public class UserTest {
                 .password("password")
                 .build();
 
-        User createdUser = User.create(dto);
+        User createdUser = User.create(dto, BCrypt.hashpw(dto.getPassword(), BCrypt.gensalt(4)));
 
         Assertions.assertEquals(dto.getUsername(), createdUser.getUsername());
         Assertions.assertEquals(dto.getEmail(), createdUser.getEmail());
@@ -107,9 +107,10 @@ public class UserTest {
         String oldPassword = "password";
         String newPassword = "newpassword";
 
-        user.changePassword(oldPassword, newPassword);
+        user.changePassword(BCrypt.hashpw(newPassword, BCrypt.gensalt(4)));
 
         Assertions.assertThrows(GenericForbiddenError.class, () -> user.verifyPassword(oldPassword));
+        Assertions.assertDoesNotThrow(() -> user.verifyPassword(newPassword));
     }
 
     /**
@@ -36,7 +36,7 @@ public class WebsiteTest {
    */
   @BeforeEach
   public void setup() {
-    user = User.create(CreateUserDto.builder().build());
+    user = User.create(CreateUserDto.builder().build(), "not a hash");
     user.setId(UUID.randomUUID());
   }
 
@@ -0,0 +1,124 @@
+package lsea.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import lsea.errors.GenericServiceUnavailableError;
+import lsea.utils.ExecutorBacking;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the AnalysisExecutor class.
+ */
+public class AnalysisExecutorTest {
+
+  /**
+   * The registry the metrics of the executor are exported to.
+   */
+  private MeterRegistry meterRegistry;
+
+  /**
+   * The executor under test, admitting two running and one queued tasks.
+   */
+  private AnalysisExecutor executor;
+
+  /**
+   * Set up the executor.
+   */
+  @BeforeEach
+  public void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    executor = new AnalysisExecutor(ExecutorBacking.BOUNDED, 2, 1, meterRegistry);
+  }
+
+  /**
+   * Stop the executor.
+   */
+  @AfterEach
+  public void tearDown() {
+    executor.shutdown();
+  }
+
+  /**
+   * A batch is admitted as a whole, a batch exceeding the free capacity is
+   * rejected without running any of its tasks.
+   *
+   * @throws Exception if the test fails
+   */
+  @Test
+  public void testExecuteAllRejectsWholeBatch() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(2);
+    executor.executeAll(tasks(2, () -> {
+      awaitQuietly(release);
+      done.countDown();
+    }));
+
+    List<Runnable> rejected = tasks(2, Assertions::fail);
+    Assertions.assertThrows(GenericServiceUnavailableError.class, () -> executor.executeAll(rejected));
+    Assertions.assertEquals(2, meterRegistry.get("analysis.tasks.rejected").counter().count());
+
+    release.countDown();
+    Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+    // the permits are released right after the tasks return
+    for (int i = 0; i < 500 && meterRegistry.get("analysis.tasks.admitted").gauge().value() > 0; i++) {
+      Thread.sleep(10);
+    }
+
+    CountDownLatch admitted = new CountDownLatch(3);
+    executor.executeAll(tasks(3, admitted::countDown));
+    Assertions.assertTrue(admitted.await(5, TimeUnit.SECONDS));
+  }
+
+  /**
+   * A batch larger than the capacity can never be admitted.
+   */
+  @Test
+  public void testExecuteAllAboveCapacity() {
+    Assertions.assertEquals(3, executor.getCapacity());
+    Assertions.assertThrows(
+        GenericServiceUnavailableError.class,
+        () -> executor.executeAll(tasks(4, () -> {
+        })));
+  }
+
+  /**
+   * The backing names accept dashes and any case.
+   */
+  @Test
+  public void testParseBacking() {
+    Assertions.assertEquals(ExecutorBacking.FORK_JOIN, ExecutorBacking.parse("fork-join"));
+    Assertions.assertEquals(ExecutorBacking.VIRTUAL, ExecutorBacking.parse(" Virtual "));
+  }
+
+  /**
+   * Returns a batch of the same task.
+   *
+   * @param count the number of tasks
+   * @param task  the task
+   * @return the batch
+   */
+  private static List<Runnable> tasks(int count, Runnable task) {
+    return new ArrayList<>(Collections.nCopies(count, task));
+  }
+
+  /**
+   * Waits for a latch, ignoring interruptions.
+   *
+   * @param latch the latch
+   */
+  private static void awaitQuietly(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,84 @@
+package lsea.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import lsea.entity.Log;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the LogBus class.
+ */
+public class LogBusTest {
+
+  /**
+   * A subscriber reads the logs published after it subscribed, in order.
+   */
+  @Test
+  public void testPublishedInOrder() throws InterruptedException {
+    LogBus bus = new LogBus(8);
+    bus.publishAll(Arrays.asList(log("before")));
+    LogBus.Subscription subscription = bus.subscribe();
+    bus.publishAll(Arrays.asList(log("first"), log("second")));
+    bus.publishAll(Arrays.asList(log("third")));
+
+    Assertions.assertEquals(Arrays.asList("first", "second"), data(subscription.poll(2, 0)));
+    Assertions.assertEquals(Arrays.asList("third"), data(subscription.poll(10, 0)));
+    Assertions.assertTrue(subscription.poll(10, 10).isEmpty());
+    Assertions.assertEquals(0, subscription.getMissed());
+  }
+
+  /**
+   * A waiting subscriber is woken up by a publication.
+   */
+  @Test
+  public void testWaitingSubscriberWokenUp() throws InterruptedException {
+    LogBus bus = new LogBus(8);
+    LogBus.Subscription subscription = bus.subscribe();
+    Thread publisher = new Thread(() -> bus.publishAll(Arrays.asList(log("pushed"))));
+    publisher.start();
+
+    Assertions.assertEquals(Arrays.asList("pushed"), data(subscription.poll(10, 10000)));
+    publisher.join();
+  }
+
+  /**
+   * A subscriber falling behind by more than the capacity skips the
+   * overwritten logs and counts them.
+   */
+  @Test
+  public void testSlowSubscriberMissesOverwrittenLogs() throws InterruptedException {
+    LogBus bus = new LogBus(4);
+    LogBus.Subscription subscription = bus.subscribe();
+    for (int i = 0; i < 6; i++) {
+      bus.publishAll(Arrays.asList(log("log" + i)));
+    }
+
+    Assertions.assertEquals(Arrays.asList("log2", "log3", "log4", "log5"), data(subscription.poll(10, 0)));
+    Assertions.assertEquals(2, subscription.getMissed());
+  }
+
+  /**
+   * Creates a log.
+   *
+   * @param data - the data of the log
+   * @return the log
+   */
+  private static Log log(String data) {
+    return Log.builder().id(UUID.randomUUID()).data(data).build();
+  }
+
+  /**
+   * Returns the data of logs.
+   *
+   * @param logs - the logs
+   * @return their data, in order
+   */
+  private static List<String> data(List<Log> logs) {
+    List<String> data = new ArrayList<>();
+    logs.forEach(log -> data.add(log.getData()));
+    return data;
+  }
+}
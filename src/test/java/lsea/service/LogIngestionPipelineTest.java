@@ -0,0 +1,150 @@
+package lsea.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.UUID;
+import lsea.entity.Log;
+import lsea.errors.GenericServiceUnavailableError;
+import lsea.utils.LogType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Unit tests for the LogIngestionPipeline class.
+ */
+public class LogIngestionPipelineTest {
+
+  /**
+   * The writer receiving the batches.
+   */
+  private LogBatchWriter logBatchWriter;
+
+  /**
+   * The leaderboard offered the written logs.
+   */
+  private LogLeaderboard logLeaderboard;
+
+  /**
+   * Set up the mocked collaborators.
+   */
+  @BeforeEach
+  public void setUp() {
+    logBatchWriter = Mockito.mock(LogBatchWriter.class);
+    logLeaderboard = Mockito.mock(LogLeaderboard.class);
+  }
+
+  /**
+   * A durable log is inserted by the writer before the request returns.
+   *
+   * @throws Exception if the log is not written
+   */
+  @Test
+  public void testDurableSubmit() throws Exception {
+    LogIngestionPipeline pipeline = newPipeline(true, 16);
+    Log log = newLog();
+
+    try {
+      Assertions.assertTrue(pipeline.submit(log, true));
+    } finally {
+      pipeline.shutdown();
+    }
+
+    Assertions.assertNotNull(log.getId());
+    Mockito.verify(logBatchWriter).insert(Collections.singletonList(log));
+    Mockito.verify(logLeaderboard).offer(log);
+  }
+
+  /**
+   * A batch failing on a transient error is retried and committed.
+   *
+   * @throws Exception if the log is not written
+   */
+  @Test
+  public void testFailedBatchRetried() throws Exception {
+    Mockito.doThrow(new TransientDataAccessResourceException("connection lost"))
+        .doNothing()
+        .when(logBatchWriter).insert(Mockito.anyList());
+    LogIngestionPipeline pipeline = newPipeline(true, 16);
+    Log log = newLog();
+
+    try {
+      Assertions.assertTrue(pipeline.submit(log, true));
+    } finally {
+      pipeline.shutdown();
+    }
+
+    Mockito.verify(logBatchWriter, Mockito.times(2)).insert(Collections.singletonList(log));
+    Mockito.verify(logLeaderboard).offer(log);
+  }
+
+  /**
+   * A log that cannot be written fails on its own, the logs batched with it
+   * are committed.
+   */
+  @Test
+  public void testFailingLogIsolated() {
+    Log bad = newLog();
+    Mockito.doThrow(new DataIntegrityViolationException("bad log"))
+        .when(logBatchWriter).insert(Mockito.argThat(logs -> logs.contains(bad)));
+    LogIngestionPipeline pipeline = newPipeline(true, 16);
+
+    int[] statuses;
+    try {
+      statuses = pipeline.submitAll(Arrays.asList(newLog(), bad, newLog()), true);
+    } finally {
+      pipeline.shutdown();
+    }
+
+    Assertions.assertArrayEquals(new int[] { 200, 500, 200 }, statuses);
+  }
+
+  /**
+   * A log is rejected with a 503 once the queue is full.
+   *
+   * @throws Exception if the first log is rejected
+   */
+  @Test
+  public void testFullQueue() throws Exception {
+    // the writer is not started, the queue only fills
+    LogIngestionPipeline pipeline = newPipeline(false, 1);
+
+    Assertions.assertFalse(pipeline.submit(newLog(), false));
+    Assertions.assertThrows(GenericServiceUnavailableError.class, () -> pipeline.submit(newLog(), false));
+    Assertions.assertEquals(1, pipeline.pending());
+  }
+
+  /**
+   * Creates a pipeline writing to the mocked writer.
+   *
+   * @param enabled       whether the writer is started
+   * @param queueCapacity the capacity of the queue
+   * @return the pipeline
+   */
+  private LogIngestionPipeline newPipeline(boolean enabled, int queueCapacity) {
+    return new LogIngestionPipeline(logBatchWriter, Mockito.mock(PlatformTransactionManager.class), logLeaderboard,
+        Mockito.mock(LogBus.class), enabled, queueCapacity, 8, 5000, 3, 1, new SimpleMeterRegistry());
+  }
+
+  /**
+   * Creates a log to ingest.
+   *
+   * @return the log
+   */
+  private static Log newLog() {
+    return Log
+        .builder()
+        .data("ingested")
+        .dataLength(8)
+        .logType(LogType.values()[0])
+        .userId(UUID.randomUUID())
+        .createdAt(new Date())
+        .build();
+  }
+}
@@ -0,0 +1,114 @@
+package lsea.service;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import lsea.entity.Log;
+import lsea.utils.LengthOrder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+/**
+ * Unit tests for the LogLeaderboard class.
+ */
+public class LogLeaderboardTest {
+
+  /**
+   * The leaderboard under test, keeping three logs per board.
+   */
+  private LogLeaderboard leaderboard;
+
+  /**
+   * The engine the leaderboard is rebuilt with, mocked.
+   */
+  private LogTopKEngine engine;
+
+  /**
+   * Set up an empty leaderboard, rebuilt from an empty database.
+   */
+  @BeforeEach
+  public void setUp() {
+    engine = Mockito.mock(LogTopKEngine.class);
+    Mockito.when(engine.lookup(Mockito.anyInt(), Mockito.any())).thenReturn(Collections.emptyList());
+    leaderboard = new LogLeaderboard(engine, 3);
+  }
+
+  /**
+   * The leaderboard cannot serve before being rebuilt nor above its capacity.
+   */
+  @Test
+  public void testCanServe() {
+    Assertions.assertFalse(leaderboard.canServe(3));
+
+    leaderboard.rebuild();
+
+    Assertions.assertTrue(leaderboard.canServe(3));
+    Assertions.assertFalse(leaderboard.canServe(4));
+  }
+
+  /**
+   * Offered logs are ranked on both boards, weakest first.
+   */
+  @Test
+  public void testOffer() {
+    leaderboard.rebuild();
+    for (int i = 3; i <= 10; i++) {
+      leaderboard.offer(log(i));
+    }
+
+    List<Log> longest = leaderboard.top(3, LengthOrder.LONGEST);
+    List<Log> shortest = leaderboard.top(2, LengthOrder.SHORTEST);
+
+    Assertions.assertEquals(3, longest.size());
+    Assertions.assertEquals(8, longest.get(0).getData().length());
+    Assertions.assertEquals(10, longest.get(2).getData().length());
+    Assertions.assertEquals(2, shortest.size());
+    Assertions.assertEquals(4, shortest.get(0).getData().length());
+    Assertions.assertEquals(3, shortest.get(1).getData().length());
+  }
+
+  /**
+   * A log offered twice is counted once.
+   */
+  @Test
+  public void testOfferTwice() {
+    leaderboard.rebuild();
+    Log log = log(5);
+
+    leaderboard.offer(log);
+    leaderboard.offer(log);
+
+    Assertions.assertEquals(1, leaderboard.top(3, LengthOrder.LONGEST).size());
+  }
+
+  /**
+   * The boards are seeded from the data length index.
+   */
+  @Test
+  public void testRebuildFromLookup() {
+    Mockito.when(engine.lookup(3, LengthOrder.LONGEST)).thenReturn(Arrays.asList(log(7), log(8), log(9)));
+    Mockito.when(engine.lookup(3, LengthOrder.SHORTEST)).thenReturn(Arrays.asList(log(3), log(2), log(1)));
+
+    leaderboard.rebuild();
+
+    Assertions.assertEquals(9, leaderboard.top(3, LengthOrder.LONGEST).get(2).getData().length());
+    Assertions.assertEquals(1, leaderboard.top(3, LengthOrder.SHORTEST).get(2).getData().length());
+  }
+
+  /**
+   * Creates a log with data of the given length.
+   *
+   * @param length the length of the data
+   * @return the log
+   */
+  private static Log log(int length) {
+    StringBuilder data = new StringBuilder();
+    for (int i = 0; i < length; i++) {
+      data.append('x');
+    }
+    return Log.builder().id(UUID.randomUUID()).data(data.toString()).dataLength(length).build();
+  }
+}
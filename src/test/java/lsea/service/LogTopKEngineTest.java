@@ -0,0 +1,106 @@
+package lsea.service;
+
+import java.util.List;
+import javax.transaction.Transactional;
+import lsea.LaboratoryApplication;
+import lsea.dto.CreateLogDto;
+import lsea.dto.CreateUserDto;
+import lsea.entity.Log;
+import lsea.entity.User;
+import lsea.errors.GenericForbiddenError;
+import lsea.repository.LogRepository;
+import lsea.repository.UserRepository;
+import lsea.utils.LengthOrder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.Rollback;
+
+/**
+ * Unit tests for the LogTopKEngine class.
+ */
+@SpringBootTest(classes = { LaboratoryApplication.class })
+@Transactional
+public class LogTopKEngineTest {
+
+  /**
+   * The log repository.
+   */
+  @Autowired
+  private LogRepository logRepository;
+
+  /**
+   * The user repository.
+   */
+  @Autowired
+  private UserRepository userRepository;
+
+  /**
+   * The engine under test.
+   */
+  private LogTopKEngine engine;
+
+  /**
+   * Set up the test data before each test case, one log of each length from
+   * 3 to 12 characters.
+   *
+   * @throws GenericForbiddenError if the log cannot be created
+   */
+  @BeforeEach
+  public void setUp() throws GenericForbiddenError {
+    engine = new LogTopKEngine(logRepository);
+
+    User user = userRepository.save(User.create(CreateUserDto.builder()
+        .username("engineUser")
+        .email("engine@example.com")
+        .password("password")
+        .build(), "not a hash"));
+
+    for (int i = 3; i <= 12; i++) {
+      StringBuilder data = new StringBuilder();
+      for (int j = 0; j < i; j++) {
+        data.append('x');
+      }
+      logRepository.save(Log.create(CreateLogDto.builder().data(data.toString()).logType(0).build(), user));
+    }
+  }
+
+  /**
+   * The longest logs are returned from the weakest to the best one.
+   */
+  @Test
+  @Rollback
+  public void testLookupLongest() {
+    List<Log> logs = engine.lookup(4, LengthOrder.LONGEST);
+
+    Assertions.assertEquals(4, logs.size());
+    Assertions.assertEquals(9, logs.get(0).getData().length());
+    Assertions.assertEquals(12, logs.get(3).getData().length());
+  }
+
+  /**
+   * The shortest logs are returned from the weakest to the best one.
+   */
+  @Test
+  @Rollback
+  public void testLookupShortest() {
+    List<Log> logs = engine.lookup(3, LengthOrder.SHORTEST);
+
+    Assertions.assertEquals(3, logs.size());
+    Assertions.assertEquals(5, logs.get(0).getData().length());
+    Assertions.assertEquals(3, logs.get(2).getData().length());
+  }
+
+  /**
+   * Asking for more logs than stored returns all of them.
+   */
+  @Test
+  @Rollback
+  public void testLookupMoreThanStored() {
+    List<Log> logs = engine.lookup(50, LengthOrder.LONGEST);
+
+    Assertions.assertEquals(10, logs.size());
+  }
+}
@@ -0,0 +1,167 @@
+package lsea.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import lsea.dto.GenerateReportDto;
+import lsea.entity.Log;
+import lsea.errors.ValidationError;
+import lsea.utils.AnalysisMode;
+import lsea.utils.ExecutorBacking;
+import lsea.utils.ListResult;
+import lsea.utils.TimeOrderedUuid;
+import lsea.utils.ReportStatistics;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the report generation of the ManagementService class.
+ */
+public class ManagementServiceTest {
+
+  /**
+   * The service under test, the report does not use the repositories.
+   */
+  private ManagementService managementService;
+
+  /**
+   * The executor of the latch mode.
+   */
+  private AnalysisExecutor analysisExecutor;
+
+  /**
+   * Set up the service with a row window smaller than the report.
+   */
+  @BeforeEach
+  public void setUp() {
+    analysisExecutor = new AnalysisExecutor(ExecutorBacking.BOUNDED, 2, 0, new SimpleMeterRegistry());
+    managementService = new ManagementService(null, null, null, null, analysisExecutor);
+    managementService.setReportRowWindow(2);
+  }
+
+  /**
+   * Stop the threads of the service and of its executor.
+   */
+  @AfterEach
+  public void tearDown() {
+    managementService.shutdown();
+    analysisExecutor.shutdown();
+  }
+
+  /**
+   * The rows flushed out of the window are written with the rest of the report.
+   *
+   * @throws Exception if the report cannot be written or read
+   */
+  @Test
+  public void testWriteReport() throws Exception {
+    int numThreads = 20;
+    Map<Integer, ReportStatistics> statistics = new HashMap<>();
+    for (int i = 1; i <= numThreads; i++) {
+      statistics.put(i, ReportStatistics.builder().samples(1).mean(i).p50(i).p90(i).p99(i).max(i).build());
+    }
+    GenerateReportDto dto = GenerateReportDto.builder().numThreads(numThreads).iterations(1).build();
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    managementService.writeReport(dto, statistics, statistics, 1, out);
+
+    try (XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()))) {
+      Assertions.assertEquals(2, workbook.getNumberOfSheets());
+      XSSFSheet sheet = workbook.getSheetAt(0);
+      Assertions.assertEquals(numThreads, sheet.getLastRowNum());
+      Assertions.assertEquals(1, sheet.getRow(1).getCell(0).getNumericCellValue());
+      Assertions.assertEquals(numThreads, sheet.getRow(numThreads).getCell(5).getNumericCellValue());
+      Assertions.assertEquals(1, sheet.getDrawingPatriarch().getCharts().size());
+    }
+  }
+
+  /**
+   * A number of threads beyond the capacity of the executor is rejected as a
+   * validation error naming the capacity.
+   */
+  @Test
+  public void testNumThreadsBeyondCapacity() {
+    List<Log> logs = logs(10);
+
+    ValidationError longest = Assertions.assertThrows(ValidationError.class,
+        () -> managementService.longestFiveLogs(3, logs, AnalysisMode.LATCH));
+    ValidationError shortest = Assertions.assertThrows(ValidationError.class,
+        () -> managementService.shortestFiveLogs(0, logs, AnalysisMode.LATCH));
+
+    Assertions.assertTrue(longest.e.getMessage().contains("2"));
+    Assertions.assertTrue(shortest.e.getMessage().contains("2"));
+  }
+
+  /**
+   * The number of threads of a report is checked against the capacity of the
+   * executor, without any log.
+   */
+  @Test
+  public void testValidateNumThreads() {
+    Assertions.assertThrows(ValidationError.class, () -> managementService.validateNumThreads(3));
+    Assertions.assertDoesNotThrow(() -> managementService.validateNumThreads(2));
+  }
+
+  /**
+   * The latch mode with more threads than logs leaves partitions empty, the
+   * threads of the empty partitions still count the latch down.
+   */
+  @Test
+  public void testLatchWithMoreThreadsThanLogs() {
+    AnalysisExecutor wideExecutor = new AnalysisExecutor(ExecutorBacking.BOUNDED, 8, 0, new SimpleMeterRegistry());
+    ManagementService service = new ManagementService(null, null, null, null, wideExecutor);
+    List<Log> logs = logs(6);
+
+    try {
+      ListResult longest = Assertions.assertTimeoutPreemptively(Duration.ofSeconds(10),
+          () -> service.longestFiveLogs(8, logs, AnalysisMode.LATCH));
+      ListResult shortest = Assertions.assertTimeoutPreemptively(Duration.ofSeconds(10),
+          () -> service.shortestFiveLogs(8, logs, AnalysisMode.LATCH));
+
+      Assertions.assertEquals(new TreeSet<>(List.of(2, 3, 4, 5, 6)), lengths(longest));
+      Assertions.assertEquals(new TreeSet<>(List.of(1, 2, 3, 4, 5)), lengths(shortest));
+    } finally {
+      service.shutdown();
+      wideExecutor.shutdown();
+    }
+  }
+
+  /**
+   * Returns the lengths of the logs of a result.
+   *
+   * @param result - the result of an analysis
+   * @return the lengths of the logs
+   */
+  private static Set<Integer> lengths(ListResult result) {
+    Set<Integer> lengths = new TreeSet<>();
+    for (Object log : result.getData()) {
+      lengths.add(((Log) log).getData().length());
+    }
+    return lengths;
+  }
+
+  /**
+   * Creates logs of increasing lengths.
+   *
+   * @param count - the number of logs
+   * @return the logs, the i-th one of length i
+   */
+  private static List<Log> logs(int count) {
+    List<Log> logs = new ArrayList<>();
+    for (int i = 1; i <= count; i++) {
+      logs.add(Log.builder().id(TimeOrderedUuid.next()).data(new String(new char[i]).replace('\0', 'a')).build());
+    }
+    return logs;
+  }
+}
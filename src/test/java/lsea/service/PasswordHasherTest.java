@@ -0,0 +1,78 @@
+package lsea.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+/**
+ * Unit tests for the PasswordHasher class.
+ */
+public class PasswordHasherTest {
+
+  /**
+   * The hasher under test, with the smallest cost to keep the tests fast.
+   */
+  private PasswordHasher hasher;
+
+  /**
+   * Set up a hasher with two threads.
+   */
+  @BeforeEach
+  public void setUp() {
+    hasher = new PasswordHasher(4, 2, 8, new SimpleMeterRegistry());
+  }
+
+  /**
+   * Stop the hashing threads.
+   */
+  @AfterEach
+  public void tearDown() {
+    hasher.shutdown();
+  }
+
+  /**
+   * A hash has the configured cost and verifies only its password.
+   */
+  @Test
+  public void testHashAndVerify() throws Exception {
+    String hash = hasher.hash("password");
+
+    Assertions.assertEquals(4, PasswordHasher.costOf(hash));
+    Assertions.assertTrue(hasher.verify("password", hash));
+    Assertions.assertFalse(hasher.verify("wrong", hash));
+  }
+
+  /**
+   * Only the hashes made with another cost are rehashed.
+   */
+  @Test
+  public void testRehash() throws Exception {
+    String oldHash = BCrypt.hashpw("password", BCrypt.gensalt(5));
+
+    Assertions.assertFalse(hasher.needsRehash(hasher.hash("password")));
+    Assertions.assertTrue(hasher.needsRehash(oldHash));
+    Assertions.assertTrue(hasher.needsRehash("not a hash"));
+
+    CompletableFuture<String> newHash = new CompletableFuture<>();
+    hasher.rehashLater("password", newHash::complete);
+
+    Assertions.assertEquals(4, PasswordHasher.costOf(newHash.get(10, TimeUnit.SECONDS)));
+    Assertions.assertTrue(BCrypt.checkpw("password", newHash.get()));
+  }
+
+  /**
+   * The cost must be accepted by BCrypt.
+   */
+  @Test
+  public void testInvalidCost() {
+    Assertions.assertThrows(IllegalArgumentException.class,
+        () -> new PasswordHasher(3, 1, 1, new SimpleMeterRegistry()));
+    Assertions.assertThrows(IllegalArgumentException.class,
+        () -> new PasswordHasher(32, 1, 1, new SimpleMeterRegistry()));
+  }
+}
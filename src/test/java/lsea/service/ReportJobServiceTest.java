@@ -0,0 +1,199 @@
+package lsea.service;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import lsea.dto.GenerateReportDto;
+import lsea.errors.GenericNotFoundError;
+import lsea.errors.GenericServiceUnavailableError;
+import lsea.errors.ValidationError;
+import lsea.repository.LogRepository;
+import lsea.utils.AnalysisMode;
+import lsea.utils.ReportJobState;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+/**
+ * Unit tests for the ReportJobService class.
+ */
+public class ReportJobServiceTest {
+
+  /**
+   * The service measuring the reports, mocked.
+   */
+  private ManagementService managementService;
+
+  /**
+   * The job service under test, created by every test.
+   */
+  private ReportJobService reportJobService;
+
+  /**
+   * Set up the mocked measurement of the reports.
+   *
+   * @throws Exception if the mock cannot be set up
+   */
+  @BeforeEach
+  public void setUp() throws Exception {
+    managementService = Mockito.mock(ManagementService.class);
+    Mockito.when(managementService.measureReport(
+        Mockito.anyInt(), Mockito.anyInt(), Mockito.anyInt(), Mockito.any(), Mockito.any()))
+        .thenReturn(Arrays.asList(Collections.emptyMap(), Collections.emptyMap()));
+  }
+
+  /**
+   * Stop the report workers.
+   */
+  @AfterEach
+  public void tearDown() {
+    reportJobService.shutdown();
+  }
+
+  /**
+   * A report is rejected while too many jobs are queued or running, and
+   * admitted again once they finish.
+   *
+   * @throws Exception if the test fails
+   */
+  @Test
+  public void testSubmitRejectedBeyondPendingJobs() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    Mockito.when(managementService.measureReport(
+        Mockito.eq(1), Mockito.anyInt(), Mockito.anyInt(), Mockito.any(), Mockito.any()))
+        .thenAnswer(invocation -> {
+          release.await(10, TimeUnit.SECONDS);
+          return Arrays.asList(Collections.emptyMap(), Collections.emptyMap());
+        });
+    reportJobService = service(1, 8, 1);
+
+    UUID first = reportJobService.submit(dto(1)).getJobId();
+
+    Assertions.assertThrows(GenericServiceUnavailableError.class, () -> reportJobService.submit(dto(2)));
+
+    release.countDown();
+    awaitFinished(first);
+    UUID second = reportJobService.submit(dto(2)).getJobId();
+    Assertions.assertEquals(ReportJobState.DONE, awaitFinished(second));
+  }
+
+  /**
+   * A report above the analysis capacity is rejected before it is queued.
+   *
+   * @throws Exception if the mock cannot be set up
+   */
+  @Test
+  public void testSubmitRejectedAboveCapacity() throws Exception {
+    Mockito.doThrow(new ValidationError("numThreads must be between 1 and the analysis capacity of 2"))
+        .when(managementService).validateNumThreads(3);
+    reportJobService = service(1, 8, 4);
+
+    Assertions.assertThrows(ValidationError.class, () -> reportJobService.submit(dto(3)));
+
+    Mockito.verify(managementService, Mockito.never()).measureReport(
+        Mockito.anyInt(), Mockito.anyInt(), Mockito.anyInt(), Mockito.any(), Mockito.any());
+  }
+
+  /**
+   * The finished jobs beyond the cache size are evicted, the latest one is
+   * kept.
+   *
+   * @throws Exception if the test fails
+   */
+  @Test
+  public void testFinishedJobsEvicted() throws Exception {
+    reportJobService = service(2, 1, 4);
+
+    UUID first = reportJobService.submit(dto(1)).getJobId();
+    awaitFinished(first);
+    UUID second = reportJobService.submit(dto(2)).getJobId();
+    Assertions.assertEquals(ReportJobState.DONE, awaitFinished(second));
+
+    Assertions.assertThrows(GenericNotFoundError.class, () -> reportJobService.status(first));
+  }
+
+  /**
+   * A running job at the head of the cache does not keep the finished jobs
+   * behind it from being evicted.
+   *
+   * @throws Exception if the test fails
+   */
+  @Test
+  public void testFinishedJobsEvictedBehindRunningJob() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    Mockito.when(managementService.measureReport(
+        Mockito.eq(1), Mockito.anyInt(), Mockito.anyInt(), Mockito.any(), Mockito.any()))
+        .thenAnswer(invocation -> {
+          release.await(10, TimeUnit.SECONDS);
+          return Arrays.asList(Collections.emptyMap(), Collections.emptyMap());
+        });
+    reportJobService = service(2, 1, 4);
+
+    UUID running = reportJobService.submit(dto(1)).getJobId();
+    UUID second = reportJobService.submit(dto(2)).getJobId();
+    awaitFinished(second);
+    UUID third = reportJobService.submit(dto(3)).getJobId();
+    awaitFinished(third);
+
+    try {
+      Assertions.assertThrows(GenericNotFoundError.class, () -> reportJobService.status(second));
+      Assertions.assertEquals(ReportJobState.DONE, reportJobService.status(third).getState());
+      Assertions.assertFalse(reportJobService.status(running).getState() == ReportJobState.DONE);
+    } finally {
+      release.countDown();
+    }
+    Assertions.assertEquals(ReportJobState.DONE, awaitFinished(running));
+  }
+
+  /**
+   * Creates the service under test.
+   *
+   * @param workers        - the number of report workers
+   * @param cacheSize      - the number of finished jobs kept
+   * @param maxPendingJobs - the number of jobs queued or running
+   * @return the service
+   */
+  private ReportJobService service(int workers, int cacheSize, int maxPendingJobs) {
+    return new ReportJobService(
+        managementService, Mockito.mock(LogRepository.class), workers, cacheSize, maxPendingJobs);
+  }
+
+  /**
+   * Waits for a job to finish.
+   *
+   * @param jobId - the id of the job
+   * @return the final state of the job
+   * @throws Exception if the job does not finish in time
+   */
+  private ReportJobState awaitFinished(UUID jobId) throws Exception {
+    long deadline = System.currentTimeMillis() + 10000;
+    while (System.currentTimeMillis() < deadline) {
+      ReportJobState state = reportJobService.status(jobId).getState();
+      if (state == ReportJobState.DONE || state == ReportJobState.FAILED) {
+        return state;
+      }
+      Thread.sleep(10);
+    }
+    throw new AssertionError("The job did not finish");
+  }
+
+  /**
+   * Creates the parameters of a report.
+   *
+   * @param numThreads - the maximum number of threads
+   * @return the parameters
+   */
+  private static GenerateReportDto dto(int numThreads) {
+    return GenerateReportDto
+        .builder()
+        .numThreads(numThreads)
+        .iterations(1)
+        .warmupIterations(0)
+        .mode(AnalysisMode.LATCH)
+        .build();
+  }
+}
@@ -0,0 +1,88 @@
+package lsea.service;
+
+import java.util.Date;
+import java.util.Optional;
+import java.util.UUID;
+import lsea.entity.RefreshToken;
+import lsea.entity.User;
+import lsea.errors.GenericForbiddenError;
+import lsea.repository.RefreshTokenRepository;
+import lsea.repository.UserRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+/**
+ * Unit tests for the SessionService class.
+ */
+public class SessionServiceTest {
+
+  /**
+   * Repository of the refresh tokens, mocked.
+   */
+  private RefreshTokenRepository refreshTokenRepository;
+
+  /**
+   * The service under test.
+   */
+  private SessionService sessionService;
+
+  /**
+   * The stored refresh token of the session.
+   */
+  private RefreshToken stored;
+
+  /**
+   * Set up a session with an active refresh token.
+   */
+  @BeforeEach
+  public void setUp() {
+    refreshTokenRepository = Mockito.mock(RefreshTokenRepository.class);
+    UserRepository userRepository = Mockito.mock(UserRepository.class);
+    sessionService = new SessionService(refreshTokenRepository, userRepository, 900, 604800, 2592000);
+
+    User user = User.builder().id(UUID.randomUUID()).email("session@example.com").build();
+    Date now = new Date();
+    stored = RefreshToken
+        .builder()
+        .id(UUID.randomUUID())
+        .userId(user.getId())
+        .familyId(UUID.randomUUID())
+        .sessionStartedAt(now)
+        .createdAt(now)
+        .expiresAt(new Date(now.getTime() + 60000))
+        .build();
+
+    Mockito.when(refreshTokenRepository.findByTokenHash(Mockito.anyString())).thenReturn(Optional.of(stored));
+    Mockito.when(userRepository.findById(user.getId())).thenReturn(Optional.of(user));
+  }
+
+  /**
+   * A token claimed by the exchange is rotated.
+   *
+   * @throws Exception if the test fails
+   */
+  @Test
+  public void testRefreshClaimsToken() throws Exception {
+    Mockito.when(refreshTokenRepository.claim(Mockito.eq(stored.getId()), Mockito.any())).thenReturn(1);
+
+    Assertions.assertNotNull(sessionService.refresh("token").getRefreshToken());
+
+    Mockito.verify(refreshTokenRepository, Mockito.never()).revokeFamily(Mockito.any(), Mockito.any());
+  }
+
+  /**
+   * A token claimed by a concurrent exchange is taken as a reuse and ends the
+   * session.
+   */
+  @Test
+  public void testRefreshLostClaimRevokesSession() {
+    Mockito.when(refreshTokenRepository.claim(Mockito.eq(stored.getId()), Mockito.any())).thenReturn(0);
+
+    Assertions.assertThrows(GenericForbiddenError.class, () -> sessionService.refresh("token"));
+
+    Mockito.verify(refreshTokenRepository).revokeFamily(Mockito.eq(stored.getFamilyId()), Mockito.any());
+    Mockito.verify(refreshTokenRepository, Mockito.never()).save(Mockito.any(RefreshToken.class));
+  }
+}
@@ -0,0 +1,68 @@
+package lsea.service;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import lsea.entity.Log;
+import lsea.entity.User;
+import lsea.errors.ValidationError;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Unit tests for the TestDataGenerator class.
+ */
+public class TestDataGeneratorTest {
+
+  /**
+   * Every row is written exactly once by the parallel writers, in batches no
+   * larger than the batch size.
+   *
+   * @throws Exception if the rows are not written
+   */
+  @Test
+  public void testGenerateInParallel() throws Exception {
+    LogBatchWriter logBatchWriter = Mockito.mock(LogBatchWriter.class);
+    Set<String> written = new HashSet<>();
+    Mockito.doAnswer(invocation -> {
+      List<Log> batch = invocation.getArgument(0);
+      Assertions.assertTrue(batch.size() <= 40);
+      synchronized (written) {
+        batch.forEach(log -> Assertions.assertTrue(written.add(log.getData())));
+      }
+      return null;
+    }).when(logBatchWriter).insert(Mockito.anyList());
+    TestDataGenerator generator = new TestDataGenerator(logBatchWriter,
+        Mockito.mock(PlatformTransactionManager.class), Mockito.mock(LogLeaderboard.class), 1000, 10000, 4);
+    User user = User.builder().id(UUID.randomUUID()).email("generator@example.com").username("generator").build();
+
+    Map<String, Object> results = generator.generate(user, 250, 40, 8);
+
+    Assertions.assertEquals(250, written.size());
+    Assertions.assertTrue(written.contains("test0") && written.contains("test249"));
+    Assertions.assertEquals(4, results.get("threads"));
+    Assertions.assertEquals(40, results.get("batchSize"));
+    Mockito.verify(logBatchWriter, Mockito.times(7)).insert(Mockito.anyList());
+  }
+
+  /**
+   * A negative number of logs and a batch size out of range are rejected
+   * before anything is written.
+   */
+  @Test
+  public void testGenerateRejectsInvalidParameters() {
+    LogBatchWriter logBatchWriter = Mockito.mock(LogBatchWriter.class);
+    TestDataGenerator generator = new TestDataGenerator(logBatchWriter,
+        Mockito.mock(PlatformTransactionManager.class), Mockito.mock(LogLeaderboard.class), 1000, 10000, 4);
+    User user = User.builder().id(UUID.randomUUID()).email("generator@example.com").username("generator").build();
+
+    Assertions.assertThrows(ValidationError.class, () -> generator.generate(user, -1, 0, 1));
+    Assertions.assertThrows(ValidationError.class, () -> generator.generate(user, 10, 1 << 30, 4));
+    Assertions.assertThrows(ValidationError.class, () -> generator.generate(user, 10, -5, 1));
+    Mockito.verifyNoInteractions(logBatchWriter);
+  }
+}
@@ -0,0 +1,86 @@
+package lsea.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Optional;
+import java.util.UUID;
+import lsea.entity.User;
+import lsea.repository.UserRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+/**
+ * Unit tests for the UserCache class.
+ */
+public class UserCacheTest {
+
+  /**
+   * The repository behind the cache.
+   */
+  private UserRepository userRepository;
+
+  /**
+   * The stored user.
+   */
+  private User user;
+
+  /**
+   * Set up a repository holding a single user.
+   */
+  @BeforeEach
+  public void setUp() {
+    user = User.builder().id(UUID.randomUUID()).email("cached@example.com").username("cached").build();
+    userRepository = Mockito.mock(UserRepository.class);
+    Mockito.when(userRepository.findById(user.getId())).thenAnswer(invocation -> Optional.of(user));
+    Mockito.when(userRepository.findByEmail(user.getEmail())).thenAnswer(invocation -> Optional.of(user));
+  }
+
+  /**
+   * A user is loaded once, then served by id and by email as a copy.
+   */
+  @Test
+  public void testFind() {
+    UserCache cache = new UserCache(userRepository, 60, 10, new SimpleMeterRegistry());
+
+    cache.findById(user.getId());
+    User byId = cache.findById(user.getId()).get();
+    User byEmail = cache.findByEmail(user.getEmail()).get();
+
+    Mockito.verify(userRepository, Mockito.times(1)).findById(user.getId());
+    Mockito.verify(userRepository, Mockito.never()).findByEmail(user.getEmail());
+    Assertions.assertEquals(user.getId(), byId.getId());
+    Assertions.assertEquals(user.getId(), byEmail.getId());
+    Assertions.assertNotSame(byId, byEmail);
+    Assertions.assertEquals(2.0 / 3, cache.hitRatio(), 1e-9);
+  }
+
+  /**
+   * An invalidated user is loaded again with its new state.
+   */
+  @Test
+  public void testInvalidate() {
+    UserCache cache = new UserCache(userRepository, 60, 10, new SimpleMeterRegistry());
+    cache.findById(user.getId());
+
+    user.ban(UUID.randomUUID(), "spam");
+    Assertions.assertFalse(cache.findById(user.getId()).get().isBanned());
+
+    cache.invalidate(user.getId());
+    Assertions.assertTrue(cache.findById(user.getId()).get().isBanned());
+    Mockito.verify(userRepository, Mockito.times(2)).findById(user.getId());
+  }
+
+  /**
+   * A disabled cache always queries the repository.
+   */
+  @Test
+  public void testDisabled() {
+    UserCache cache = new UserCache(userRepository, 0, 10, new SimpleMeterRegistry());
+
+    cache.findById(user.getId());
+    cache.findById(user.getId());
+
+    Mockito.verify(userRepository, Mockito.times(2)).findById(user.getId());
+  }
+}
@@ -2,14 +2,20 @@ package lsea.tcp;
 
 import java.sql.Timestamp;
 import java.time.Instant;
+import java.util.Date;
 import java.util.List;
+import java.util.UUID;
 import lsea.LaboratoryApplication;
 import lsea.entity.Log;
+import lsea.repository.LogRepository;
 import lsea.service.LogService;
+import lsea.utils.LogType;
+import lsea.utils.TimeOrderedUuid;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * This class contains the tests for the TCP server functions.
@@ -23,6 +29,12 @@ public class TCPServerFunctionsTest {
   @Autowired
   private LogService logService;
 
+  /**
+   * The log repository.
+   */
+  @Autowired
+  private LogRepository logRepository;
+
   /**
    * No logs for a random user id, so the list should be empty.
    */
@@ -41,4 +53,29 @@ public class TCPServerFunctionsTest {
     List<Log> newLogs = logService.findLiveLogs(timestamp);
     Assertions.assertTrue(newLogs.isEmpty());
   }
+
+  /**
+   * A new log is found by the live capture, without the state of its user.
+   */
+  @Test
+  @Transactional
+  void testFindLiveLogsWithoutUserState() {
+    Timestamp timestamp = Timestamp.from(Instant.now().minusSeconds(1));
+    Log log = logRepository.save(Log.builder()
+        .id(TimeOrderedUuid.next())
+        .data("live log")
+        .dataLength(8)
+        .logType(LogType.Success)
+        .userId(UUID.randomUUID())
+        .createdAt(new Date())
+        .userCurrentState("{}")
+        .build());
+
+    List<Log> newLogs = logService.findLiveLogs(timestamp);
+
+    Assertions.assertEquals(1, newLogs.size());
+    Assertions.assertEquals(log.getId(), newLogs.get(0).getId());
+    Assertions.assertEquals("live log", newLogs.get(0).getData());
+    Assertions.assertNull(newLogs.get(0).getUserCurrentState());
+  }
 }
@@ -0,0 +1,138 @@
+package lsea.tcp;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.Collections;
+import java.util.UUID;
+import lsea.LaboratoryApplication;
+import lsea.entity.Log;
+import lsea.service.LogBus;
+import lsea.utils.JwtTokenIssuer;
+import lsea.utils.TimeOrderedUuid;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * This class contains the tests of the TCP server, through real sockets.
+ */
+@SpringBootTest(classes = { LaboratoryApplication.class }, properties = "lsea.tcp.handshake-timeout-ms=500")
+public class TcpLogServerTest {
+
+  /**
+   * The server, listening on a free port in the tests.
+   */
+  @Autowired
+  private TcpLogServer server;
+
+  /**
+   * The bus of the logs pushed to the live clients.
+   */
+  @Autowired
+  private LogBus logBus;
+
+  /**
+   * A client with an invalid token is disconnected.
+   */
+  @Test
+  void testInvalidTokenDisconnected() throws IOException {
+    try (Socket socket = connect()) {
+      ObjectInputStream input = new ObjectInputStream(socket.getInputStream());
+      send(socket, "invalid_token");
+
+      Assertions.assertThrows(EOFException.class, input::readInt);
+    }
+  }
+
+  /**
+   * A client that never sends its token is disconnected after the handshake
+   * timeout.
+   */
+  @Test
+  void testSilentClientDisconnected() throws IOException {
+    try (Socket socket = connect()) {
+      ObjectInputStream input = new ObjectInputStream(socket.getInputStream());
+      long start = System.currentTimeMillis();
+
+      Assertions.assertThrows(EOFException.class, input::readInt);
+      Assertions.assertTrue(System.currentTimeMillis() - start < 5000);
+    }
+  }
+
+  /**
+   * A page of logs is answered even when the token and the command are read
+   * at once.
+   */
+  @Test
+  void testGetLogCursor() throws IOException, ClassNotFoundException {
+    try (Socket socket = connect()) {
+      ObjectInputStream input = new ObjectInputStream(socket.getInputStream());
+      send(socket, JwtTokenIssuer.getInstance().issue(UUID.randomUUID()) + "get-log-cursor");
+      send(socket, "5,");
+
+      int count = input.readInt();
+      for (int i = 0; i < count; i++) {
+        Assertions.assertTrue(input.readObject() instanceof Log);
+      }
+      input.readObject();
+      Assertions.assertTrue(count <= 5);
+    }
+  }
+
+  /**
+   * A live client is pushed the published logs until it stops the capture.
+   */
+  @Test
+  void testLiveLogsPushed() throws IOException, ClassNotFoundException {
+    try (Socket socket = connect()) {
+      ObjectInputStream input = new ObjectInputStream(socket.getInputStream());
+      send(socket, JwtTokenIssuer.getInstance().issue(UUID.randomUUID()));
+      send(socket, "live-get-log");
+      Assertions.assertEquals(0, input.readInt());
+
+      Log log = Log.builder().id(TimeOrderedUuid.next()).data("pushed log").build();
+      logBus.publishAll(Collections.singletonList(log));
+      int count;
+      while ((count = input.readInt()) == 0) {
+        // heartbeats sent before the log
+      }
+      Assertions.assertEquals(1, count);
+      Assertions.assertEquals(log.getId(), ((Log) input.readObject()).getId());
+
+      send(socket, "live-stop");
+      while ((count = input.readInt()) == 0) {
+        // heartbeats sent before the stop was read
+      }
+      Assertions.assertEquals(-1, count);
+    }
+  }
+
+  /**
+   * Connects to the server.
+   *
+   * @return the socket
+   * @throws IOException if the server cannot be reached
+   */
+  private Socket connect() throws IOException {
+    Socket socket = new Socket("localhost", server.getPort());
+    socket.setSoTimeout(10000);
+    return socket;
+  }
+
+  /**
+   * Sends a message to the server.
+   *
+   * @param socket  - the socket
+   * @param message - the message
+   * @throws IOException if the message cannot be sent
+   */
+  private static void send(Socket socket, String message) throws IOException {
+    OutputStream output = socket.getOutputStream();
+    output.write(message.getBytes());
+    output.flush();
+  }
+}
@@ -0,0 +1,60 @@
+package lsea.utils;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import java.util.Date;
+import java.util.UUID;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the JwtTokenIssuer class.
+ */
+public class JwtTokenIssuerTest {
+
+  /**
+   * The secret of the tests.
+   */
+  private static final String SECRET = RandomBase64Generator.generateLong();
+
+  /**
+   * A token is the one the jjwt builder signs for the same claims.
+   */
+  @Test
+  public void testSameAsJjwt() {
+    JwtTokenIssuer issuer = new JwtTokenIssuer(SECRET);
+    UUID subject = UUID.randomUUID();
+    UUID id = UUID.randomUUID();
+    long now = 1700000000123L;
+
+    String expected = Jwts
+        .builder()
+        .setId(id.toString())
+        .setSubject(subject.toString())
+        .setIssuedAt(new Date(now))
+        .setExpiration(new Date(now + JwtTokenIssuer.TOKEN_LIFETIME_MILLIS))
+        .signWith(SignatureAlgorithm.HS256, SECRET)
+        .compact();
+
+    Assertions.assertEquals(expected, issuer.issue(subject, id, now));
+  }
+
+  /**
+   * A token is verified by jjwt and carries a fresh id.
+   */
+  @Test
+  public void testVerifiedByJjwt() {
+    JwtTokenIssuer issuer = new JwtTokenIssuer(SECRET);
+    UUID subject = UUID.randomUUID();
+
+    String token = issuer.issue(subject);
+    Claims claims = Jwts.parser().setSigningKey(SECRET).parseClaimsJws(token).getBody();
+
+    Assertions.assertEquals(subject.toString(), claims.getSubject());
+    Assertions.assertEquals(4, UUID.fromString(claims.getId()).version());
+    Assertions.assertNotEquals(claims.getId(),
+        Jwts.parser().setSigningKey(SECRET).parseClaimsJws(issuer.issue(subject)).getBody().getId());
+    Assertions.assertTrue(claims.getExpiration().after(new Date()));
+  }
+}
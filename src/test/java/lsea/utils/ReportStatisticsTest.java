@@ -0,0 +1,42 @@
+package lsea.utils;
+
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the ReportStatistics class.
+ */
+public class ReportStatisticsTest {
+
+  /**
+   * The statistics are read from the histogram and converted to microseconds.
+   */
+  @Test
+  public void testOf() {
+    Histogram histogram = new Histogram(3);
+    for (long micros = 1; micros <= 100; micros++) {
+      histogram.recordValue(micros * 1000);
+    }
+
+    ReportStatistics statistics = ReportStatistics.of(histogram);
+
+    Assertions.assertEquals(100, statistics.getSamples());
+    Assertions.assertEquals(50.5, statistics.getMean(), 0.1);
+    Assertions.assertEquals(50, statistics.getP50(), 0.1);
+    Assertions.assertEquals(90, statistics.getP90(), 0.1);
+    Assertions.assertEquals(99, statistics.getP99(), 0.1);
+    Assertions.assertEquals(100, statistics.getMax(), 0.1);
+  }
+
+  /**
+   * An empty histogram gives zero durations.
+   */
+  @Test
+  public void testOfEmpty() {
+    ReportStatistics statistics = ReportStatistics.of(new Histogram(3));
+
+    Assertions.assertEquals(0, statistics.getSamples());
+    Assertions.assertEquals(0, statistics.getP99());
+  }
+}
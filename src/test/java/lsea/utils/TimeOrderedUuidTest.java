@@ -0,0 +1,43 @@
+package lsea.utils;
+
+import java.util.UUID;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the TimeOrderedUuid class.
+ */
+public class TimeOrderedUuidTest {
+
+  /**
+   * An identifier is a version 7 UUID carrying its creation time.
+   */
+  @Test
+  public void testLayout() {
+    long before = System.currentTimeMillis();
+    UUID id = TimeOrderedUuid.next();
+    long after = System.currentTimeMillis();
+
+    Assertions.assertEquals(7, id.version());
+    Assertions.assertEquals(2, id.variant());
+    Assertions.assertTrue(TimeOrderedUuid.timestampOf(id) >= before);
+    // a counter overflow may borrow a few milliseconds
+    Assertions.assertTrue(TimeOrderedUuid.timestampOf(id) <= after + 1000);
+  }
+
+  /**
+   * Identifiers created in a burst are strictly increasing, in their textual
+   * form as well.
+   */
+  @Test
+  public void testIncreasing() {
+    UUID previous = TimeOrderedUuid.next();
+    for (int i = 0; i < 100000; i++) {
+      UUID id = TimeOrderedUuid.next();
+      Assertions.assertTrue(Long.compareUnsigned(previous.getMostSignificantBits(),
+          id.getMostSignificantBits()) < 0);
+      Assertions.assertTrue(previous.toString().compareTo(id.toString()) < 0);
+      previous = id;
+    }
+  }
+}
@@ -0,0 +1,106 @@
+package lsea.utils;
+
+import java.util.UUID;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the TokenRevocationList class.
+ */
+public class TokenRevocationListTest {
+
+  /**
+   * A revoked token is rejected, the other tokens of its user are not.
+   */
+  @Test
+  public void testRevokeToken() {
+    TokenRevocationList revocations = new TokenRevocationList(1024);
+    UUID subject = UUID.randomUUID();
+    long now = System.currentTimeMillis();
+    VerifiedToken revoked = new VerifiedToken(subject, UUID.randomUUID(), now, now + 60000);
+    VerifiedToken other = new VerifiedToken(subject, UUID.randomUUID(), now, now + 60000);
+
+    Assertions.assertTrue(revocations.revokeToken(revoked.getId(), revoked.getExpiresAt()));
+
+    Assertions.assertTrue(revocations.isRevoked(revoked));
+    Assertions.assertFalse(revocations.isRevoked(other));
+  }
+
+  /**
+   * Revoking a user rejects the tokens issued up to the revocation only.
+   */
+  @Test
+  public void testRevokeUser() {
+    TokenRevocationList revocations = new TokenRevocationList(1024);
+    UUID subject = UUID.randomUUID();
+    long now = System.currentTimeMillis();
+
+    revocations.revokeUser(subject, now, now + 60000);
+
+    Assertions.assertTrue(revocations.isRevoked(new VerifiedToken(subject, UUID.randomUUID(), now - 1000, now + 60000)));
+    Assertions.assertFalse(revocations.isRevoked(new VerifiedToken(subject, UUID.randomUUID(), now + 1000, now + 60000)));
+    Assertions.assertFalse(revocations.isRevoked(new VerifiedToken(UUID.randomUUID(), null, now - 1000, now + 60000)));
+
+    revocations.cancelUser(subject, now);
+    Assertions.assertFalse(revocations.isRevoked(new VerifiedToken(subject, null, now - 1000, now + 60000)));
+  }
+
+  /**
+   * Cancelling a revocation that replaced a committed one enforces the earlier
+   * revocation again.
+   */
+  @Test
+  public void testCancelUserRestoresPrevious() {
+    TokenRevocationList revocations = new TokenRevocationList(1024);
+    UUID subject = UUID.randomUUID();
+    long now = System.currentTimeMillis();
+
+    revocations.revokeUser(subject, now - 5000, now + 60000);
+    revocations.revokeUser(subject, now, now + 60000);
+    revocations.cancelUser(subject, now);
+
+    Assertions.assertTrue(revocations.isRevoked(new VerifiedToken(subject, null, now - 6000, now + 60000)));
+    Assertions.assertFalse(revocations.isRevoked(new VerifiedToken(subject, null, now - 1000, now + 60000)));
+  }
+
+  /**
+   * A cancelled revocation already replaced is not restored when the later one
+   * is cancelled too.
+   */
+  @Test
+  public void testCancelReplacedUser() {
+    TokenRevocationList revocations = new TokenRevocationList(1024);
+    UUID subject = UUID.randomUUID();
+    long now = System.currentTimeMillis();
+
+    revocations.revokeUser(subject, now - 5000, now + 60000);
+    revocations.revokeUser(subject, now, now + 60000);
+    revocations.cancelUser(subject, now - 5000);
+    revocations.cancelUser(subject, now);
+
+    Assertions.assertFalse(revocations.isRevoked(new VerifiedToken(subject, null, now - 6000, now + 60000)));
+  }
+
+  /**
+   * The expired revocations are dropped by a purge.
+   */
+  @Test
+  public void testPurge() {
+    TokenRevocationList revocations = new TokenRevocationList(1024);
+    long now = System.currentTimeMillis();
+    UUID expiring = UUID.randomUUID();
+
+    revocations.revokeToken(expiring, now + 50);
+    revocations.revokeToken(UUID.randomUUID(), now + 60000);
+    Assertions.assertFalse(revocations.revokeToken(UUID.randomUUID(), now - 1));
+    Assertions.assertEquals(2, revocations.size());
+
+    while (System.currentTimeMillis() <= now + 50) {
+      Thread.yield();
+    }
+    revocations.purge();
+
+    Assertions.assertEquals(1, revocations.size());
+    Assertions.assertFalse(revocations.isRevoked(new VerifiedToken(UUID.randomUUID(), expiring, now, now + 50)));
+  }
+}
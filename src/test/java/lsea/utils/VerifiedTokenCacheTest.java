@@ -0,0 +1,66 @@
+package lsea.utils;
+
+import java.util.UUID;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the VerifiedTokenCache class.
+ */
+public class VerifiedTokenCacheTest {
+
+  /**
+   * A cached token is returned until it expires.
+   */
+  @Test
+  public void testGet() {
+    VerifiedTokenCache cache = new VerifiedTokenCache(10);
+    UUID subject = UUID.randomUUID();
+    long now = System.currentTimeMillis();
+
+    cache.put("valid", subject, now + 60000);
+    cache.put("expired", subject, now - 1);
+
+    Assertions.assertEquals(subject, cache.get("valid"));
+    Assertions.assertNull(cache.get("expired"));
+    Assertions.assertNull(cache.get("unknown"));
+    Assertions.assertEquals(1, cache.getHits());
+    Assertions.assertEquals(2, cache.getMisses());
+  }
+
+  /**
+   * The tokens of a user are dropped, the others are kept.
+   */
+  @Test
+  public void testInvalidateUser() {
+    VerifiedTokenCache cache = new VerifiedTokenCache(10);
+    UUID banned = UUID.randomUUID();
+    UUID other = UUID.randomUUID();
+    long expiresAt = System.currentTimeMillis() + 60000;
+
+    cache.put("first", banned, expiresAt);
+    cache.put("second", banned, expiresAt);
+    cache.put("third", other, expiresAt);
+    cache.invalidateUser(banned);
+
+    Assertions.assertNull(cache.get("first"));
+    Assertions.assertNull(cache.get("second"));
+    Assertions.assertEquals(other, cache.get("third"));
+  }
+
+  /**
+   * The cache never holds more tokens than its maximum size.
+   */
+  @Test
+  public void testMaximumSize() {
+    VerifiedTokenCache cache = new VerifiedTokenCache(20);
+    long expiresAt = System.currentTimeMillis() + 60000;
+
+    for (int i = 0; i < 100; i++) {
+      cache.put("token" + i, UUID.randomUUID(), expiresAt);
+      Assertions.assertTrue(cache.size() <= 20);
+    }
+    Assertions.assertTrue(cache.getEvictions() > 0);
+    Assertions.assertNotNull(cache.get("token99"));
+  }
+}